@@ -4,7 +4,7 @@ package org.nypl.simplified.accounts.api
  * A generic interface for safely storing credentials for accounts.
  */
 
-interface AccountAuthenticationCredentialsStoreType {
+interface AccountAuthenticationCredentialsStoreType : AutoCloseable {
   /**
    * Obtain the credentials for the given account, if any.
    */
@@ -31,4 +31,30 @@ interface AccountAuthenticationCredentialsStoreType {
    */
 
   fun size(): Int
+
+  /**
+   * Write any pending modifications to storage. Stores that write every modification
+   * immediately need not do anything here.
+   */
+
+  fun flush() {
+    // Nothing to do by default.
+  }
+
+  /**
+   * Write any pending modifications to storage without blocking the calling thread, if the
+   * store is able to do so. Stores without a thread of their own flush on the calling thread.
+   */
+
+  fun flushAsync() {
+    this.flush()
+  }
+
+  /**
+   * Write any pending modifications to storage and release any resources held by the store.
+   */
+
+  override fun close() {
+    this.flush()
+  }
 }
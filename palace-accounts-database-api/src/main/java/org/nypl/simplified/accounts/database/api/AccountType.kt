@@ -56,24 +56,34 @@ interface AccountType : AccountReadableType {
    * Update the account credentials using the given function, if the account is in a
    * state where credentials are available. This is typically used to update parts of
    * the credentials that are not under user control, such as the annotations URI that
-   * is included for some accounts.
+   * is included for some accounts. The login state is not written if the function returns
+   * credentials equal to the current credentials.
    *
    * @throws AccountsDatabaseException On database errors
    */
 
   @Throws(AccountsDatabaseException::class)
-  fun updateCredentialsIfAvailable(update: (AccountAuthenticationCredentials) -> AccountAuthenticationCredentials) =
+  fun updateCredentialsIfAvailable(update: (AccountAuthenticationCredentials) -> AccountAuthenticationCredentials) {
     when (val state = this.loginState) {
       is AccountLoginState.AccountLoggedIn -> {
-        this.setLoginState(state.copy(update.invoke(state.credentials)))
+        val credentials = update.invoke(state.credentials)
+        if (credentials != state.credentials) {
+          this.setLoginState(state.copy(credentials))
+        }
       }
 
       is AccountLoginState.AccountLoggedInStaleCredentials -> {
-        this.setLoginState(state.copy(update.invoke(state.credentials)))
+        val credentials = update.invoke(state.credentials)
+        if (credentials != state.credentials) {
+          this.setLoginState(state.copy(credentials))
+        }
       }
 
       is AccountLoginState.AccountLoggingOut -> {
-        this.setLoginState(state.copy(update.invoke(state.credentials)))
+        val credentials = update.invoke(state.credentials)
+        if (credentials != state.credentials) {
+          this.setLoginState(state.copy(credentials))
+        }
       }
 
       is AccountLoginState.AccountLoggingIn,
@@ -84,6 +94,7 @@ interface AccountType : AccountReadableType {
         Unit
       }
     }
+  }
 
   /**
    * Update the account's access token if the current credentials are from the BasicToken type. This
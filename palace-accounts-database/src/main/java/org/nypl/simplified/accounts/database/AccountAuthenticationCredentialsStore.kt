@@ -6,34 +6,68 @@ import org.nypl.simplified.accounts.api.AccountAuthenticationCredentialsStoreTyp
 import org.nypl.simplified.accounts.api.AccountID
 import org.nypl.simplified.accounts.json.AccountAuthenticationCredentialsStoreJSON
 import org.nypl.simplified.files.FileUtilities
+import org.slf4j.LoggerFactory
 import java.io.File
+import java.time.Duration
+import java.util.concurrent.Executors
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
 
 /**
  * A trivial credential store that serializes credentials to an on-disk JSON file.
+ *
+ * If the store is given a non-zero write delay, modifications are not written immediately.
+ * Instead, a write is scheduled to happen after the delay has elapsed, and any modifications
+ * made in the meantime are coalesced into that single write. If a scheduled write fails, it is
+ * retried with an increasing delay until it succeeds. Pending modifications are always
+ * written when the store is flushed or closed. In all modes, a write is skipped if the serialized
+ * credentials are identical to those that were last written to disk.
  */
 
 class AccountAuthenticationCredentialsStore(
   private val file: File,
   private val fileTemp: File,
-  initialCredentials: Map<AccountID, AccountAuthenticationCredentials>
+  private val writeDelay: Duration,
+  initialCredentials: Map<AccountID, AccountAuthenticationCredentials>,
+  initialText: String?
 ) : AccountAuthenticationCredentialsStoreType {
   companion object {
+    private val logger =
+      LoggerFactory.getLogger(AccountAuthenticationCredentialsStore::class.java)
+
+    /**
+     * The maximum delay between attempts to retry a failed write.
+     */
+
+    private val WRITE_RETRY_DELAY_MAXIMUM: Duration =
+      Duration.ofMinutes(5L)
+
     /**
      * Open a credential store, or create a new one if it does not exist.
+     *
+     * @param writeDelay The period of time over which modifications will be coalesced into a
+     *                   single write. A zero delay causes every modification to be written
+     *                   immediately.
      */
 
     fun open(
       file: File,
-      fileTemp: File
+      fileTemp: File,
+      writeDelay: Duration = Duration.ZERO
     ): AccountAuthenticationCredentialsStoreType {
-      val initialCredentials =
+      require(!writeDelay.isNegative) { "Write delay must be non-negative" }
+
+      val text =
         if (file.isFile) {
-          val text = FileUtilities.fileReadUTF8(file)
-          if (text.isNotEmpty()) {
-            AccountAuthenticationCredentialsStoreJSON.deserializeFromText(text)
-          } else {
-            mapOf()
-          }
+          FileUtilities.fileReadUTF8(file)
+        } else {
+          null
+        }
+
+      val initialCredentials =
+        if (!text.isNullOrEmpty()) {
+          AccountAuthenticationCredentialsStoreJSON.deserializeFromText(text)
         } else {
           mapOf()
         }
@@ -42,9 +76,17 @@ class AccountAuthenticationCredentialsStore(
         AccountAuthenticationCredentialsStore(
           file = file,
           fileTemp = fileTemp,
-          initialCredentials = initialCredentials
+          writeDelay = writeDelay,
+          initialCredentials = initialCredentials,
+          initialText = text
         )
 
+      /*
+       * Write the store immediately. This will normalize the on-disk file (removing any
+       * entries that could not be parsed, for example), but will not touch the file at
+       * all if it already contains exactly what we would write.
+       */
+
       synchronized(store.storeLock) {
         store.writeLocked()
       }
@@ -57,6 +99,33 @@ class AccountAuthenticationCredentialsStore(
   @GuardedBy("storeLock")
   private var store = initialCredentials.toMap()
 
+  @GuardedBy("storeLock")
+  private var storeTextLastWritten: String? = initialText
+
+  @GuardedBy("storeLock")
+  private var storeDirty = false
+
+  @GuardedBy("storeLock")
+  private var writeScheduled = false
+
+  @GuardedBy("storeLock")
+  private var writeFailures = 0
+
+  @GuardedBy("storeLock")
+  private var closed = false
+
+  private val executor: ScheduledExecutorService? =
+    if (this.writeDelay.isZero) {
+      null
+    } else {
+      Executors.newSingleThreadScheduledExecutor { r ->
+        val thread = Thread(r)
+        thread.name = "org.nypl.simplified.accounts.database.credentials[${thread.id}]"
+        thread.isDaemon = true
+        thread
+      }
+    }
+
   override fun get(account: AccountID): AccountAuthenticationCredentials? =
     synchronized(this.storeLock) {
       this.store[account]
@@ -72,23 +141,136 @@ class AccountAuthenticationCredentialsStore(
     credentials: AccountAuthenticationCredentials
   ) {
     synchronized(this.storeLock) {
+      if (this.store[account] == credentials) {
+        return
+      }
       this.store = this.store.plus(Pair(account, credentials))
-      this.writeLocked()
+      this.onModifiedLocked()
     }
   }
 
   override fun delete(account: AccountID) {
     synchronized(this.storeLock) {
+      if (!this.store.containsKey(account)) {
+        return
+      }
       this.store = this.store.minus(account)
+      this.onModifiedLocked()
+    }
+  }
+
+  override fun flush() {
+    synchronized(this.storeLock) {
+      if (this.storeDirty) {
+        this.writeLocked()
+      }
+    }
+  }
+
+  /**
+   * Write any pending modifications on the store's own thread, if the store has one. This
+   * is suitable for calling from threads that must not perform I/O.
+   */
+
+  override fun flushAsync() {
+    val exec = this.executor
+    if (exec == null) {
+      this.flush()
+      return
+    }
+
+    try {
+      exec.execute {
+        try {
+          this.flush()
+        } catch (e: Throwable) {
+          logger.error("Failed to flush credentials store: ", e)
+        }
+      }
+    } catch (e: RejectedExecutionException) {
+      logger.debug("Credentials store is closed; not flushing.")
+    }
+  }
+
+  override fun close() {
+    try {
+      synchronized(this.storeLock) {
+        if (this.closed) {
+          return
+        }
+        this.closed = true
+        if (this.storeDirty) {
+          this.writeLocked()
+        }
+      }
+    } finally {
+      this.executor?.shutdownNow()
+    }
+  }
+
+  private fun onModifiedLocked() {
+    this.storeDirty = true
+
+    val exec = this.executor
+    if (exec == null || this.closed) {
       this.writeLocked()
+      return
+    }
+
+    if (!this.writeScheduled) {
+      this.scheduleWriteLocked(exec, this.writeDelay)
     }
   }
 
-  private fun writeLocked() {
-    FileUtilities.fileWriteUTF8Atomically(
-      this.file,
-      this.fileTemp,
-      AccountAuthenticationCredentialsStoreJSON.serializeToText(this.store)
+  @GuardedBy("storeLock")
+  private fun scheduleWriteLocked(
+    exec: ScheduledExecutorService,
+    delay: Duration
+  ) {
+    this.writeScheduled = true
+    exec.schedule(
+      { this.onScheduledWrite() },
+      delay.toMillis(),
+      TimeUnit.MILLISECONDS
     )
   }
+
+  private fun onScheduledWrite() {
+    synchronized(this.storeLock) {
+      this.writeScheduled = false
+      if (!this.storeDirty) {
+        return
+      }
+
+      try {
+        this.writeLocked()
+        this.writeFailures = 0
+      } catch (e: Throwable) {
+        this.writeFailures += 1
+        logger.error("Failed to write credentials store (attempt {}): ", this.writeFailures, e)
+
+        /*
+         * The modifications are still pending, so try again later. The delay doubles with
+         * each consecutive failure, up to a maximum.
+         */
+
+        val exec = this.executor
+        if (exec != null && !this.closed) {
+          val shift = this.writeFailures.coerceAtMost(16)
+          val delay = this.writeDelay.multipliedBy(1L shl shift)
+          this.scheduleWriteLocked(exec, minOf(delay, WRITE_RETRY_DELAY_MAXIMUM))
+        }
+      }
+    }
+  }
+
+  @GuardedBy("storeLock")
+  private fun writeLocked() {
+    val text = AccountAuthenticationCredentialsStoreJSON.serializeToText(this.store)
+    if (text != this.storeTextLastWritten) {
+      FileUtilities.fileWriteUTF8Atomically(this.file, this.fileTemp, text)
+      this.storeTextLastWritten = text
+    }
+    this.storeDirty = false
+  }
 }
@@ -123,6 +123,33 @@ interface AccountProviderRegistryType : AutoCloseable {
 
   fun findAccountProviderDescription(id: URI): AccountProviderDescription? = this.accountProviderDescriptions()[id]
 
+  /**
+   * Search the titles and descriptions of the account provider descriptions, returning at most
+   * `limit` descriptions with the best matches first. The default implementation returns the
+   * descriptions whose titles contain the query.
+   */
+
+  fun searchAsync(
+    query: String,
+    limit: Int
+  ): CompletableFuture<List<AccountProviderDescription>> =
+    CompletableFuture.completedFuture(
+      this.accountProviderDescriptions()
+        .values
+        .filter { description -> description.title.contains(query.trim(), ignoreCase = true) }
+        .take(limit)
+    )
+
+  /**
+   * Search the titles and descriptions of the account provider descriptions, returning at most
+   * `limit` descriptions with the best matches first.
+   */
+
+  fun search(
+    query: String,
+    limit: Int
+  ): List<AccountProviderDescription> = this.searchAsync(query, limit).get()
+
   /**
    * Introduce the given account provider to the registry. If an existing, newer version of the
    * given account provider already exists in the registry, the newer version is returned.
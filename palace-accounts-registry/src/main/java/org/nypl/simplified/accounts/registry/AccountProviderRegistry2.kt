@@ -36,9 +36,13 @@ import org.slf4j.LoggerFactory
 import org.thepalaceproject.db.api.DBType
 import org.thepalaceproject.db.api.queries.DBQAccountProviderDescriptionDeleteAllType
 import org.thepalaceproject.db.api.queries.DBQAccountProviderDescriptionDeleteType
+import org.thepalaceproject.db.api.queries.DBQAccountProviderDescriptionGetType
 import org.thepalaceproject.db.api.queries.DBQAccountProviderDescriptionIDSetType
 import org.thepalaceproject.db.api.queries.DBQAccountProviderDescriptionListType
 import org.thepalaceproject.db.api.queries.DBQAccountProviderDescriptionPutType
+import org.thepalaceproject.db.api.queries.DBQAccountProviderDescriptionSearchType
+import org.thepalaceproject.db.api.queries.DBQAccountProviderDescriptionSummary
+import org.thepalaceproject.db.api.queries.DBQAccountProviderDescriptionSummaryListType
 import org.thepalaceproject.db.api.queries.DBQAccountProviderGetType
 import org.thepalaceproject.db.api.queries.DBQAccountProviderListType
 import org.thepalaceproject.db.api.queries.DBQAccountProviderPutType
@@ -411,6 +415,7 @@ class AccountProviderRegistry2 private constructor(
 
     val idsUpdated = mutableSetOf<URI>()
     idsUpdated.add(this.defaultProvider.id)
+    val stored = this.opLoadSummaries()
 
     var updated = 0
     var totalItems: Int? = null
@@ -442,7 +447,7 @@ class AccountProviderRegistry2 private constructor(
             continue
           }
 
-          this.opProcessCatalog(catalog)
+          this.opProcessCatalog(catalog, stored)
           idsUpdated.add(identifier)
 
           val catalogUpdated = catalog.metadata.updated
@@ -498,6 +503,7 @@ class AccountProviderRegistry2 private constructor(
   ): Int {
     val idsUpdated = mutableSetOf<URI>()
     idsUpdated.add(this.defaultProvider.id)
+    val stored = this.opLoadSummaries()
 
     var updated = 0
     var totalItems: Int? = null
@@ -529,7 +535,7 @@ class AccountProviderRegistry2 private constructor(
             continue
           }
 
-          this.opProcessCatalog(catalog)
+          this.opProcessCatalog(catalog, stored)
           idsUpdated.add(identifier)
           updated += 1
         }
@@ -595,10 +601,46 @@ class AccountProviderRegistry2 private constructor(
     this.eventsActual.onNext(StatusChanged)
   }
 
-  private fun opProcessCatalog(catalog: WPMCatalog) {
+  /**
+   * Load the summaries of the stored descriptions. The summaries are read without decoding
+   * the stored descriptions, and are used to avoid rewriting descriptions that have not
+   * changed.
+   */
+
+  private fun opLoadSummaries(): Map<URI, DBQAccountProviderDescriptionSummary> =
+    this.database.openTransaction().use { t ->
+      t.execute(
+        queryType = DBQAccountProviderDescriptionSummaryListType::class.java,
+        parameters =
+          DBQAccountProviderDescriptionSummaryListType.Parameters(
+            startingId = null,
+            limit = MAXIMUM_PROVIDER_DESCRIPTIONS
+          )
+      ).associateBy { summary -> summary.id }
+    }
+
+  private fun opProcessCatalog(
+    catalog: WPMCatalog,
+    stored: Map<URI, DBQAccountProviderDescriptionSummary>
+  ) {
     val accountProviderDescription: AccountProviderDescription =
       this.opCatalogToAccountProviderDescription(catalog)
 
+    /*
+     * If the stored copy of the description has the same title and update time, and is
+     * already loaded, then there is nothing to write.
+     */
+
+    val summary = stored[accountProviderDescription.id]
+    if (summary != null &&
+      summary.title == accountProviderDescription.title &&
+      summary.updated.isEqual(accountProviderDescription.updated) &&
+      this.accountProviderDescriptionsAttributeSrc.get().containsKey(accountProviderDescription.id)
+    ) {
+      this.logger.debug("Unchanged catalog {}", accountProviderDescription.title)
+      return
+    }
+
     this.opProcessAccountProviderDescription(accountProviderDescription)
   }
 
@@ -917,6 +959,37 @@ class AccountProviderRegistry2 private constructor(
     }
   }
 
+  override fun searchAsync(
+    query: String,
+    limit: Int
+  ): CompletableFuture<List<AccountProviderDescription>> = this.executeMain { this.opSearch(query, limit) }
+
+  private fun opSearch(
+    query: String,
+    limit: Int
+  ): List<AccountProviderDescription> =
+    this.database.openTransaction().use { t ->
+      val ids =
+        t.execute(
+          queryType = DBQAccountProviderDescriptionSearchType::class.java,
+          parameters =
+            DBQAccountProviderDescriptionSearchType.Parameters(
+              query = query,
+              limit = limit
+            )
+        )
+
+      /*
+       * Prefer the descriptions that are already loaded, and only decode the descriptions
+       * that are not.
+       */
+
+      val loaded = this.accountProviderDescriptionsAttributeSrc.get()
+      ids.mapNotNull { id ->
+        loaded[id] ?: t.execute(DBQAccountProviderDescriptionGetType::class.java, id)
+      }
+    }
+
   override fun updateDescriptionAsync(description: AccountProviderDescription): CompletableFuture<AccountProviderDescription> =
     this.executeMain { this.opUpdateDescriptions(listOf(description)).first() }
 
@@ -0,0 +1,34 @@
+package org.nypl.simplified.analytics.api
+
+/**
+ * The result of attempting to deliver a queued analytics entry.
+ */
+
+enum class AnalyticsDeliveryResult {
+
+  /**
+   * The entry was delivered, and can be removed from the queue.
+   */
+
+  DELIVERED,
+
+  /**
+   * The entry could not be delivered, but might be delivered if tried again later.
+   */
+
+  FAILED_TEMPORARILY,
+
+  /**
+   * The entry cannot be delivered until something other than the server changes (for example,
+   * until credentials become available). The entry is kept and retried later, but does not
+   * hold up the delivery of other entries.
+   */
+
+  DEFERRED,
+
+  /**
+   * The entry can never be delivered, and should be removed from the queue.
+   */
+
+  FAILED_PERMANENTLY
+}
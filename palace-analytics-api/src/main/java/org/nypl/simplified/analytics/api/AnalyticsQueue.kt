@@ -0,0 +1,428 @@
+package org.nypl.simplified.analytics.api
+
+import org.slf4j.LoggerFactory
+import java.io.File
+import java.io.IOException
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption
+import java.time.Duration
+import java.time.Instant
+import java.util.Properties
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.ScheduledFuture
+import java.util.concurrent.ScheduledThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * A durable queue of analytics entries, for use by [AnalyticsSystem] implementations that deliver
+ * events to a remote server.
+ *
+ * Each entry is written to its own file in the queue directory before delivery is attempted, and
+ * so entries survive the application being killed. Entries are delivered oldest first, in batches
+ * of at most `batchSize` entries per pass. A temporary delivery failure ends the pass and the
+ * next pass is scheduled after an exponentially increasing delay. A deferred entry is moved to
+ * the back of the queue so that it does not hold up other entries, and once every queued entry
+ * has been deferred, no further passes are made until a new entry is queued. Entries that fail
+ * permanently, or that fail or are deferred `attemptsMaximum` times, are dropped. If the queue
+ * holds `capacity` entries, the oldest entry is dropped to make room for a new one. An entry with
+ * the same identifier as one that is queued, or as one of the last `capacity` entries to leave
+ * the queue, is ignored.
+ *
+ * All file I/O and delivery takes place on a single thread owned by the queue, and so calls to
+ * [enqueue] never block.
+ */
+
+class AnalyticsQueue private constructor(
+  private val directory: File,
+  private val deliver: (AnalyticsQueueEntry) -> AnalyticsDeliveryResult,
+  private val capacity: Int,
+  private val batchSize: Int,
+  private val attemptsMaximum: Int,
+  private val retryDelayInitial: Duration,
+  private val retryDelayMaximum: Duration,
+  name: String
+) : AutoCloseable {
+
+  private val logger =
+    LoggerFactory.getLogger(AnalyticsQueue::class.java)
+
+  private val executor =
+    ScheduledThreadPoolExecutor(1) { r ->
+      val thread = Thread(r)
+      thread.name = "org.nypl.simplified.analytics.queue.$name[${thread.id}]"
+      thread.isDaemon = true
+      thread.priority = Thread.MIN_PRIORITY
+      thread
+    }.apply {
+      /*
+       * Entries are on disk, so a retry that is waiting for its delay to elapse can simply be
+       * abandoned when the queue is closed.
+       */
+
+      this.executeExistingDelayedTasksAfterShutdownPolicy = false
+    }
+
+  /*
+   * The following fields are only accessed from the executor thread.
+   */
+
+  private val pending =
+    LinkedHashMap<String, PendingEntry>()
+  private val completed =
+    object : LinkedHashMap<String, Unit>() {
+      override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, Unit>?): Boolean =
+        this.size > this@AnalyticsQueue.capacity
+    }
+  private var retryDelay: Duration =
+    this.retryDelayInitial
+  private var passScheduled: ScheduledFuture<*>? = null
+  private var fileSequence = 0
+  private var deferredInRow = 0
+
+  private val enqueued = AtomicLong()
+  private val delivered = AtomicLong()
+  private val duplicates = AtomicLong()
+  private val droppedOverflow = AtomicLong()
+  private val droppedFailed = AtomicLong()
+  private val latencyTotalMillis = AtomicLong()
+  private val latencyMaximumMillis = AtomicLong()
+
+  @Volatile
+  private var pendingCount = 0
+
+  private data class PendingEntry(
+    val entry: AnalyticsQueueEntry,
+    val file: File
+  )
+
+  companion object {
+    private const val FILE_SUFFIX = ".aqe"
+    private const val PROPERTY_PREFIX = "property."
+
+    /**
+     * The default maximum number of entries held in a queue.
+     */
+
+    const val CAPACITY_DEFAULT = 500
+
+    /**
+     * The default maximum number of entries delivered in a single pass.
+     */
+
+    const val BATCH_SIZE_DEFAULT = 20
+
+    /**
+     * The default number of failed delivery attempts after which an entry is dropped.
+     */
+
+    const val ATTEMPTS_MAXIMUM_DEFAULT = 10
+
+    fun create(
+      directory: File,
+      name: String,
+      deliver: (AnalyticsQueueEntry) -> AnalyticsDeliveryResult,
+      capacity: Int = CAPACITY_DEFAULT,
+      batchSize: Int = BATCH_SIZE_DEFAULT,
+      attemptsMaximum: Int = ATTEMPTS_MAXIMUM_DEFAULT,
+      retryDelayInitial: Duration = Duration.ofSeconds(30L),
+      retryDelayMaximum: Duration = Duration.ofHours(1L)
+    ): AnalyticsQueue {
+      require(capacity > 0) { "Capacity must be positive" }
+      require(batchSize > 0) { "Batch size must be positive" }
+      require(attemptsMaximum > 0) { "Maximum attempts must be positive" }
+
+      return AnalyticsQueue(
+        directory = directory,
+        deliver = deliver,
+        capacity = capacity,
+        batchSize = batchSize,
+        attemptsMaximum = attemptsMaximum,
+        retryDelayInitial = retryDelayInitial,
+        retryDelayMaximum = retryDelayMaximum,
+        name = name
+      )
+    }
+  }
+
+  init {
+    this.executor.execute(this::load)
+  }
+
+  /**
+   * Add an entry to the queue. The entry is written to disk and delivered asynchronously. An
+   * entry with the same identifier as an entry already in the queue, or as an entry that recently
+   * left the queue, is ignored. Entries added after the queue is closed are discarded.
+   */
+
+  fun enqueue(
+    id: String,
+    properties: Map<String, String>
+  ) {
+    val entry =
+      AnalyticsQueueEntry(
+        id = id,
+        timeQueued = Instant.now(),
+        attempts = 0,
+        properties = properties
+      )
+    try {
+      this.executor.execute { this.enqueueNow(entry) }
+    } catch (e: RejectedExecutionException) {
+      this.logger.debug("Queue is closed; discarded analytics entry {}", id)
+    }
+  }
+
+  /**
+   * @return The current queue statistics
+   */
+
+  fun statistics(): AnalyticsQueueStatistics {
+    val delivered = this.delivered.get()
+    val mean =
+      if (delivered == 0L) {
+        Duration.ZERO
+      } else {
+        Duration.ofMillis(this.latencyTotalMillis.get() / delivered)
+      }
+
+    return AnalyticsQueueStatistics(
+      pending = this.pendingCount,
+      enqueued = this.enqueued.get(),
+      delivered = delivered,
+      duplicates = this.duplicates.get(),
+      droppedOverflow = this.droppedOverflow.get(),
+      droppedFailed = this.droppedFailed.get(),
+      deliveryLatencyMean = mean,
+      deliveryLatencyMaximum = Duration.ofMillis(this.latencyMaximumMillis.get())
+    )
+  }
+
+  private fun load() {
+    try {
+      this.directory.mkdirs()
+
+      val files =
+        this.directory.listFiles { file -> file.name.endsWith(FILE_SUFFIX) } ?: arrayOf()
+
+      val loaded = mutableListOf<PendingEntry>()
+      for (file in files) {
+        try {
+          loaded.add(PendingEntry(this.readEntry(file), file))
+        } catch (e: Exception) {
+          this.logger.debug("Unable to read queued entry {}: ", file, e)
+          file.delete()
+        }
+      }
+
+      loaded.sortBy { p -> p.file.name }
+      for (p in loaded) {
+        this.pending[p.entry.id] = p
+      }
+      this.pendingCount = this.pending.size
+
+      if (this.pending.isNotEmpty()) {
+        this.logger.debug("Loaded {} queued analytics entries", this.pending.size)
+        this.schedulePass(Duration.ZERO)
+      }
+    } catch (e: Exception) {
+      this.logger.debug("Unable to load queued analytics entries: ", e)
+    }
+  }
+
+  private fun enqueueNow(entry: AnalyticsQueueEntry) {
+    try {
+      if (this.pending.containsKey(entry.id) || this.completed.containsKey(entry.id)) {
+        this.duplicates.incrementAndGet()
+        return
+      }
+
+      while (this.pending.size >= this.capacity) {
+        val oldest = this.pending.values.first()
+        this.remove(oldest)
+        this.droppedOverflow.incrementAndGet()
+        this.logger.debug("Queue full; dropped analytics entry {}", oldest.entry.id)
+      }
+
+      val file = File(this.directory, this.fileNameFor(entry))
+      this.writeEntry(file, entry)
+      this.pending[entry.id] = PendingEntry(entry, file)
+      this.pendingCount = this.pending.size
+      this.enqueued.incrementAndGet()
+      this.deferredInRow = 0
+      this.schedulePass(Duration.ZERO)
+    } catch (e: Exception) {
+      this.logger.debug("Unable to queue analytics entry: ", e)
+    }
+  }
+
+  /**
+   * Schedule a delivery pass, unless one is already scheduled. A pending retry delay is never
+   * shortened by the arrival of new entries.
+   */
+
+  private fun schedulePass(delay: Duration) {
+    if (this.passScheduled != null) {
+      return
+    }
+    this.passScheduled =
+      this.executor.schedule(this::deliverPass, delay.toMillis(), TimeUnit.MILLISECONDS)
+  }
+
+  private fun deliverPass() {
+    this.passScheduled = null
+
+    val batch = this.pending.values.take(this.batchSize)
+    for (p in batch) {
+      val result =
+        try {
+          this.deliver.invoke(p.entry)
+        } catch (e: Exception) {
+          this.logger.debug("Failed to deliver analytics entry {}: ", p.entry.id, e)
+          AnalyticsDeliveryResult.FAILED_TEMPORARILY
+        }
+
+      when (result) {
+        AnalyticsDeliveryResult.DELIVERED -> {
+          this.remove(p)
+          this.recordLatency(p.entry)
+          this.delivered.incrementAndGet()
+          this.retryDelay = this.retryDelayInitial
+          this.deferredInRow = 0
+        }
+
+        AnalyticsDeliveryResult.FAILED_PERMANENTLY -> {
+          this.remove(p)
+          this.droppedFailed.incrementAndGet()
+          this.deferredInRow = 0
+        }
+
+        AnalyticsDeliveryResult.FAILED_TEMPORARILY -> {
+          this.onAttemptFailed(p)
+          this.scheduleRetry()
+          return
+        }
+
+        AnalyticsDeliveryResult.DEFERRED -> {
+          /*
+           * Move the entry to the back of the queue so that the entries behind it are tried
+           * in the next pass.
+           */
+
+          this.pending.remove(p.entry.id)
+          this.onAttemptFailed(p)
+          this.deferredInRow += 1
+        }
+      }
+    }
+
+    /*
+     * If every queued entry has been deferred since anything was last delivered, stop rather
+     * than spinning over the same entries. The next entry to be queued starts a new pass.
+     */
+
+    if (this.pending.isNotEmpty() && this.deferredInRow < this.pending.size) {
+      this.schedulePass(Duration.ZERO)
+    }
+  }
+
+  private fun onAttemptFailed(p: PendingEntry) {
+    val attempts = p.entry.attempts + 1
+    if (attempts >= this.attemptsMaximum) {
+      this.logger.debug("Dropping analytics entry {} after {} attempts", p.entry.id, attempts)
+      this.remove(p)
+      this.droppedFailed.incrementAndGet()
+    } else {
+      val updated = p.copy(entry = p.entry.copy(attempts = attempts))
+      try {
+        this.writeEntry(p.file, updated.entry)
+      } catch (e: Exception) {
+        this.logger.debug("Unable to update queued analytics entry: ", e)
+      }
+      this.pending[p.entry.id] = updated
+    }
+  }
+
+  private fun scheduleRetry() {
+    if (this.pending.isNotEmpty()) {
+      val delay = this.retryDelay
+      this.retryDelay = minOf(this.retryDelay.multipliedBy(2L), this.retryDelayMaximum)
+      this.schedulePass(delay)
+    }
+  }
+
+  /*
+   * Files are named with the time and a sequence number, so that sorting by name recovers the
+   * order in which entries were queued even when several entries are queued within the same
+   * millisecond.
+   */
+
+  private fun fileNameFor(entry: AnalyticsQueueEntry): String =
+    String.format(
+      "%016x%08x%s",
+      entry.timeQueued.toEpochMilli(),
+      this.fileSequence++,
+      FILE_SUFFIX
+    )
+
+  private fun recordLatency(entry: AnalyticsQueueEntry) {
+    val latency = Math.max(0L, Duration.between(entry.timeQueued, Instant.now()).toMillis())
+    this.latencyTotalMillis.addAndGet(latency)
+    this.latencyMaximumMillis.accumulateAndGet(latency, Math::max)
+  }
+
+  private fun remove(p: PendingEntry) {
+    this.pending.remove(p.entry.id)
+    this.completed[p.entry.id] = Unit
+    this.pendingCount = this.pending.size
+    if (!p.file.delete() && p.file.exists()) {
+      this.logger.debug("Unable to delete queued analytics entry {}", p.file)
+    }
+  }
+
+  private fun writeEntry(
+    file: File,
+    entry: AnalyticsQueueEntry
+  ) {
+    val properties = Properties()
+    properties.setProperty("id", entry.id)
+    properties.setProperty("timeQueued", entry.timeQueued.toString())
+    properties.setProperty("attempts", entry.attempts.toString())
+    for ((key, value) in entry.properties) {
+      properties.setProperty(PROPERTY_PREFIX + key, value)
+    }
+
+    val fileTmp = File(file.parentFile, "${file.name}.tmp")
+    fileTmp.outputStream().use { stream -> properties.store(stream, "") }
+    Files.move(
+      fileTmp.toPath(),
+      file.toPath(),
+      StandardCopyOption.ATOMIC_MOVE,
+      StandardCopyOption.REPLACE_EXISTING
+    )
+  }
+
+  private fun readEntry(file: File): AnalyticsQueueEntry {
+    val properties = Properties()
+    file.inputStream().use { stream -> properties.load(stream) }
+
+    val values = mutableMapOf<String, String>()
+    for (name in properties.stringPropertyNames()) {
+      if (name.startsWith(PROPERTY_PREFIX)) {
+        values[name.removePrefix(PROPERTY_PREFIX)] = properties.getProperty(name)
+      }
+    }
+
+    return AnalyticsQueueEntry(
+      id = properties.getProperty("id") ?: throw IOException("Missing id"),
+      timeQueued = Instant.parse(properties.getProperty("timeQueued")),
+      attempts = properties.getProperty("attempts")?.toInt() ?: 0,
+      properties = values.toMap()
+    )
+  }
+
+  override fun close() {
+    this.executor.shutdown()
+    this.executor.awaitTermination(10L, TimeUnit.SECONDS)
+  }
+}
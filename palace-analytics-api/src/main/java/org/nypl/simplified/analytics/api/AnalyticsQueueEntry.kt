@@ -0,0 +1,35 @@
+package org.nypl.simplified.analytics.api
+
+import java.time.Instant
+
+/**
+ * An entry in an analytics queue.
+ */
+
+data class AnalyticsQueueEntry(
+  /**
+   * The unique identifier of the entry. Entries with the same identifier are considered to be
+   * duplicates of each other.
+   */
+
+  val id: String,
+
+  /**
+   * The time the entry was added to the queue.
+   */
+
+  val timeQueued: Instant,
+
+  /**
+   * The number of failed delivery attempts made so far.
+   */
+
+  val attempts: Int,
+
+  /**
+   * The system-specific properties of the entry. These are written to disk, and so must not
+   * contain secrets such as credentials.
+   */
+
+  val properties: Map<String, String>
+)
@@ -0,0 +1,57 @@
+package org.nypl.simplified.analytics.api
+
+import java.time.Duration
+
+/**
+ * Statistics for an analytics queue.
+ */
+
+data class AnalyticsQueueStatistics(
+  /**
+   * The number of entries waiting to be delivered.
+   */
+
+  val pending: Int,
+
+  /**
+   * The number of entries accepted into the queue.
+   */
+
+  val enqueued: Long,
+
+  /**
+   * The number of entries delivered.
+   */
+
+  val delivered: Long,
+
+  /**
+   * The number of entries ignored because an entry with the same identifier was already queued.
+   */
+
+  val duplicates: Long,
+
+  /**
+   * The number of entries dropped because the queue was full.
+   */
+
+  val droppedOverflow: Long,
+
+  /**
+   * The number of entries dropped because delivery failed permanently, or failed too many times.
+   */
+
+  val droppedFailed: Long,
+
+  /**
+   * The mean time between an entry being queued and being delivered.
+   */
+
+  val deliveryLatencyMean: Duration,
+
+  /**
+   * The maximum time between an entry being queued and being delivered.
+   */
+
+  val deliveryLatencyMaximum: Duration
+)
@@ -7,7 +7,6 @@ dependencies {
 
     implementation(project(":palace-accounts-api"))
     implementation(project(":palace-analytics-api"))
-    implementation(project(":palace-threads"))
 
     implementation(libs.google.failureaccess)
     implementation(libs.google.guava)
@@ -6,33 +6,73 @@ import org.nypl.simplified.accounts.api.AccountAuthenticatedHTTP.addBasicTokenPr
 import org.nypl.simplified.accounts.api.AccountAuthenticatedHTTP.getAccessToken
 import org.nypl.simplified.accounts.api.AccountAuthenticationCredentials
 import org.nypl.simplified.analytics.api.AnalyticsConfiguration
+import org.nypl.simplified.analytics.api.AnalyticsDeliveryResult
 import org.nypl.simplified.analytics.api.AnalyticsEvent
+import org.nypl.simplified.analytics.api.AnalyticsQueue
+import org.nypl.simplified.analytics.api.AnalyticsQueueEntry
+import org.nypl.simplified.analytics.api.AnalyticsQueueStatistics
 import org.nypl.simplified.analytics.api.AnalyticsSystem
 import org.slf4j.LoggerFactory
+import java.io.File
 import java.net.URI
-import java.util.concurrent.ExecutorService
+import java.util.UUID
+import java.util.concurrent.ConcurrentHashMap
 
 /**
  * An analytics system based on Circulation Analytics.
+ *
+ * Events are written to a durable [AnalyticsQueue] and delivered from there, so events are not
+ * lost if a request fails or the application is killed. Credentials are never written to the
+ * queue; the most recent credentials seen for each account are held in memory and used at
+ * delivery time. Entries recovered from disk after a restart for an account that has not been
+ * seen since are deferred until the account is seen again, as are entries that the server
+ * rejects as unauthorized, rather than being delivered without credentials and discarded.
  */
 
 class CirculationAnalyticsSystem(
   private val configuration: AnalyticsConfiguration,
-  private val executor: ExecutorService
-) : AnalyticsSystem {
+  queueDirectory: File
+) : AnalyticsSystem, AutoCloseable {
   private val logger =
     LoggerFactory.getLogger(CirculationAnalyticsSystem::class.java)
 
-  override fun onAnalyticsEvent(event: AnalyticsEvent): Unit = this.executor.execute { this.consumeEvent(event) }
+  private data class AccountSession(
+    val credentials: AccountAuthenticationCredentials?,
+    val onAccessTokenUpdated: (String?) -> Unit
+  )
 
-  private fun consumeEvent(event: AnalyticsEvent) {
+  private val sessions =
+    ConcurrentHashMap<UUID, AccountSession>()
+
+  private val queue =
+    AnalyticsQueue.create(
+      directory = queueDirectory,
+      name = "circulation",
+      deliver = this::deliver
+    )
+
+  /**
+   * @return The current statistics of the delivery queue
+   */
+
+  fun statistics(): AnalyticsQueueStatistics =
+    this.queue.statistics()
+
+  override fun onAnalyticsEvent(event: AnalyticsEvent) {
     this.logger.debug("received event {}", event::class.simpleName)
     when (event) {
       is AnalyticsEvent.BookOpened -> {
-        event.targetURI?.let { target ->
-          postURI(event.onAccessTokenUpdated, target, event.credentials)
-        }
-        this.logger.debug("consuming 'BookOpened' event for {}", event.targetURI)
+        val target = event.targetURI ?: return
+        this.sessions[event.accountUUID] =
+          AccountSession(event.credentials, event.onAccessTokenUpdated)
+        this.queue.enqueue(
+          id = "${event.accountUUID} $target ${event.timestamp}",
+          properties = mapOf(
+            "target" to target.toString(),
+            "account" to event.accountUUID.toString()
+          )
+        )
+        this.logger.debug("queued 'BookOpened' event for {}", target)
       }
 
       else -> {
@@ -41,11 +81,27 @@ class CirculationAnalyticsSystem(
     }
   }
 
+  private fun deliver(entry: AnalyticsQueueEntry): AnalyticsDeliveryResult {
+    val target =
+      URI(entry.properties["target"] ?: return AnalyticsDeliveryResult.FAILED_PERMANENTLY)
+    val account =
+      entry.properties["account"]
+        ?: return AnalyticsDeliveryResult.FAILED_PERMANENTLY
+    val session =
+      this.sessions[UUID.fromString(account)]
+
+    if (session == null) {
+      this.logger.debug("no credentials yet for account {}; deferring event", account)
+      return AnalyticsDeliveryResult.DEFERRED
+    }
+    return this.postURI(session.onAccessTokenUpdated, target, session.credentials)
+  }
+
   private fun postURI(
     onAccessTokenUpdated: (String?) -> Unit,
     target: URI,
     credentials: AccountAuthenticationCredentials?
-  ) {
+  ): AnalyticsDeliveryResult {
     val request =
       this.configuration.http
         .newRequest(target)
@@ -53,18 +109,27 @@ class CirculationAnalyticsSystem(
         .addBasicTokenPropertiesIfApplicable(credentials)
         .build()
 
-    val response = request.execute()
-    when (val status = response.status) {
-      is LSHTTPResponseStatus.Responded.OK -> {
-        onAccessTokenUpdated(status.getAccessToken())
-      }
+    return request.execute().use { response ->
+      when (val status = response.status) {
+        is LSHTTPResponseStatus.Responded.OK -> {
+          onAccessTokenUpdated(status.getAccessToken())
+          AnalyticsDeliveryResult.DELIVERED
+        }
 
-      is LSHTTPResponseStatus.Responded.Error -> {
-        logError(status)
-      }
+        is LSHTTPResponseStatus.Responded.Error -> {
+          logError(status)
+          when (status.properties.status) {
+            401, 403 -> AnalyticsDeliveryResult.DEFERRED
+            408, 429 -> AnalyticsDeliveryResult.FAILED_TEMPORARILY
+            in 400..499 -> AnalyticsDeliveryResult.FAILED_PERMANENTLY
+            else -> AnalyticsDeliveryResult.FAILED_TEMPORARILY
+          }
+        }
 
-      is LSHTTPResponseStatus.Failed -> {
-        this.logger.error("error sending event to {}: ", target, status.exception)
+        is LSHTTPResponseStatus.Failed -> {
+          this.logger.error("error sending event to {}: ", target, status.exception)
+          AnalyticsDeliveryResult.FAILED_TEMPORARILY
+        }
       }
     }
   }
@@ -78,4 +143,8 @@ class CirculationAnalyticsSystem(
       this.logger.debug("detail: {}", problemReport.detail)
     }
   }
+
+  override fun close() {
+    this.queue.close()
+  }
 }
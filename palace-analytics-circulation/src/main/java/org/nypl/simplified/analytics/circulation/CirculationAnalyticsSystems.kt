@@ -3,15 +3,16 @@ package org.nypl.simplified.analytics.circulation
 import org.nypl.simplified.analytics.api.AnalyticsConfiguration
 import org.nypl.simplified.analytics.api.AnalyticsSystem
 import org.nypl.simplified.analytics.api.AnalyticsSystemProvider
-import org.nypl.simplified.threads.NamedThreadPools
+import java.io.File
 
 /**
  * An analytics system that uses the Circulation Mananger analytics.
  */
 
 class CirculationAnalyticsSystems : AnalyticsSystemProvider {
-  private val executor =
-    NamedThreadPools.namedThreadPool(1, "circulation-analytics", 19)
-
-  override fun create(configuration: AnalyticsConfiguration): AnalyticsSystem = CirculationAnalyticsSystem(configuration, this.executor)
+  override fun create(configuration: AnalyticsConfiguration): AnalyticsSystem =
+    CirculationAnalyticsSystem(
+      configuration = configuration,
+      queueDirectory = File(configuration.context.filesDir, "analytics-circulation")
+    )
 }
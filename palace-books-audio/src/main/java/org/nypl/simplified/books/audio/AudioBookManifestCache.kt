@@ -0,0 +1,198 @@
+package org.nypl.simplified.books.audio
+
+import org.librarysimplified.audiobook.manifest.api.PlayerManifest
+import org.librarysimplified.audiobook.manifest.api.PlayerPalaceID
+import org.nypl.simplified.accounts.api.AccountID
+import java.net.URI
+import java.security.MessageDigest
+import java.time.Duration
+import java.time.Instant
+
+/**
+ * A cache of parsed audio book manifests, and of successful license checks.
+ *
+ * Entries are keyed by a hash of the content from which they were produced, so a manifest
+ * that changes in any way is parsed and checked again. Entries expire after a fixed time, and
+ * the least recently used entries are discarded once the cache is full. License checks
+ * expire much sooner than parsed manifests, as a check that succeeded may later fail (for
+ * example, because a loan has ended) even though the manifest has not changed.
+ *
+ * A cache must only be shared between strategies that use the same manifest parsers and
+ * parser extensions.
+ *
+ * Parsed manifests are only reused by manifest strategies. The audio book player parses the
+ * manifests that it is given itself, so opening a book always parses its manifest. License
+ * check results are only reused when a book is opened from the manifest and license stored
+ * on the device; when the viewer downloads a fresh manifest, the full checks run.
+ */
+
+class AudioBookManifestCache private constructor(
+  private val clock: () -> Instant,
+  private val manifestExpiry: Duration,
+  private val licenseCheckExpiry: Duration,
+  private val capacity: Int
+) {
+
+  /**
+   * The key of a cache entry.
+   */
+
+  data class Key(
+    val palaceID: PlayerPalaceID,
+    val hash: String
+  )
+
+  private data class Timed<T>(
+    val time: Instant,
+    val value: T
+  )
+
+  companion object {
+
+    /**
+     * The default time after which parsed manifests expire.
+     */
+
+    val MANIFEST_EXPIRY_DEFAULT: Duration =
+      Duration.ofHours(1L)
+
+    /**
+     * The default time after which successful license checks expire.
+     */
+
+    val LICENSE_CHECK_EXPIRY_DEFAULT: Duration =
+      Duration.ofMinutes(15L)
+
+    /**
+     * The default maximum number of entries of each kind.
+     */
+
+    const val CAPACITY_DEFAULT: Int = 16
+
+    /**
+     * The cache shared by the default manifest strategies and the audio book viewer.
+     */
+
+    val shared: AudioBookManifestCache =
+      this.create()
+
+    /**
+     * Create a new cache.
+     */
+
+    fun create(
+      clock: () -> Instant = Instant::now,
+      manifestExpiry: Duration = MANIFEST_EXPIRY_DEFAULT,
+      licenseCheckExpiry: Duration = LICENSE_CHECK_EXPIRY_DEFAULT,
+      capacity: Int = CAPACITY_DEFAULT
+    ): AudioBookManifestCache {
+      require(capacity > 0) { "Capacity must be positive" }
+      return AudioBookManifestCache(clock, manifestExpiry, licenseCheckExpiry, capacity)
+    }
+
+    /**
+     * Create a key for the manifest with the given source and content, and any license and
+     * account.
+     */
+
+    fun keyOf(
+      palaceID: PlayerPalaceID,
+      source: URI?,
+      manifestBytes: ByteArray,
+      licenseBytes: ByteArray? = null,
+      accountID: AccountID? = null
+    ): Key {
+      val digest = MessageDigest.getInstance("SHA-256")
+      digest.update(palaceID.toString().toByteArray())
+      digest.update(0)
+      digest.update((accountID?.uuid?.toString() ?: "").toByteArray())
+      digest.update(0)
+      digest.update((source?.toString() ?: "").toByteArray())
+      digest.update(0)
+      digest.update(manifestBytes)
+      if (licenseBytes != null) {
+        digest.update(0)
+        digest.update(licenseBytes)
+      }
+      val hash = digest.digest().joinToString("") { byte -> "%02x".format(byte) }
+      return Key(palaceID, hash)
+    }
+  }
+
+  private val manifests =
+    this.lruMap<PlayerManifest>()
+  private val licenseChecks =
+    this.lruMap<Unit>()
+
+  private fun <T> lruMap(): LinkedHashMap<Key, Timed<T>> =
+    object : LinkedHashMap<Key, Timed<T>>(16, 0.75f, true) {
+      override fun removeEldestEntry(eldest: MutableMap.MutableEntry<Key, Timed<T>>?): Boolean =
+        this.size > this@AudioBookManifestCache.capacity
+    }
+
+  private fun <T> findCurrent(
+    map: LinkedHashMap<Key, Timed<T>>,
+    key: Key,
+    expiry: Duration
+  ): T? {
+    synchronized(map) {
+      val existing = map[key] ?: return null
+      if (Duration.between(existing.time, this.clock.invoke()) >= expiry) {
+        map.remove(key)
+        return null
+      }
+      return existing.value
+    }
+  }
+
+  /**
+   * @return The parsed manifest with the given key, if it has not expired
+   */
+
+  fun manifest(key: Key): PlayerManifest? =
+    this.findCurrent(this.manifests, key, this.manifestExpiry)
+
+  /**
+   * Record the parsed manifest with the given key.
+   */
+
+  fun putManifest(
+    key: Key,
+    manifest: PlayerManifest
+  ) {
+    synchronized(this.manifests) {
+      this.manifests[key] = Timed(this.clock.invoke(), manifest)
+    }
+  }
+
+  /**
+   * @return `true` if license checks succeeded for the manifest with the given key, and the
+   * success has not expired
+   */
+
+  fun isLicenseChecked(key: Key): Boolean =
+    this.findCurrent(this.licenseChecks, key, this.licenseCheckExpiry) != null
+
+  /**
+   * Record that license checks succeeded for the manifest with the given key.
+   */
+
+  fun putLicenseChecked(key: Key) {
+    synchronized(this.licenseChecks) {
+      this.licenseChecks[key] = Timed(this.clock.invoke(), Unit)
+    }
+  }
+
+  /**
+   * Discard all entries.
+   */
+
+  fun clear() {
+    synchronized(this.manifests) {
+      this.manifests.clear()
+    }
+    synchronized(this.licenseChecks) {
+      this.licenseChecks.clear()
+    }
+  }
+}
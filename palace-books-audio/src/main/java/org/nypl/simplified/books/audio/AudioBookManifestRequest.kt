@@ -65,23 +65,19 @@ data class AudioBookManifestRequest(
 
   val loadFallbackData: () -> ManifestFulfilled? = { null },
   /**
-   * The set of license checks to perform. The default value searches for license checks
+   * The set of license checks to perform. The default value is the license checks
    * registered with [ServiceLoader] on the classpath.
    */
 
   val licenseChecks: List<SingleLicenseCheckProviderType> =
-    ServiceLoader
-      .load(SingleLicenseCheckProviderType::class.java)
-      .toList(),
+    AudioBookProviders.licenseChecks,
   /**
-   * The set of parser extensions to use. The default value searches for parser extensions
+   * The set of parser extensions to use. The default value is the parser extensions
    * registered with [ServiceLoader] on the classpath.
    */
 
   val extensions: List<ManifestParserExtensionType> =
-    ServiceLoader
-      .load(ManifestParserExtensionType::class.java)
-      .toList(),
+    AudioBookProviders.parserExtensions,
   /**
    * A registry of manifest fulfillment strategies. The default value uses the AudioBook API
    * registry.
@@ -105,9 +101,7 @@ data class AudioBookManifestRequest(
    */
 
   val problemReportParsers: LSHTTPProblemReportParserFactoryType =
-    ServiceLoader
-      .load(LSHTTPProblemReportParserFactoryType::class.java)
-      .first(),
+    AudioBookProviders.problemReportParsers,
   /**
    * The authorization handler for requests.
    */
@@ -3,12 +3,13 @@ package org.nypl.simplified.books.audio
 import android.app.Application
 
 /**
- * The default provider of manifest strategies.
+ * The default provider of manifest strategies. Strategies share a cache of parsed manifests,
+ * so reopening a book whose manifest has not changed does not parse the manifest again.
  */
 
 object AudioBookManifests : AudioBookManifestStrategiesType {
   override fun createStrategy(
     context: Application,
     request: AudioBookManifestRequest
-  ): AudioBookStrategyType = AudioBookStrategy(context, request)
+  ): AudioBookStrategyType = AudioBookStrategy(context, request, AudioBookManifestCache.shared)
 }
@@ -0,0 +1,45 @@
+package org.nypl.simplified.books.audio
+
+import org.librarysimplified.audiobook.license_check.spi.SingleLicenseCheckProviderType
+import org.librarysimplified.audiobook.manifest_parser.extension_spi.ManifestParserExtensionType
+import org.librarysimplified.http.api.LSHTTPProblemReportParserFactoryType
+import java.util.ServiceLoader
+
+/**
+ * The providers registered with [ServiceLoader] that are used to fulfill, parse, and license
+ * check audio book manifests. Searching the classpath is expensive, so each list of providers
+ * is resolved once, on first use, and then reused.
+ */
+
+object AudioBookProviders {
+
+  /**
+   * The license checks registered on the classpath.
+   */
+
+  val licenseChecks: List<SingleLicenseCheckProviderType> by lazy {
+    ServiceLoader
+      .load(SingleLicenseCheckProviderType::class.java)
+      .toList()
+  }
+
+  /**
+   * The manifest parser extensions registered on the classpath.
+   */
+
+  val parserExtensions: List<ManifestParserExtensionType> by lazy {
+    ServiceLoader
+      .load(ManifestParserExtensionType::class.java)
+      .toList()
+  }
+
+  /**
+   * The first problem report parser factory registered on the classpath.
+   */
+
+  val problemReportParsers: LSHTTPProblemReportParserFactoryType by lazy {
+    ServiceLoader
+      .load(LSHTTPProblemReportParserFactoryType::class.java)
+      .first()
+  }
+}
@@ -47,7 +47,8 @@ import java.net.URI
 
 class AudioBookStrategy(
   private val context: Application,
-  private val request: AudioBookManifestRequest
+  private val request: AudioBookManifestRequest,
+  private val manifestCache: AudioBookManifestCache? = null
 ) : AudioBookStrategyType {
   private val logger =
     LoggerFactory.getLogger(AudioBookStrategy::class.java)
@@ -330,6 +331,19 @@ class AudioBookStrategy(
     manifestBytes: ByteArray
   ): TaskResult<AudioBookManifestData> {
     this.taskRecorder.beginNewStep("Parsing manifest.")
+
+    val cacheKey =
+      this.manifestCache?.let {
+        AudioBookManifestCache.keyOf(this.request.palaceID, source, manifestBytes)
+      }
+    val cached =
+      cacheKey?.let { key -> this.manifestCache?.manifest(key) }
+
+    if (cached != null) {
+      this.taskRecorder.currentStepSucceeded("Manifest parsed successfully (cached).")
+      return this.manifestParsed(source, authorization, licenseBytes, manifestBytes, cached)
+    }
+
     return when (val result =
       this.request.manifestParsers.parse(
         uri = source ?: URI.create("urn:unavailable"),
@@ -351,23 +365,35 @@ class AudioBookStrategy(
 
       is ParseResult.Success -> {
         this.taskRecorder.currentStepSucceeded("Manifest parsed successfully.")
-        this.taskRecorder.finishSuccess(
-          AudioBookManifestData(
-            result.result,
-            licenseBytes = licenseBytes,
-            fulfilled =
-              ManifestFulfilled(
-                source = source,
-                contentType = MIMEType("text", "json", mapOf()),
-                authorization = authorization,
-                data = manifestBytes
-              )
-          )
-        )
+        if (cacheKey != null) {
+          this.manifestCache?.putManifest(cacheKey, result.result)
+        }
+        this.manifestParsed(source, authorization, licenseBytes, manifestBytes, result.result)
       }
     }
   }
 
+  private fun manifestParsed(
+    source: URI?,
+    authorization: LSHTTPAuthorizationType?,
+    licenseBytes: ByteArray?,
+    manifestBytes: ByteArray,
+    manifest: PlayerManifest
+  ): TaskResult<AudioBookManifestData> =
+    this.taskRecorder.finishSuccess(
+      AudioBookManifestData(
+        manifest,
+        licenseBytes = licenseBytes,
+        fulfilled =
+          ManifestFulfilled(
+            source = source,
+            contentType = MIMEType("text", "json", mapOf()),
+            authorization = authorization,
+            data = manifestBytes
+          )
+      )
+    )
+
   private fun formatParseWarnings(warnings: List<ParseWarning>): List<String> =
     warnings.map { warning ->
       buildString {
@@ -303,7 +303,9 @@ class BorrowTask private constructor(
     val name = subtaskFactory.name
     val step = this.taskRecorder.beginNewStep("Executing subtask '$name'...")
     try {
-      subtaskFactory.createSubtask().execute(context)
+      this.taskRecorder.span(name) {
+        subtaskFactory.createSubtask().execute(context)
+      }
       step.resolution = TaskStepSucceeded("Executed subtask '$name' successfully.")
     } catch (e: BorrowSubtaskException) {
       when (e) {
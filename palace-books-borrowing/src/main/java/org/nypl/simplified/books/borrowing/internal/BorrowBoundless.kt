@@ -3,14 +3,6 @@ package org.nypl.simplified.books.borrowing.internal
 import com.io7m.junreachable.UnreachableCodeException
 import one.irradia.mime.api.MIMECompatibility
 import one.irradia.mime.api.MIMEType
-import org.librarysimplified.http.downloads.LSHTTPDownloadState
-import org.librarysimplified.http.downloads.LSHTTPDownloadState.DownloadReceiving
-import org.librarysimplified.http.downloads.LSHTTPDownloadState.DownloadStarted
-import org.librarysimplified.http.downloads.LSHTTPDownloadState.LSHTTPDownloadResult.DownloadCancelled
-import org.librarysimplified.http.downloads.LSHTTPDownloadState.LSHTTPDownloadResult.DownloadCompletedSuccessfully
-import org.librarysimplified.http.downloads.LSHTTPDownloadState.LSHTTPDownloadResult.DownloadFailed.DownloadFailedExceptionally
-import org.librarysimplified.http.downloads.LSHTTPDownloadState.LSHTTPDownloadResult.DownloadFailed.DownloadFailedServer
-import org.librarysimplified.http.downloads.LSHTTPDownloadState.LSHTTPDownloadResult.DownloadFailed.DownloadFailedUnacceptableMIME
 import org.nypl.drm.core.BoundlessCMTemplatedLink
 import org.nypl.drm.core.BoundlessFulfilledCMEPUB
 import org.nypl.drm.core.BoundlessServiceType
@@ -85,6 +77,9 @@ class BorrowBoundless private constructor() : BorrowSubtaskType {
     val link =
       BoundlessCMTemplatedLink(templatedLink.href)
 
+    val progress =
+      BorrowDownloadProgress(context)
+
     val result =
       boundless.fulfillEPUB(
         httpClient = context.httpClient,
@@ -95,9 +90,7 @@ class BorrowBoundless private constructor() : BorrowSubtaskType {
         isCancelled = {
           context.isCancelled
         },
-        onDownloadEvent = { event ->
-          this.onDownloadProgressEvent(context, event)
-        }
+        onDownloadEvent = progress::onEvent
       )
 
     return when (result) {
@@ -183,49 +176,6 @@ class BorrowBoundless private constructor() : BorrowSubtaskType {
     return boundless
   }
 
-  private fun onDownloadProgressEvent(
-    context: BorrowContextType,
-    event: LSHTTPDownloadState
-  ) {
-    when (event) {
-      is DownloadReceiving -> {
-        context.account.updateBasicTokenCredentials(event.accessToken)
-
-        context.bookDownloadIsRunning(
-          message =
-            this.downloadingMessage(
-              expectedSize = event.expectedSize,
-              currentSize = event.receivedSize,
-              perSecond = event.bytesPerSecond
-            ),
-          receivedSize = event.receivedSize,
-          expectedSize = event.expectedSize,
-          bytesPerSecond = event.bytesPerSecond
-        )
-      }
-
-      DownloadStarted,
-      DownloadCancelled,
-      is DownloadFailedServer,
-      is DownloadFailedUnacceptableMIME,
-      is DownloadFailedExceptionally,
-      is DownloadCompletedSuccessfully -> {
-        // Don't care
-      }
-    }
-  }
-
-  private fun downloadingMessage(
-    expectedSize: Long?,
-    currentSize: Long,
-    perSecond: Long
-  ): String =
-    if (expectedSize == null) {
-      "Downloading..."
-    } else {
-      "Downloading $currentSize / $expectedSize ($perSecond)..."
-    }
-
   /**
    * Determine the actual book format we're aiming for at the end of the acquisition path.
    */
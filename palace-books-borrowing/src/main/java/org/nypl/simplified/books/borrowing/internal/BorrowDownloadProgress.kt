@@ -0,0 +1,138 @@
+package org.nypl.simplified.books.borrowing.internal
+
+import org.librarysimplified.http.downloads.LSHTTPDownloadState
+import org.librarysimplified.http.downloads.LSHTTPDownloadState.DownloadReceiving
+import org.nypl.simplified.books.borrowing.BorrowContextType
+
+/**
+ * A filter between the progress events of a single download and the borrowing context.
+ *
+ * Downloads deliver a progress event for every buffer received. Rather than writing the
+ * account credentials and publishing a book status for each of those, the filter only writes
+ * credentials when the server sends a new access token, and only publishes a status (and
+ * formats its message) when the download has advanced by at least `percentStep` percent, or
+ * when `intervalMaximumMillis` has passed, and never more often than once every
+ * `intervalMinimumMillis`. The first event and the final event of a download of known size
+ * are always published.
+ *
+ * Events for a single download are delivered on a single thread, so instances are not
+ * thread-safe.
+ */
+
+class BorrowDownloadProgress(
+  private val context: BorrowContextType,
+  private val intervalMinimumMillis: Long = INTERVAL_MINIMUM_DEFAULT_MILLIS,
+  private val intervalMaximumMillis: Long = INTERVAL_MAXIMUM_DEFAULT_MILLIS,
+  private val percentStep: Int = PERCENT_STEP_DEFAULT,
+  private val nanoTime: () -> Long = System::nanoTime
+) {
+  companion object {
+    const val INTERVAL_MINIMUM_DEFAULT_MILLIS = 250L
+    const val INTERVAL_MAXIMUM_DEFAULT_MILLIS = 1_000L
+    const val PERCENT_STEP_DEFAULT = 1
+  }
+
+  private var accessTokenLast: String? = null
+  private var publishedAny = false
+  private var publishedTime = 0L
+  private var publishedPercent = -1
+
+  /**
+   * The number of progress events received.
+   */
+
+  var receivedCount: Long = 0L
+    private set
+
+  /**
+   * The number of progress events published to the borrowing context.
+   */
+
+  var publishedCount: Long = 0L
+    private set
+
+  /**
+   * Handle a download event.
+   */
+
+  fun onEvent(event: LSHTTPDownloadState) {
+    if (event is DownloadReceiving) {
+      this.onReceiving(
+        accessToken = event.accessToken,
+        receivedSize = event.receivedSize,
+        expectedSize = event.expectedSize,
+        bytesPerSecond = event.bytesPerSecond
+      )
+    }
+  }
+
+  /**
+   * Handle a progress event.
+   */
+
+  fun onReceiving(
+    accessToken: String?,
+    receivedSize: Long,
+    expectedSize: Long?,
+    bytesPerSecond: Long
+  ) {
+    this.receivedCount += 1
+
+    if (!accessToken.isNullOrBlank() && accessToken != this.accessTokenLast) {
+      this.accessTokenLast = accessToken
+      this.context.account.updateBasicTokenCredentials(accessToken)
+    }
+
+    val timeNow = this.nanoTime()
+    val percent =
+      if (expectedSize != null && expectedSize > 0L) {
+        ((receivedSize * 100L) / expectedSize).toInt()
+      } else {
+        -1
+      }
+
+    if (!this.shouldPublish(timeNow, percent, receivedSize, expectedSize)) {
+      return
+    }
+
+    this.publishedAny = true
+    this.publishedTime = timeNow
+    this.publishedPercent = percent
+    this.publishedCount += 1
+
+    this.context.bookDownloadIsRunning(
+      message =
+        BorrowHTTP.downloadingMessage(
+          expectedSize = expectedSize,
+          currentSize = receivedSize,
+          perSecond = bytesPerSecond
+        ),
+      receivedSize = receivedSize,
+      expectedSize = expectedSize,
+      bytesPerSecond = bytesPerSecond
+    )
+  }
+
+  private fun shouldPublish(
+    timeNow: Long,
+    percent: Int,
+    receivedSize: Long,
+    expectedSize: Long?
+  ): Boolean {
+    if (!this.publishedAny) {
+      return true
+    }
+    if (expectedSize != null && receivedSize >= expectedSize) {
+      return true
+    }
+
+    val elapsedMillis = (timeNow - this.publishedTime) / 1_000_000L
+    if (elapsedMillis < this.intervalMinimumMillis) {
+      return false
+    }
+    if (elapsedMillis >= this.intervalMaximumMillis) {
+      return true
+    }
+    return percent >= 0 && percent - this.publishedPercent >= this.percentStep
+  }
+}
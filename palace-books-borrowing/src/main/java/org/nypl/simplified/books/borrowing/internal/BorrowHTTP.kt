@@ -7,9 +7,6 @@ import org.librarysimplified.http.api.LSHTTPAuthorizationBearerToken
 import org.librarysimplified.http.api.LSHTTPRequestBuilderType.AllowRedirects.ALLOW_UNSAFE_REDIRECTS
 import org.librarysimplified.http.api.LSHTTPRequestProperties
 import org.librarysimplified.http.downloads.LSHTTPDownloadRequest
-import org.librarysimplified.http.downloads.LSHTTPDownloadState
-import org.librarysimplified.http.downloads.LSHTTPDownloadState.DownloadReceiving
-import org.librarysimplified.http.downloads.LSHTTPDownloadState.DownloadStarted
 import org.librarysimplified.http.downloads.LSHTTPDownloadState.LSHTTPDownloadResult.DownloadCancelled
 import org.librarysimplified.http.downloads.LSHTTPDownloadState.LSHTTPDownloadResult.DownloadCompletedSuccessfully
 import org.librarysimplified.http.downloads.LSHTTPDownloadState.LSHTTPDownloadResult.DownloadFailed.DownloadFailedExceptionally
@@ -44,7 +41,8 @@ object BorrowHTTP {
     target: URI,
     outputFile: File,
     requestModifier: ((LSHTTPRequestProperties) -> LSHTTPRequestProperties)? = null,
-    expectedTypes: Set<MIMEType> = hashSetOf(context.currentAcquisitionPathElement.mimeType)
+    expectedTypes: Set<MIMEType> = hashSetOf(context.currentAcquisitionPathElement.mimeType),
+    progress: BorrowDownloadProgress = BorrowDownloadProgress(context)
   ): LSHTTPDownloadRequest {
     val requestBuilder = context.httpClient.newRequest(target)
     requestBuilder.allowRedirects(ALLOW_UNSAFE_REDIRECTS)
@@ -75,9 +73,7 @@ object BorrowHTTP {
     return LSHTTPDownloadRequest(
       request = request,
       outputFile = outputFile,
-      onEvent = {
-        this.onDownloadProgressEvent(context, it)
-      },
+      onEvent = progress::onEvent,
       isMIMETypeAcceptable = {
         this.isMimeTypeAcceptable(context, expectedTypes, it)
       },
@@ -193,37 +189,9 @@ object BorrowHTTP {
     result: DownloadFailedUnacceptableMIME
   ): Unit = throw BorrowSubtaskFailed()
 
-  private fun onDownloadProgressEvent(
-    context: BorrowContextType,
-    event: LSHTTPDownloadState
-  ) {
-    when (event) {
-      is DownloadReceiving -> {
-        context.account.updateBasicTokenCredentials(event.accessToken)
-
-        context.bookDownloadIsRunning(
-          message =
-            this.downloadingMessage(
-              expectedSize = event.expectedSize,
-              currentSize = event.receivedSize,
-              perSecond = event.bytesPerSecond
-            ),
-          receivedSize = event.receivedSize,
-          expectedSize = event.expectedSize,
-          bytesPerSecond = event.bytesPerSecond
-        )
-      }
-
-      DownloadStarted,
-      DownloadCancelled,
-      is DownloadFailedServer,
-      is DownloadFailedUnacceptableMIME,
-      is DownloadFailedExceptionally,
-      is DownloadCompletedSuccessfully -> {
-        // Don't care
-      }
-    }
-  }
+  /**
+   * Format a message describing the progress of a download.
+   */
 
   fun downloadingMessage(
     expectedSize: Long?,
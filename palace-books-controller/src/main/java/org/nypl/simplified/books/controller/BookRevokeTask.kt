@@ -294,7 +294,9 @@ class BookRevokeTask(
     this.publishRequestingRevokeStatus()
 
     try {
-      this.databaseEntry.writeOPDSEntry(entry.feedEntry)
+      this.taskRecorder.span("writeEntry") {
+        this.databaseEntry.writeOPDSEntry(entry.feedEntry)
+      }
     } catch (e: Exception) {
       this.taskRecorder.currentStepFailed(
         message = this.revokeStrings.revokeServerNotifySavingEntryFailed,
@@ -311,7 +313,9 @@ class BookRevokeTask(
     this.taskRecorder.beginNewStep(this.revokeStrings.revokeDeleteBook)
     this.publishRevokedStatus()
     this.publishStatusFromDatabase()
-    this.databaseEntry.delete()
+    this.taskRecorder.span("deleteBook") {
+      this.databaseEntry.delete()
+    }
   }
 
   /*
@@ -332,13 +336,15 @@ class BookRevokeTask(
 
     val feedResult =
       try {
-        this.feedLoader
-          .fetchURI(
-            accountID = account.id,
-            uri = targetURI,
-            credentials = credentials,
-            method = "PUT"
-          ).get(this.revokeServerTimeoutDuration.standardSeconds, TimeUnit.SECONDS)
+        this.taskRecorder.span("requestRevoke") {
+          this.feedLoader
+            .fetchURI(
+              accountID = account.id,
+              uri = targetURI,
+              credentials = credentials,
+              method = "PUT"
+            ).get(this.revokeServerTimeoutDuration.standardSeconds, TimeUnit.SECONDS)
+        }
       } catch (e: TimeoutException) {
         val message = this.revokeStrings.revokeServerNotifyFeedTimedOut
         this.taskRecorder.currentStepFailed(
@@ -569,7 +575,9 @@ class BookRevokeTask(
       AdobeDRMExtensions.revoke(adobeDRM, adobeRights, credentials.userID)
 
     try {
-      adeptFuture.get(this.revokeACSTimeoutDuration.standardSeconds, TimeUnit.SECONDS)
+      this.taskRecorder.span("revokeACS") {
+        adeptFuture.get(this.revokeACSTimeoutDuration.standardSeconds, TimeUnit.SECONDS)
+      }
     } catch (e: TimeoutException) {
       val message = this.revokeStrings.revokeACSTimedOut
       this.taskRecorder.currentStepFailed(
@@ -78,10 +78,12 @@ class BookSyncTask(
       return this.taskRecorder.finishSuccess(Unit)
     }
 
-    this.fetchPatronUserProfile(
-      account = account,
-      credentials = credentials
-    )
+    this.taskRecorder.span("fetchPatronUserProfile") {
+      this.fetchPatronUserProfile(
+        account = account,
+        credentials = credentials
+      )
+    }
 
     val loansURI = provider.loansURI
     if (loansURI == null) {
@@ -96,7 +98,7 @@ class BookSyncTask(
         .addBasicTokenPropertiesIfApplicable(credentials)
         .build()
 
-    val response = request.execute()
+    val response = this.taskRecorder.span("requestLoans") { request.execute() }
     return when (val status = response.status) {
       is LSHTTPResponseStatus.Responded.OK -> {
         this.onHTTPOK(
@@ -266,7 +268,9 @@ class BookSyncTask(
   ) {
     account.updateBasicTokenCredentials(accessToken)
     stream.use { ok ->
-      this.parseFeed(ok, provider, account)
+      this.taskRecorder.span("processLoans") {
+        this.parseFeed(ok, provider, account)
+      }
     }
   }
 
@@ -276,7 +280,10 @@ class BookSyncTask(
     provider: AccountProviderType,
     account: AccountType
   ) {
-    val feed = this.feedParser.parse(provider.loansURI, stream)
+    val feed =
+      this.taskRecorder.span("parseFeed") {
+        this.feedParser.parse(provider.loansURI, stream)
+      }
 
     /*
      * Obtain the set of books that are on disk already. If any
@@ -293,6 +300,7 @@ class BookSyncTask(
 
     val received = HashSet<BookID>(64)
     val entries = feed.feedEntries
+    this.taskRecorder.addCount("entries", entries.size.toLong())
     for (opdsEntry in entries) {
       val bookId = BookIDs.newFromOPDSEntry(opdsEntry)
       received.add(bookId)
@@ -339,6 +347,7 @@ class BookSyncTask(
      * Finish the revocation of any books that need it.
      */
 
+    this.taskRecorder.addCount("revoked", revoking.size.toLong())
     for (revoke_id in revoking) {
       this.logger.debug("[{}] revoking", revoke_id.brief())
       this.booksController.bookRevoke(account.id, revoke_id)
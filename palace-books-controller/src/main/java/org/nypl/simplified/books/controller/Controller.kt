@@ -41,6 +41,7 @@ import org.nypl.simplified.books.controller.api.BooksControllerType
 import org.nypl.simplified.books.controller.api.BooksPreviewControllerType
 import org.nypl.simplified.books.formats.api.BookFormatSupportType
 import org.nypl.simplified.books.preview.BookPreviewRequirements
+import org.nypl.simplified.books.preview.BookPreviewStorage
 import org.nypl.simplified.books.preview.BookPreviewTask
 import org.nypl.simplified.crashlytics.api.CrashlyticsServiceType
 import org.nypl.simplified.feeds.api.Feed
@@ -132,6 +133,13 @@ class Controller private constructor(
   private val temporaryDirectory =
     File(this.cacheDirectory, "tmp")
 
+  private val profileFeedIndex =
+    ProfileFeedIndex.create(this.bookRegistry)
+
+  private val bookPreviewStorage by lazy {
+    BookPreviewStorage.createInPreviewDirectory(this.bookPreviewRegistry.getPreviewDownloadDirectory())
+  }
+
   private val accountRegistrySubscription: Disposable
   private val accountSubscription: Disposable
   private val profileUpdateSubscription: Disposable
@@ -389,6 +397,7 @@ class Controller private constructor(
       ProfileFeedTask(
         bookFormatSupport = this.bookFormatSupport,
         bookRegistry = this.bookRegistry,
+        index = this.profileFeedIndex,
         profiles = this,
         request = request
       )
@@ -558,7 +567,8 @@ class Controller private constructor(
       BookPreviewRequirements(
         clock = { Instant.now() },
         httpClient = this.lsHttp,
-        temporaryDirectory = temporaryDirectory
+        temporaryDirectory = temporaryDirectory,
+        storage = this.bookPreviewStorage
       )
 
     return this.submitTask(
@@ -0,0 +1,310 @@
+package org.nypl.simplified.books.controller
+
+import io.reactivex.disposables.Disposable
+import org.nypl.simplified.books.api.Book
+import org.nypl.simplified.books.api.BookID
+import org.nypl.simplified.books.book_registry.BookRegistryReadableType
+import org.nypl.simplified.books.book_registry.BookStatusEvent
+import org.nypl.simplified.books.book_registry.BookWithStatus
+import org.nypl.simplified.feeds.api.FeedFacet.FeedFacetPseudo.Sorting.SortBy
+import org.nypl.simplified.opds.core.OPDSAcquisitionFeedEntry
+import java.text.CollationKey
+import java.text.Collator
+import java.util.Locale
+
+/**
+ * An index of the books in the book registry, used to search and sort local feeds.
+ *
+ * The index holds the uppercase title and authors of each book, a trigram index over those
+ * strings, and collation keys for each sort order. Entries are updated as book status and book
+ * entry events arrive from the registry, and queries only read the index. Books that are not
+ * in the registry are never indexed; they match no search terms, and are placed after all other
+ * books when sorting.
+ */
+
+class ProfileFeedIndex private constructor(
+  private val collator: Collator
+) : AutoCloseable {
+
+  private class Indexed(
+    val entry: OPDSAcquisitionFeedEntry,
+    val titleUpper: String,
+    val authorsUpper: List<String>,
+    val trigrams: Set<String>,
+    val titleKey: CollationKey,
+    val authorKey: CollationKey?
+  )
+
+  private val lock = Any()
+  private val books = HashMap<BookID, Indexed>()
+  private val postings = HashMap<String, MutableSet<BookID>>()
+
+  @Volatile
+  private var subscriptions: List<Disposable> = listOf()
+
+  companion object {
+    private const val GRAM = 3
+
+    /**
+     * Create an index of the given registry, kept up to date from the registry's events.
+     */
+
+    fun create(
+      bookRegistry: BookRegistryReadableType,
+      locale: Locale = Locale.getDefault()
+    ): ProfileFeedIndex {
+      val index = ProfileFeedIndex(Collator.getInstance(locale))
+      index.subscriptions =
+        listOf(
+          bookRegistry.bookEvents()
+            .subscribe { event -> index.onBookEvent(bookRegistry, event) },
+          bookRegistry.bookEntryEvents()
+            .subscribe { id -> index.onBookEntryEvent(bookRegistry, id) }
+        )
+      for (book in bookRegistry.books().values) {
+        index.update(book.book)
+      }
+      return index
+    }
+
+    private fun trigramsOf(
+      text: String,
+      into: MutableSet<String>
+    ) {
+      for (start in 0..text.length - GRAM) {
+        into.add(text.substring(start, start + GRAM))
+      }
+    }
+  }
+
+  private fun onBookEvent(
+    bookRegistry: BookRegistryReadableType,
+    event: BookStatusEvent
+  ) {
+    when (event) {
+      is BookStatusEvent.BookStatusEventAdded,
+      is BookStatusEvent.BookStatusEventChanged -> {
+        val book = bookRegistry.bookOrNull(event.bookId)
+        if (book != null) {
+          this.update(book.book)
+        }
+      }
+
+      is BookStatusEvent.BookStatusEventRemoved -> {
+        this.remove(event.bookId)
+      }
+    }
+  }
+
+  private fun onBookEntryEvent(
+    bookRegistry: BookRegistryReadableType,
+    id: BookID
+  ) {
+    val book = bookRegistry.bookOrNull(id)
+    if (book != null) {
+      this.update(book.book)
+    }
+  }
+
+  /**
+   * Index the given book, if its feed entry is not already indexed.
+   */
+
+  fun update(book: Book) {
+    synchronized(this.lock) {
+      this.updateLocked(book)
+    }
+  }
+
+  private fun updateLocked(book: Book) {
+    val existing = this.books[book.id]
+    if (existing != null && existing.entry === book.entry) {
+      return
+    }
+    if (existing != null) {
+      this.removeLocked(book.id)
+    }
+
+    val entry = book.entry
+    val titleUpper = entry.title.uppercase(Locale.ROOT)
+    val authorsUpper = entry.authors.map { author -> author.uppercase(Locale.ROOT) }
+    val trigrams = HashSet<String>()
+    trigramsOf(titleUpper, trigrams)
+    for (author in authorsUpper) {
+      trigramsOf(author, trigrams)
+    }
+
+    val indexed =
+      Indexed(
+        entry = entry,
+        titleUpper = titleUpper,
+        authorsUpper = authorsUpper,
+        trigrams = trigrams,
+        titleKey = this.collator.getCollationKey(entry.title),
+        authorKey = entry.authors.firstOrNull()?.let(this.collator::getCollationKey)
+      )
+
+    this.books[book.id] = indexed
+    for (trigram in trigrams) {
+      this.postings.getOrPut(trigram) { HashSet() }.add(book.id)
+    }
+  }
+
+  /**
+   * Remove the given book from the index.
+   */
+
+  fun remove(id: BookID) {
+    synchronized(this.lock) {
+      this.removeLocked(id)
+    }
+  }
+
+  private fun removeLocked(id: BookID) {
+    val existing = this.books.remove(id) ?: return
+    for (trigram in existing.trigrams) {
+      val ids = this.postings[trigram] ?: continue
+      ids.remove(id)
+      if (ids.isEmpty()) {
+        this.postings.remove(trigram)
+      }
+    }
+  }
+
+  /**
+   * Remove from `books` any book that does not match at least one of the given uppercase search
+   * terms. A book matches a term if its title or any of its authors contain the term. Nothing is
+   * removed if there are no terms.
+   */
+
+  fun search(
+    termsUpper: List<String>,
+    books: MutableList<BookWithStatus>
+  ) {
+    if (termsUpper.isEmpty()) {
+      return
+    }
+
+    synchronized(this.lock) {
+      val matches = HashSet<BookID>()
+      for (term in termsUpper) {
+        this.searchTermLocked(term, books, matches)
+      }
+      books.retainAll { book -> matches.contains(book.book.id) }
+    }
+  }
+
+  private fun searchTermLocked(
+    term: String,
+    books: List<BookWithStatus>,
+    matches: MutableSet<BookID>
+  ) {
+    /*
+     * Terms too short to have trigrams can only be found by examining every book.
+     */
+
+    if (term.length < GRAM) {
+      for (book in books) {
+        val id = book.book.id
+        if (this.matchesLocked(id, term)) {
+          matches.add(id)
+        }
+      }
+      return
+    }
+
+    /*
+     * Otherwise, intersect the posting lists of the term's trigrams, starting from the
+     * shortest, and then confirm each candidate.
+     */
+
+    val termTrigrams = HashSet<String>()
+    trigramsOf(term, termTrigrams)
+
+    val lists = ArrayList<Set<BookID>>(termTrigrams.size)
+    for (trigram in termTrigrams) {
+      lists.add(this.postings[trigram] ?: return)
+    }
+    lists.sortBy { ids -> ids.size }
+
+    val smallest = lists[0]
+    for (id in smallest) {
+      if (matches.contains(id)) {
+        continue
+      }
+      var inAll = true
+      for (index in 1 until lists.size) {
+        if (!lists[index].contains(id)) {
+          inAll = false
+          break
+        }
+      }
+      if (inAll && this.matchesLocked(id, term)) {
+        matches.add(id)
+      }
+    }
+  }
+
+  private fun matchesLocked(
+    id: BookID,
+    term: String
+  ): Boolean {
+    val indexed = this.books[id] ?: return false
+    if (indexed.titleUpper.contains(term)) {
+      return true
+    }
+    for (author in indexed.authorsUpper) {
+      if (author.contains(term)) {
+        return true
+      }
+    }
+    return false
+  }
+
+  /**
+   * Sort `books` using the precomputed collation keys for the given sort order. Books without
+   * authors are placed after all other books when sorting by author. The sort is stable.
+   */
+
+  fun sort(
+    sortBy: SortBy,
+    books: MutableList<BookWithStatus>
+  ) {
+    val keyed =
+      synchronized(this.lock) {
+        books.map { book ->
+          val indexed = this.books[book.book.id]
+          val key =
+            when (sortBy) {
+              SortBy.SORT_BY_AUTHOR -> indexed?.authorKey
+              SortBy.SORT_BY_TITLE -> indexed?.titleKey
+            }
+          Pair(key, book)
+        }
+      }
+
+    val sorted =
+      keyed.sortedWith { pair0, pair1 ->
+        val key0 = pair0.first
+        val key1 = pair1.first
+        if (key0 == null && key1 == null) {
+          0
+        } else if (key0 == null) {
+          1
+        } else if (key1 == null) {
+          -1
+        } else {
+          key0.compareTo(key1)
+        }
+      }
+
+    books.clear()
+    for (pair in sorted) {
+      books.add(pair.second)
+    }
+  }
+
+  override fun close() {
+    this.subscriptions.forEach(Disposable::dispose)
+  }
+}
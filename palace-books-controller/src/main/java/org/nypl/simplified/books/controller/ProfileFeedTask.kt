@@ -18,13 +18,13 @@ import org.nypl.simplified.feeds.api.FeedSearch
 import org.nypl.simplified.profiles.controller.api.ProfileFeedRequest
 import org.nypl.simplified.profiles.controller.api.ProfilesControllerType
 import org.slf4j.LoggerFactory
-import java.util.Collections
 import java.util.Locale
 import java.util.concurrent.Callable
 
 internal class ProfileFeedTask(
   private val bookFormatSupport: BookFormatSupportType,
   private val bookRegistry: BookRegistryReadableType,
+  private val index: ProfileFeedIndex,
   private val profiles: ProfilesControllerType,
   private val request: ProfileFeedRequest
 ) : Callable<Feed.FeedWithoutGroups> {
@@ -153,14 +153,7 @@ internal class ProfileFeedTask(
       return
     }
 
-    val termsUpper = this.searchTermsSplitUpper(search)
-    val iterator = books.iterator()
-    while (iterator.hasNext()) {
-      val book = iterator.next()
-      if (!this.searchMatches(termsUpper, book)) {
-        iterator.remove()
-      }
-    }
+    this.index.search(this.searchTermsSplitUpper(search), books)
   }
 
   /**
@@ -184,40 +177,7 @@ internal class ProfileFeedTask(
     sortBy: SortBy,
     books: ArrayList<BookWithStatus>
   ) {
-    when (sortBy) {
-      SortBy.SORT_BY_AUTHOR -> this.sortBooksByAuthor(books)
-      SortBy.SORT_BY_TITLE -> this.sortBooksByTitle(books)
-    }
-  }
-
-  private fun sortBooksByTitle(books: ArrayList<BookWithStatus>) {
-    Collections.sort(books) { book0, book1 ->
-      val entry0 = book0.book.entry
-      val entry1 = book1.book.entry
-      entry0.title.compareTo(entry1.title)
-    }
-  }
-
-  private fun sortBooksByAuthor(books: ArrayList<BookWithStatus>) {
-    Collections.sort(books) { book0, book1 ->
-      val entry0 = book0.book.entry
-      val entry1 = book1.book.entry
-      val authors1 = entry0.authors
-      val authors2 = entry1.authors
-      val e0 = authors1.isEmpty()
-      val e1 = authors2.isEmpty()
-      if (e0 && e1) {
-        0
-      } else if (e0) {
-        1
-      } else if (e1) {
-        -1
-      } else {
-        val author1 = authors1[0]!!
-        val author2 = authors2[0]!!
-        author1.compareTo(author2)
-      }
-    }
+    this.index.sort(sortBy, books)
   }
 
   /**
@@ -333,38 +293,6 @@ internal class ProfileFeedTask(
       }
     }
 
-  /**
-   * @return `true` if any of the given search terms match the given book, or the list of
-   * search terms is empty
-   */
-
-  private fun searchMatches(
-    termsUpper: List<String>,
-    book: BookWithStatus
-  ): Boolean {
-    if (termsUpper.isEmpty()) {
-      return true
-    }
-
-    for (index in termsUpper.indices) {
-      val termUpper = termsUpper[index]
-      val ee = book.book.entry
-      val eTitle = ee.title.uppercase(Locale.ROOT)
-      if (eTitle.contains(termUpper)) {
-        return true
-      }
-
-      val authors = ee.authors
-      for (a in authors) {
-        if (a.uppercase(Locale.ROOT).contains(termUpper)) {
-          return true
-        }
-      }
-    }
-
-    return false
-  }
-
   private fun selectFeedFilter(request: ProfileFeedRequest): (BookStatus) -> Boolean =
     when (request.feedSelection) {
       BOOKS_FEED_LOANED -> ::usableForBooksFeed
@@ -4,7 +4,6 @@ import org.librarysimplified.http.api.LSHTTPRequestBuilderType
 import org.librarysimplified.http.downloads.LSHTTPDownloadRequest
 import org.librarysimplified.http.downloads.LSHTTPDownloadState
 import org.librarysimplified.http.downloads.LSHTTPDownloads
-import org.nypl.simplified.books.book_database.api.BookFormats
 import org.nypl.simplified.taskrecorder.api.TaskRecorderType
 
 class BookPreviewHttp {
@@ -37,17 +36,27 @@ class BookPreviewHttp {
     }
   }
 
-  private fun createDownloadRequest(parameters: BookPreviewParameters): LSHTTPDownloadRequest {
+  private fun createDownloadRequest(
+    parameters: BookPreviewParameters,
+    cached: BookPreviewStorage.Entry?
+  ): LSHTTPDownloadRequest {
     val uri = parameters.previewAcquisition.uri
 
-    val request =
+    val builder =
       parameters.httpClient
         .newRequest(uri)
         .allowRedirects(LSHTTPRequestBuilderType.AllowRedirects.ALLOW_UNSAFE_REDIRECTS)
-        .build()
+
+    /*
+     * If a preview is already cached, ask the server to send the preview only if it has
+     * changed.
+     */
+
+    cached?.eTag?.let { builder.addHeader("If-None-Match", it) }
+    cached?.lastModified?.let { builder.addHeader("If-Modified-Since", it) }
 
     return LSHTTPDownloadRequest(
-      request = request,
+      request = builder.build(),
       outputFile = parameters.getTemporaryFile(),
       onEvent = { event ->
         onDownloadProgressEvent(parameters, event)
@@ -62,38 +71,33 @@ class BookPreviewHttp {
     )
   }
 
-  private fun saveDownloadedContent(parameters: BookPreviewParameters) {
+  private fun saveDownloadedContent(
+    parameters: BookPreviewParameters,
+    result: LSHTTPDownloadState.LSHTTPDownloadResult.DownloadCompletedSuccessfully
+  ) {
     parameters.taskRecorder.beginNewStep("Saving book...")
 
-    val storage =
-      BookPreviewStorage(
-        parameters.temporaryDirectory
+    val properties = result.responseStatus?.properties
+    val file =
+      parameters.storage.save(
+        bookID = parameters.feedEntry.id,
+        uri = parameters.previewAcquisition.uri,
+        format = parameters.format,
+        mimeType = parameters.mimeType,
+        file = parameters.getTemporaryFile(),
+        eTag = properties?.header("ETag"),
+        lastModified = properties?.header("Last-Modified")
       )
 
-    when (parameters.format) {
-      BookFormats.BookFormatDefinition.BOOK_FORMAT_AUDIO -> {
-        storage.saveAudiobookPreview(
-          file = parameters.getTemporaryFile(),
-          mimeType = parameters.mimeType,
-          onBookSuccessfullySaved = {
-            parameters.onPreviewFileReady(it)
-          }
-        )
-      }
-
-      BookFormats.BookFormatDefinition.BOOK_FORMAT_EPUB -> {
-        storage.saveBookPreview(
-          file = parameters.getTemporaryFile(),
-          onBookSuccessfullySaved = {
-            parameters.onPreviewFileReady(it)
-          }
-        )
-      }
+    parameters.onPreviewFileReady(file)
+  }
 
-      else -> {
-        throw Exception("Unsupported book preview")
-      }
-    }
+  private fun reuseCachedContent(
+    parameters: BookPreviewParameters,
+    cached: BookPreviewStorage.Entry
+  ) {
+    parameters.taskRecorder.beginNewStep("Using cached book...")
+    parameters.onPreviewFileReady(parameters.storage.reuse(cached))
   }
 
   private fun createDownloadingMessage(
@@ -127,14 +131,27 @@ class BookPreviewHttp {
     parameters.taskRecorder.addAttribute("URI", uri.toString())
 
     try {
+      val cached =
+        parameters.storage.find(
+          bookID = parameters.feedEntry.id,
+          uri = uri
+        )
+
       val downloadRequest =
         createDownloadRequest(
-          parameters = parameters
+          parameters = parameters,
+          cached = cached
         )
 
-      when (val result = LSHTTPDownloads.download(downloadRequest)) {
+      val result = LSHTTPDownloads.download(downloadRequest)
+      if (cached != null && result.responseStatus?.properties?.originalStatus == 304) {
+        this.reuseCachedContent(parameters, cached)
+        return
+      }
+
+      when (result) {
         is LSHTTPDownloadState.LSHTTPDownloadResult.DownloadCompletedSuccessfully -> {
-          this.saveDownloadedContent(parameters)
+          this.saveDownloadedContent(parameters, result)
         }
 
         else -> {
@@ -21,6 +21,7 @@ data class BookPreviewParameters(
   val onPreviewDownloadUpdated: (String, Long?, Long?, Long?) -> Unit,
   val onPreviewFileReady: (File) -> Unit,
   val previewAcquisition: OPDSPreviewAcquisition,
+  val storage: BookPreviewStorage,
   val taskRecorder: TaskRecorderType,
   val temporaryDirectory: File
 ) {
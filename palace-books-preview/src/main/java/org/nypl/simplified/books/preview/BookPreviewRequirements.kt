@@ -7,5 +7,10 @@ import java.io.File
 data class BookPreviewRequirements(
   val clock: () -> Instant,
   val httpClient: LSHTTPClientType,
-  val temporaryDirectory: File
+  val temporaryDirectory: File,
+  /**
+   * The cache of downloaded previews, shared by all preview tasks.
+   */
+
+  val storage: BookPreviewStorage
 )
@@ -1,62 +1,323 @@
 package org.nypl.simplified.books.preview
 
 import one.irradia.mime.api.MIMEType
+import org.nypl.simplified.books.book_database.api.BookFormats
 import org.nypl.simplified.books.formats.api.StandardFormatNames
-import org.nypl.simplified.files.DirectoryUtilities
 import org.nypl.simplified.files.FileUtilities
+import org.slf4j.LoggerFactory
 import java.io.File
+import java.io.IOException
+import java.net.URI
+import java.security.MessageDigest
+import java.util.Properties
+import java.util.concurrent.atomic.AtomicLong
 
-data class BookPreviewStorage(
-  val directory: File
+/**
+ * A size-bounded cache of downloaded book previews.
+ *
+ * Previews are addressed by a hash of the book ID and the preview URI. Each preview is stored
+ * alongside a small metadata file holding the validators (`ETag` and `Last-Modified`) that
+ * the server sent with it, so that a cached preview can be revalidated with a conditional
+ * request rather than downloaded again. Previews are replaced atomically, and the least
+ * recently used previews are discarded once the cache holds more than the maximum number of
+ * bytes.
+ */
+
+class BookPreviewStorage private constructor(
+  private val directory: File,
+  private val bytesMaximum: Long
 ) {
-  private val bookPreviewFile: File =
-    File(directory, "book-preview.epub")
+  private val logger =
+    LoggerFactory.getLogger(BookPreviewStorage::class.java)
 
-  private val audiobookMp3PreviewFile: File =
-    File(directory, "audiobook-preview.mp3")
+  private val bytesLock = Any()
+  private var bytes = -1L
 
-  private val audiobookWmaPreviewFile: File =
-    File(directory, "audiobook-preview.wma")
+  private val hits = AtomicLong()
+  private val misses = AtomicLong()
+  private val evictions = AtomicLong()
 
-  fun saveBookPreview(
-    file: File,
-    onBookSuccessfullySaved: (File) -> Unit
-  ) {
-    if (file.isDirectory) {
-      DirectoryUtilities.directoryCopy(file, bookPreviewFile)
-    } else {
-      FileUtilities.fileCopy(file, bookPreviewFile)
+  /**
+   * A cached preview.
+   */
+
+  data class Entry(
+    val key: String,
+    val bookID: String,
+    val uri: URI,
+    val mimeType: String,
+    val file: File,
+    val eTag: String?,
+    val lastModified: String?
+  )
+
+  companion object {
+    private const val METADATA_SUFFIX = ".properties"
+
+    /**
+     * The default maximum size of the cache.
+     */
+
+    const val BYTES_MAXIMUM_DEFAULT = 64L * 1024L * 1024L
+
+    /**
+     * The names of the files used before previews were cached.
+     */
+
+    private val LEGACY_FILES =
+      listOf("book-preview.epub", "audiobook-preview.mp3", "audiobook-preview.wma")
+
+    fun create(
+      directory: File,
+      bytesMaximum: Long = BYTES_MAXIMUM_DEFAULT
+    ): BookPreviewStorage {
+      require(bytesMaximum > 0L) { "Maximum size must be positive" }
+      return BookPreviewStorage(directory, bytesMaximum)
     }
 
-    onBookSuccessfullySaved(bookPreviewFile)
-  }
+    /**
+     * Create a cache within the given preview download directory, deleting any previews left
+     * in that directory from before previews were cached.
+     */
 
-  fun saveAudiobookPreview(
-    file: File,
-    mimeType: MIMEType,
-    onBookSuccessfullySaved: (File) -> Unit
-  ) {
-    val previewFile =
-      when (mimeType) {
-        StandardFormatNames.mpegAudioBooks -> {
-          audiobookMp3PreviewFile
-        }
+    fun createInPreviewDirectory(
+      previewDirectory: File,
+      bytesMaximum: Long = BYTES_MAXIMUM_DEFAULT
+    ): BookPreviewStorage {
+      for (name in LEGACY_FILES) {
+        File(previewDirectory, name).delete()
+      }
+      return this.create(File(previewDirectory, "previews"), bytesMaximum)
+    }
 
-        StandardFormatNames.wmaAudioBooks -> {
-          audiobookWmaPreviewFile
-        }
+    /**
+     * @return The cache key for the preview of the given book at the given URI
+     */
+
+    fun keyOf(
+      bookID: String,
+      uri: URI
+    ): String {
+      val digest = MessageDigest.getInstance("SHA-256")
+      digest.update(bookID.toByteArray(Charsets.UTF_8))
+      digest.update(0)
+      digest.update(uri.toString().toByteArray(Charsets.UTF_8))
+
+      val text = StringBuilder(64)
+      for (b in digest.digest()) {
+        text.append(String.format("%02x", b))
+      }
+      return text.toString()
+    }
 
-        else -> {
-          throw Exception("Unsupported MIME type: $mimeType")
+    /**
+     * @return The file extension used for previews of the given format and type
+     */
+
+    fun extensionOf(
+      format: BookFormats.BookFormatDefinition,
+      mimeType: MIMEType
+    ): String =
+      when (format) {
+        BookFormats.BookFormatDefinition.BOOK_FORMAT_AUDIO -> {
+          when (mimeType) {
+            StandardFormatNames.mpegAudioBooks -> "mp3"
+            StandardFormatNames.wmaAudioBooks -> "wma"
+            else -> throw Exception("Unsupported MIME type: $mimeType")
+          }
         }
+
+        BookFormats.BookFormatDefinition.BOOK_FORMAT_EPUB -> "epub"
+        else -> throw Exception("Unsupported book preview")
       }
+  }
+
+  /**
+   * The number of previews that were served from the cache.
+   */
+
+  val hitCount: Long
+    get() = this.hits.get()
+
+  /**
+   * The number of previews that had to be downloaded.
+   */
+
+  val missCount: Long
+    get() = this.misses.get()
+
+  /**
+   * The number of previews discarded to keep the cache within its maximum size.
+   */
+
+  val evictionCount: Long
+    get() = this.evictions.get()
+
+  /**
+   * Find the cached preview of the given book at the given URI. The preview is not counted
+   * as a hit until it is passed to [reuse], as it may need to be revalidated first.
+   */
+
+  fun find(
+    bookID: String,
+    uri: URI
+  ): Entry? {
+    val key = keyOf(bookID, uri)
+    val metadataFile = File(this.directory, key + METADATA_SUFFIX)
+    if (!metadataFile.isFile) {
+      return null
+    }
 
-    if (file.isDirectory) {
-      DirectoryUtilities.directoryCopy(file, previewFile)
+    return try {
+      val properties = Properties()
+      metadataFile.inputStream().use(properties::load)
+
+      val entry =
+        Entry(
+          key = key,
+          bookID = properties.getProperty("bookID"),
+          uri = URI(properties.getProperty("uri")),
+          mimeType = properties.getProperty("mimeType"),
+          file = File(this.directory, properties.getProperty("file")),
+          eTag = properties.getProperty("eTag"),
+          lastModified = properties.getProperty("lastModified")
+        )
+
+      if (entry.bookID == bookID && entry.uri == uri && entry.file.isFile) {
+        entry
+      } else {
+        null
+      }
+    } catch (e: Exception) {
+      this.logger.debug("Unable to read cached preview metadata {}: ", metadataFile, e)
+      null
+    }
+  }
+
+  /**
+   * Serve a cached preview, marking it as the most recently used.
+   *
+   * @return The preview file
+   */
+
+  fun reuse(entry: Entry): File {
+    this.hits.incrementAndGet()
+    entry.file.setLastModified(System.currentTimeMillis())
+    this.logger.debug(
+      "preview cache: {} hits, {} misses, {} evictions",
+      this.hitCount,
+      this.missCount,
+      this.evictionCount
+    )
+    return entry.file
+  }
+
+  /**
+   * Save a downloaded preview, atomically replacing any existing preview of the same book at
+   * the same URI. The downloaded file may be moved into the cache.
+   *
+   * @return The preview file
+   */
+
+  @Throws(IOException::class)
+  fun save(
+    bookID: String,
+    uri: URI,
+    format: BookFormats.BookFormatDefinition,
+    mimeType: MIMEType,
+    file: File,
+    eTag: String?,
+    lastModified: String?
+  ): File {
+    this.misses.incrementAndGet()
+    this.directory.mkdirs()
+
+    val key = keyOf(bookID, uri)
+    val previous = this.find(bookID, uri)
+    val target = File(this.directory, "$key.${extensionOf(format, mimeType)}")
+    val targetTmp = File(this.directory, "${target.name}.tmp")
+
+    if (!file.renameTo(targetTmp)) {
+      FileUtilities.fileCopy(file, targetTmp)
+    }
+    targetTmp.setLastModified(System.currentTimeMillis())
+
+    val properties = Properties()
+    properties.setProperty("bookID", bookID)
+    properties.setProperty("uri", uri.toString())
+    properties.setProperty("mimeType", mimeType.fullType)
+    properties.setProperty("file", target.name)
+    eTag?.let { properties.setProperty("eTag", it) }
+    lastModified?.let { properties.setProperty("lastModified", it) }
+
+    val metadata = File(this.directory, key + METADATA_SUFFIX)
+    val metadataTmp = File(this.directory, "$key$METADATA_SUFFIX.tmp")
+    metadataTmp.outputStream().use { stream -> properties.store(stream, null) }
+
+    synchronized(this.bytesLock) {
+      val replaced = previous?.file?.takeIf { f -> f != target }
+      val bytesBefore =
+        this.bytesOf(target) + this.bytesOf(metadata) + (replaced?.let(this::bytesOf) ?: 0L)
+
+      FileUtilities.fileRename(targetTmp, target)
+      FileUtilities.fileRename(metadataTmp, metadata)
+      replaced?.delete()
+
+      this.onBytesChanged(this.bytesOf(target) + this.bytesOf(metadata) - bytesBefore, key)
+    }
+
+    this.logger.debug(
+      "preview cache: {} hits, {} misses, {} evictions",
+      this.hitCount,
+      this.missCount,
+      this.evictionCount
+    )
+    return target
+  }
+
+  private fun bytesOf(file: File): Long =
+    if (file.isFile) file.length() else 0L
+
+  private fun onBytesChanged(
+    delta: Long,
+    keyKept: String
+  ) {
+    if (this.bytes < 0L) {
+      this.bytes = this.entryFiles().sumOf { f -> f.length() }
     } else {
-      FileUtilities.fileCopy(file, previewFile)
+      this.bytes += delta
     }
 
-    onBookSuccessfullySaved(previewFile)
+    if (this.bytes <= this.bytesMaximum) {
+      return
+    }
+
+    /*
+     * Discard the least recently used previews, along with their metadata. The preview that
+     * has just been saved is always kept, even if it alone exceeds the maximum size.
+     */
+
+    val previews =
+      this.entryFiles()
+        .filter { f -> !f.name.endsWith(METADATA_SUFFIX) }
+        .filter { f -> !f.name.startsWith(keyKept) }
+        .sortedBy { f -> f.lastModified() }
+
+    for (preview in previews) {
+      if (this.bytes <= this.bytesMaximum) {
+        break
+      }
+      val key = preview.name.substringBefore('.')
+      val metadata = File(this.directory, key + METADATA_SUFFIX)
+      val length = preview.length() + this.bytesOf(metadata)
+      metadata.delete()
+      if (preview.delete()) {
+        this.bytes -= length
+        this.evictions.incrementAndGet()
+      }
+    }
   }
+
+  private fun entryFiles(): List<File> =
+    this.directory.listFiles { f -> f.isFile && !f.name.endsWith(".tmp") }?.toList() ?: listOf()
 }
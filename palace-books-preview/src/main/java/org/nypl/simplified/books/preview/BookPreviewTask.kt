@@ -68,6 +68,7 @@ class BookPreviewTask(
             onPreviewDownloadUpdated = this::onPreviewDownloadUpdated,
             onPreviewFileReady = onPreviewFileReady,
             previewAcquisition = previewAcquisition,
+            storage = bookPreviewRequirements.storage,
             taskRecorder = taskRecorder,
             temporaryDirectory = bookPreviewRegistry.getPreviewDownloadDirectory()
           )
@@ -22,6 +22,8 @@ class BookRegistry private constructor(
     PublishSubject.create()
   private val bookHoldsUpdate: PublishSubject<BookHoldsUpdateEvent> =
     PublishSubject.create()
+  private val bookEntries: PublishSubject<BookID> =
+    PublishSubject.create()
 
   override fun books(): SortedMap<BookID, BookWithStatus> = this.booksReadOnly
 
@@ -29,6 +31,8 @@ class BookRegistry private constructor(
 
   override fun bookHoldsUpdateEvents(): Observable<BookHoldsUpdateEvent> = this.bookHoldsUpdate
 
+  override fun bookEntryEvents(): Observable<BookID> = this.bookEntries
+
   override fun bookStatus(id: BookID): OptionType<BookStatus> =
     this
       .book(id)
@@ -40,6 +44,9 @@ class BookRegistry private constructor(
     val oldStatus = this.books[status.book.id]
     this.books[status.book.id] = status
     this.publishUpdateEvent(oldStatus, status)
+    if (oldStatus != null && oldStatus.book.entry !== status.book.entry) {
+      this.bookEntries.onNext(status.book.id)
+    }
   }
 
   private fun publishUpdateEvent(
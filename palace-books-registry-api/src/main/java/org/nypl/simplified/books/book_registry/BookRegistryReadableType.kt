@@ -25,6 +25,14 @@ interface BookRegistryReadableType {
 
   fun bookEvents(): Observable<BookStatusEvent>
 
+  /**
+   * @return An observable that publishes the ID of a book whenever the feed entry of a book
+   * already in the registry is replaced, whether or not its status changes
+   */
+
+  fun bookEntryEvents(): Observable<BookID> =
+    Observable.never()
+
   /**
    * @return An observable that publishes book holds events
    */
@@ -7,13 +7,7 @@ import org.librarysimplified.audiobook.time_tracking.PlayerTimeTracked
 import org.nypl.simplified.profiles.controller.api.ProfilesControllerType
 import org.slf4j.LoggerFactory
 import org.slf4j.MDC
-import java.nio.file.Files
 import java.nio.file.Path
-import java.nio.file.StandardCopyOption.ATOMIC_MOVE
-import java.nio.file.StandardCopyOption.REPLACE_EXISTING
-import java.nio.file.StandardOpenOption.CREATE
-import java.nio.file.StandardOpenOption.TRUNCATE_EXISTING
-import java.nio.file.StandardOpenOption.WRITE
 import java.time.ZoneOffset
 import java.util.concurrent.Executors
 import java.util.concurrent.LinkedBlockingQueue
@@ -22,9 +16,9 @@ import java.util.concurrent.TimeUnit
 /**
  * The collector service.
  *
- * This listens for a stream of "time tracked" events and serializes them into a directory. It
- * also records, for debugging purposes, when time tracking has "started" and "stopped" (ie, a
- * book has opened or closed).
+ * This listens for a stream of "time tracked" events and appends them to the span journal in
+ * a directory. It also records, for debugging purposes, when time tracking has "started" and
+ * "stopped" (ie, a book has opened or closed).
  */
 
 class TimeTrackingCollector private constructor(
@@ -41,6 +35,8 @@ class TimeTrackingCollector private constructor(
     LinkedBlockingQueue<Unit>()
   private val resources =
     CloseableCollection.create()
+  private val journal =
+    TimeTrackingSpanJournalWriter.create(this.outputDirectory)
 
   private val executor =
     Executors.newSingleThreadExecutor { r ->
@@ -52,6 +48,12 @@ class TimeTrackingCollector private constructor(
     }
 
   init {
+    /*
+     * The journal must be closed only after the executor has finished writing to it. Resources
+     * are closed in the reverse order to that in which they were added.
+     */
+
+    this.resources.add(this.journal)
     this.resources.add(
       AutoCloseable {
         this.executor.shutdown()
@@ -90,13 +92,6 @@ class TimeTrackingCollector private constructor(
             return
           }
 
-          Files.createDirectories(this.outputDirectory)
-
-          val outFile =
-            this.outputDirectory.resolve("${time.id}.ttspan")
-          val outFileTmp =
-            this.outputDirectory.resolve("${time.id}.ttspan.tmp")
-
           val utcStart =
             time.timeStarted.withOffsetSameInstant(ZoneOffset.UTC)
           val utcEnd =
@@ -113,11 +108,7 @@ class TimeTrackingCollector private constructor(
               targetURI = statusNow.timeTrackingUri
             )
 
-          Files.newOutputStream(outFileTmp, WRITE, CREATE, TRUNCATE_EXISTING).use { s ->
-            span.toProperties().store(s, "")
-            s.flush()
-          }
-          Files.move(outFileTmp, outFile, ATOMIC_MOVE, REPLACE_EXISTING)
+          this.journal.append(span)
         }
 
         TimeTrackingStatus.Inactive -> {
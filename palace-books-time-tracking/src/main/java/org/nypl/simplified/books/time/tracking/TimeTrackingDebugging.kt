@@ -8,36 +8,139 @@ import java.io.PrintWriter
 import java.io.StringWriter
 import java.time.OffsetDateTime
 import java.time.ZoneOffset.UTC
-import java.util.Properties
-import java.util.concurrent.locks.ReentrantLock
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * A debug log of time tracking operations.
+ *
+ * Each operation is appended to a plain text log file in the debug directory as a single line
+ * consisting of the time, the operation name, and a list of `key=value` fields, separated by
+ * tabs. Tabs, line breaks, and backslashes within values are escaped so that every record
+ * occupies exactly one line. Records are encoded before any lock is taken, and appends to
+ * different log files do not contend with each other.
+ *
+ * @see readRecords
+ */
 
 object TimeTrackingDebugging {
   private val logger =
     LoggerFactory.getLogger(TimeTrackingDebugging::class.java)
 
-  private val separator =
-    ByteArray(2)
+  /**
+   * The name of the debug log file within the debug directory.
+   */
+
+  const val LOG_FILE_NAME = "time_tracking_debug.log"
+
+  /**
+   * The name of the XML debug log file written by older versions of the application.
+   */
+
+  private const val LEGACY_LOG_FILE_NAME = "time_tracking_debug.dat"
+
+  private val fileLocks =
+    ConcurrentHashMap<File, Any>()
 
-  private val fileLock =
-    ReentrantLock()
+  /**
+   * A record read from the debug log.
+   */
 
-  init {
-    this.separator[0] = '\n'.code.toByte()
-    this.separator[1] = 0
+  data class Record(
+    val operation: String,
+    val time: OffsetDateTime,
+    val fields: Map<String, String>
+  )
+
+  private fun escape(text: String): String {
+    val result = StringBuilder(text.length)
+    for (c in text) {
+      when (c) {
+        '\\' -> result.append("\\\\")
+        '\t' -> result.append("\\t")
+        '\n' -> result.append("\\n")
+        '\r' -> result.append("\\r")
+        else -> result.append(c)
+      }
+    }
+    return result.toString()
   }
 
-  private fun writeLocked(
+  private fun unescape(text: String): String {
+    val result = StringBuilder(text.length)
+    var index = 0
+    while (index < text.length) {
+      val c = text[index]
+      if (c == '\\' && index + 1 < text.length) {
+        index += 1
+        when (val e = text[index]) {
+          't' -> result.append('\t')
+          'n' -> result.append('\n')
+          'r' -> result.append('\r')
+          else -> result.append(e)
+        }
+      } else {
+        result.append(c)
+      }
+      index += 1
+    }
+    return result.toString()
+  }
+
+  private fun encode(
+    operation: String,
+    fields: Array<out Pair<String, String>>
+  ): ByteArray {
+    val line = StringBuilder(128)
+    line.append(OffsetDateTime.now(UTC))
+    line.append('\t')
+    line.append(escape(operation))
+    for ((key, value) in fields) {
+      line.append('\t')
+      line.append(escape(key))
+      line.append('=')
+      line.append(escape(value))
+    }
+    line.append('\n')
+    return line.toString().toByteArray(Charsets.UTF_8)
+  }
+
+  private fun write(
     directory: File,
-    properties: Properties
+    operation: String,
+    vararg fields: Pair<String, String>
   ) {
-    this.fileLock.lock()
+    this.writeRecords(directory) { records -> records.add(this.encode(operation, fields)) }
+  }
 
+  private fun writeRecords(
+    directory: File,
+    encoder: (MutableList<ByteArray>) -> Unit
+  ) {
     try {
-      val file = File(directory, "time_tracking_debug.dat")
-      FileOutputStream(file, true).use { stream ->
-        properties.storeToXML(stream, "")
-        stream.write(this.separator)
-        stream.flush()
+      val records = mutableListOf<ByteArray>()
+      encoder.invoke(records)
+
+      val file = File(directory, LOG_FILE_NAME)
+      var created = false
+      val lock = this.fileLocks.computeIfAbsent(file.absoluteFile) {
+        created = true
+        Any()
+      }
+
+      synchronized(lock) {
+        /*
+         * The XML log written by older versions is never read or appended to again.
+         */
+
+        if (created) {
+          File(directory, LEGACY_LOG_FILE_NAME).delete()
+        }
+
+        FileOutputStream(file, true).use { stream ->
+          for (record in records) {
+            stream.write(record)
+          }
+        }
       }
     } catch (e: Throwable) {
       try {
@@ -46,22 +149,49 @@ object TimeTrackingDebugging {
       } finally {
         MDC.remove("TimeTracking")
       }
-    } finally {
-      this.fileLock.unlock()
     }
   }
 
+  /**
+   * Read all of the intact records from the given debug log file. A trailing line that was
+   * not completely written is ignored.
+   */
+
+  fun readRecords(file: File): List<Record> {
+    val text = file.readText(Charsets.UTF_8)
+    val complete = text.substring(0, text.lastIndexOf('\n') + 1)
+
+    val records = mutableListOf<Record>()
+    for (line in complete.lineSequence()) {
+      if (line.isEmpty()) {
+        continue
+      }
+
+      val parts = line.split('\t')
+      if (parts.size < 2) {
+        continue
+      }
+
+      val fields = LinkedHashMap<String, String>(parts.size - 2)
+      for (part in parts.drop(2)) {
+        fields[unescape(part.substringBefore('='))] = unescape(part.substringAfter('='))
+      }
+      records.add(Record(unescape(parts[1]), OffsetDateTime.parse(parts[0]), fields))
+    }
+    return records.toList()
+  }
+
   fun onTimeTrackingStarted(
     timeTrackingDebugDirectory: File,
     libraryId: String,
     bookId: String
   ) {
-    val p = Properties()
-    p.setProperty("Operation", "TimeTrackingStarted")
-    p.setProperty("Time", OffsetDateTime.now(UTC).toString())
-    p.setProperty("LibraryID", libraryId)
-    p.setProperty("BookID", bookId)
-    this.writeLocked(timeTrackingDebugDirectory, p)
+    this.write(
+      timeTrackingDebugDirectory,
+      "TimeTrackingStarted",
+      "LibraryID" to libraryId,
+      "BookID" to bookId
+    )
   }
 
   fun onTimeTrackingStopped(
@@ -69,12 +199,12 @@ object TimeTrackingDebugging {
     libraryId: String,
     bookId: String
   ) {
-    val p = Properties()
-    p.setProperty("Operation", "TimeTrackingStopped")
-    p.setProperty("Time", OffsetDateTime.now(UTC).toString())
-    p.setProperty("LibraryID", libraryId)
-    p.setProperty("BookID", bookId)
-    this.writeLocked(timeTrackingDebugDirectory, p)
+    this.write(
+      timeTrackingDebugDirectory,
+      "TimeTrackingStopped",
+      "LibraryID" to libraryId,
+      "BookID" to bookId
+    )
   }
 
   fun onTimeTrackingEntryCreated(
@@ -85,32 +215,43 @@ object TimeTrackingDebugging {
     duringMinute: String,
     seconds: Int,
   ) {
-    val p = Properties()
-    p.setProperty("Operation", "TimeTrackingEntryCreated")
-    p.setProperty("Time", OffsetDateTime.now(UTC).toString())
-    p.setProperty("EntryID", entryId)
-    p.setProperty("LibraryID", libraryId)
-    p.setProperty("BookID", bookId)
-    p.setProperty("DuringMinute", duringMinute)
-    p.setProperty("Seconds", seconds.toString())
-    this.writeLocked(timeTrackingDebugDirectory, p)
+    this.write(
+      timeTrackingDebugDirectory,
+      "TimeTrackingEntryCreated",
+      "EntryID" to entryId,
+      "LibraryID" to libraryId,
+      "BookID" to bookId,
+      "DuringMinute" to duringMinute,
+      "Seconds" to seconds.toString()
+    )
   }
 
-  fun onTimeTrackingSendAttempt(
+  /**
+   * Record a send attempt for each of the given entries. All records are written with a
+   * single append.
+   */
+
+  fun onTimeTrackingSendAttempts(
     timeTrackingDebugDirectory: File,
     libraryId: String,
     bookId: String,
-    entryId: String,
-    seconds: Int
+    entries: List<TimeTrackingEntry>
   ) {
-    val p = Properties()
-    p.setProperty("Operation", "TimeTrackingSendAttempt")
-    p.setProperty("Time", OffsetDateTime.now(UTC).toString())
-    p.setProperty("LibraryID", libraryId)
-    p.setProperty("BookID", bookId)
-    p.setProperty("EntryID", entryId)
-    p.setProperty("Seconds", seconds.toString())
-    this.writeLocked(timeTrackingDebugDirectory, p)
+    this.writeRecords(timeTrackingDebugDirectory) { records ->
+      for (entry in entries) {
+        records.add(
+          this.encode(
+            "TimeTrackingSendAttempt",
+            arrayOf(
+              "LibraryID" to libraryId,
+              "BookID" to bookId,
+              "EntryID" to entry.id,
+              "Seconds" to entry.secondsPlayed.toString()
+            )
+          )
+        )
+      }
+    }
   }
 
   fun onTimeTrackingSendAttemptSucceeded(
@@ -119,13 +260,13 @@ object TimeTrackingDebugging {
     bookId: String,
     entryId: String
   ) {
-    val p = Properties()
-    p.setProperty("Operation", "TimeTrackingSendAttemptSucceeded")
-    p.setProperty("Time", OffsetDateTime.now(UTC).toString())
-    p.setProperty("LibraryID", libraryId)
-    p.setProperty("BookID", bookId)
-    p.setProperty("EntryID", entryId)
-    this.writeLocked(timeTrackingDebugDirectory, p)
+    this.write(
+      timeTrackingDebugDirectory,
+      "TimeTrackingSendAttemptSucceeded",
+      "LibraryID" to libraryId,
+      "BookID" to bookId,
+      "EntryID" to entryId
+    )
   }
 
   fun onTimeTrackingSendAttemptFailedExceptionally(
@@ -135,14 +276,14 @@ object TimeTrackingDebugging {
     entryId: String,
     exception: Throwable
   ) {
-    val p = Properties()
-    p.setProperty("Operation", "TimeTrackingSendAttemptFailedExceptionally")
-    p.setProperty("Time", OffsetDateTime.now(UTC).toString())
-    p.setProperty("LibraryID", libraryId)
-    p.setProperty("BookID", bookId)
-    p.setProperty("EntryID", entryId)
-    p.setProperty("Exception", exceptionTextOf(exception))
-    this.writeLocked(timeTrackingDebugDirectory, p)
+    this.write(
+      timeTrackingDebugDirectory,
+      "TimeTrackingSendAttemptFailedExceptionally",
+      "LibraryID" to libraryId,
+      "BookID" to bookId,
+      "EntryID" to entryId,
+      "Exception" to exceptionTextOf(exception)
+    )
   }
 
   private fun exceptionTextOf(exception: Throwable): String =
@@ -160,13 +301,13 @@ object TimeTrackingDebugging {
     bookId: String,
     entryId: String
   ) {
-    val p = Properties()
-    p.setProperty("Operation", "TimeTrackingSendAttemptFailed")
-    p.setProperty("Time", OffsetDateTime.now(UTC).toString())
-    p.setProperty("LibraryID", libraryId)
-    p.setProperty("BookID", bookId)
-    p.setProperty("EntryID", entryId)
-    this.writeLocked(timeTrackingDebugDirectory, p)
+    this.write(
+      timeTrackingDebugDirectory,
+      "TimeTrackingSendAttemptFailed",
+      "LibraryID" to libraryId,
+      "BookID" to bookId,
+      "EntryID" to entryId
+    )
   }
 
   fun onTimeTrackingSendAttemptFailedPermanently(
@@ -175,12 +316,12 @@ object TimeTrackingDebugging {
     bookId: String,
     entryId: String
   ) {
-    val p = Properties()
-    p.setProperty("Operation", "TimeTrackingSendAttemptFailedPermanently")
-    p.setProperty("Time", OffsetDateTime.now(UTC).toString())
-    p.setProperty("LibraryID", libraryId)
-    p.setProperty("BookID", bookId)
-    p.setProperty("EntryID", entryId)
-    this.writeLocked(timeTrackingDebugDirectory, p)
+    this.write(
+      timeTrackingDebugDirectory,
+      "TimeTrackingSendAttemptFailedPermanently",
+      "LibraryID" to libraryId,
+      "BookID" to bookId,
+      "EntryID" to entryId
+    )
   }
 }
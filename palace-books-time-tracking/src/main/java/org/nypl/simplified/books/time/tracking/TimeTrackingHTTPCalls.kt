@@ -5,23 +5,52 @@ import org.librarysimplified.http.api.LSHTTPClientType
 import org.librarysimplified.http.api.LSHTTPRequestBuilderType
 import org.librarysimplified.http.api.LSHTTPResponseStatus
 import org.nypl.simplified.accounts.api.AccountAuthenticatedHTTP
+import org.nypl.simplified.accounts.api.AccountAuthenticationCredentials
 import org.nypl.simplified.accounts.api.AccountAuthenticatedHTTP.addBasicTokenPropertiesIfApplicable
 import org.nypl.simplified.accounts.api.AccountAuthenticatedHTTP.getAccessToken
 import org.nypl.simplified.accounts.database.api.AccountType
 import org.slf4j.LoggerFactory
+import java.io.ByteArrayOutputStream
 import java.io.IOException
 import java.net.URI
+import java.util.concurrent.ConcurrentHashMap
+import java.util.zip.GZIPOutputStream
 
 /**
  * A minimal class around the various annotations and user profile REST calls.
+ *
+ * Compression is disabled unless a `compressionThreshold` is given, because servers are not
+ * required to accept compressed request bodies. When a threshold is given, request bodies of at
+ * least that many bytes are sent gzip-compressed. If a server rejects a compressed request with
+ * a 400 or 415 status code, the request is immediately sent again uncompressed, and requests to
+ * that URI are not compressed again by this instance.
  */
 
 class TimeTrackingHTTPCalls(
-  private val http: LSHTTPClientType
+  private val http: LSHTTPClientType,
+  private val compressionThreshold: Int? = null
 ) : TimeTrackingHTTPCallsType {
   private val logger =
     LoggerFactory.getLogger(TimeTrackingHTTPCalls::class.java)
 
+  private val uncompressedTargets =
+    ConcurrentHashMap.newKeySet<URI>()
+
+  companion object {
+    /**
+     * A reasonable size in bytes at which to compress request bodies for servers that are known
+     * to accept compressed requests. Smaller bodies are not worth the overhead of the gzip header.
+     */
+
+    const val COMPRESSION_THRESHOLD_RECOMMENDED = 1024
+
+    private fun gzip(data: ByteArray): ByteArray {
+      val output = ByteArrayOutputStream(data.size / 4)
+      GZIPOutputStream(output).use { stream -> stream.write(data) }
+      return output.toByteArray()
+    }
+  }
+
   override fun registerTimeTrackingInfo(
     request: TimeTrackingRequest,
     account: AccountType
@@ -31,20 +60,58 @@ class TimeTrackingHTTPCalls(
 
     val data =
       TimeTrackingJSON.serializeToBytes(request)
+
+    val threshold =
+      this.compressionThreshold
+    val compress =
+      threshold != null &&
+        data.size >= threshold &&
+        !this.uncompressedTargets.contains(request.timeTrackingUri)
+
+    if (compress) {
+      val result = this.post(request, account, credentials, gzip(data), compressed = true)
+      if (result != null) {
+        return result
+      }
+      this.logger.debug(
+        "{} rejected a compressed request; sending requests uncompressed from now on",
+        request.timeTrackingUri
+      )
+      this.uncompressedTargets.add(request.timeTrackingUri)
+    }
+    return this.post(request, account, credentials, data, compressed = false)!!
+  }
+
+  /**
+   * Post the given body. Returns `null` if the body was compressed and the server appears to
+   * have rejected the compression.
+   */
+
+  private fun post(
+    request: TimeTrackingRequest,
+    account: AccountType,
+    credentials: AccountAuthenticationCredentials,
+    data: ByteArray,
+    compressed: Boolean
+  ): TimeTrackingServerResponse? {
     val auth =
       AccountAuthenticatedHTTP.createAuthorization(credentials)
     val post =
       LSHTTPRequestBuilderType.Method.Post(
         data, MIMEType("application", "json", mapOf())
       )
-    val httpRequest =
+    val builder =
       this.http
         .newRequest(request.timeTrackingUri)
         .setAuthorization(auth)
         .addBasicTokenPropertiesIfApplicable(credentials)
         .setMethod(post)
-        .build()
 
+    if (compressed) {
+      builder.addHeader("Content-Encoding", "gzip")
+    }
+
+    val httpRequest = builder.build()
     return httpRequest.execute().use { response ->
       when (val status = response.status) {
         is LSHTTPResponseStatus.Responded.OK -> {
@@ -55,7 +122,10 @@ class TimeTrackingHTTPCalls(
         }
 
         is LSHTTPResponseStatus.Responded.Error -> {
-          if (status.properties.status == 404) {
+          val code = status.properties.status
+          if (compressed && (code == 400 || code == 415)) {
+            null
+          } else if (code == 404) {
             this.fakeSynthesized404Response(request)
           } else {
             this.logAndFail(request.timeTrackingUri, status)
@@ -1,12 +1,8 @@
 package org.nypl.simplified.books.time.tracking
 
 import com.io7m.jmulticlose.core.CloseableCollection
-import io.azam.ulidj.ULID
-import org.librarysimplified.audiobook.manifest.api.PlayerPalaceID
-import org.nypl.simplified.accounts.api.AccountID
 import org.slf4j.LoggerFactory
 import org.slf4j.MDC
-import java.net.URI
 import java.nio.file.Files
 import java.nio.file.Path
 import java.nio.file.StandardCopyOption
@@ -24,10 +20,10 @@ import java.util.stream.Collectors
 /**
  * The merge service.
  *
- * This takes spans of time that were serialized by the [TimeTrackingCollectorServiceType] and
- * merges them into time tracking entries to be sent to the server. Necessarily, it only operates
- * on spans that are over a minute old, because there might still be spans to come in the current
- * minute.
+ * This takes spans of time that were appended to the span journal by the
+ * [TimeTrackingCollectorServiceType] and merges them into time tracking entries to be sent to
+ * the server. Necessarily, it only operates on spans that are over a minute old, because there
+ * might still be spans to come in the current minute.
  */
 
 class TimeTrackingMerge private constructor(
@@ -71,14 +67,14 @@ class TimeTrackingMerge private constructor(
     this.resources.add(AutoCloseable { this.tickWait.offer(Unit) })
   }
 
-  private fun isSpanFileSuitable(
+  private fun isInputFileSuitable(
     timeOldest: Instant,
     file: Path
   ): Boolean {
     if (!Files.isRegularFile(file)) {
       return false
     }
-    if (!file.toString().endsWith(".ttspan")) {
+    if (!isLegacySpanFile(file) && !TimeTrackingSpanJournal.isSegment(file)) {
       return false
     }
 
@@ -86,6 +82,9 @@ class TimeTrackingMerge private constructor(
     return fileTime.isBefore(timeOldest)
   }
 
+  private fun isLegacySpanFile(file: Path): Boolean =
+    file.toString().endsWith(".ttspan")
+
   private fun tick() {
     try {
       MDC.put("System", "TimeTracking")
@@ -99,42 +98,54 @@ class TimeTrackingMerge private constructor(
         timeNow.minusSeconds(90L)
 
       /*
-       * Collect every non-temporary file with a modification date that shows that the file is
-       * at least 90 seconds old. By only inspecting files that are at least this old, we know
-       * that we won't receive any new spans that fell within the minutes of those spans. This
-       * means that we can safely merge them into single time tracking entries without the risk
-       * of losing any time.
+       * Collect every journal segment with a modification date that shows that the segment is
+       * at least 90 seconds old. The collector never appends to a segment that is older than
+       * a minute, so segments this old are complete. By only inspecting segments that are at
+       * least this old, we also know that we won't receive any new spans that fell within the
+       * minutes of those spans. This means that we can safely merge them into single time
+       * tracking entries without the risk of losing any time.
+       *
+       * Individual span files written by older versions of the application are picked up
+       * according to the same rules, so that any spans left in the inbox by an upgrade are
+       * merged and removed.
        */
 
-      val spanFiles: List<Path> =
+      val inputFiles: List<Path> =
         Files.list(this.inboxDirectory).use { inboxStream ->
           inboxStream
-            .filter { p -> isSpanFileSuitable(timeOldest, p) }
+            .filter { p -> isInputFileSuitable(timeOldest, p) }
+            .sorted()
             .collect(Collectors.toList())
         }
 
-      val spans = mutableListOf<TimeTrackingReceivedSpan>()
-      for (file in spanFiles) {
-        spans.add(TimeTrackingReceivedSpan.ofFile(file))
-      }
-
       /*
        * Merge the recorded spans into series of time tracking entries. This will, for example,
        * merge spans that occurred within the same minute into a single time tracking entry, and
-       * split spans that crossed a minute boundary. Then, record each entry.
+       * split spans that crossed a minute boundary. Spans are folded into the merge as they are
+       * read, so no more than one segment's worth of spans is held in memory at any time.
+       * Then, record each entry.
        */
 
-      val entries = mergeEntries(spans)
+      val merger = TimeTrackingMerger()
+      for (file in inputFiles) {
+        if (isLegacySpanFile(file)) {
+          merger.add(TimeTrackingReceivedSpan.ofFile(file))
+        } else {
+          TimeTrackingSpanJournal.readSegment(file).forEach(merger::add)
+        }
+      }
+
+      val entries = merger.entries()
       for (entry in entries) {
         this.writeEntry(entry)
       }
 
       /*
-       * Now delete the spans that were actually used.
+       * Now compact the inbox by deleting the segments and span files that were actually used.
        */
 
-      for (span in spans) {
-        this.deleteSpan(span)
+      for (file in inputFiles) {
+        this.deleteInputFile(file)
       }
     } catch (e: Throwable) {
       this.logger.error("Failed to process time tracking entries: ", e)
@@ -143,9 +154,8 @@ class TimeTrackingMerge private constructor(
     }
   }
 
-  private fun deleteSpan(span: TimeTrackingReceivedSpan) {
-    val file = this.inboxDirectory.resolve("${span.id}.ttspan")
-    this.logger.debug("Deleting span {}", file)
+  private fun deleteInputFile(file: Path) {
+    this.logger.debug("Deleting {}", file)
     Files.deleteIfExists(file)
   }
 
@@ -178,94 +188,12 @@ class TimeTrackingMerge private constructor(
   }
 
   companion object {
-    private data class MergeKey(
-      val accountID: AccountID,
-      val bookID: PlayerPalaceID,
-      val libraryID: URI,
-      val targetURI: URI
-    )
-
     fun mergeEntries(spans: List<TimeTrackingReceivedSpan>): List<TimeTrackingEntryOutgoing> {
-      val spansByKey =
-        mutableMapOf<MergeKey, MutableList<TimeTrackingReceivedSpan>>()
-
+      val merger = TimeTrackingMerger()
       for (span in spans) {
-        val key =
-          MergeKey(
-            accountID = span.accountID,
-            bookID = span.bookID,
-            libraryID = span.libraryID,
-            targetURI = span.targetURI
-          )
-        var existing = spansByKey.get(key)
-        if (existing == null) {
-          existing = mutableListOf()
-        }
-        existing.add(span)
-        spansByKey.put(key, existing)
-      }
-
-      val results = mutableListOf<TimeTrackingEntryOutgoing>()
-      for ((key, keySpans) in spansByKey) {
-        results.addAll(mergeSpansForKey(key, keySpans))
-      }
-      return results.toList()
-    }
-
-    private fun mergeSpansForKey(
-      key: MergeKey,
-      keySpans: MutableList<TimeTrackingReceivedSpan>
-    ): Collection<TimeTrackingEntryOutgoing> {
-      keySpans.sortBy { e -> e.timeStarted }
-
-      val secondsForMinute =
-        mutableMapOf<OffsetDateTime, Long>()
-
-      for (span in keySpans) {
-        val spanSeconds =
-          Duration
-            .between(span.timeStarted, span.timeEnded)
-            .toMillis() / 1_000L
-
-        val crossesMinuteBoundary =
-          span.timeStarted.minute != span.timeEnded.minute
-
-        val minuteCurr =
-          span.timeStarted.withSecond(0)
-        val minuteNext =
-          minuteCurr.plusMinutes(1L)
-
-        if (crossesMinuteBoundary) {
-          val addNext = span.timeEnded.second
-          val addCurr = 60 - span.timeStarted.second
-          secondsForMinute[minuteCurr] =
-            Math.min(60, (secondsForMinute[minuteCurr] ?: 0) + addCurr)
-          secondsForMinute[minuteNext] =
-            Math.min(60, (secondsForMinute[minuteNext] ?: 0) + addNext)
-        } else {
-          secondsForMinute[minuteCurr] =
-            Math.min(60, (secondsForMinute[minuteCurr] ?: 0) + spanSeconds)
-        }
-      }
-
-      val results = mutableListOf<TimeTrackingEntryOutgoing>()
-      for ((minute, seconds) in secondsForMinute) {
-        results.add(
-          TimeTrackingEntryOutgoing(
-            accountID = key.accountID,
-            bookID = key.bookID,
-            targetURI = key.targetURI,
-            libraryID = key.libraryID,
-            timeEntry =
-              TimeTrackingEntry(
-                id = ULID.random(),
-                duringMinute = minute.toString(),
-                secondsPlayed = seconds.toInt()
-              ),
-          )
-        )
+        merger.add(span)
       }
-      return results.toList()
+      return merger.entries()
     }
 
     fun create(
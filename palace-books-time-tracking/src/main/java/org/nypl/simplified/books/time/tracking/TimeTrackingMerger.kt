@@ -0,0 +1,212 @@
+package org.nypl.simplified.books.time.tracking
+
+import io.azam.ulidj.ULID
+import org.librarysimplified.audiobook.manifest.api.PlayerPalaceID
+import org.nypl.simplified.accounts.api.AccountID
+import java.net.URI
+import java.time.Duration
+import java.time.Instant
+import java.time.OffsetDateTime
+import java.time.ZoneOffset
+
+/**
+ * An incremental merge of time tracking spans.
+ *
+ * Spans are folded, one at a time and in any order, into per-minute counters of seconds played.
+ * No spans are retained, and so memory use is proportional to the number of distinct minutes
+ * that have been touched rather than to the number of spans.
+ *
+ * The arithmetic is exactly that of the original merge algorithm: A span that starts and ends
+ * within the same minute contributes its length to that minute, a span that crosses a minute
+ * boundary contributes the portions either side of the boundary to the two minutes, and every
+ * minute is clamped to sixty seconds. Because the contributions of well-formed spans are never
+ * negative, the result does not depend on the order in which spans are added.
+ */
+
+class TimeTrackingMerger {
+
+  private data class MergeKey(
+    val accountID: AccountID,
+    val bookID: PlayerPalaceID,
+    val libraryID: URI,
+    val targetURI: URI
+  )
+
+  private val countersByKey =
+    LinkedHashMap<MergeKey, MinuteCounters>()
+
+  /**
+   * Add a span to the merge.
+   */
+
+  fun add(span: TimeTrackingReceivedSpan) {
+    val key =
+      MergeKey(
+        accountID = span.accountID,
+        bookID = span.bookID,
+        libraryID = span.libraryID,
+        targetURI = span.targetURI
+      )
+
+    val counters = this.countersByKey.getOrPut(key) { MinuteCounters() }
+
+    val started = span.timeStarted.toInstant()
+    val ended = span.timeEnded.toInstant()
+    val startedSecond = Math.floorMod(started.epochSecond, 60L).toInt()
+    val endedSecond = Math.floorMod(ended.epochSecond, 60L).toInt()
+    val startedMinuteOfHour = Math.floorMod(Math.floorDiv(started.epochSecond, 60L), 60L)
+    val endedMinuteOfHour = Math.floorMod(Math.floorDiv(ended.epochSecond, 60L), 60L)
+
+    /*
+     * A minute is identified by the start time with its seconds zeroed; any fraction of a
+     * second is deliberately retained, as it was in the original algorithm.
+     */
+
+    val minuteCurr = minuteOf(Math.floorDiv(started.epochSecond, 60L), started.nano)
+    val minuteNext = minuteCurr + NANOS_PER_SECOND
+
+    if (startedMinuteOfHour != endedMinuteOfHour) {
+      counters.add(minuteCurr, (60 - startedSecond).toLong())
+      counters.add(minuteNext, endedSecond.toLong())
+    } else {
+      counters.add(minuteCurr, Duration.between(started, ended).toMillis() / 1_000L)
+    }
+  }
+
+  /**
+   * Produce time tracking entries for every minute touched by the spans added so far.
+   */
+
+  fun entries(): List<TimeTrackingEntryOutgoing> {
+    val results = mutableListOf<TimeTrackingEntryOutgoing>()
+    for ((key, counters) in this.countersByKey) {
+      counters.forEach { minute, seconds ->
+        results.add(
+          TimeTrackingEntryOutgoing(
+            accountID = key.accountID,
+            bookID = key.bookID,
+            targetURI = key.targetURI,
+            libraryID = key.libraryID,
+            timeEntry =
+              TimeTrackingEntry(
+                id = ULID.random(),
+                duringMinute = minuteText(minute),
+                secondsPlayed = seconds.toInt()
+              ),
+          )
+        )
+      }
+    }
+    return results.toList()
+  }
+
+  private companion object {
+    const val NANOS_PER_SECOND = 1_000_000_000L
+
+    /*
+     * A minute is packed into a single long as the minutes since the epoch multiplied by
+     * the number of nanoseconds in a second, plus the nanosecond component. Advancing the
+     * packed value by NANOS_PER_SECOND therefore advances it by exactly one minute.
+     */
+
+    fun minuteOf(
+      epochMinute: Long,
+      nano: Int
+    ): Long =
+      (epochMinute * NANOS_PER_SECOND) + nano
+
+    fun minuteText(minute: Long): String {
+      val epochMinute = Math.floorDiv(minute, NANOS_PER_SECOND)
+      val nano = Math.floorMod(minute, NANOS_PER_SECOND)
+      return OffsetDateTime.ofInstant(
+        Instant.ofEpochSecond(epochMinute * 60L, nano),
+        ZoneOffset.UTC
+      ).toString()
+    }
+  }
+
+  /**
+   * An open-addressed map from packed minutes to seconds played.
+   */
+
+  private class MinuteCounters {
+    private var minutes = LongArray(16)
+    private var seconds = LongArray(16)
+    private var used = BooleanArray(16)
+    private var size = 0
+
+    fun add(
+      minute: Long,
+      delta: Long
+    ) {
+      if ((this.size + 1) * 4 > this.minutes.size * 3) {
+        this.grow()
+      }
+
+      val index = this.indexOf(this.minutes, this.used, minute)
+      if (this.used[index]) {
+        this.seconds[index] = Math.min(60L, this.seconds[index] + delta)
+      } else {
+        this.used[index] = true
+        this.minutes[index] = minute
+        this.seconds[index] = Math.min(60L, delta)
+        ++this.size
+      }
+    }
+
+    /**
+     * Call `receiver` for each minute, in ascending order of minute.
+     */
+
+    fun forEach(receiver: (Long, Long) -> Unit) {
+      val order = LongArray(this.size)
+      var count = 0
+      for (index in this.minutes.indices) {
+        if (this.used[index]) {
+          order[count++] = this.minutes[index]
+        }
+      }
+      order.sort()
+      for (minute in order) {
+        receiver.invoke(minute, this.seconds[this.indexOf(this.minutes, this.used, minute)])
+      }
+    }
+
+    private fun indexOf(
+      minutes: LongArray,
+      used: BooleanArray,
+      minute: Long
+    ): Int {
+      val mask = minutes.size - 1
+      var index = mix(minute) and mask
+      while (used[index] && minutes[index] != minute) {
+        index = (index + 1) and mask
+      }
+      return index
+    }
+
+    private fun grow() {
+      val oldMinutes = this.minutes
+      val oldSeconds = this.seconds
+      val oldUsed = this.used
+
+      this.minutes = LongArray(oldMinutes.size * 2)
+      this.seconds = LongArray(oldMinutes.size * 2)
+      this.used = BooleanArray(oldMinutes.size * 2)
+
+      for (oldIndex in oldMinutes.indices) {
+        if (oldUsed[oldIndex]) {
+          val index = this.indexOf(this.minutes, this.used, oldMinutes[oldIndex])
+          this.used[index] = true
+          this.minutes[index] = oldMinutes[oldIndex]
+          this.seconds[index] = oldSeconds[oldIndex]
+        }
+      }
+    }
+
+    private fun mix(value: Long): Int {
+      val h = value * -0x61c8864680b583ebL
+      return (h xor (h ushr 32)).toInt()
+    }
+  }
+}
@@ -19,7 +19,9 @@ import java.util.stream.Collectors
  * a directory by the [TimeTrackingCollector] service. It is responsible for merging entries into
  * single requests in order to avoid overwhelming the remote side with lots of small requests, and
  * is responsible for deleting serialized tracking entries when the remote side has accepted
- * them.
+ * them. Requests contain at most `batchSizeMaximum` entries, and at most `batchesPerTickMaximum`
+ * batches' worth of entries are read on each attempt, so that a large backlog is worked through
+ * in bounded steps rather than all at once.
  */
 
 class TimeTrackingSender private constructor(
@@ -28,6 +30,8 @@ class TimeTrackingSender private constructor(
   private val debugDirectory: Path,
   private val inputDirectory: Path,
   private val frequency: Duration,
+  private val batchSizeMaximum: Int,
+  private val batchesPerTickMaximum: Int,
 ) : TimeTrackingSenderServiceType {
   private val logger =
     LoggerFactory.getLogger(TimeTrackingSender::class.java)
@@ -47,6 +51,9 @@ class TimeTrackingSender private constructor(
     }
 
   init {
+    require(this.batchSizeMaximum > 0) { "Batch size must be positive" }
+    require(this.batchesPerTickMaximum > 0) { "Batches per tick must be positive" }
+
     this.resources.add(
       AutoCloseable {
         this.executor.shutdown()
@@ -79,10 +86,17 @@ class TimeTrackingSender private constructor(
       MDC.put("SubSystem", "Sender")
       MDC.put("TimeLoss", "false")
 
+      /*
+       * Entry files are named with ULIDs, and so sorting them by name sends the oldest
+       * entries first.
+       */
+
       val entryFiles: List<Path> =
         Files.list(this.inputDirectory).use { inputStream ->
           inputStream
             .filter { p -> this.isFileSuitable(p) }
+            .sorted()
+            .limit(this.batchSizeMaximum.toLong() * this.batchesPerTickMaximum)
             .collect(Collectors.toList())
         }
 
@@ -102,7 +116,9 @@ class TimeTrackingSender private constructor(
         check(outgoingEntries.isNotEmpty()) {
           "Outgoing entries cannot be empty"
         }
-        this.sendOneBatch(key, outgoingEntries)
+        for (batch in outgoingEntries.chunked(this.batchSizeMaximum)) {
+          this.sendOneBatch(key, batch)
+        }
       }
     } catch (e: Throwable) {
       this.logger.debug("Failed to send time tracking entries: ", e)
@@ -117,15 +133,12 @@ class TimeTrackingSender private constructor(
       Files.createDirectories(this.debugDirectory)
       Files.createDirectories(this.inputDirectory)
 
-      outgoingEntries.forEach { e ->
-        TimeTrackingDebugging.onTimeTrackingSendAttempt(
-          timeTrackingDebugDirectory = this.debugDirectory.toFile(),
-          libraryId = key.libraryID.toString(),
-          bookId = key.bookID.value,
-          entryId = e.timeEntry.id,
-          seconds = e.timeEntry.secondsPlayed
-        )
-      }
+      TimeTrackingDebugging.onTimeTrackingSendAttempts(
+        timeTrackingDebugDirectory = this.debugDirectory.toFile(),
+        libraryId = key.libraryID.toString(),
+        bookId = key.bookID.value,
+        entries = outgoingEntries.map { e -> e.timeEntry }
+      )
 
       val account =
         this.profiles.profileCurrent().account(key.accountID)
@@ -238,19 +251,35 @@ class TimeTrackingSender private constructor(
   }
 
   companion object {
+    /**
+     * The default maximum number of entries sent in a single request.
+     */
+
+    const val BATCH_SIZE_MAXIMUM_DEFAULT = 100
+
+    /**
+     * The default maximum number of batches read from disk on each attempt.
+     */
+
+    const val BATCHES_PER_TICK_MAXIMUM_DEFAULT = 10
+
     fun create(
       profiles: ProfilesControllerType,
       httpCalls: TimeTrackingHTTPCallsType,
       debugDirectory: Path,
       inputDirectory: Path,
       frequency: Duration,
+      batchSizeMaximum: Int = BATCH_SIZE_MAXIMUM_DEFAULT,
+      batchesPerTickMaximum: Int = BATCHES_PER_TICK_MAXIMUM_DEFAULT,
     ): TimeTrackingSenderServiceType =
       TimeTrackingSender(
         profiles = profiles,
         httpCalls = httpCalls,
         debugDirectory = debugDirectory,
         inputDirectory = inputDirectory,
-        frequency = frequency
+        frequency = frequency,
+        batchSizeMaximum = batchSizeMaximum,
+        batchesPerTickMaximum = batchesPerTickMaximum
       )
   }
 
@@ -0,0 +1,220 @@
+package org.nypl.simplified.books.time.tracking
+
+import org.librarysimplified.audiobook.manifest.api.PlayerPalaceID
+import org.nypl.simplified.accounts.api.AccountID
+import org.slf4j.LoggerFactory
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.net.URI
+import java.nio.ByteBuffer
+import java.nio.file.Files
+import java.nio.file.Path
+import java.time.Instant
+import java.time.OffsetDateTime
+import java.time.ZoneOffset
+import java.util.UUID
+import java.util.zip.CRC32
+
+/**
+ * The on-disk format of the time tracking span journal.
+ *
+ * Spans are appended to _segment_ files rather than being written one per file. A segment
+ * consists of a four byte magic number followed by zero or more records. Each record consists
+ * of a record magic number, the length of the record payload, the CRC32 checksum of the payload,
+ * and then the payload itself. All integers are big-endian.
+ *
+ * Segments are only ever appended to, and a segment is never reopened for writing once the
+ * writer has moved on to a new segment. A crash during an append can therefore only ever damage
+ * the tail of a segment. When reading a segment, every record up to the first truncated or
+ * corrupted record is returned, and the remainder of the segment is discarded.
+ *
+ * @see TimeTrackingSpanJournalWriter
+ */
+
+object TimeTrackingSpanJournal {
+
+  private val logger =
+    LoggerFactory.getLogger(TimeTrackingSpanJournal::class.java)
+
+  /**
+   * The file suffix used for journal segments.
+   */
+
+  const val SEGMENT_SUFFIX = ".ttjournal"
+
+  /**
+   * The magic number at the start of each segment ("TTJ1").
+   */
+
+  const val SEGMENT_MAGIC = 0x54544A31
+
+  /**
+   * The magic number at the start of each record ("TTSP").
+   */
+
+  const val RECORD_MAGIC = 0x54545350
+
+  /**
+   * The size of a record header in bytes.
+   */
+
+  const val RECORD_HEADER_SIZE = 12
+
+  /**
+   * The maximum size of a record payload. Spans are far smaller than this in practice; the
+   * limit exists to reject corrupted length fields.
+   */
+
+  const val RECORD_PAYLOAD_SIZE_MAXIMUM = 16384
+
+  private const val RECORD_VERSION = 1
+
+  /**
+   * @return `true` if the given file appears to be a journal segment
+   */
+
+  fun isSegment(file: Path): Boolean =
+    file.fileName.toString().endsWith(SEGMENT_SUFFIX)
+
+  /**
+   * @return The serialized segment header
+   */
+
+  fun segmentHeader(): ByteArray =
+    ByteBuffer.allocate(4)
+      .putInt(SEGMENT_MAGIC)
+      .array()
+
+  /**
+   * Serialize the given span to a complete record, including the record header.
+   */
+
+  fun encodeRecord(span: TimeTrackingReceivedSpan): ByteArray {
+    val payload = encodePayload(span)
+    val checksum = CRC32()
+    checksum.update(payload)
+
+    return ByteBuffer.allocate(RECORD_HEADER_SIZE + payload.size)
+      .putInt(RECORD_MAGIC)
+      .putInt(payload.size)
+      .putInt(checksum.value.toInt())
+      .put(payload)
+      .array()
+  }
+
+  private fun encodePayload(span: TimeTrackingReceivedSpan): ByteArray {
+    val bytes = ByteArrayOutputStream(160)
+    DataOutputStream(bytes).use { out ->
+      out.writeByte(RECORD_VERSION)
+      out.writeLong(span.id.mostSignificantBits)
+      out.writeLong(span.id.leastSignificantBits)
+      out.writeLong(span.accountID.uuid.mostSignificantBits)
+      out.writeLong(span.accountID.uuid.leastSignificantBits)
+      out.writeUTF(span.bookID.value)
+      out.writeUTF(span.libraryID.toString())
+      out.writeUTF(span.targetURI.toString())
+      writeTime(out, span.timeStarted)
+      writeTime(out, span.timeEnded)
+    }
+    return bytes.toByteArray()
+  }
+
+  private fun writeTime(
+    out: DataOutputStream,
+    time: OffsetDateTime
+  ) {
+    val instant = time.toInstant()
+    out.writeLong(instant.epochSecond)
+    out.writeInt(instant.nano)
+  }
+
+  private fun readTime(input: DataInputStream): OffsetDateTime {
+    val seconds = input.readLong()
+    val nanos = input.readInt()
+    return OffsetDateTime.ofInstant(Instant.ofEpochSecond(seconds, nanos.toLong()), ZoneOffset.UTC)
+  }
+
+  private fun decodePayload(
+    data: ByteArray,
+    offset: Int,
+    length: Int
+  ): TimeTrackingReceivedSpan {
+    DataInputStream(ByteArrayInputStream(data, offset, length)).use { input ->
+      val version = input.readUnsignedByte()
+      require(version == RECORD_VERSION) {
+        "Unsupported span record version $version"
+      }
+      return TimeTrackingReceivedSpan(
+        id = UUID(input.readLong(), input.readLong()),
+        accountID = AccountID(UUID(input.readLong(), input.readLong())),
+        bookID = PlayerPalaceID(input.readUTF()),
+        libraryID = URI.create(input.readUTF()),
+        targetURI = URI.create(input.readUTF()),
+        timeStarted = readTime(input),
+        timeEnded = readTime(input)
+      )
+    }
+  }
+
+  /**
+   * Read all of the intact spans from the given segment. Reading stops at the first record
+   * that is truncated or fails its checksum.
+   */
+
+  fun readSegment(file: Path): List<TimeTrackingReceivedSpan> =
+    readSegmentBytes(file, Files.readAllBytes(file))
+
+  private fun readSegmentBytes(
+    file: Path,
+    data: ByteArray
+  ): List<TimeTrackingReceivedSpan> {
+    val buffer = ByteBuffer.wrap(data)
+    if (buffer.remaining() < 4) {
+      return listOf()
+    }
+    if (buffer.getInt() != SEGMENT_MAGIC) {
+      this.logger.warn("Segment {} has an unrecognized header; ignoring it", file)
+      return listOf()
+    }
+
+    val spans = mutableListOf<TimeTrackingReceivedSpan>()
+    val checksum = CRC32()
+    while (buffer.hasRemaining()) {
+      val recordStart = buffer.position()
+      if (buffer.remaining() < RECORD_HEADER_SIZE) {
+        this.logger.warn("Segment {} has a truncated record at offset {}", file, recordStart)
+        break
+      }
+
+      val magic = buffer.getInt()
+      val length = buffer.getInt()
+      val expected = buffer.getInt()
+      if (magic != RECORD_MAGIC) {
+        this.logger.warn("Segment {} has a corrupted record at offset {}", file, recordStart)
+        break
+      }
+      if (length <= 0 || length > RECORD_PAYLOAD_SIZE_MAXIMUM || length > buffer.remaining()) {
+        this.logger.warn("Segment {} has a truncated record at offset {}", file, recordStart)
+        break
+      }
+
+      checksum.reset()
+      checksum.update(data, buffer.position(), length)
+      if (checksum.value.toInt() != expected) {
+        this.logger.warn("Segment {} has a record with a bad checksum at offset {}", file, recordStart)
+        break
+      }
+
+      try {
+        spans.add(decodePayload(data, buffer.position(), length))
+      } catch (e: Exception) {
+        this.logger.warn("Segment {} has an unreadable record at offset {}: ", file, recordStart, e)
+        break
+      }
+      buffer.position(buffer.position() + length)
+    }
+    return spans.toList()
+  }
+}
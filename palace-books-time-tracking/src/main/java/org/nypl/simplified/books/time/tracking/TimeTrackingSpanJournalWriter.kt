@@ -0,0 +1,156 @@
+package org.nypl.simplified.books.time.tracking
+
+import io.azam.ulidj.MonotonicULID
+import org.slf4j.LoggerFactory
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardOpenOption.CREATE_NEW
+import java.nio.file.StandardOpenOption.WRITE
+import java.time.Duration
+
+/**
+ * A writer that appends spans to the time tracking span journal.
+ *
+ * The writer appends to a single open segment, and moves on to a fresh segment once the current
+ * one has reached a maximum size or a maximum age. Because a segment is never written to once
+ * it is older than the maximum age, the merge service can safely consume any segment whose
+ * modification time is older than that age.
+ *
+ * Writers are not thread-safe, and are expected to be used from a single thread.
+ *
+ * @see TimeTrackingSpanJournal
+ */
+
+class TimeTrackingSpanJournalWriter private constructor(
+  private val directory: Path,
+  private val segmentSizeMaximum: Long,
+  private val segmentAgeMaximum: Duration,
+) : AutoCloseable {
+
+  private val logger =
+    LoggerFactory.getLogger(TimeTrackingSpanJournalWriter::class.java)
+
+  private var segment: FileChannel? = null
+  private var segmentFile: Path? = null
+  private var segmentSize: Long = 0L
+  private var segmentOpened: Long = 0L
+
+  companion object {
+
+    /**
+     * Segment names are monotonic ULIDs, so that sorting segments by name yields them in the
+     * order in which they were created, even when several are created within a millisecond.
+     */
+
+    private val segmentNames =
+      MonotonicULID()
+
+    /**
+     * The default maximum segment size.
+     */
+
+    const val SEGMENT_SIZE_MAXIMUM_DEFAULT = 65536L
+
+    /**
+     * The default maximum segment age. This must be less than the age at which the merge
+     * service considers spans to be eligible for merging.
+     */
+
+    val SEGMENT_AGE_MAXIMUM_DEFAULT: Duration =
+      Duration.ofSeconds(60L)
+
+    fun create(
+      directory: Path,
+      segmentSizeMaximum: Long = SEGMENT_SIZE_MAXIMUM_DEFAULT,
+      segmentAgeMaximum: Duration = SEGMENT_AGE_MAXIMUM_DEFAULT
+    ): TimeTrackingSpanJournalWriter =
+      TimeTrackingSpanJournalWriter(
+        directory = directory,
+        segmentSizeMaximum = segmentSizeMaximum,
+        segmentAgeMaximum = segmentAgeMaximum
+      )
+  }
+
+  /**
+   * Append the given span to the journal. The span is durably written when this method returns.
+   */
+
+  fun append(span: TimeTrackingReceivedSpan) {
+    val record = TimeTrackingSpanJournal.encodeRecord(span)
+    val channel = this.segmentFor(record.size)
+
+    try {
+      writeFully(channel, ByteBuffer.wrap(record))
+      channel.force(false)
+      this.segmentSize += record.size
+    } catch (e: Exception) {
+      /*
+       * The segment may now have a partially written record at the end. Abandon it so that
+       * nothing is ever written after the damaged record.
+       */
+
+      this.closeSegment()
+      throw e
+    }
+  }
+
+  private fun segmentFor(recordSize: Int): FileChannel {
+    val existing = this.segment
+    if (existing != null) {
+      val age = Duration.ofNanos(System.nanoTime() - this.segmentOpened)
+      val full = this.segmentSize + recordSize > this.segmentSizeMaximum
+      if (!full && age < this.segmentAgeMaximum) {
+        return existing
+      }
+      this.closeSegment()
+    }
+
+    Files.createDirectories(this.directory)
+
+    val file =
+      this.directory.resolve("${segmentNames.generate()}${TimeTrackingSpanJournal.SEGMENT_SUFFIX}")
+    val channel =
+      FileChannel.open(file, WRITE, CREATE_NEW)
+
+    try {
+      val header = TimeTrackingSpanJournal.segmentHeader()
+      writeFully(channel, ByteBuffer.wrap(header))
+      this.segmentSize = header.size.toLong()
+    } catch (e: Exception) {
+      channel.close()
+      throw e
+    }
+
+    this.logger.debug("Opened journal segment {}", file)
+    this.segment = channel
+    this.segmentFile = file
+    this.segmentOpened = System.nanoTime()
+    return channel
+  }
+
+  private fun writeFully(
+    channel: FileChannel,
+    buffer: ByteBuffer
+  ) {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer)
+    }
+  }
+
+  private fun closeSegment() {
+    try {
+      this.segment?.close()
+    } catch (e: Exception) {
+      this.logger.debug("Failed to close journal segment {}: ", this.segmentFile, e)
+    }
+    this.segment = null
+    this.segmentFile = null
+    this.segmentSize = 0L
+  }
+
+  override fun close() {
+    this.closeSegment()
+  }
+}
@@ -1,6 +1,7 @@
 package org.thepalaceproject.db.api
 
 import java.sql.Connection
+import java.sql.PreparedStatement
 
 /**
  * A database connection.
@@ -12,6 +13,16 @@ interface DBConnectionType : AutoCloseable {
    */
   val connection: Connection
 
+  /**
+   * Prepare a statement with the given text. Statements are cached for the lifetime of the
+   * underlying connection, so repeated calls with the same text return the same statement.
+   * The statement is owned by the connection and must not be closed by the caller.
+   *
+   * @return The prepared statement
+   */
+
+  fun prepareStatement(text: String): PreparedStatement
+
   /**
    * Begin a new transaction. The transaction will be registered as a
    * closeable resource with this connection.
@@ -0,0 +1,55 @@
+package org.thepalaceproject.db.api
+
+/**
+ * Statistics for a database.
+ */
+
+interface DBStatisticsType {
+  /**
+   * The number of physical connections opened.
+   */
+
+  val connectionsOpened: Long
+
+  /**
+   * The number of times a connection was taken from the pool.
+   */
+
+  val connectionsAcquired: Long
+
+  /**
+   * The total time, in nanoseconds, spent waiting for a connection to become available.
+   */
+
+  val connectionWaitNanosTotal: Long
+
+  /**
+   * The longest time, in nanoseconds, spent waiting for a connection to become available.
+   */
+
+  val connectionWaitNanosMaximum: Long
+
+  /**
+   * The number of times a prepared statement was found in a connection's statement cache.
+   */
+
+  val statementCacheHits: Long
+
+  /**
+   * The number of times a statement had to be prepared.
+   */
+
+  val statementCacheMisses: Long
+
+  /**
+   * The number of times a decoded account provider description was found in the cache.
+   */
+
+  val descriptionCacheHits: Long
+
+  /**
+   * The number of times an account provider description had to be decoded.
+   */
+
+  val descriptionCacheMisses: Long
+}
@@ -7,6 +7,12 @@ import java.nio.file.Path
  */
 
 interface DBType : AutoCloseable {
+  /**
+   * Statistics for the database's connection pool and statement caches.
+   */
+
+  val statistics: DBStatisticsType
+
   /**
    * Open a new database connection.
    */
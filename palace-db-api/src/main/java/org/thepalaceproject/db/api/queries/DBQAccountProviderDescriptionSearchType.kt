@@ -0,0 +1,19 @@
+package org.thepalaceproject.db.api.queries
+
+import org.thepalaceproject.db.api.DBQueryType
+import java.net.URI
+
+/**
+ * Search the titles and descriptions of account provider descriptions. Each word of the query
+ * matches any word that begins with it, and all words must match. The IDs of matching
+ * descriptions are returned with the best matches first; matches in titles rank above matches
+ * in descriptions.
+ */
+
+interface DBQAccountProviderDescriptionSearchType :
+  DBQueryType<DBQAccountProviderDescriptionSearchType.Parameters, List<URI>> {
+  data class Parameters(
+    val query: String,
+    val limit: Int
+  )
+}
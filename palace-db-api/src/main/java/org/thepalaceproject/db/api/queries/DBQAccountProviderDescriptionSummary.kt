@@ -0,0 +1,16 @@
+package org.thepalaceproject.db.api.queries
+
+import java.net.URI
+import java.time.OffsetDateTime
+
+/**
+ * The scalar properties of a stored account provider description. Summaries can be listed
+ * without decoding the stored descriptions.
+ */
+
+data class DBQAccountProviderDescriptionSummary(
+  val id: URI,
+  val title: String,
+  val description: String?,
+  val updated: OffsetDateTime
+)
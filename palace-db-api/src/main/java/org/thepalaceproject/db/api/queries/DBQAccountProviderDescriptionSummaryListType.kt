@@ -0,0 +1,12 @@
+package org.thepalaceproject.db.api.queries
+
+import org.thepalaceproject.db.api.DBQueryType
+import java.net.URI
+
+interface DBQAccountProviderDescriptionSummaryListType :
+  DBQueryType<DBQAccountProviderDescriptionSummaryListType.Parameters, List<DBQAccountProviderDescriptionSummary>> {
+  data class Parameters(
+    val startingId: URI?,
+    val limit: Int
+  )
+}
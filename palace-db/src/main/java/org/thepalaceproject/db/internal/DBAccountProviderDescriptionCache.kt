@@ -0,0 +1,84 @@
+package org.thepalaceproject.db.internal
+
+import org.nypl.simplified.accounts.api.AccountProviderDescription
+import java.net.URI
+
+/**
+ * A bounded, least-recently-used cache of decoded account provider descriptions.
+ *
+ * Each entry is stored along with a stamp derived from the scalar columns of the row it was
+ * decoded from. An entry is only returned if the stamp of the row being read matches, so rows
+ * rewritten by other connections are decoded again rather than served stale.
+ */
+
+internal class DBAccountProviderDescriptionCache(
+  private val statistics: DBStatistics,
+  private val capacity: Int = CAPACITY
+) {
+  private data class Cached(
+    val stamp: String,
+    val description: AccountProviderDescription
+  )
+
+  companion object {
+
+    /**
+     * The default maximum number of decoded descriptions held.
+     */
+
+    const val CAPACITY: Int = 256
+  }
+
+  private val entries =
+    object : LinkedHashMap<URI, Cached>(16, 0.75f, true) {
+      override fun removeEldestEntry(eldest: MutableMap.MutableEntry<URI, Cached>?): Boolean =
+        this.size > this@DBAccountProviderDescriptionCache.capacity
+    }
+
+  /**
+   * Return the cached description for the given row, or decode it with `decode` and cache it.
+   */
+
+  fun getOrDecode(
+    id: URI,
+    stamp: String,
+    decode: () -> AccountProviderDescription
+  ): AccountProviderDescription {
+    synchronized(this.entries) {
+      val existing = this.entries[id]
+      if (existing != null && existing.stamp == stamp) {
+        this.statistics.onDescriptionHit()
+        return existing.description
+      }
+    }
+
+    this.statistics.onDescriptionMiss()
+    val description = decode.invoke()
+    synchronized(this.entries) {
+      this.entries[id] = Cached(stamp, description)
+    }
+    return description
+  }
+
+  /**
+   * Discard any cached descriptions with the given IDs.
+   */
+
+  fun invalidate(ids: Collection<URI>) {
+    synchronized(this.entries) {
+      for (id in ids) {
+        this.entries.remove(id)
+      }
+    }
+  }
+
+  /**
+   * Discard all cached descriptions.
+   */
+
+  fun invalidateAll() {
+    synchronized(this.entries) {
+      this.entries.clear()
+    }
+  }
+}
@@ -8,9 +8,11 @@ import org.nypl.simplified.parser.api.ParseResult
 import org.slf4j.LoggerFactory
 import org.thepalaceproject.db.api.DBException
 import org.thepalaceproject.db.api.DBTransactionType
+import org.thepalaceproject.db.api.queries.DBQAccountProviderDescriptionSummary
 import org.thepalaceproject.db.internal.DBQAccountProviderDescriptionGet.FORMAT_OPDS2_COLLECTION
 import java.net.URI
 import java.sql.ResultSet
+import java.time.OffsetDateTime
 import java.time.ZoneOffset
 
 internal object DBAccountProviderDescriptions {
@@ -22,9 +24,58 @@ internal object DBAccountProviderDescriptions {
       updated = description.updated.withOffsetSameInstant(ZoneOffset.UTC)
     )
 
+  /**
+   * Decode the description in the current row, using the decoded description cache if
+   * the row has not changed since it was last decoded. The row must include every
+   * column of the table, and the length of `apd_data` as `apd_data_size`.
+   */
+
   fun parseFromResult(
     transaction: DBTransactionType,
     resultSet: ResultSet
+  ): AccountProviderDescription {
+    val cache =
+      transaction.service(DBAccountProviderDescriptionCache::class.java)
+
+    val stamp =
+      buildString {
+        this.append(resultSet.getString("apd_updated_time_last"))
+        this.append('\u0000')
+        this.append(resultSet.getString("apd_title"))
+        this.append('\u0000')
+        this.append(resultSet.getString("apd_description"))
+        this.append('\u0000')
+        this.append(resultSet.getString("apd_data_format"))
+        this.append('\u0000')
+        this.append(resultSet.getLong("apd_data_size"))
+      }
+
+    return cache.getOrDecode(URI.create(resultSet.getString("apd_id")), stamp) {
+      this.parseFromResultUncached(transaction, resultSet)
+    }
+  }
+
+  /**
+   * Read the summary of the description in the current row without decoding the description
+   * itself. The row must include every column of the table except `apd_data`.
+   *
+   * Note that [DBQAccountProviderDescriptionPut] stores the title in `apd_updated_time_last`,
+   * the description in `apd_title`, and the update time in `apd_description`. The bundled
+   * provider databases produced by the registry tooling use the same layout, so the columns
+   * are read accordingly here rather than rewritten.
+   */
+
+  fun summaryFromResult(resultSet: ResultSet): DBQAccountProviderDescriptionSummary =
+    DBQAccountProviderDescriptionSummary(
+      id = URI.create(resultSet.getString("apd_id")),
+      title = resultSet.getString("apd_updated_time_last"),
+      description = resultSet.getString("apd_title"),
+      updated = OffsetDateTime.parse(resultSet.getString("apd_description"))
+    )
+
+  private fun parseFromResultUncached(
+    transaction: DBTransactionType,
+    resultSet: ResultSet
   ): AccountProviderDescription =
     when (val result = resultSet.getString("apd_data_format")) {
       "DBSerializationProto1" -> {
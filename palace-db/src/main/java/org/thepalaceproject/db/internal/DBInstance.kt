@@ -23,6 +23,7 @@ import org.sqlite.SQLiteOpenMode
 import org.thepalaceproject.db.api.DBConnectionType
 import org.thepalaceproject.db.api.DBParameters
 import org.thepalaceproject.db.api.DBQueryType
+import org.thepalaceproject.db.api.DBStatisticsType
 import org.thepalaceproject.db.api.DBTransactionCloseBehavior
 import org.thepalaceproject.db.api.DBTransactionType
 import org.thepalaceproject.db.api.DBType
@@ -31,19 +32,45 @@ import java.math.BigInteger
 import java.net.URI
 import java.nio.file.Path
 import java.sql.Connection
+import java.sql.PreparedStatement
 import java.sql.SQLException
+import java.sql.SQLTimeoutException
 import java.util.Map
 import java.util.Optional
+import java.util.concurrent.ConcurrentLinkedDeque
+import java.util.concurrent.Semaphore
+import java.util.concurrent.TimeUnit
 import java.util.concurrent.atomic.AtomicBoolean
 import java.util.function.Consumer
 import java.util.function.Supplier
 
+/**
+ * A database instance.
+ *
+ * Physical SQLite connections are expensive to open, so connections are kept in a small pool
+ * and reused. Each physical connection caches the statements prepared on it. The database is
+ * in WAL mode, so readers do not block the writer; concurrent writers are serialized by SQLite
+ * itself.
+ */
+
 internal class DBInstance private constructor(
   private val dataSource: SQLiteDataSource,
   private val parameters: DBParameters
 ) : DBType {
   private val closed = AtomicBoolean(false)
 
+  private val statisticsActual =
+    DBStatistics()
+  private val descriptionCache =
+    DBAccountProviderDescriptionCache(this.statisticsActual)
+  private val permits =
+    Semaphore(POOL_SIZE, true)
+  private val idle =
+    ConcurrentLinkedDeque<DBPhysicalConnection>()
+
+  override val statistics: DBStatisticsType
+    get() = this.statisticsActual
+
   private val services =
     mapOf<Class<*>, Any>(
       Pair(
@@ -53,6 +80,10 @@ internal class DBInstance private constructor(
       Pair(
         AccountProviderDescriptionCollectionSerializersType::class.java,
         this.parameters.accountProviderSerializers
+      ),
+      Pair(
+        DBAccountProviderDescriptionCache::class.java,
+        this.descriptionCache
       )
     )
 
@@ -63,6 +94,18 @@ internal class DBInstance private constructor(
     const val DATABASE_SQLITE_ID: Int = 0x50504442
     const val DATABASE_APPLICATION_ID: String = "org.thepalaceproject.palace"
 
+    /**
+     * The maximum number of connections that may be open at any one time.
+     */
+
+    const val POOL_SIZE: Int = 4
+
+    /**
+     * The maximum time to wait for a connection to become available.
+     */
+
+    const val POOL_TIMEOUT_SECONDS: Long = 30L
+
     fun open(parameters: DBParameters): DBType {
       try {
         val absFile = parameters.file.toAbsolutePath()
@@ -227,11 +270,59 @@ internal class DBInstance private constructor(
     }
   }
 
+  /**
+   * A physical connection, along with the statements prepared on it.
+   */
+
+  private inner class DBPhysicalConnection(
+    val connection: Connection
+  ) {
+    private val statements =
+      HashMap<String, PreparedStatement>()
+
+    fun prepareStatement(text: String): PreparedStatement {
+      val existing = this.statements[text]
+      if (existing != null) {
+        this@DBInstance.statisticsActual.onStatementHit()
+        return existing
+      }
+
+      this@DBInstance.statisticsActual.onStatementMiss()
+      val statement = this.connection.prepareStatement(text)
+      this.statements[text] = statement
+      return statement
+    }
+
+    fun close() {
+      try {
+        for (statement in this.statements.values) {
+          statement.close()
+        }
+        this.statements.clear()
+      } finally {
+        this.connection.close()
+      }
+    }
+  }
+
+  /**
+   * A connection borrowed from the pool. Closing the connection rolls back any uncommitted
+   * work and returns the physical connection to the pool.
+   */
+
   private inner class DBConnection(
-    override val connection: Connection
+    private val physical: DBPhysicalConnection
   ) : DBConnectionType {
     private val closed = AtomicBoolean()
 
+    override val connection: Connection
+      get() = this.physical.connection
+
+    override fun prepareStatement(text: String): PreparedStatement {
+      this.checkNotClosed()
+      return this.physical.prepareStatement(text)
+    }
+
     private fun checkNotClosed() {
       check(!this.closed.get()) {
         "Connection must not be closed."
@@ -261,8 +352,7 @@ internal class DBInstance private constructor(
 
     override fun close() {
       if (this.closed.compareAndSet(false, true)) {
-        this.connection.rollback()
-        this.connection.close()
+        this@DBInstance.release(this.physical)
       }
     }
 
@@ -314,11 +404,60 @@ internal class DBInstance private constructor(
   }
 
   override fun openConnection(): DBConnectionType {
+    check(!this.closed.get()) {
+      "Database must not be closed."
+    }
+
+    val timeStart = System.nanoTime()
+    if (!this.permits.tryAcquire(POOL_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+      throw SQLTimeoutException("Timed out waiting for a database connection.")
+    }
+    this.statisticsActual.onConnectionAcquired(System.nanoTime() - timeStart)
+
+    try {
+      return DBConnection(this.idle.pollFirst() ?: this.openPhysicalConnection())
+    } catch (e: Throwable) {
+      this.permits.release()
+      throw e
+    }
+  }
+
+  private fun openPhysicalConnection(): DBPhysicalConnection {
     val connection = this.dataSource.connection
-    setWALMode(connection)
-    connection.transactionIsolation = Connection.TRANSACTION_READ_COMMITTED
-    connection.autoCommit = false
-    return DBConnection(connection)
+    try {
+      setWALMode(connection)
+      connection.transactionIsolation = Connection.TRANSACTION_READ_COMMITTED
+      connection.autoCommit = false
+    } catch (e: Throwable) {
+      connection.close()
+      throw e
+    }
+    this.statisticsActual.onConnectionOpened()
+    return DBPhysicalConnection(connection)
+  }
+
+  private fun release(physical: DBPhysicalConnection) {
+    try {
+      physical.connection.rollback()
+      this.idle.addFirst(physical)
+
+      /*
+       * If the database was closed while the connection was in use, close it now.
+       */
+
+      if (this.closed.get()) {
+        this.closeIdle()
+      }
+    } catch (e: Throwable) {
+      LOG.debug("Discarding failed connection: ", e)
+      try {
+        physical.close()
+      } catch (x: Throwable) {
+        LOG.debug("Failed to close connection: ", x)
+      }
+    } finally {
+      this.permits.release()
+    }
   }
 
   override fun copyAccountProviderDescriptionsFrom(file: Path) {
@@ -360,7 +499,18 @@ FROM source.account_provider_descriptions;
 
   override fun close() {
     if (this.closed.compareAndSet(false, true)) {
-      // Nothing to close, currently
+      this.closeIdle()
+    }
+  }
+
+  private fun closeIdle() {
+    while (true) {
+      val physical = this.idle.pollFirst() ?: break
+      try {
+        physical.close()
+      } catch (e: Throwable) {
+        LOG.debug("Failed to close connection: ", e)
+      }
     }
   }
 }
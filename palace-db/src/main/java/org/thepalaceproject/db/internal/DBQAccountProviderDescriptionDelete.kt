@@ -15,11 +15,13 @@ internal object DBQAccountProviderDescriptionDelete : DBQAccountProviderDescript
     transaction: DBTransactionType,
     parameters: Set<URI>
   ) {
-    transaction.connection.connection.prepareStatement(this.queryText).use { statement ->
+    transaction.connection.prepareStatement(this.queryText).let { statement ->
       for (id in parameters) {
         statement.setString(1, id.toString())
         statement.executeUpdate()
       }
     }
+    transaction.service(DBAccountProviderDescriptionCache::class.java)
+      .invalidate(parameters)
   }
 }
@@ -13,8 +13,10 @@ internal object DBQAccountProviderDescriptionDeleteAll : DBQAccountProviderDescr
     transaction: DBTransactionType,
     parameters: Unit
   ) {
-    transaction.connection.connection.prepareStatement(this.queryText).use { statement ->
+    transaction.connection.prepareStatement(this.queryText).let { statement ->
       statement.executeUpdate()
     }
+    transaction.service(DBAccountProviderDescriptionCache::class.java)
+      .invalidateAll()
   }
 }
@@ -14,8 +14,11 @@ internal object DBQAccountProviderDescriptionGet : DBQAccountProviderDescription
     SELECT
       apd.apd_id,
       apd.apd_updated_time_last,
+      apd.apd_title,
+      apd.apd_description,
       apd.apd_data_format,
-      apd.apd_data
+      apd.apd_data,
+      length(apd.apd_data) AS apd_data_size
     FROM account_provider_descriptions AS apd
       WHERE apd.apd_id = ?
         LIMIT 1
@@ -25,7 +28,7 @@ internal object DBQAccountProviderDescriptionGet : DBQAccountProviderDescription
     transaction: DBTransactionType,
     parameters: URI
   ): AccountProviderDescription? =
-    transaction.connection.connection.prepareStatement(this.text).use { statement ->
+    transaction.connection.prepareStatement(this.text).let { statement ->
       statement.setString(1, parameters.toString())
       statement.executeQuery().use { resultSet ->
         if (resultSet.next()) {
@@ -18,9 +18,9 @@ internal object DBQAccountProviderDescriptionIDSet : DBQAccountProviderDescripti
     transaction: DBTransactionType,
     parameters: Unit
   ): Set<URI> =
-    transaction.connection.connection
+    transaction.connection
       .prepareStatement(queryText)
-      .use { statement ->
+      .let { statement ->
         statement.executeQuery().use { resultSet ->
           parseResults(transaction, resultSet)
         }
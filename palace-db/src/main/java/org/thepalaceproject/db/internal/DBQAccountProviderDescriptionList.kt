@@ -15,8 +15,11 @@ internal object DBQAccountProviderDescriptionList : DBQAccountProviderDescriptio
     SELECT
       apd.apd_id,
       apd.apd_updated_time_last,
+      apd.apd_title,
+      apd.apd_description,
       apd.apd_data_format,
-      apd.apd_data
+      apd.apd_data,
+      length(apd.apd_data) AS apd_data_size
     FROM account_provider_descriptions AS apd
     WHERE apd.apd_id > ?
     ORDER BY apd.apd_id
@@ -28,8 +31,11 @@ internal object DBQAccountProviderDescriptionList : DBQAccountProviderDescriptio
     SELECT
       apd.apd_id,
       apd.apd_updated_time_last,
+      apd.apd_title,
+      apd.apd_description,
       apd.apd_data_format,
-      apd.apd_data
+      apd.apd_data,
+      length(apd.apd_data) AS apd_data_size
     FROM account_provider_descriptions AS apd
     ORDER BY apd.apd_id
     LIMIT ?
@@ -41,9 +47,9 @@ internal object DBQAccountProviderDescriptionList : DBQAccountProviderDescriptio
   ): List<AccountProviderDescription> {
     val startingId = parameters.startingId
     return if (startingId != null) {
-      transaction.connection.connection
+      transaction.connection
         .prepareStatement(this.queryTextWithStart)
-        .use { statement ->
+        .let { statement ->
           statement.setString(1, startingId.toString())
           statement.setInt(2, parameters.limit)
           statement.executeQuery().use { resultSet ->
@@ -51,9 +57,9 @@ internal object DBQAccountProviderDescriptionList : DBQAccountProviderDescriptio
           }
         }
     } else {
-      transaction.connection.connection
+      transaction.connection
         .prepareStatement(this.queryTextWithoutStart)
-        .use { statement ->
+        .let { statement ->
           statement.setInt(1, parameters.limit)
           statement.executeQuery().use { resultSet ->
             this.parseResults(transaction, resultSet)
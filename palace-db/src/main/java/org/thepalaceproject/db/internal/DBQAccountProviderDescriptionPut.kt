@@ -43,7 +43,7 @@ internal object DBQAccountProviderDescriptionPut : DBQAccountProviderDescription
         Pair(description, data)
       }
 
-    return transaction.connection.connection.prepareStatement(this.text).use { st ->
+    transaction.connection.prepareStatement(this.text).let { st ->
       for (d in descriptions) {
         val description = d.first
         val data = d.second
@@ -68,5 +68,7 @@ internal object DBQAccountProviderDescriptionPut : DBQAccountProviderDescription
 
       st.executeBatch()
     }
+    transaction.service(DBAccountProviderDescriptionCache::class.java)
+      .invalidate(descriptions.map { d -> d.first.id })
   }
 }
@@ -0,0 +1,66 @@
+package org.thepalaceproject.db.internal
+
+import org.thepalaceproject.db.api.DBTransactionType
+import org.thepalaceproject.db.api.queries.DBQAccountProviderDescriptionSearchType
+import java.net.URI
+
+internal object DBQAccountProviderDescriptionSearch : DBQAccountProviderDescriptionSearchType {
+  private val queryText =
+    """
+    SELECT
+      apd.apd_id
+    FROM account_provider_descriptions_search
+      JOIN account_provider_descriptions AS apd
+        ON apd.rowid = account_provider_descriptions_search.rowid
+    WHERE account_provider_descriptions_search MATCH ?
+    ORDER BY bm25(account_provider_descriptions_search, 10.0, 1.0)
+    LIMIT ?
+    """.trimIndent()
+
+  override fun execute(
+    transaction: DBTransactionType,
+    parameters: DBQAccountProviderDescriptionSearchType.Parameters
+  ): List<URI> {
+    val expression = this.matchExpression(parameters.query)
+    if (expression.isEmpty()) {
+      return listOf()
+    }
+
+    return transaction.connection
+      .prepareStatement(this.queryText)
+      .let { statement ->
+        statement.setString(1, expression)
+        statement.setInt(2, parameters.limit)
+        statement.executeQuery().use { resultSet ->
+          val data = mutableListOf<URI>()
+          while (resultSet.next()) {
+            data.add(URI.create(resultSet.getString(1)))
+          }
+          data.toList()
+        }
+      }
+  }
+
+  /**
+   * Turn a query typed by a user into an FTS5 match expression. The query is split into words
+   * at anything that is not a letter or digit, so the user cannot accidentally write FTS5
+   * syntax, and each word becomes a quoted prefix match.
+   */
+
+  fun matchExpression(query: String): String {
+    val words = mutableListOf<String>()
+    val word = StringBuilder()
+    for (c in query) {
+      if (Character.isLetterOrDigit(c)) {
+        word.append(c)
+      } else if (word.isNotEmpty()) {
+        words.add(word.toString())
+        word.setLength(0)
+      }
+    }
+    if (word.isNotEmpty()) {
+      words.add(word.toString())
+    }
+    return words.joinToString(" ") { w -> "\"$w\"*" }
+  }
+}
@@ -0,0 +1,68 @@
+package org.thepalaceproject.db.internal
+
+import org.thepalaceproject.db.api.DBTransactionType
+import org.thepalaceproject.db.api.queries.DBQAccountProviderDescriptionSummary
+import org.thepalaceproject.db.api.queries.DBQAccountProviderDescriptionSummaryListType
+import java.sql.ResultSet
+
+internal object DBQAccountProviderDescriptionSummaryList : DBQAccountProviderDescriptionSummaryListType {
+  private val queryTextWithStart =
+    """
+    SELECT
+      apd.apd_id,
+      apd.apd_updated_time_last,
+      apd.apd_title,
+      apd.apd_description
+    FROM account_provider_descriptions AS apd
+    WHERE apd.apd_id > ?
+    ORDER BY apd.apd_id
+    LIMIT ?
+    """.trimIndent()
+
+  private val queryTextWithoutStart =
+    """
+    SELECT
+      apd.apd_id,
+      apd.apd_updated_time_last,
+      apd.apd_title,
+      apd.apd_description
+    FROM account_provider_descriptions AS apd
+    ORDER BY apd.apd_id
+    LIMIT ?
+    """.trimIndent()
+
+  override fun execute(
+    transaction: DBTransactionType,
+    parameters: DBQAccountProviderDescriptionSummaryListType.Parameters
+  ): List<DBQAccountProviderDescriptionSummary> {
+    val startingId = parameters.startingId
+    return if (startingId != null) {
+      transaction.connection
+        .prepareStatement(this.queryTextWithStart)
+        .let { statement ->
+          statement.setString(1, startingId.toString())
+          statement.setInt(2, parameters.limit)
+          statement.executeQuery().use { resultSet ->
+            this.parseResults(resultSet)
+          }
+        }
+    } else {
+      transaction.connection
+        .prepareStatement(this.queryTextWithoutStart)
+        .let { statement ->
+          statement.setInt(1, parameters.limit)
+          statement.executeQuery().use { resultSet ->
+            this.parseResults(resultSet)
+          }
+        }
+    }
+  }
+
+  private fun parseResults(resultSet: ResultSet): List<DBQAccountProviderDescriptionSummary> {
+    val data = mutableListOf<DBQAccountProviderDescriptionSummary>()
+    while (resultSet.next()) {
+      data.add(DBAccountProviderDescriptions.summaryFromResult(resultSet))
+    }
+    return data.toList()
+  }
+}
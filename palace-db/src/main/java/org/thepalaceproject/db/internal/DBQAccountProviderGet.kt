@@ -25,7 +25,7 @@ internal object DBQAccountProviderGet : DBQAccountProviderGetType {
     transaction: DBTransactionType,
     parameters: URI
   ): AccountProvider? =
-    transaction.connection.connection.prepareStatement(this.text).use { statement ->
+    transaction.connection.prepareStatement(this.text).let { statement ->
       statement.setString(1, parameters.toString())
       statement.executeQuery().use { resultSet ->
         if (resultSet.next()) {
@@ -37,9 +37,9 @@ internal object DBQAccountProviderList : DBQAccountProviderListType {
   ): List<AccountProvider> {
     val startingId = parameters.startingId
     return if (startingId != null) {
-      transaction.connection.connection
+      transaction.connection
         .prepareStatement(queryTextWithStart)
-        .use { statement ->
+        .let { statement ->
           statement.setString(1, startingId.toString())
           statement.setInt(2, parameters.limit)
           statement.executeQuery().use { resultSet ->
@@ -47,9 +47,9 @@ internal object DBQAccountProviderList : DBQAccountProviderListType {
           }
         }
     } else {
-      transaction.connection.connection
+      transaction.connection
         .prepareStatement(queryTextWithoutStart)
-        .use { statement ->
+        .let { statement ->
           statement.setInt(1, parameters.limit)
           statement.executeQuery().use { resultSet ->
             parseResults(transaction, resultSet)
@@ -40,7 +40,7 @@ internal object DBQAccountProviderPut : DBQAccountProviderPutType {
     val serializedData =
       AccountProvidersJSON.serializeToBytes(description)
 
-    return transaction.connection.connection.prepareStatement(this.text).use { st ->
+    return transaction.connection.prepareStatement(this.text).let { st ->
       st.setString(1, description.id.toString())
 
       st.setString(2, timestamp)
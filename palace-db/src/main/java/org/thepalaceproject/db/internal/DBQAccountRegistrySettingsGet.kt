@@ -24,7 +24,7 @@ LIMIT 1
     transaction: DBTransactionType,
     parameters: String,
   ): DBQAccountRegistrySetting? {
-    return transaction.connection.connection.prepareStatement(this.queryText).use { statement ->
+    return transaction.connection.prepareStatement(this.queryText).let { statement ->
       statement.setString(1, parameters)
       statement.executeQuery().use { results ->
         while (results.next()) {
@@ -22,7 +22,7 @@ INSERT INTO account_registry_settings (
     transaction: DBTransactionType,
     parameters: DBQAccountRegistrySetting
   ) {
-    transaction.connection.connection.prepareStatement(this.queryText).use { statement ->
+    transaction.connection.prepareStatement(this.queryText).let { statement ->
       statement.setString(1, parameters.name)
       statement.setString(2, parameters.javaClass.simpleName)
       statement.setString(3,
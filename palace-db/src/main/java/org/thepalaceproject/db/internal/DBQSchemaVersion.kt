@@ -14,7 +14,7 @@ internal object DBQSchemaVersion : DBQSchemaVersionType {
     transaction: DBTransactionType,
     parameters: Unit
   ): Long =
-    transaction.connection.connection.prepareStatement(text).use { statement ->
+    transaction.connection.prepareStatement(text).let { statement ->
       statement.executeQuery().use { resultSet ->
         if (resultSet.next()) {
           resultSet.getLong(1)
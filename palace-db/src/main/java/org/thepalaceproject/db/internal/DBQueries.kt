@@ -7,6 +7,8 @@ import org.thepalaceproject.db.api.queries.DBQAccountProviderDescriptionGetType
 import org.thepalaceproject.db.api.queries.DBQAccountProviderDescriptionIDSetType
 import org.thepalaceproject.db.api.queries.DBQAccountProviderDescriptionListType
 import org.thepalaceproject.db.api.queries.DBQAccountProviderDescriptionPutType
+import org.thepalaceproject.db.api.queries.DBQAccountProviderDescriptionSearchType
+import org.thepalaceproject.db.api.queries.DBQAccountProviderDescriptionSummaryListType
 import org.thepalaceproject.db.api.queries.DBQAccountProviderGetType
 import org.thepalaceproject.db.api.queries.DBQAccountProviderListType
 import org.thepalaceproject.db.api.queries.DBQAccountProviderPutType
@@ -29,6 +31,11 @@ internal object DBQueries {
       Pair(DBQAccountProviderDescriptionIDSetType::class.java, DBQAccountProviderDescriptionIDSet),
       Pair(DBQAccountProviderDescriptionListType::class.java, DBQAccountProviderDescriptionList),
       Pair(DBQAccountProviderDescriptionPutType::class.java, DBQAccountProviderDescriptionPut),
+      Pair(DBQAccountProviderDescriptionSearchType::class.java, DBQAccountProviderDescriptionSearch),
+      Pair(
+        DBQAccountProviderDescriptionSummaryListType::class.java,
+        DBQAccountProviderDescriptionSummaryList
+      ),
       Pair(DBQAccountProviderGetType::class.java, DBQAccountProviderGet),
       Pair(DBQAccountProviderListType::class.java, DBQAccountProviderList),
       Pair(DBQAccountProviderPutType::class.java, DBQAccountProviderPut),
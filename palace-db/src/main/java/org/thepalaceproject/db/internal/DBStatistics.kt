@@ -0,0 +1,71 @@
+package org.thepalaceproject.db.internal
+
+import org.thepalaceproject.db.api.DBStatisticsType
+import java.util.concurrent.atomic.AtomicLong
+
+internal class DBStatistics : DBStatisticsType {
+  private val connectionsOpenedCount = AtomicLong()
+  private val connectionsAcquiredCount = AtomicLong()
+  private val connectionWaitTotal = AtomicLong()
+  private val connectionWaitMaximum = AtomicLong()
+  private val statementHits = AtomicLong()
+  private val statementMisses = AtomicLong()
+  private val descriptionHits = AtomicLong()
+  private val descriptionMisses = AtomicLong()
+
+  override val connectionsOpened: Long
+    get() = this.connectionsOpenedCount.get()
+
+  override val connectionsAcquired: Long
+    get() = this.connectionsAcquiredCount.get()
+
+  override val connectionWaitNanosTotal: Long
+    get() = this.connectionWaitTotal.get()
+
+  override val connectionWaitNanosMaximum: Long
+    get() = this.connectionWaitMaximum.get()
+
+  override val statementCacheHits: Long
+    get() = this.statementHits.get()
+
+  override val statementCacheMisses: Long
+    get() = this.statementMisses.get()
+
+  override val descriptionCacheHits: Long
+    get() = this.descriptionHits.get()
+
+  override val descriptionCacheMisses: Long
+    get() = this.descriptionMisses.get()
+
+  fun onConnectionOpened() {
+    this.connectionsOpenedCount.incrementAndGet()
+  }
+
+  fun onConnectionAcquired(waitNanos: Long) {
+    this.connectionsAcquiredCount.incrementAndGet()
+    this.connectionWaitTotal.addAndGet(waitNanos)
+    this.connectionWaitMaximum.accumulateAndGet(waitNanos, Math::max)
+  }
+
+  fun onStatementHit() {
+    this.statementHits.incrementAndGet()
+  }
+
+  fun onStatementMiss() {
+    this.statementMisses.incrementAndGet()
+  }
+
+  fun onDescriptionHit() {
+    this.descriptionHits.incrementAndGet()
+  }
+
+  fun onDescriptionMiss() {
+    this.descriptionMisses.incrementAndGet()
+  }
+
+  override fun toString(): String =
+    "[DBStatistics connectionsOpened=${this.connectionsOpened} connectionsAcquired=${this.connectionsAcquired} " +
+      "connectionWaitTotal=${this.connectionWaitNanosTotal}ns connectionWaitMaximum=${this.connectionWaitNanosMaximum}ns " +
+      "statementCacheHits=${this.statementCacheHits} statementCacheMisses=${this.statementCacheMisses} " +
+      "descriptionCacheHits=${this.descriptionCacheHits} descriptionCacheMisses=${this.descriptionCacheMisses}]"
+}
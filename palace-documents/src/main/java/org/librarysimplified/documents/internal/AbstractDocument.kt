@@ -7,6 +7,17 @@ import org.slf4j.LoggerFactory
 import java.io.File
 import java.io.InputStream
 import java.net.URL
+import java.util.Properties
+
+/**
+ * The base class of documents that are copied from the application assets and then kept up to
+ * date from a remote URL.
+ *
+ * The validators (`ETag` and `Last-Modified`) sent by the server with the current version of
+ * the document are kept in a file alongside the document, and are sent with each update as a
+ * conditional request. If the server reports that the document has not changed, the document
+ * is not downloaded or written again.
+ */
 
 internal abstract class AbstractDocument internal constructor(
   private val http: LSHTTPClientType,
@@ -18,6 +29,9 @@ internal abstract class AbstractDocument internal constructor(
   private val logger =
     LoggerFactory.getLogger(AbstractDocument::class.java)
 
+  private val fileValidators: File? =
+    this.file?.let { f -> File(f.parentFile, f.name + ".validators") }
+
   init {
     if (this.file != null && initialStreams != null && !this.file.isFile) {
       this.logger.debug("creating initial file {}", this.file)
@@ -35,21 +49,29 @@ internal abstract class AbstractDocument internal constructor(
 
     this.logger.debug("updating document {} from {}", this.file, this.remoteURL)
 
-    val request =
-      this.http
-        .newRequest(this.remoteURL.toURI())
-        .build()
+    val validators =
+      this.loadValidators()
+    val builder =
+      this.http.newRequest(this.remoteURL.toURI())
 
-    val response = request.execute()
+    validators.getProperty("ETag")?.let { builder.addHeader("If-None-Match", it) }
+    validators.getProperty("Last-Modified")?.let { builder.addHeader("If-Modified-Since", it) }
+
+    val response = builder.build().execute()
     return when (val status = response.status) {
       is LSHTTPResponseStatus.Responded.OK -> {
+        if (status.properties.originalStatus == 304) {
+          this.logger.debug("document {} is unchanged", this.file)
+          return
+        }
+
         val stream = status.bodyStream
         if (stream != null) {
           this.fileTmp?.outputStream()?.use { output ->
             stream.copyTo(output)
           }
           this.fileTmp?.renameTo(this.file)
-          Unit
+          this.saveValidators(status.properties.header("ETag"), status.properties.header("Last-Modified"))
         } else {
           this.logger.debug("no body")
         }
@@ -62,6 +84,41 @@ internal abstract class AbstractDocument internal constructor(
     }
   }
 
+  private fun loadValidators(): Properties {
+    val properties = Properties()
+    val validatorsFile = this.fileValidators ?: return properties
+    if (this.file?.isFile != true || !validatorsFile.isFile) {
+      return properties
+    }
+
+    try {
+      validatorsFile.inputStream().use(properties::load)
+    } catch (e: Exception) {
+      this.logger.debug("unable to read validators {}: ", validatorsFile, e)
+      properties.clear()
+    }
+    return properties
+  }
+
+  private fun saveValidators(
+    eTag: String?,
+    lastModified: String?
+  ) {
+    val validatorsFile = this.fileValidators ?: return
+    if (eTag == null && lastModified == null) {
+      validatorsFile.delete()
+      return
+    }
+
+    val properties = Properties()
+    eTag?.let { properties.setProperty("ETag", it) }
+    lastModified?.let { properties.setProperty("Last-Modified", it) }
+
+    val validatorsTmp = File(validatorsFile.parentFile, validatorsFile.name + ".tmp")
+    validatorsTmp.outputStream().use { output -> properties.store(output, null) }
+    validatorsTmp.renameTo(validatorsFile)
+  }
+
   override val readableURL: URL =
     this.file?.toURI()?.toURL() ?: remoteURL
 }
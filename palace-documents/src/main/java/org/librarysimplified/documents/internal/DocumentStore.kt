@@ -170,6 +170,11 @@ internal class DocumentStore private constructor(
     }
   }
 
+  /**
+   * Update the documents. Each document is updated as a separate task on the given executor,
+   * so the documents are updated concurrently if the executor has more than one thread.
+   */
+
   override fun update(executor: ListeningExecutorService): ListenableFuture<*> =
     Futures.allAsList(
       listOf(
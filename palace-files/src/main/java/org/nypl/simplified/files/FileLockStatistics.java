@@ -0,0 +1,113 @@
+package org.nypl.simplified.files;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics for a single file lock.
+ */
+
+public final class FileLockStatistics
+{
+  private final String path;
+  private final AtomicLong acquisitions;
+  private final AtomicLong contended;
+  private final AtomicLong timeouts;
+  private final AtomicLong waitNanosTotal;
+  private final AtomicLong waitNanosMaximum;
+
+  FileLockStatistics(final String in_path)
+  {
+    this.path = in_path;
+    this.acquisitions = new AtomicLong();
+    this.contended = new AtomicLong();
+    this.timeouts = new AtomicLong();
+    this.waitNanosTotal = new AtomicLong();
+    this.waitNanosMaximum = new AtomicLong();
+  }
+
+  /**
+   * @return The canonical path of the locked file
+   */
+
+  public String path()
+  {
+    return this.path;
+  }
+
+  /**
+   * @return The number of times the lock has been acquired
+   */
+
+  public long acquisitions()
+  {
+    return this.acquisitions.get();
+  }
+
+  /**
+   * @return The number of times the lock was held by another thread when requested
+   */
+
+  public long contended()
+  {
+    return this.contended.get();
+  }
+
+  /**
+   * @return The number of times a thread gave up waiting for the lock
+   */
+
+  public long timeouts()
+  {
+    return this.timeouts.get();
+  }
+
+  /**
+   * @return The total time, in nanoseconds, that threads have spent waiting for the lock
+   */
+
+  public long waitNanosTotal()
+  {
+    return this.waitNanosTotal.get();
+  }
+
+  /**
+   * @return The longest time, in nanoseconds, that a thread has spent waiting for the lock
+   */
+
+  public long waitNanosMaximum()
+  {
+    return this.waitNanosMaximum.get();
+  }
+
+  void onAcquiredImmediately()
+  {
+    this.acquisitions.incrementAndGet();
+  }
+
+  void onWaited(
+    final long nanos,
+    final boolean acquired)
+  {
+    this.contended.incrementAndGet();
+    this.waitNanosTotal.addAndGet(nanos);
+    this.waitNanosMaximum.accumulateAndGet(nanos, Math::max);
+    if (acquired) {
+      this.acquisitions.incrementAndGet();
+    } else {
+      this.timeouts.incrementAndGet();
+    }
+  }
+
+  @Override
+  public String toString()
+  {
+    return String.format(
+      "[FileLockStatistics %s acquisitions=%d contended=%d timeouts=%d waitTotal=%dns waitMax=%dns]",
+      this.path,
+      Long.valueOf(this.acquisitions()),
+      Long.valueOf(this.contended()),
+      Long.valueOf(this.timeouts()),
+      Long.valueOf(this.waitNanosTotal()),
+      Long.valueOf(this.waitNanosMaximum()));
+  }
+}
@@ -10,23 +10,46 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Trivial file locking utilities.
+ *
+ * Locks are keyed by the canonical path of the locked file, so different
+ * {@link File} values that name the same file share a lock. Locks are never
+ * discarded: the set of lock files used by the application is small and fixed,
+ * and discarding a lock that another thread is about to use would allow two
+ * threads to hold the "same" lock at once.
  */
 
 public final class FileLocking
 {
-  private static final Logger                   LOG;
-  private static final Map<File, ReentrantLock> PATH_LOCKS;
+  private static final Logger                          LOG;
+  private static final ConcurrentHashMap<String, Lock> PATH_LOCKS;
+  private static volatile boolean                      FAIR;
 
   static {
     LOG = NullCheck.notNull(LoggerFactory.getLogger(FileLocking.class));
-    PATH_LOCKS = new WeakHashMap<File, ReentrantLock>(16);
+    PATH_LOCKS = new ConcurrentHashMap<String, Lock>(16);
+    FAIR = false;
+  }
+
+  private static final class Lock
+  {
+    private final ReentrantLock      lock;
+    private final FileLockStatistics statistics;
+
+    Lock(
+      final String path,
+      final boolean fair)
+    {
+      this.lock = new ReentrantLock(fair);
+      this.statistics = new FileLockStatistics(path);
+    }
   }
 
   private FileLocking()
@@ -64,14 +87,15 @@ public final class FileLocking
     NullCheck.notNull(p);
 
     final File f = file.getCanonicalFile();
-    final ReentrantLock lock = FileLocking.getFileLock(file);
+    final Lock entry = FileLocking.getFileLock(f);
+    final ReentrantLock lock = entry.lock;
     try {
       if (lock.isHeldByCurrentThread()) {
         throw new IOException(
           String.format("Lock of file %s already held by this thread", f));
       }
 
-      if (lock.tryLock(milliseconds, TimeUnit.MILLISECONDS)) {
+      if (FileLocking.acquire(entry, milliseconds)) {
         try {
           FileLocking.LOG.trace("lock obtain {}", file);
           return p.call(Unit.unit());
@@ -90,19 +114,66 @@ public final class FileLocking
     }
   }
 
-  private static synchronized ReentrantLock getFileLock(final File file)
+  /**
+   * Set whether locks created from now on are fair. Fair locks are granted in
+   * the order that threads requested them, at the cost of lower throughput
+   * under contention. Locks are not fair by default.
+   *
+   * @param fair {@code true} if new locks should be fair
+   */
+
+  public static void setFair(final boolean fair)
+  {
+    FileLocking.FAIR = fair;
+  }
+
+  /**
+   * @return Statistics for all of the locks created so far
+   */
+
+  public static List<FileLockStatistics> statistics()
+  {
+    final List<FileLockStatistics> results =
+      new ArrayList<FileLockStatistics>(FileLocking.PATH_LOCKS.size());
+    for (final Lock lock : FileLocking.PATH_LOCKS.values()) {
+      results.add(lock.statistics);
+    }
+    return results;
+  }
+
+  private static boolean acquire(
+    final Lock entry,
+    final long milliseconds)
+    throws InterruptedException
   {
-    FileLocking.LOG.trace("lock request {}", file);
+    /*
+     * Try to take an uncontended lock without reading the clock. Note that
+     * the untimed tryLock() barges even on fair locks, so fair locks always
+     * take the timed path.
+     */
+
+    final ReentrantLock lock = entry.lock;
+    if (!lock.isFair() && lock.tryLock()) {
+      entry.statistics.onAcquiredImmediately();
+      return true;
+    }
 
-    final ReentrantLock lock = FileLocking.PATH_LOCKS.get(file);
-    if (lock != null) {
-      FileLocking.LOG.trace("lock reuse {}", file);
-      return lock;
+    final long timeStart = System.nanoTime();
+    final boolean acquired = lock.tryLock(milliseconds, TimeUnit.MILLISECONDS);
+    entry.statistics.onWaited(System.nanoTime() - timeStart, acquired);
+    return acquired;
+  }
+
+  private static Lock getFileLock(final File file)
+  {
+    final String path = file.getPath();
+    final Lock existing = FileLocking.PATH_LOCKS.get(path);
+    if (existing != null) {
+      return existing;
     }
 
-    FileLocking.LOG.trace("lock new {}", file);
-    final ReentrantLock new_lock = new ReentrantLock(true);
-    FileLocking.PATH_LOCKS.put(file, new_lock);
-    return new_lock;
+    FileLocking.LOG.trace("lock new {}", path);
+    return FileLocking.PATH_LOCKS.computeIfAbsent(
+      path, p -> new Lock(p, FileLocking.FAIR));
   }
 }
@@ -7,6 +7,12 @@ import android.graphics.Bitmap
  */
 
 data class BookCoverBadge(
+  /**
+   * A stable identifier for the badge image. This forms part of the cache key of badged
+   * covers, and so must change if the image changes.
+   */
+
+  val id: String,
   val bitmap: Bitmap,
   val width: Int,
   val height: Int
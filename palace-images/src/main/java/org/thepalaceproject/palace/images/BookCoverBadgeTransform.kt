@@ -4,7 +4,7 @@ import android.graphics.Bitmap
 import android.graphics.Canvas
 import android.graphics.Color
 import android.graphics.Paint
-import android.graphics.Rect
+import android.graphics.RectF
 import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool
 import com.bumptech.glide.load.resource.bitmap.BitmapTransformation
 import java.security.MessageDigest
@@ -12,59 +12,97 @@ import java.security.MessageDigest
 /**
  * A Glide bitmap transformation that overlays a badge icon on the bottom-right
  * corner of the source bitmap. If no badge is provided, it passes the source through.
+ *
+ * The output bitmap is taken from Glide's [BitmapPool], and the source is drawn into it
+ * directly; the source bitmap is never copied or modified.
  */
 
 class BookCoverBadgeTransform(
   private val badge: BookCoverBadge?
 ) : BitmapTransformation() {
+
+  companion object {
+    private const val ID =
+      "org.thepalaceproject.palace.images.BookCoverBadgeTransform.1"
+    private val ID_BYTES =
+      ID.toByteArray(Charsets.UTF_8)
+
+    private const val MARGIN = 8
+
+    /*
+     * Paints are configured once and never modified afterwards, so they can safely be shared
+     * between the threads on which Glide runs transformations.
+     */
+
+    // Blue circular background behind the badge icon
+    private val BACKGROUND_PAINT =
+      Paint(Paint.ANTI_ALIAS_FLAG).apply { this.color = Color.parseColor("#43BAE6") }
+
+    private val IMAGE_PAINT =
+      Paint(Paint.ANTI_ALIAS_FLAG or Paint.FILTER_BITMAP_FLAG)
+  }
+
   override fun transform(
     pool: BitmapPool,
     source: Bitmap,
     outWidth: Int,
     outHeight: Int
   ): Bitmap {
-    if (this.badge == null) {
-      return source.copy(source.config ?: Bitmap.Config.ARGB_8888, true)
-    }
+    val badge = this.badge ?: return source
+
+    /*
+     * An opaque source covers every pixel of the output, so a dirty pooled bitmap can be
+     * used. A source with transparency needs a cleared bitmap underneath it.
+     */
+
+    val config = source.config ?: Bitmap.Config.ARGB_8888
+    val result =
+      if (source.hasAlpha()) {
+        pool.get(source.width, source.height, config)
+      } else {
+        pool.getDirty(source.width, source.height, config)
+      }
+    result.setHasAlpha(source.hasAlpha())
 
-    val result = source.copy(source.config ?: Bitmap.Config.ARGB_8888, true)
     val canvas = Canvas(result)
+    canvas.drawBitmap(source, 0.0f, 0.0f, null)
 
-    val margin = 8
-    val left = source.width - this.badge.width - margin
-    val right = source.width - margin
-    val top = source.height - this.badge.height - margin
-    val bottom = source.height - margin
-    val targetRect = Rect(left, top, right, bottom)
+    val targetRect =
+      RectF(
+        (source.width - badge.width - MARGIN).toFloat(),
+        (source.height - badge.height - MARGIN).toFloat(),
+        (source.width - MARGIN).toFloat(),
+        (source.height - MARGIN).toFloat()
+      )
 
-    // Blue circular background behind the badge icon
-    val backgroundPaint = Paint()
-    backgroundPaint.color = Color.parseColor("#43BAE6")
-    backgroundPaint.isAntiAlias = true
     canvas.drawCircle(
-      targetRect.exactCenterX(),
-      targetRect.exactCenterY(),
+      targetRect.centerX(),
+      targetRect.centerY(),
       targetRect.width() / 2.0f,
-      backgroundPaint
+      BACKGROUND_PAINT
     )
 
     // Badge icon drawn over the circle
-    val imagePaint = Paint()
-    imagePaint.isAntiAlias = true
-    val sourceRect =
-      Rect(0, 0, this.badge.bitmap.width, this.badge.bitmap.height)
-    canvas.drawBitmap(this.badge.bitmap, sourceRect, targetRect, imagePaint)
-
+    canvas.drawBitmap(badge.bitmap, null, targetRect, IMAGE_PAINT)
+    canvas.setBitmap(null)
     return result
   }
 
+  override fun equals(other: Any?): Boolean =
+    other is BookCoverBadgeTransform && other.badge == this.badge
+
+  override fun hashCode(): Int =
+    (ID.hashCode() * 31) + (this.badge?.hashCode() ?: 0)
+
   override fun updateDiskCacheKey(messageDigest: MessageDigest) {
+    messageDigest.update(ID_BYTES)
+
     val key =
       if (this.badge != null) {
-        "BookCoverBadgeTransform:${this.badge.width}x${this.badge.height}"
+        ":${this.badge.id}:${this.badge.width}x${this.badge.height}"
       } else {
-        "BookCoverBadgeTransform:none"
+        ":none"
       }
-    messageDigest.update(key.toByteArray())
+    messageDigest.update(key.toByteArray(Charsets.UTF_8))
   }
 }
@@ -1,8 +1,10 @@
 package org.thepalaceproject.palace.images
 
 import android.graphics.Bitmap
+import android.graphics.Canvas
 import org.librarysimplified.http.uri_builder.LSHTTPURIQueryBuilder
 import org.librarysimplified.http.uri_builder.LSHTTPURIQueryBuilder.decodeQuery
+import org.nypl.simplified.tenprint.TenPrintBitmapAllocatorType
 import org.nypl.simplified.tenprint.TenPrintGeneratorType
 import org.nypl.simplified.tenprint.TenPrintInput
 import org.slf4j.Logger
@@ -18,18 +20,30 @@ import java.util.TreeMap
  * interface.
  *
  * This implementation uses the provided [TenPrintGeneratorType] to
- * generate covers when a cover is unavailable or not specified.
+ * generate covers when a cover is unavailable or not specified. If a
+ * cache is provided, each distinct cover is only generated once; later
+ * requests copy the cached cover into a bitmap from the caller's allocator.
  *
  */
 
 class BookCoverGenerator(
-  private val generator: TenPrintGeneratorType
+  private val generator: TenPrintGeneratorType,
+  private val cache: BookCoverGeneratorCache? = null
 ) : BookCoverGeneratorType {
   @Throws(IOException::class)
   override fun generateImage(
     uri: URI,
     width: Int,
     height: Int
+  ): Bitmap =
+    this.generateImage(uri, width, height) { w, h, c -> Bitmap.createBitmap(w, h, c) }
+
+  @Throws(IOException::class)
+  override fun generateImage(
+    uri: URI,
+    width: Int,
+    height: Int,
+    allocator: TenPrintBitmapAllocatorType
   ): Bitmap {
     var width = width
     var height = height
@@ -54,13 +68,34 @@ class BookCoverGenerator(
         height = Math.round(width / .75).toInt()
       }
 
+      val cache = this.cache
+      val key = BookCoverGeneratorCache.keyOf(title, author, width, height)
+      val cached = cache?.get(key)
+      if (cached != null) {
+        return copyOf(cached, allocator)
+      }
+
       val ib = TenPrintInput.newBuilder()
       ib.setAuthor(author)
       ib.setTitle(title)
       ib.setCoverHeight(height)
       val i = ib.build()
-      val cover = this.generator.generate(i)
-      return Objects.requireNonNull(cover)
+
+      if (cache == null) {
+        return Objects.requireNonNull(this.generator.generate(i, allocator))
+      }
+
+      /*
+       * The bitmap returned to the caller may be recycled by it, so the cover is rendered into
+       * a bitmap owned by the cache and the caller is given a copy.
+       */
+
+      val cover =
+        Objects.requireNonNull(
+          this.generator.generate(i) { w, h, c -> Bitmap.createBitmap(w, h, c) }
+        )
+      cache.put(key, cover)
+      return copyOf(cover, allocator)
     } catch (e: Throwable) {
       LOG.error("Error generating image for {}: ", uri, e)
       throw IOException(e)
@@ -85,6 +120,20 @@ class BookCoverGenerator(
     private val LOG: Logger =
       LoggerFactory.getLogger(BookCoverGenerator::class.java)
 
+    private fun copyOf(
+      cached: Bitmap,
+      allocator: TenPrintBitmapAllocatorType
+    ): Bitmap {
+      val result =
+        allocator.allocate(
+          cached.width,
+          cached.height,
+          cached.config ?: Bitmap.Config.RGB_565
+        )
+      Canvas(result).drawBitmap(cached, 0.0f, 0.0f, null)
+      return result
+    }
+
     private fun getParameters(u: URI): MutableMap<String, String> {
       val m: MutableMap<String, String> = HashMap()
       val pairs: List<Pair<String, String>> = decodeQuery(u)
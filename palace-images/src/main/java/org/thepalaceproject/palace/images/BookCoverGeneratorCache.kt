@@ -0,0 +1,112 @@
+package org.thepalaceproject.palace.images
+
+import android.graphics.Bitmap
+import android.util.LruCache
+import java.security.MessageDigest
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * A memory cache of generated covers.
+ *
+ * Covers are addressed by a hash of the title, author and size from which they were generated,
+ * and so a cover never needs to be invalidated. The cache holds bitmaps up to a maximum number
+ * of bytes. Covers are not written to disk here; Glide's own disk cache already holds the
+ * covers that it displays.
+ *
+ * Bitmaps held by the cache are owned by the cache and must never be handed to code that might
+ * recycle them; callers copy cached bitmaps into bitmaps of their own.
+ */
+
+class BookCoverGeneratorCache private constructor(
+  memoryBytesMaximum: Int
+) {
+  private val memory =
+    object : LruCache<String, Bitmap>(memoryBytesMaximum) {
+      override fun sizeOf(
+        key: String,
+        value: Bitmap
+      ): Int = value.byteCount
+    }
+
+  private val hits = AtomicLong()
+  private val misses = AtomicLong()
+
+  companion object {
+
+    /**
+     * The default size of the cache.
+     */
+
+    const val MEMORY_BYTES_MAXIMUM_DEFAULT = 8 * 1024 * 1024
+
+    fun create(
+      memoryBytesMaximum: Int = MEMORY_BYTES_MAXIMUM_DEFAULT
+    ): BookCoverGeneratorCache =
+      BookCoverGeneratorCache(
+        memoryBytesMaximum = memoryBytesMaximum
+      )
+
+    /**
+     * @return The cache key for a cover with the given parameters
+     */
+
+    fun keyOf(
+      title: String,
+      author: String,
+      width: Int,
+      height: Int
+    ): String {
+      val digest = MessageDigest.getInstance("SHA-256")
+      digest.update(title.toByteArray(Charsets.UTF_8))
+      digest.update(0)
+      digest.update(author.toByteArray(Charsets.UTF_8))
+      digest.update(0)
+      digest.update("${width}x$height".toByteArray(Charsets.UTF_8))
+
+      val text = StringBuilder(64)
+      for (b in digest.digest()) {
+        text.append(String.format("%02x", b))
+      }
+      return text.toString()
+    }
+  }
+
+  /**
+   * The number of lookups that were satisfied by the cache.
+   */
+
+  val hitCount: Long
+    get() = this.hits.get()
+
+  /**
+   * The number of lookups that were not satisfied by the cache.
+   */
+
+  val missCount: Long
+    get() = this.misses.get()
+
+  /**
+   * Find the cover with the given key.
+   */
+
+  fun get(key: String): Bitmap? {
+    val bitmap = this.memory.get(key)
+    if (bitmap != null) {
+      this.hits.incrementAndGet()
+    } else {
+      this.misses.incrementAndGet()
+    }
+    return bitmap
+  }
+
+  /**
+   * Add a cover to the cache. The cache takes ownership of the given bitmap.
+   */
+
+  fun put(
+    key: String,
+    bitmap: Bitmap
+  ) {
+    this.memory.put(key, bitmap)
+  }
+}
@@ -1,6 +1,7 @@
 package org.thepalaceproject.palace.images
 
 import android.graphics.Bitmap
+import org.nypl.simplified.tenprint.TenPrintBitmapAllocatorType
 import java.io.IOException
 import java.net.URI
 
@@ -28,6 +29,28 @@ interface BookCoverGeneratorType {
     height: Int
   ): Bitmap
 
+  /**
+   * Generate an image synchronously, rendering into a bitmap obtained from the given
+   * allocator. Implementations that cannot make use of the allocator may ignore it.
+   *
+   * @param uri The image URI
+   * @param width The image width
+   * @param height The image height
+   * @param allocator The bitmap allocator
+   *
+   * @return A loaded bitmap
+   *
+   * @throws IOException On errors
+   */
+
+  @Throws(IOException::class)
+  fun generateImage(
+    uri: URI,
+    width: Int,
+    height: Int,
+    allocator: TenPrintBitmapAllocatorType
+  ): Bitmap = this.generateImage(uri, width, height)
+
   /**
    * Generate a URI from the given title and author, suitable for use in cover
    * generation.
@@ -0,0 +1,14 @@
+package org.thepalaceproject.palace.images
+
+import android.graphics.Bitmap
+
+/**
+ * A generated cover, rendered into a bitmap taken from Glide's bitmap pool.
+ *
+ * Generated covers have their own data type so that they are decoded by
+ * [GeneratedCoverDecoder], which returns the bitmap to the pool once Glide has finished with it.
+ */
+
+class GeneratedCover(
+  val bitmap: Bitmap
+)
@@ -1,23 +1,33 @@
 package org.thepalaceproject.palace.images
 
-import android.graphics.Bitmap
 import com.bumptech.glide.Priority
 import com.bumptech.glide.load.DataSource
 import com.bumptech.glide.load.data.DataFetcher
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool
 import java.net.URI
 
 class GeneratedCoverDataFetcher(
   private val coverGenerator: BookCoverGeneratorType,
+  private val bitmapPool: BitmapPool,
   private val uri: URI,
   private val width: Int,
   private val height: Int
-) : DataFetcher<Bitmap> {
+) : DataFetcher<GeneratedCover> {
   override fun loadData(
     priority: Priority,
-    callback: DataFetcher.DataCallback<in Bitmap>
+    callback: DataFetcher.DataCallback<in GeneratedCover>
   ) {
-    val bitmap = coverGenerator.generateImage(uri, width, height)
-    callback.onDataReady(bitmap)
+    /*
+     * Covers are rendered into bitmaps taken from Glide's pool, and are returned to the pool by
+     * GeneratedCoverDecoder. The generator overwrites every pixel, so there is no need for the
+     * pool to erase them first.
+     */
+
+    val bitmap =
+      coverGenerator.generateImage(uri, width, height) { w, h, config ->
+        this.bitmapPool.getDirty(w, h, config)
+      }
+    callback.onDataReady(GeneratedCover(bitmap))
   }
 
   override fun cleanup() {
@@ -28,7 +38,7 @@ class GeneratedCoverDataFetcher(
     // Generation is synchronous and cannot be cancelled.
   }
 
-  override fun getDataClass(): Class<Bitmap> = Bitmap::class.java
+  override fun getDataClass(): Class<GeneratedCover> = GeneratedCover::class.java
 
   override fun getDataSource(): DataSource = DataSource.LOCAL
 }
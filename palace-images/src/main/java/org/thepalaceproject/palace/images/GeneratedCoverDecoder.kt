@@ -0,0 +1,30 @@
+package org.thepalaceproject.palace.images
+
+import android.graphics.Bitmap
+import com.bumptech.glide.load.Options
+import com.bumptech.glide.load.ResourceDecoder
+import com.bumptech.glide.load.engine.Resource
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool
+import com.bumptech.glide.load.resource.bitmap.BitmapResource
+
+/**
+ * A decoder that hands generated covers to Glide as pool-backed resources, so that the
+ * bitmaps are returned to the pool when they are no longer needed.
+ */
+
+class GeneratedCoverDecoder(
+  private val bitmapPool: BitmapPool
+) : ResourceDecoder<GeneratedCover, Bitmap> {
+  override fun handles(
+    source: GeneratedCover,
+    options: Options
+  ): Boolean = true
+
+  override fun decode(
+    source: GeneratedCover,
+    width: Int,
+    height: Int,
+    options: Options
+  ): Resource<Bitmap>? =
+    BitmapResource.obtain(source.bitmap, this.bitmapPool)
+}
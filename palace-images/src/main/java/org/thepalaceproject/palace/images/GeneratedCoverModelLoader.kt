@@ -1,6 +1,6 @@
 package org.thepalaceproject.palace.images
 
-import android.graphics.Bitmap
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool
 import com.bumptech.glide.load.model.ModelLoader
 import com.bumptech.glide.load.model.ModelLoaderFactory
 import com.bumptech.glide.load.model.MultiModelLoaderFactory
@@ -8,8 +8,9 @@ import com.bumptech.glide.signature.ObjectKey
 import java.net.URI
 
 class GeneratedCoverModelLoader(
-  private val coverGenerator: BookCoverGeneratorType
-) : ModelLoader<URI, Bitmap> {
+  private val coverGenerator: BookCoverGeneratorType,
+  private val bitmapPool: BitmapPool
+) : ModelLoader<URI, GeneratedCover> {
   override fun handles(uri: URI): Boolean = uri.scheme == "generated-cover"
 
   override fun buildLoadData(
@@ -17,16 +18,17 @@ class GeneratedCoverModelLoader(
     width: Int,
     height: Int,
     options: com.bumptech.glide.load.Options
-  ): ModelLoader.LoadData<Bitmap> =
+  ): ModelLoader.LoadData<GeneratedCover> =
     ModelLoader.LoadData(
       ObjectKey(uri),
-      GeneratedCoverDataFetcher(coverGenerator, uri, width, height)
+      GeneratedCoverDataFetcher(coverGenerator, bitmapPool, uri, width, height)
     )
 
   class Factory(
-    private val coverGenerator: BookCoverGeneratorType
-  ) : ModelLoaderFactory<URI, Bitmap> {
-    override fun build(multiFactory: MultiModelLoaderFactory): ModelLoader<URI, Bitmap> = GeneratedCoverModelLoader(coverGenerator)
+    private val coverGenerator: BookCoverGeneratorType,
+    private val bitmapPool: BitmapPool
+  ) : ModelLoaderFactory<URI, GeneratedCover> {
+    override fun build(multiFactory: MultiModelLoaderFactory): ModelLoader<URI, GeneratedCover> = GeneratedCoverModelLoader(coverGenerator, bitmapPool)
 
     override fun teardown() {
       // No resources to clean up.
@@ -0,0 +1,96 @@
+package org.thepalaceproject.palace.images
+
+import java.time.Duration
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Statistics for cover images fetched over HTTP. Instances are thread-safe.
+ */
+
+class HttpCoverFetchStatistics {
+  private val requests = AtomicLong()
+  private val failures = AtomicLong()
+  private val cancellations = AtomicLong()
+  private val bytes = AtomicLong()
+  private val responseNanosTotal = AtomicLong()
+  private val responseNanosMaximum = AtomicLong()
+  private val waitNanosTotal = AtomicLong()
+
+  /**
+   * The number of requests sent.
+   */
+
+  val requestCount: Long
+    get() = this.requests.get()
+
+  /**
+   * The number of requests that failed.
+   */
+
+  val failureCount: Long
+    get() = this.failures.get()
+
+  /**
+   * The number of fetches cancelled by Glide before they completed.
+   */
+
+  val cancellationCount: Long
+    get() = this.cancellations.get()
+
+  /**
+   * The number of cover bytes received.
+   */
+
+  val byteCount: Long
+    get() = this.bytes.get()
+
+  /**
+   * The mean time between sending a request and receiving the response headers.
+   */
+
+  val responseTimeMean: Duration
+    get() {
+      val requests = this.requests.get()
+      return if (requests == 0L) {
+        Duration.ZERO
+      } else {
+        Duration.ofNanos(this.responseNanosTotal.get() / requests)
+      }
+    }
+
+  /**
+   * The maximum time between sending a request and receiving the response headers.
+   */
+
+  val responseTimeMaximum: Duration
+    get() = Duration.ofNanos(this.responseNanosMaximum.get())
+
+  /**
+   * The total time spent waiting for a per-host connection slot.
+   */
+
+  val waitTimeTotal: Duration
+    get() = Duration.ofNanos(this.waitNanosTotal.get())
+
+  internal fun onWaited(nanos: Long) {
+    this.waitNanosTotal.addAndGet(nanos)
+  }
+
+  internal fun onResponse(nanos: Long) {
+    this.requests.incrementAndGet()
+    this.responseNanosTotal.addAndGet(nanos)
+    this.responseNanosMaximum.accumulateAndGet(nanos, Math::max)
+  }
+
+  internal fun onFailure() {
+    this.failures.incrementAndGet()
+  }
+
+  internal fun onCancelled() {
+    this.cancellations.incrementAndGet()
+  }
+
+  internal fun onBytes(count: Long) {
+    this.bytes.addAndGet(count)
+  }
+}
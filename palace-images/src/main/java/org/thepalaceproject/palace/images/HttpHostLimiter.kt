@@ -0,0 +1,52 @@
+package org.thepalaceproject.palace.images
+
+import java.net.URI
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Semaphore
+import java.util.concurrent.TimeUnit
+
+/**
+ * A limit on the number of concurrent requests made to any one host.
+ */
+
+class HttpHostLimiter(
+  private val perHostMaximum: Int
+) {
+  init {
+    require(this.perHostMaximum > 0) { "Per-host maximum must be positive" }
+  }
+
+  private val permits =
+    ConcurrentHashMap<String, Semaphore>()
+
+  private fun semaphoreFor(uri: URI): Semaphore =
+    this.permits.computeIfAbsent("${uri.scheme}://${uri.host}:${uri.port}") {
+      Semaphore(this.perHostMaximum, true)
+    }
+
+  /**
+   * Wait for a slot for the host of the given URI. The wait is abandoned, and `false` is
+   * returned, as soon as `isCancelled` returns `true`.
+   */
+
+  fun acquire(
+    uri: URI,
+    isCancelled: () -> Boolean
+  ): Boolean {
+    val semaphore = this.semaphoreFor(uri)
+    while (!isCancelled()) {
+      if (semaphore.tryAcquire(100L, TimeUnit.MILLISECONDS)) {
+        return true
+      }
+    }
+    return false
+  }
+
+  /**
+   * Release a slot previously acquired with [acquire].
+   */
+
+  fun release(uri: URI) {
+    this.semaphoreFor(uri).release()
+  }
+}
@@ -0,0 +1,182 @@
+package org.thepalaceproject.palace.images
+
+import com.bumptech.glide.Priority
+import com.bumptech.glide.load.DataSource
+import com.bumptech.glide.load.HttpException
+import com.bumptech.glide.load.data.DataFetcher
+import org.librarysimplified.http.api.LSHTTPClientType
+import org.librarysimplified.http.api.LSHTTPResponseStatus
+import org.librarysimplified.http.api.LSHTTPResponseType
+import java.io.FilterInputStream
+import java.io.IOException
+import java.io.InputStream
+import java.net.URI
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * A Glide data fetcher that fetches images using the application's HTTP client.
+ *
+ * At most a fixed number of fetches run against any one host at a time. A fetch that delivers a
+ * response body holds its host slot until Glide has finished reading the body and calls
+ * [cleanup]; a fetch that fails gives up its slot immediately. Cancelling the fetch abandons any
+ * wait for a host slot, and closes the response if one has been received.
+ */
+
+class HttpURIDataFetcher(
+  private val http: LSHTTPClientType,
+  private val limiter: HttpHostLimiter,
+  private val statistics: HttpCoverFetchStatistics,
+  private val uri: URI
+) : DataFetcher<InputStream> {
+
+  @Volatile
+  private var cancelled = false
+
+  @Volatile
+  private var response: LSHTTPResponseType? = null
+
+  private val permitHeld =
+    AtomicBoolean(false)
+
+  override fun loadData(
+    priority: Priority,
+    callback: DataFetcher.DataCallback<in InputStream>
+  ) {
+    val waitStarted = System.nanoTime()
+    if (!this.limiter.acquire(this.uri) { this.cancelled }) {
+      this.statistics.onCancelled()
+      callback.onLoadFailed(IOException("Cancelled: ${this.uri}"))
+      return
+    }
+
+    this.permitHeld.set(true)
+    var delivered = false
+
+    try {
+      /*
+       * The fetch may have been cancelled between acquiring the slot and recording that it is
+       * held, in which case cancel() will not have released it.
+       */
+
+      if (this.cancelled) {
+        this.statistics.onCancelled()
+        callback.onLoadFailed(IOException("Cancelled: ${this.uri}"))
+        return
+      }
+
+      val requestStarted = System.nanoTime()
+      this.statistics.onWaited(requestStarted - waitStarted)
+
+      val request =
+        this.http.newRequest(this.uri)
+          .build()
+
+      val response = request.execute()
+      this.response = response
+      this.statistics.onResponse(System.nanoTime() - requestStarted)
+
+      /*
+       * If the fetch was cancelled while the request was executing, cancel() may have run
+       * before the response was recorded and so could not have closed it.
+       */
+
+      if (this.cancelled) {
+        this.closeResponse()
+        this.statistics.onCancelled()
+        callback.onLoadFailed(IOException("Cancelled: ${this.uri}"))
+        return
+      }
+
+      when (val status = response.status) {
+        is LSHTTPResponseStatus.Responded.OK -> {
+          val body = status.bodyStream
+          if (body == null) {
+            this.statistics.onFailure()
+            callback.onLoadFailed(IOException("No response body: ${this.uri}"))
+          } else {
+            delivered = true
+            callback.onDataReady(CountingInputStream(body, this.statistics))
+          }
+        }
+
+        is LSHTTPResponseStatus.Responded.Error -> {
+          this.statistics.onFailure()
+          callback.onLoadFailed(
+            HttpException(status.properties.message, status.properties.status)
+          )
+        }
+
+        is LSHTTPResponseStatus.Failed -> {
+          this.statistics.onFailure()
+          callback.onLoadFailed(status.exception)
+        }
+      }
+    } catch (e: Exception) {
+      this.statistics.onFailure()
+      callback.onLoadFailed(e)
+    } finally {
+      /*
+       * Glide may still be reading a delivered body after onDataReady returns, so in that
+       * case the slot is released by cleanup().
+       */
+
+      if (!delivered) {
+        this.releasePermit()
+      }
+    }
+  }
+
+  private fun releasePermit() {
+    if (this.permitHeld.compareAndSet(true, false)) {
+      this.limiter.release(this.uri)
+    }
+  }
+
+  private fun closeResponse() {
+    try {
+      this.response?.close()
+    } catch (e: Exception) {
+      // Nothing can be done about this.
+    }
+    this.response = null
+  }
+
+  override fun cleanup() {
+    this.closeResponse()
+    this.releasePermit()
+  }
+
+  override fun cancel() {
+    this.cancelled = true
+    this.cleanup()
+  }
+
+  override fun getDataClass(): Class<InputStream> = InputStream::class.java
+
+  override fun getDataSource(): DataSource = DataSource.REMOTE
+
+  private class CountingInputStream(
+    input: InputStream,
+    private val statistics: HttpCoverFetchStatistics
+  ) : FilterInputStream(input) {
+    override fun read(): Int {
+      val b = super.read()
+      if (b >= 0) {
+        this.statistics.onBytes(1L)
+      }
+      return b
+    }
+
+    override fun read(
+      buffer: ByteArray,
+      offset: Int,
+      length: Int
+    ): Int {
+      val count = super.read(buffer, offset, length)
+      if (count > 0) {
+        this.statistics.onBytes(count.toLong())
+      }
+      return count
+    }
+  }
+}
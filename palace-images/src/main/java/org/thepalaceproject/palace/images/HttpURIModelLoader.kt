@@ -1,15 +1,18 @@
 package org.thepalaceproject.palace.images
 
-import com.bumptech.glide.load.model.GlideUrl
 import com.bumptech.glide.load.model.ModelLoader
 import com.bumptech.glide.load.model.ModelLoaderFactory
 import com.bumptech.glide.load.model.MultiModelLoaderFactory
-import com.bumptech.glide.load.model.stream.HttpGlideUrlLoader
 import com.bumptech.glide.signature.ObjectKey
+import org.librarysimplified.http.api.LSHTTPClientType
 import java.io.InputStream
 import java.net.URI
 
-class HttpURIModelLoader : ModelLoader<URI, InputStream> {
+class HttpURIModelLoader(
+  private val http: LSHTTPClientType,
+  private val limiter: HttpHostLimiter,
+  private val statistics: HttpCoverFetchStatistics
+) : ModelLoader<URI, InputStream> {
   override fun handles(uri: URI): Boolean = uri.scheme == "http" || uri.scheme == "https"
 
   override fun buildLoadData(
@@ -17,21 +20,39 @@ class HttpURIModelLoader : ModelLoader<URI, InputStream> {
     width: Int,
     height: Int,
     options: com.bumptech.glide.load.Options
-  ): ModelLoader.LoadData<InputStream> {
-    val glideUrl = GlideUrl(uri.toURL())
-    val timeout = options.get(HttpGlideUrlLoader.TIMEOUT) ?: 2500
-    return ModelLoader.LoadData(
+  ): ModelLoader.LoadData<InputStream> =
+    ModelLoader.LoadData(
       ObjectKey(uri),
-      com.bumptech.glide.load.data
-        .HttpUrlFetcher(glideUrl, timeout)
+      HttpURIDataFetcher(this.http, this.limiter, this.statistics, uri)
     )
-  }
 
-  class Factory : ModelLoaderFactory<URI, InputStream> {
-    override fun build(multiFactory: MultiModelLoaderFactory): ModelLoader<URI, InputStream> = HttpURIModelLoader()
+  class Factory(
+    private val http: LSHTTPClientType,
+    perHostMaximum: Int = PER_HOST_MAXIMUM_DEFAULT
+  ) : ModelLoaderFactory<URI, InputStream> {
+    private val limiter =
+      HttpHostLimiter(perHostMaximum)
+
+    /**
+     * The statistics for all fetches made by loaders built by this factory.
+     */
+
+    val statistics =
+      HttpCoverFetchStatistics()
+
+    override fun build(multiFactory: MultiModelLoaderFactory): ModelLoader<URI, InputStream> =
+      HttpURIModelLoader(this.http, this.limiter, this.statistics)
 
     override fun teardown() {
       // No resources to clean up.
     }
   }
+
+  companion object {
+    /**
+     * The default maximum number of concurrent requests to any one host.
+     */
+
+    const val PER_HOST_MAXIMUM_DEFAULT = 4
+  }
 }
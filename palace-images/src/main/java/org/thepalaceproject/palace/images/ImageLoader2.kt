@@ -8,12 +8,16 @@ import android.os.Looper
 import android.graphics.drawable.Drawable
 import android.widget.ImageView
 import com.bumptech.glide.Glide
+import com.bumptech.glide.Priority
+import com.bumptech.glide.RequestBuilder
+import com.bumptech.glide.RequestManager
 import com.bumptech.glide.load.DataSource
 import com.bumptech.glide.load.engine.GlideException
 import com.bumptech.glide.request.RequestListener
 import com.bumptech.glide.request.target.CustomTarget
 import com.bumptech.glide.request.target.Target
 import com.bumptech.glide.request.transition.Transition
+import org.librarysimplified.http.api.LSHTTPClientType
 import org.librarysimplified.palace.images.R
 import org.nypl.simplified.accounts.api.AccountProviderDescription
 import org.nypl.simplified.books.book_registry.BookRegistryReadableType
@@ -29,7 +33,8 @@ class ImageLoader2 private constructor(
   private val appContext: Context,
   private val bookRegistry: BookRegistryReadableType,
   private val coverGenerator: BookCoverGeneratorType,
-  private val badgeLookup: BookCoverBadgeLookupType
+  private val badgeLookup: BookCoverBadgeLookupType,
+  override val coverFetchStatistics: HttpCoverFetchStatistics
 ) : ImageLoader2Type {
   private val logger =
     LoggerFactory.getLogger(ImageLoader2::class.java)
@@ -49,7 +54,8 @@ class ImageLoader2 private constructor(
       context: Application,
       bookRegistry: BookRegistryReadableType,
       coverGenerator: BookCoverGeneratorType,
-      badgeLookup: BookCoverBadgeLookupType
+      badgeLookup: BookCoverBadgeLookupType,
+      http: LSHTTPClientType
     ): ImageLoader2Type {
       this.logger.debug("Configuring Glide")
 
@@ -58,8 +64,14 @@ class ImageLoader2 private constructor(
 
       registry.prepend(
         URI::class.java,
+        GeneratedCover::class.java,
+        GeneratedCoverModelLoader.Factory(coverGenerator, glide.bitmapPool)
+      )
+
+      registry.prepend(
+        GeneratedCover::class.java,
         Bitmap::class.java,
-        GeneratedCoverModelLoader.Factory(coverGenerator)
+        GeneratedCoverDecoder(glide.bitmapPool)
       )
 
       registry.prepend(
@@ -74,17 +86,21 @@ class ImageLoader2 private constructor(
         SimplifiedAssetModelLoader.Factory(context)
       )
 
+      val httpLoaders =
+        HttpURIModelLoader.Factory(http)
+
       registry.prepend(
         URI::class.java,
         InputStream::class.java,
-        HttpURIModelLoader.Factory()
+        httpLoaders
       )
 
       return ImageLoader2(
         context.applicationContext,
         bookRegistry,
         coverGenerator,
-        badgeLookup
+        badgeLookup,
+        httpLoaders.statistics
       )
     }
   }
@@ -306,7 +322,23 @@ class ImageLoader2 private constructor(
         onFallback = onFallback
       )
 
-    val glide = Glide.with(this.appContext)
+    this.thumbnailRequest(Glide.with(this.appContext), entry, uri, width, height)
+      .listener(listener)
+      .into(imageView)
+  }
+
+  /*
+   * Thumbnail loads and prefetches must build their requests identically, or else the
+   * prefetched images will be cached under keys that loads never look up.
+   */
+
+  private fun thumbnailRequest(
+    glide: RequestManager,
+    entry: FeedEntry.FeedEntryOPDS,
+    uri: URI,
+    width: Int,
+    height: Int
+  ): RequestBuilder<Drawable> {
     var request =
       glide
         .load(uri)
@@ -316,9 +348,21 @@ class ImageLoader2 private constructor(
       request = request.override(width, height)
     }
     val badge = this.badgeLookup.badgeForEntry(entry)
-    request = request.transform(BookCoverBadgeTransform(badge))
-    request = request.listener(listener)
-    request.into(imageView)
+    return request.transform(BookCoverBadgeTransform(badge))
+  }
+
+  override fun prefetchThumbnail(
+    entry: FeedEntry.FeedEntryOPDS,
+    width: Int,
+    height: Int
+  ): AutoCloseable {
+    val uri = this.thumbnailURIOf(entry) ?: this.generateCoverURI(entry)
+    val glide = Glide.with(this.appContext)
+    val target =
+      this.thumbnailRequest(glide, entry, uri, width, height)
+        .priority(Priority.LOW)
+        .preload()
+    return AutoCloseable { glide.clear(target) }
   }
 
   override fun loadCoverInto(
@@ -6,6 +6,7 @@ import android.widget.ImageView
 import androidx.annotation.DrawableRes
 import org.nypl.simplified.accounts.api.AccountProviderDescription
 import org.nypl.simplified.feeds.api.FeedEntry
+import org.thepalaceproject.palace.images.HttpCoverFetchStatistics
 import java.net.URI
 import java.util.concurrent.CompletableFuture
 
@@ -14,6 +15,12 @@ import java.util.concurrent.CompletableFuture
  */
 
 interface ImageLoader2Type {
+  /**
+   * Statistics for the images fetched over HTTP by this loader.
+   */
+
+  val coverFetchStatistics: HttpCoverFetchStatistics
+
   /**
    * Load the account logo into the given image view.
    *
@@ -69,6 +76,25 @@ interface ImageLoader2Type {
     height: Int
   ): CompletableFuture<Unit>
 
+  /**
+   * Start loading the thumbnail for `entry` at low priority, so that a later call to
+   * [loadThumbnailInto] with the same width and height can be satisfied from memory.
+   *
+   * Must only be called from the UI thread.
+   *
+   * @param entry The feed entry
+   * @param width The width at which the thumbnail will be displayed
+   * @param height The height at which the thumbnail will be displayed
+   *
+   * @return A handle that cancels the load, or releases the loaded image, when closed
+   */
+
+  fun prefetchThumbnail(
+    entry: FeedEntry.FeedEntryOPDS,
+    width: Int,
+    height: Int
+  ): AutoCloseable
+
   /**
    * Load or generate a cover based on `entry` into the image view
    * `imageView`, at width `width` and height `height`.
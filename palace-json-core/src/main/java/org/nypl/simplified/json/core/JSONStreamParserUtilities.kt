@@ -0,0 +1,73 @@
+package org.nypl.simplified.json.core
+
+import com.fasterxml.jackson.core.JsonParser
+import com.fasterxml.jackson.core.JsonToken
+import com.fasterxml.jackson.databind.node.JsonNodeType
+
+/**
+ * Utility functions for deserializing elements from a stream of JSON tokens.
+ *
+ * The functions apply the same checks, and raise exceptions with the same messages, as the
+ * equivalent functions in [JSONParserUtilities].
+ */
+
+object JSONStreamParserUtilities {
+
+  /**
+   * @param token A token, or `null` if the end of the stream has been reached
+   * @return The type of node that a tree parser would produce for the value starting at `token`
+   */
+
+  @JvmStatic
+  fun nodeType(token: JsonToken?): JsonNodeType =
+    when (token) {
+      JsonToken.START_OBJECT -> JsonNodeType.OBJECT
+      JsonToken.START_ARRAY -> JsonNodeType.ARRAY
+      JsonToken.VALUE_STRING -> JsonNodeType.STRING
+      JsonToken.VALUE_NUMBER_INT,
+      JsonToken.VALUE_NUMBER_FLOAT -> JsonNodeType.NUMBER
+      JsonToken.VALUE_TRUE,
+      JsonToken.VALUE_FALSE -> JsonNodeType.BOOLEAN
+      JsonToken.VALUE_NULL -> JsonNodeType.NULL
+      JsonToken.VALUE_EMBEDDED_OBJECT -> JsonNodeType.POJO
+      JsonToken.END_OBJECT,
+      JsonToken.END_ARRAY,
+      JsonToken.FIELD_NAME,
+      JsonToken.NOT_AVAILABLE,
+      null -> JsonNodeType.MISSING
+    }
+
+  /**
+   * Check that the value at the current token of `parser` is an object. If it is not, the
+   * value is skipped.
+   *
+   * @param key    An optional advisory key to be used in error messages
+   * @param parser A parser
+   * @throws JSONParseException On type errors
+   */
+
+  @JvmStatic
+  @Throws(JSONParseException::class)
+  fun checkObject(
+    key: String?,
+    parser: JsonParser
+  ) {
+    val type = this.nodeType(parser.currentToken())
+    if (type != JsonNodeType.OBJECT) {
+      parser.skipChildren()
+
+      val sb = StringBuilder(128)
+      if (key != null) {
+        sb.append("Expected: A key '")
+        sb.append(key)
+        sb.append("' with a value of type Object\n")
+      } else {
+        sb.append("Expected: A value of type Object\n")
+      }
+      sb.append("Got: A value of type ")
+      sb.append(type)
+      sb.append("\n")
+      throw JSONParseException(sb.toString())
+    }
+  }
+}
@@ -0,0 +1,239 @@
+package org.nypl.simplified.json.core
+
+import com.fasterxml.jackson.core.JsonParser
+import com.fasterxml.jackson.core.JsonToken
+import com.fasterxml.jackson.databind.node.JsonNodeType
+import java.net.URI
+import java.net.URISyntaxException
+
+/**
+ * The value of the key `key` in an object being read from a stream of JSON tokens.
+ *
+ * Values are recorded as the object is read, and are checked once the entire object has been
+ * read, so that the checks happen in the same order, and the last of any duplicate keys takes
+ * effect, as when working with a tree. Scalar values are retained; objects and arrays are
+ * skipped and only their type is retained. Values are reusable, and are expected to be
+ * [clear]ed before reading each object.
+ */
+
+class JSONStreamValue(
+  val key: String
+) {
+  private var type: JsonNodeType? = null
+  private var text: String? = null
+  private var number: Number? = null
+  private var boolean: Boolean = false
+
+  /**
+   * @return `true` if a value has been read since the last call to [clear]
+   */
+
+  val isPresent: Boolean
+    get() = this.type != null
+
+  /**
+   * @return `true` if the value read since the last call to [clear] was `null`
+   */
+
+  val isNull: Boolean
+    get() = this.type == JsonNodeType.NULL
+
+  /**
+   * Forget any recorded value.
+   */
+
+  fun clear() {
+    this.type = null
+    this.text = null
+    this.number = null
+    this.boolean = false
+  }
+
+  /**
+   * Record the value at the current token of `parser`, skipping the value if it is an object
+   * or an array.
+   */
+
+  fun read(parser: JsonParser) {
+    val token = parser.currentToken()
+    this.type = JSONStreamParserUtilities.nodeType(token)
+    this.text = null
+    this.number = null
+    this.boolean = false
+
+    when (token) {
+      JsonToken.VALUE_STRING -> {
+        this.text = parser.text
+      }
+      JsonToken.VALUE_NUMBER_INT,
+      JsonToken.VALUE_NUMBER_FLOAT -> {
+        this.number = parser.numberValue
+      }
+      JsonToken.VALUE_TRUE,
+      JsonToken.VALUE_FALSE -> {
+        this.boolean = token == JsonToken.VALUE_TRUE
+      }
+      else -> {
+        parser.skipChildren()
+      }
+    }
+  }
+
+  /**
+   * Record the type of the value at the current token of `parser`, without consuming the
+   * value. This is used for objects and arrays whose contents are read separately.
+   */
+
+  fun readType(parser: JsonParser) {
+    this.type = JSONStreamParserUtilities.nodeType(parser.currentToken())
+    this.text = null
+    this.number = null
+    this.boolean = false
+  }
+
+  /**
+   * Check that the value is an object.
+   *
+   * @throws JSONParseException On type errors, or if no value is present
+   * @see JSONParserUtilities.getObject
+   */
+
+  @Throws(JSONParseException::class)
+  fun checkObject() {
+    val type = this.checkPresent()
+    if (type != JsonNodeType.OBJECT) {
+      throw this.typeError("Object", type)
+    }
+  }
+
+  /**
+   * Check that the value is an array, if a value is present.
+   *
+   * @throws JSONParseException On type errors
+   * @see JSONParserUtilities.getArrayOrNull
+   */
+
+  @Throws(JSONParseException::class)
+  fun checkArrayOrNull() {
+    val type = this.type ?: return
+    if (type != JsonNodeType.ARRAY) {
+      throw this.typeError("Array", type)
+    }
+  }
+
+  /**
+   * @return A string value
+   * @throws JSONParseException On type errors, or if no value is present
+   * @see JSONParserUtilities.getString
+   */
+
+  @Throws(JSONParseException::class)
+  fun getString(): String {
+    val type = this.checkPresent()
+    if (type != JsonNodeType.STRING) {
+      throw this.typeError("String", type)
+    }
+    return this.text!!
+  }
+
+  /**
+   * @return A string value, if one is present and is not `null`
+   * @throws JSONParseException On type errors
+   * @see JSONParserUtilities.getStringOrNull
+   */
+
+  @Throws(JSONParseException::class)
+  fun getStringOrNull(): String? =
+    if (this.type == null || this.type == JsonNodeType.NULL) {
+      null
+    } else {
+      this.getString()
+    }
+
+  /**
+   * @return A URI value
+   * @throws JSONParseException On type errors, or if no value is present
+   * @see JSONParserUtilities.getURI
+   */
+
+  @Throws(JSONParseException::class)
+  fun getURI(): URI =
+    try {
+      URI(this.getString().trim { it <= ' ' })
+    } catch (e: URISyntaxException) {
+      throw JSONParseException(e)
+    }
+
+  /**
+   * @return An integer value, if one is present
+   * @throws JSONParseException On type errors
+   * @see JSONParserUtilities.getIntegerOrNull
+   */
+
+  @Throws(JSONParseException::class)
+  fun getIntegerOrNull(): Int? {
+    val type = this.type ?: return null
+    if (type != JsonNodeType.NUMBER) {
+      throw this.typeError("Integer", type)
+    }
+    return this.number!!.toInt()
+  }
+
+  /**
+   * @return A boolean value
+   * @throws JSONParseException On type errors, or if no value is present
+   * @see JSONParserUtilities.getBoolean
+   */
+
+  @Throws(JSONParseException::class)
+  fun getBoolean(): Boolean {
+    val type = this.checkPresent()
+    if (type != JsonNodeType.BOOLEAN) {
+      throw this.typeError("Boolean", type)
+    }
+    return this.boolean
+  }
+
+  /**
+   * @return A boolean value, or `defaultValue` if no value is present
+   * @throws JSONParseException On type errors
+   * @see JSONParserUtilities.getBooleanDefault
+   */
+
+  @Throws(JSONParseException::class)
+  fun getBooleanDefault(defaultValue: Boolean): Boolean =
+    if (this.type == null) {
+      defaultValue
+    } else {
+      this.getBoolean()
+    }
+
+  private fun checkPresent(): JsonNodeType {
+    val type = this.type
+    if (type == null) {
+      val sb = StringBuilder(128)
+      sb.append("Expected: A key '")
+      sb.append(this.key)
+      sb.append("'\n")
+      sb.append("Got: nothing\n")
+      throw JSONParseException(sb.toString())
+    }
+    return type
+  }
+
+  private fun typeError(
+    expected: String,
+    received: JsonNodeType
+  ): JSONParseException {
+    val sb = StringBuilder(128)
+    sb.append("Expected: A key '")
+    sb.append(this.key)
+    sb.append("' with a value of type ")
+    sb.append(expected)
+    sb.append("\n")
+    sb.append("Got: A value of type ")
+    sb.append(received)
+    sb.append("\n")
+    return JSONParseException(sb.toString())
+  }
+}
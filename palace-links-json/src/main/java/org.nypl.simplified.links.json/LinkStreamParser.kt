@@ -0,0 +1,159 @@
+package org.nypl.simplified.links.json
+
+import com.fasterxml.jackson.core.JsonParser
+import com.fasterxml.jackson.core.JsonToken
+import one.irradia.mime.vanilla.MIMEParser
+import org.nypl.simplified.json.core.JSONParseException
+import org.nypl.simplified.json.core.JSONStreamParserUtilities
+import org.nypl.simplified.json.core.JSONStreamValue
+import org.nypl.simplified.links.Link
+import org.nypl.simplified.parser.api.ParseError
+import org.nypl.simplified.parser.api.ParseResult
+import org.slf4j.LoggerFactory
+import java.net.URI
+
+/**
+ * A parser that reads links directly from a stream of JSON tokens, without first reading them
+ * into a tree.
+ *
+ * The parser produces the same links and errors as [LinkParsing.parseLink]. Only errors in the
+ * content of links are returned as failures; errors reading the underlying stream are raised
+ * as exceptions, as they would be when reading a tree. A parser may be reused for any number
+ * of links, but is not thread-safe.
+ */
+
+class LinkStreamParser(
+  private val source: URI
+) {
+  private val logger = LoggerFactory.getLogger(LinkStreamParser::class.java)
+
+  private val templated = JSONStreamValue("templated")
+  private val relation = JSONStreamValue("rel")
+  private val type = JSONStreamValue("type")
+  private val title = JSONStreamValue("title")
+  private val width = JSONStreamValue("width")
+  private val height = JSONStreamValue("height")
+  private val duration = JSONStreamValue("duration")
+  private val bitrate = JSONStreamValue("bitrate")
+  private val href = JSONStreamValue("href")
+
+  private val values =
+    listOf(
+      this.templated,
+      this.relation,
+      this.type,
+      this.title,
+      this.width,
+      this.height,
+      this.duration,
+      this.bitrate,
+      this.href
+    )
+
+  /**
+   * Parse the link starting at the current token of `parser`. On return, the parser is
+   * positioned at the last token of the link.
+   */
+
+  fun parseLink(parser: JsonParser): ParseResult<Link> {
+    try {
+      JSONStreamParserUtilities.checkObject("", parser)
+    } catch (e: JSONParseException) {
+      return this.failure(e)
+    }
+
+    for (value in this.values) {
+      value.clear()
+    }
+
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      val name = parser.currentName()
+      parser.nextToken()
+      val value = this.values.find { value -> value.key == name }
+      if (value != null) {
+        value.read(parser)
+      } else {
+        parser.skipChildren()
+      }
+    }
+
+    return try {
+      val templated =
+        this.templated.getBooleanDefault(false)
+      val relation =
+        this.relation.getStringOrNull()
+      val mime =
+        this.type.getStringOrNull()
+          ?.let { type -> MIMEParser.parseRaisingException(type) }
+
+      val title =
+        this.title.getStringOrNull()
+      val width =
+        this.width.getIntegerOrNull()
+      val height =
+        this.height.getIntegerOrNull()
+      val duration =
+        this.duration.getStringOrNull()?.toDouble()
+      val bitrate =
+        this.bitrate.getStringOrNull()?.toDouble()
+
+      ParseResult.Success(
+        warnings = listOf(),
+        result =
+          if (templated) {
+            Link.LinkTemplated(
+              href = this.href.getString(),
+              type = mime,
+              relation = relation,
+              title = title,
+              width = width,
+              height = height,
+              duration = duration,
+              bitrate = bitrate
+            )
+          } else {
+            Link.LinkBasic(
+              href = this.href.getURI(),
+              type = mime,
+              relation = relation,
+              title = title,
+              width = width,
+              height = height,
+              duration = duration,
+              bitrate = bitrate
+            )
+          }
+      )
+    } catch (e: Exception) {
+      this.failure(e)
+    }
+  }
+
+  /**
+   * Parse the array of links starting at the current token of `parser`. On return, the parser
+   * is positioned at the end of the array.
+   */
+
+  fun parseLinks(parser: JsonParser): List<ParseResult<Link>> {
+    val results = mutableListOf<ParseResult<Link>>()
+    while (parser.nextToken() != JsonToken.END_ARRAY) {
+      results.add(this.parseLink(parser))
+    }
+    return results.toList()
+  }
+
+  private fun failure(e: Exception): ParseResult<Link> {
+    this.logger.debug("error parsing link object: ", e)
+    return ParseResult.Failure(
+      warnings = listOf(),
+      errors =
+        listOf(
+          ParseError(
+            source = this.source,
+            message = "Could not parse 'link' object: " + e.message,
+            exception = e
+          )
+        )
+    )
+  }
+}
@@ -1,8 +1,11 @@
 package org.nypl.simplified.opds.auth_document
 
+import com.fasterxml.jackson.core.JsonParser
+import com.fasterxml.jackson.core.JsonToken
 import com.fasterxml.jackson.databind.JsonNode
 import com.fasterxml.jackson.databind.ObjectMapper
 import com.fasterxml.jackson.databind.node.ArrayNode
+import com.fasterxml.jackson.databind.node.MissingNode
 import com.fasterxml.jackson.databind.node.ObjectNode
 import org.nypl.simplified.announcements.Announcement
 import org.nypl.simplified.announcements.AnnouncementJSON
@@ -21,12 +24,47 @@ import java.io.InputStream
 import java.net.URI
 import java.util.Locale
 
+/**
+ * An authentication document parser that streams the document rather than reading it into a
+ * tree.
+ *
+ * Unknown fields are skipped without being read into memory, and the elements of the
+ * `authentication` and `links` arrays are streamed and interpreted one at a time. Only the
+ * fields that are interpreted are collected, into small trees, so that they are interpreted
+ * exactly as they would be if the whole document had been read into a tree. The parser
+ * produces the same documents, errors and warnings, in the same order, as a parser that
+ * reads the whole document into a tree.
+ *
+ * The interpreted fields are still read with `readValueAsTree`, so the savings are limited
+ * to the fields that are skipped and to the outer arrays that are no longer held in memory
+ * whole. Documents that consist mostly of interpreted fields cost about as much to parse as
+ * they would with a tree parser.
+ */
+
 internal class AuthenticationDocumentParser(
   private val mapper: ObjectMapper,
   private val uri: URI,
   private val stream: InputStream,
   private val warningsAsErrors: Boolean
 ) : AuthenticationDocumentParserType {
+
+  companion object {
+
+    /**
+     * The fields of link objects that are interpreted.
+     */
+
+    private val LINK_FIELDS =
+      setOf("bitrate", "duration", "height", "href", "rel", "templated", "title", "type", "width")
+
+    /**
+     * The fields of authentication objects that are interpreted.
+     */
+
+    private val AUTHENTICATION_FIELDS =
+      setOf("description", "inputs", "labels", "links", "type")
+  }
+
   override fun close() {
     this.stream.close()
   }
@@ -72,61 +110,6 @@ internal class AuthenticationDocumentParser(
     )
   }
 
-  override fun parse(): ParseResult<AuthenticationDocument> {
-    return try {
-      val tree = this.mapper.readTree(this.stream)
-      if (tree == null) {
-        this.publishErrorForString("Document is empty")
-        return ParseResult.Failure(warnings = this.warnings.toList(), errors = this.errors.toList())
-      }
-
-      val root =
-        JSONParserUtilities.checkObject(null, tree)
-      val id =
-        JSONParserUtilities.getURI(root, "id")
-      val title =
-        JSONParserUtilities.getString(root, "title")
-      val description =
-        JSONParserUtilities.getStringOrNull(root, "description")
-      val mainColor =
-        JSONParserUtilities.getStringOrNull(root, "color_scheme") ?: "red"
-      val features =
-        JSONParserUtilities
-          .getObjectOrNull(root, "features")
-          ?.let { obj -> parseFeatures(obj) }
-          ?: AuthenticationObjectNYPLFeatures(setOf(), setOf())
-
-      val announcements =
-        this.parseAnnouncements(root)
-      val authentication =
-        this.parseAuthentications(root)
-      val links =
-        this.parseLinks(root)
-
-      if (this.errors.isEmpty()) {
-        return ParseResult.Success(
-          warnings = this.warnings.toList(),
-          result =
-            AuthenticationDocument(
-              authentication = authentication,
-              description = description,
-              features = features,
-              id = id,
-              links = links,
-              mainColor = mainColor,
-              title = title,
-              announcements = announcements
-            )
-        )
-      } else {
-        ParseResult.Failure(warnings = this.warnings.toList(), errors = this.errors.toList())
-      }
-    } catch (e: Exception) {
-      this.publishErrorForException(e)
-      ParseResult.Failure(warnings = this.warnings.toList(), errors = this.errors.toList())
-    }
-  }
-
   private fun parseAnnouncements(root: ObjectNode): List<Announcement> =
     try {
       val announcements = JSONParserUtilities.getArrayOrNull(root, "announcements")
@@ -192,23 +175,22 @@ internal class AuthenticationDocumentParser(
       return listOf()
     }
 
-    return linksNodes
-      .mapNotNull { node -> LinkParsing.parseLink(this.uri, node) }
-      .mapNotNull { result ->
-        when (result) {
-          is ParseResult.Success -> {
-            result.warnings.forEach { warn -> this.publishWarning(warn) }
-            result.result
-          }
+    return linksNodes.mapNotNull(this::parseLink)
+  }
 
-          is ParseResult.Failure -> {
-            result.warnings.forEach { warn -> this.publishWarning(warn) }
-            result.errors.forEach { error -> this.publishWarning(error.toWarning()) }
-            null
-          }
-        }
+  private fun parseLink(node: JsonNode): Link? =
+    when (val result = LinkParsing.parseLink(this.uri, node)) {
+      is ParseResult.Success -> {
+        result.warnings.forEach { warn -> this.publishWarning(warn) }
+        result.result
       }
-  }
+
+      is ParseResult.Failure -> {
+        result.warnings.forEach { warn -> this.publishWarning(warn) }
+        result.errors.forEach { error -> this.publishWarning(error.toWarning()) }
+        null
+      }
+    }
 
   private fun parseAuthentications(tree: ObjectNode): List<AuthenticationObject> {
     val authenticationNodes =
@@ -222,6 +204,9 @@ internal class AuthenticationDocumentParser(
     return authenticationNodes.mapNotNull { node -> this.parseAuthentication(node) }
   }
 
+  private fun failure(): ParseResult<AuthenticationDocument> =
+    ParseResult.Failure(warnings = this.warnings.toList(), errors = this.errors.toList())
+
   private fun parseAuthentication(node: JsonNode): AuthenticationObject? =
     try {
       val root =
@@ -308,4 +293,224 @@ internal class AuthenticationDocumentParser(
     }
     return values.toMap()
   }
+
+  /**
+   * The result of parsing part of a document, along with the errors and warnings produced
+   * while doing so. The errors and warnings are held back so that they can be published in
+   * document order, as if the whole document had been read into a tree.
+   */
+
+  private class Section<T>(
+    val value: T,
+    val errors: List<ParseError>,
+    val warnings: List<ParseWarning>
+  )
+
+  override fun parse(): ParseResult<AuthenticationDocument> =
+    try {
+      this.mapper.createParser(this.stream).use { parser ->
+        this.parseDocument(parser)
+      }
+    } catch (e: Exception) {
+      /*
+       * A document that cannot be read, or that is missing any of the required scalar
+       * fields, fails with exactly one error.
+       */
+
+      this.errors.clear()
+      this.warnings.clear()
+      this.publishErrorForException(e)
+      this.failure()
+    }
+
+  private fun parseDocument(parser: JsonParser): ParseResult<AuthenticationDocument> {
+    val token = parser.nextToken()
+    if (token != JsonToken.START_OBJECT) {
+      val node: JsonNode =
+        if (token == null) {
+          MissingNode.getInstance()
+        } else {
+          parser.readValueAsTree()
+        }
+      JSONParserUtilities.checkObject(null, node)
+    }
+
+    val fields = this.mapper.createObjectNode()
+    var authenticationSection: Section<List<AuthenticationObject>>? = null
+    var linksSection: Section<List<Link>>? = null
+
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      val name = parser.currentName()
+      val valueToken = parser.nextToken()
+      when (name) {
+        "authentication" -> {
+          authenticationSection =
+            if (valueToken == JsonToken.START_ARRAY) {
+              fields.remove(name)
+              this.section {
+                this.parseArray(parser) { p ->
+                  this.parseAuthentication(this.readAuthentication(p))
+                }
+              }
+            } else {
+              this.readField(parser, name, fields)
+              null
+            }
+        }
+
+        "links" -> {
+          linksSection =
+            if (valueToken == JsonToken.START_ARRAY) {
+              fields.remove(name)
+              this.section {
+                this.parseArray(parser) { p ->
+                  this.parseLink(this.readObject(p, LINK_FIELDS))
+                }
+              }
+            } else {
+              this.readField(parser, name, fields)
+              null
+            }
+        }
+
+        "id", "title", "description", "color_scheme", "features", "announcements" -> {
+          this.readField(parser, name, fields)
+        }
+
+        else -> {
+          parser.skipChildren()
+        }
+      }
+    }
+
+    val id =
+      JSONParserUtilities.getURI(fields, "id")
+    val title =
+      JSONParserUtilities.getString(fields, "title")
+    val description =
+      JSONParserUtilities.getStringOrNull(fields, "description")
+    val mainColor =
+      JSONParserUtilities.getStringOrNull(fields, "color_scheme") ?: "red"
+    val features =
+      JSONParserUtilities
+        .getObjectOrNull(fields, "features")
+        ?.let { obj -> parseFeatures(obj) }
+        ?: AuthenticationObjectNYPLFeatures(setOf(), setOf())
+
+    val announcements =
+      this.parseAnnouncements(fields)
+    val authentication =
+      authenticationSection?.let(this::publish) ?: this.parseAuthentications(fields)
+    val links =
+      linksSection?.let(this::publish) ?: this.parseLinks(fields)
+
+    return if (this.errors.isEmpty()) {
+      ParseResult.Success(
+        warnings = this.warnings.toList(),
+        result =
+          AuthenticationDocument(
+            authentication = authentication,
+            description = description,
+            features = features,
+            id = id,
+            links = links,
+            mainColor = mainColor,
+            title = title,
+            announcements = announcements
+          )
+      )
+    } else {
+      this.failure()
+    }
+  }
+
+  private fun readField(
+    parser: JsonParser,
+    name: String,
+    fields: ObjectNode
+  ) {
+    fields.set<JsonNode>(name, parser.readValueAsTree<JsonNode>())
+  }
+
+  /**
+   * Parse the elements of the array at the current token one at a time.
+   */
+
+  private fun <T> parseArray(
+    parser: JsonParser,
+    parseElement: (JsonParser) -> T?
+  ): List<T> {
+    val results = mutableListOf<T>()
+    while (parser.nextToken() != JsonToken.END_ARRAY) {
+      val result = parseElement(parser)
+      if (result != null) {
+        results.add(result)
+      }
+    }
+    return results.toList()
+  }
+
+  /**
+   * Read the value at the current token. If the value is an object, only the given fields
+   * are read, and the values of any other fields are skipped. Other values are read whole.
+   */
+
+  private fun readObject(
+    parser: JsonParser,
+    fields: Set<String>,
+    readField: (JsonParser, String) -> JsonNode = { p, _ -> p.readValueAsTree() }
+  ): JsonNode {
+    if (parser.currentToken() != JsonToken.START_OBJECT) {
+      return parser.readValueAsTree()
+    }
+
+    val node = this.mapper.createObjectNode()
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      val name = parser.currentName()
+      parser.nextToken()
+      if (name in fields) {
+        node.set<JsonNode>(name, readField(parser, name))
+      } else {
+        parser.skipChildren()
+      }
+    }
+    return node
+  }
+
+  /**
+   * Read the authentication object at the current token, streaming the elements of its
+   * `links` array.
+   */
+
+  private fun readAuthentication(parser: JsonParser): JsonNode =
+    this.readObject(parser, AUTHENTICATION_FIELDS) { p, name ->
+      if (name == "links" && p.currentToken() == JsonToken.START_ARRAY) {
+        val links = this.mapper.createArrayNode()
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+          links.add(this.readObject(p, LINK_FIELDS))
+        }
+        links
+      } else {
+        p.readValueAsTree()
+      }
+    }
+
+  private fun <T> section(f: () -> T): Section<T> {
+    val errorsStart = this.errors.size
+    val warningsStart = this.warnings.size
+    val value = f()
+
+    val errorsNew = this.errors.subList(errorsStart, this.errors.size)
+    val warningsNew = this.warnings.subList(warningsStart, this.warnings.size)
+    val section = Section(value, errorsNew.toList(), warningsNew.toList())
+    errorsNew.clear()
+    warningsNew.clear()
+    return section
+  }
+
+  private fun <T> publish(section: Section<T>): T {
+    this.errors.addAll(section.errors)
+    this.warnings.addAll(section.warnings)
+    return section.value
+  }
 }
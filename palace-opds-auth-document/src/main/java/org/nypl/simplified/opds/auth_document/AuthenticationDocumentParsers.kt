@@ -6,12 +6,26 @@ import org.nypl.simplified.opds.auth_document.api.AuthenticationDocumentParsersT
 import java.io.InputStream
 import java.net.URI
 
+/**
+ * A provider of streaming authentication document parsers.
+ */
+
 class AuthenticationDocumentParsers : AuthenticationDocumentParsersType {
-  private val mapper = ObjectMapper()
+
+  companion object {
+
+    /**
+     * The mapper shared by all authentication document parsers. Mappers are expensive to
+     * create, and are thread-safe once configured.
+     */
+
+    internal val mapper: ObjectMapper =
+      ObjectMapper()
+  }
 
   override fun createParser(
     uri: URI,
     stream: InputStream,
     warningsAsErrors: Boolean
-  ): AuthenticationDocumentParserType = AuthenticationDocumentParser(this.mapper, uri, stream, warningsAsErrors)
+  ): AuthenticationDocumentParserType = AuthenticationDocumentParser(mapper, uri, stream, warningsAsErrors)
 }
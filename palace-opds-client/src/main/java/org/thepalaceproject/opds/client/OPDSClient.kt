@@ -31,6 +31,7 @@ import java.io.IOException
 import java.net.URI
 import java.util.NoSuchElementException
 import java.util.SortedMap
+import java.util.concurrent.CancellationException
 import java.util.concurrent.CompletableFuture
 import java.util.concurrent.ConcurrentLinkedDeque
 import java.util.concurrent.ConcurrentSkipListMap
@@ -287,6 +288,43 @@ class OPDSClient private constructor(
     private val closed =
       AtomicBoolean(false)
 
+    /*
+     * The feed fetch that the handler is currently waiting on, if any. Closing the handler
+     * cancels the fetch so that a handler the user has navigated away from stops working.
+     */
+
+    @Volatile
+    private var fetchInFlight: CompletableFuture<FeedLoaderResult>? = null
+
+    private fun fetch(
+      accountID: AccountID,
+      uri: URI,
+      credentials: AccountAuthenticationCredentials?,
+      method: String
+    ): FeedLoaderResult {
+      if (this.closed.get()) {
+        throw CancellationException("Request handler is closed.")
+      }
+
+      val future =
+        this@OPDSClient.parameters.feedLoader.fetchURI(
+          accountID = accountID,
+          uri = uri,
+          credentials = credentials,
+          method = method
+        )
+
+      this.fetchInFlight = future
+      try {
+        if (this.closed.get()) {
+          future.cancel(true)
+        }
+        return future.get()
+      } finally {
+        this.fetchInFlight = null
+      }
+    }
+
     override fun run() {
       try {
         if (this.closed.get()) {
@@ -325,14 +363,12 @@ class OPDSClient private constructor(
       method: String
     ): Feed.FeedWithoutGroups {
       val feedResult =
-        this@OPDSClient
-          .parameters.feedLoader
-          .fetchURI(
-            accountID = accountID,
-            uri = uri,
-            credentials = credentials,
-            method = method
-          ).get()
+        this.fetch(
+          accountID = accountID,
+          uri = uri,
+          credentials = credentials,
+          method = method
+        )
 
       return when (feedResult) {
         is FeedLoaderFailedAuthentication -> {
@@ -387,6 +423,16 @@ class OPDSClient private constructor(
         facetPath.removeAt(0)
         for (facet in facetPath) {
           val nextFacet = findEquivalentFacet(facet, feedNow)
+
+          /*
+           * If the facet is already active in the current feed, then the current feed is
+           * already the feed that the facet would lead to.
+           */
+
+          if (nextFacet.isActive) {
+            continue
+          }
+
           feedNow =
             this.loadSingleFeedWithoutGroups(
               request.accountID,
@@ -409,7 +455,13 @@ class OPDSClient private constructor(
           )
         this.state.set(LoadedFeedWithoutGroups(request, this.handleUngrouped))
         this.publishedEntriesGrouped.set(listOf())
+      } catch (e: CancellationException) {
+        this@OPDSClient.logger.debug("Composite facet resolution cancelled")
       } catch (e: Exception) {
+        if (this.closed.get()) {
+          this@OPDSClient.logger.debug("Composite facet resolution cancelled: ", e)
+          return
+        }
         this.state.set(
           Error(
             message = this@OPDSClient.compositeFacetException(request, e),
@@ -443,15 +495,20 @@ class OPDSClient private constructor(
     }
 
     private fun runRemoteFeed(request: OPDSClientRequest.NewFeed) {
-      val future0 =
-        this@OPDSClient.parameters.feedLoader.fetchURI(
-          accountID = request.accountID,
-          uri = request.uri,
-          credentials = request.credentials,
-          method = request.method
-        )
+      val result =
+        try {
+          this.fetch(
+            accountID = request.accountID,
+            uri = request.uri,
+            credentials = request.credentials,
+            method = request.method
+          )
+        } catch (e: CancellationException) {
+          this@OPDSClient.logger.debug("Feed request cancelled: {}", request.uri)
+          return
+        }
 
-      when (val result = future0.get()) {
+      when (result) {
         is FeedLoaderFailedAuthentication -> {
           this.state.set(
             Error(
@@ -548,7 +605,7 @@ class OPDSClient private constructor(
 
     override fun close() {
       if (this.closed.compareAndSet(false, true)) {
-        // Nothing
+        this.fetchInFlight?.cancel(true)
       }
     }
   }
@@ -618,7 +675,7 @@ class OPDSClient private constructor(
       }
 
       CLEAR_HISTORY -> {
-        this.requestStack.clear()
+        this.requestStackClear()
         this.requestPush(this.RequestHandler(request))
       }
     }
@@ -634,10 +691,17 @@ class OPDSClient private constructor(
 
     this.topmostHandlerSubscriptions.close()
     this.topmostHandlerSubscriptions = CloseableCollection.create()
-    this.requestStack.clear()
+    this.requestStackClear()
     this.stateSource.set(Initial)
   }
 
+  private fun requestStackClear() {
+    while (true) {
+      val handler = this.requestStack.pollFirst() ?: break
+      handler.close()
+    }
+  }
+
   private fun requestPop() {
     if (this.requestStack.size < 2) {
       return
@@ -646,7 +710,7 @@ class OPDSClient private constructor(
     this.topmostHandlerSubscriptions.close()
     this.topmostHandlerSubscriptions = CloseableCollection.create()
 
-    this.requestStack.pop()
+    this.requestStack.pop().close()
 
     val newTopmost = this.requestStack.peek()!!
     this.topmostHandlerSubscriptions.add(
@@ -669,7 +733,7 @@ class OPDSClient private constructor(
     this.topmostHandlerSubscriptions = CloseableCollection.create()
 
     try {
-      this.requestStack.removeFirst()
+      this.requestStack.removeFirst().close()
     } catch (_: NoSuchElementException) {
       // We don't care if the stack was empty.
     }
@@ -1,13 +1,17 @@
 package org.nypl.simplified.patron
 
+import com.fasterxml.jackson.core.JsonParser
+import com.fasterxml.jackson.core.JsonToken
 import com.fasterxml.jackson.databind.JsonNode
 import com.fasterxml.jackson.databind.ObjectMapper
-import com.fasterxml.jackson.databind.node.NullNode
 import com.fasterxml.jackson.databind.node.ObjectNode
 import org.joda.time.format.ISODateTimeFormat
 import org.nypl.simplified.json.core.JSONParserUtilities
+import org.nypl.simplified.json.core.JSONStreamParserUtilities
+import org.nypl.simplified.json.core.JSONStreamValue
 import org.nypl.simplified.links.Link
 import org.nypl.simplified.links.json.LinkParsing
+import org.nypl.simplified.links.json.LinkStreamParser
 import org.nypl.simplified.parser.api.ParseError
 import org.nypl.simplified.parser.api.ParseResult
 import org.nypl.simplified.parser.api.ParseWarning
@@ -21,7 +25,14 @@ import java.io.InputStream
 import java.net.URI
 
 /**
- * A patron user profile parser.
+ * A patron user profile parser that streams the document rather than reading it into a tree.
+ *
+ * Links are read directly from the token stream, and the remaining scalar fields are recorded
+ * as they are encountered and checked once the document has been read. The rarely present
+ * `drm` array is small, and is still read into a tree with `readValueAsTree`, so profiles
+ * that carry DRM information are only partly streamed. The parser produces the same
+ * profiles, errors and warnings, in the same order, as a parser that reads the whole
+ * document into a tree.
  */
 
 internal class PatronUserProfileParser(
@@ -30,6 +41,157 @@ internal class PatronUserProfileParser(
   private val stream: InputStream,
   private val warningsAsErrors: Boolean
 ) : PatronUserProfileParserType {
+
+  private val linkParser =
+    LinkStreamParser(uri)
+  private val links =
+    JSONStreamValue("links")
+  private val settings =
+    JSONStreamValue("settings")
+  private val synchronizeAnnotations =
+    JSONStreamValue("simplified:synchronize_annotations")
+  private val authorizationIdentifier =
+    JSONStreamValue("simplified:authorization_identifier")
+  private val authorizationExpires =
+    JSONStreamValue("simplified:authorization_expires")
+
+  private var linkResults: List<ParseResult<Link>> = listOf()
+
+  override fun parse(): ParseResult<PatronUserProfile> =
+    try {
+      this.mapper.factory.createParser(this.stream).use { parser ->
+        this.parseDocument(parser)
+      }
+    } catch (e: Exception) {
+      /*
+       * A document that cannot be read, or whose links are not an array, fails with exactly
+       * one error.
+       */
+
+      this.errors.clear()
+      this.warnings.clear()
+      this.publishErrorForException(e)
+      this.failure()
+    }
+
+  private fun parseDocument(parser: JsonParser): ParseResult<PatronUserProfile> {
+    parser.nextToken()
+    JSONStreamParserUtilities.checkObject(null, parser)
+
+    val fields = this.mapper.createObjectNode()
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      val name = parser.currentName()
+      val valueToken = parser.nextToken()
+      when (name) {
+        "links" -> {
+          if (valueToken == JsonToken.START_ARRAY) {
+            this.links.readType(parser)
+            this.linkResults = this.linkParser.parseLinks(parser)
+          } else {
+            this.links.read(parser)
+            this.linkResults = listOf()
+          }
+        }
+
+        "settings" -> {
+          this.synchronizeAnnotations.clear()
+          if (valueToken == JsonToken.START_OBJECT) {
+            this.settings.readType(parser)
+            this.parseSettingsFields(parser)
+          } else {
+            this.settings.read(parser)
+          }
+        }
+
+        "simplified:authorization_identifier" -> {
+          this.authorizationIdentifier.read(parser)
+        }
+
+        "simplified:authorization_expires" -> {
+          this.authorizationExpires.read(parser)
+        }
+
+        "drm" -> {
+          fields.set<JsonNode>(name, parser.readValueAsTree<JsonNode>())
+        }
+
+        else -> {
+          parser.skipChildren()
+        }
+      }
+    }
+
+    this.links.checkArrayOrNull()
+    val links =
+      this.linkResults.mapNotNull(this::publishLink)
+    val settings =
+      this.parseSettings()
+    val authorization =
+      this.parseAuthorization()
+    val drm =
+      this.parseDRMs(fields, links)
+
+    return if (this.errors.isEmpty()) {
+      ParseResult.Success(
+        warnings = this.warnings.toList(),
+        result =
+          PatronUserProfile(
+            settings = settings,
+            links = links,
+            drm = drm,
+            authorization = authorization
+          )
+      )
+    } else {
+      this.failure()
+    }
+  }
+
+  private fun parseSettingsFields(parser: JsonParser) {
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      val name = parser.currentName()
+      parser.nextToken()
+      if (name == this.synchronizeAnnotations.key) {
+        this.synchronizeAnnotations.read(parser)
+      } else {
+        parser.skipChildren()
+      }
+    }
+  }
+
+  private fun parseAuthorization(): PatronAuthorization? =
+    try {
+      val identifier =
+        this.authorizationIdentifier.getString()
+      val expires =
+        this.authorizationExpires
+          .getStringOrNull()
+          ?.let { text -> ISODateTimeFormat.dateTimeParser().parseDateTime(text) }
+          ?.let { time -> time.toInstant() }
+      PatronAuthorization(identifier, expires)
+    } catch (e: Exception) {
+      this.publishErrorForException(e)
+      null
+    }
+
+  private fun parseSettings(): PatronSettings {
+    return try {
+      this.settings.checkObject()
+
+      val synchronizeAnnotations =
+        if (!this.synchronizeAnnotations.isPresent || this.synchronizeAnnotations.isNull) {
+          false
+        } else {
+          this.synchronizeAnnotations.getBoolean()
+        }
+
+      PatronSettings(synchronizeAnnotations = synchronizeAnnotations)
+    } catch (e: Exception) {
+      this.publishErrorForException(e)
+      PatronSettings(synchronizeAnnotations = false)
+    }
+  }
+
   override fun close() {
     this.stream.close()
   }
@@ -86,44 +248,26 @@ internal class PatronUserProfileParser(
     )
   }
 
-  override fun parse(): ParseResult<PatronUserProfile> {
-    return try {
-      val tree = this.mapper.readTree(this.stream)
-      if (tree == null) {
-        this.publishErrorForString("Document is empty")
-        return ParseResult.Failure(warnings = this.warnings.toList(), errors = this.errors.toList())
+  private fun failure(): ParseResult.Failure<PatronUserProfile> =
+    ParseResult.Failure(warnings = this.warnings.toList(), errors = this.errors.toList())
+
+  /**
+   * Publish the warnings and errors of a parsed link, returning the link if there is one.
+   */
+
+  private fun publishLink(result: ParseResult<Link>): Link? =
+    when (result) {
+      is ParseResult.Failure -> {
+        this.warnings.addAll(result.warnings)
+        this.errors.addAll(result.errors)
+        null
       }
 
-      val root =
-        JSONParserUtilities.checkObject(null, tree)
-      val links =
-        this.parseLinks(root)
-      val settings =
-        this.parseSettings(root)
-      val authorization =
-        this.parseAuthorization(root)
-      val drm =
-        this.parseDRMs(root, links)
-
-      if (this.errors.isEmpty()) {
-        return ParseResult.Success(
-          warnings = this.warnings.toList(),
-          result =
-            PatronUserProfile(
-              settings = settings,
-              links = links,
-              drm = drm,
-              authorization = authorization
-            )
-        )
-      } else {
-        ParseResult.Failure(warnings = this.warnings.toList(), errors = this.errors.toList())
+      is ParseResult.Success -> {
+        this.warnings.addAll(result.warnings)
+        result.result
       }
-    } catch (e: Exception) {
-      this.publishErrorForException(e)
-      ParseResult.Failure(warnings = this.warnings.toList(), errors = this.errors.toList())
     }
-  }
 
   private fun parseLinks(root: ObjectNode): List<Link> {
     val linksNode =
@@ -132,17 +276,7 @@ internal class PatronUserProfileParser(
 
     val results = mutableListOf<Link>()
     for (node in linksNode) {
-      when (val result = LinkParsing.parseLink(this.uri, node)) {
-        is ParseResult.Failure -> {
-          this.warnings.addAll(result.warnings)
-          this.errors.addAll(result.errors)
-        }
-
-        is ParseResult.Success -> {
-          this.warnings.addAll(result.warnings)
-          results.add(result.result)
-        }
-      }
+      this.publishLink(LinkParsing.parseLink(this.uri, node))?.let(results::add)
     }
     return results.toList()
   }
@@ -216,41 +350,4 @@ internal class PatronUserProfileParser(
       deviceManagerURI = deviceManagerURI
     )
   }
-
-  private fun parseAuthorization(root: ObjectNode): PatronAuthorization? =
-    try {
-      val identifier =
-        JSONParserUtilities.getString(root, "simplified:authorization_identifier")
-      val expires =
-        JSONParserUtilities
-          .getStringOrNull(root, "simplified:authorization_expires")
-          ?.let { text -> ISODateTimeFormat.dateTimeParser().parseDateTime(text) }
-          ?.let { time -> time.toInstant() }
-      PatronAuthorization(identifier, expires)
-    } catch (e: Exception) {
-      this.publishErrorForException(e)
-      null
-    }
-
-  private fun parseSettings(root: ObjectNode): PatronSettings {
-    return try {
-      val settingsRoot = JSONParserUtilities.getObject(root, "settings")
-
-      val synchronizeAnnotations =
-        when (settingsRoot["simplified:synchronize_annotations"]) {
-          is NullNode, null -> {
-            false
-          }
-
-          else -> {
-            JSONParserUtilities.getBoolean(settingsRoot, "simplified:synchronize_annotations")
-          }
-        }
-
-      return PatronSettings(synchronizeAnnotations = synchronizeAnnotations)
-    } catch (e: Exception) {
-      this.publishErrorForException(e)
-      PatronSettings(synchronizeAnnotations = false)
-    }
-  }
 }
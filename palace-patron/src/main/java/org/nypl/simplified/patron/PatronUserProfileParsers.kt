@@ -7,15 +7,26 @@ import java.io.InputStream
 import java.net.URI
 
 /**
- * The default provider of patron user profile parsers.
+ * The default provider of patron user profile parsers. The parsers stream the document rather
+ * than reading it into a tree.
  */
 
 class PatronUserProfileParsers : PatronUserProfileParsersType {
-  private val mapper = ObjectMapper()
+
+  companion object {
+
+    /**
+     * The mapper shared by all patron user profile parsers. Its factory is used to create the
+     * underlying token parsers.
+     */
+
+    internal val mapper: ObjectMapper =
+      ObjectMapper()
+  }
 
   override fun createParser(
     uri: URI,
     stream: InputStream,
     warningsAsErrors: Boolean
-  ): PatronUserProfileParserType = PatronUserProfileParser(this.mapper, uri, stream, warningsAsErrors)
+  ): PatronUserProfileParserType = PatronUserProfileParser(mapper, uri, stream, warningsAsErrors)
 }
@@ -29,6 +29,8 @@ android {
 dependencies {
     coreLibraryDesugaring(libs.android.desugaring)
 
+    implementation(project(":palace-taskrecorder-api"))
+
     implementation(libs.androidx.core)
     implementation(libs.commons.compress)
     implementation(libs.commons.io)
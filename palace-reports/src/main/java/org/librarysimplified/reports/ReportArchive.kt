@@ -0,0 +1,34 @@
+package org.librarysimplified.reports
+
+import java.io.File
+
+/**
+ * A completed report archive.
+ */
+
+data class ReportArchive(
+
+  /**
+   * The archive file.
+   */
+
+  val file: File,
+
+  /**
+   * The number of files in the archive.
+   */
+
+  val files: Int,
+
+  /**
+   * The number of files in the archive that were truncated.
+   */
+
+  val filesTruncated: Int,
+
+  /**
+   * The number of files that were too large to include in the archive.
+   */
+
+  val filesOmitted: Int
+)
@@ -0,0 +1,312 @@
+package org.librarysimplified.reports
+
+import org.apache.commons.compress.archivers.zip.DefaultBackingStoreSupplier
+import org.apache.commons.compress.archivers.zip.ParallelScatterZipCreator
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream
+import org.apache.commons.compress.parallel.InputStreamSupplier
+import org.slf4j.LoggerFactory
+import java.io.ByteArrayInputStream
+import java.io.File
+import java.io.FileInputStream
+import java.io.FilterInputStream
+import java.io.IOException
+import java.io.InputStream
+import java.io.SequenceInputStream
+import java.io.UncheckedIOException
+import java.util.concurrent.Executors
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.zip.ZipEntry
+
+/**
+ * A builder of report archives.
+ *
+ * Files are read and compressed in parallel on a pool of threads, and are then written into
+ * a single zip archive. Files that are already compressed are stored rather than compressed
+ * again. Uncompressed files larger than the maximum file size are truncated to their last
+ * `maximumFileSize` bytes, as the end of a log is usually the part of interest; compressed
+ * files larger than the maximum size are omitted, as truncating them would make them
+ * unreadable. The archive is written to a temporary file that replaces the output file
+ * only once the archive is complete.
+ */
+
+class ReportArchiveBuilder private constructor(
+  private val threads: Int,
+  private val maximumFileSize: Long
+) {
+
+  private val logger =
+    LoggerFactory.getLogger(ReportArchiveBuilder::class.java)
+
+  companion object {
+
+    /**
+     * The default maximum size of a file in a report.
+     */
+
+    const val MAXIMUM_FILE_SIZE_DEFAULT: Long =
+      4_000_000L
+
+    private val STORED_EXTENSIONS =
+      setOf("7z", "bz2", "epub", "gz", "jpeg", "jpg", "m4a", "mp3", "mp4", "png", "webp", "xz", "zip")
+
+    /**
+     * Create a new report archive builder.
+     *
+     * @param threads The number of threads used to compress files
+     * @param maximumFileSize The maximum number of bytes of each file included in a report
+     */
+
+    fun create(
+      threads: Int = Runtime.getRuntime().availableProcessors().coerceIn(1, 4),
+      maximumFileSize: Long = MAXIMUM_FILE_SIZE_DEFAULT
+    ): ReportArchiveBuilder {
+      require(threads > 0) { "Thread count must be positive" }
+      require(maximumFileSize > 0L) { "Maximum file size must be positive" }
+      return ReportArchiveBuilder(threads, maximumFileSize)
+    }
+  }
+
+  private data class Source(
+    val file: File,
+    val name: String,
+    val size: Long,
+    val stored: Boolean
+  )
+
+  /**
+   * Build an archive of the given files and directories. Directories are included
+   * recursively, with entries named by their path relative to the parent of the directory.
+   * The function blocks until the archive has been written, and `onProgress` is called from
+   * the compression threads as each file is completed.
+   */
+
+  @Throws(IOException::class)
+  fun build(
+    sources: List<File>,
+    outputFile: File,
+    onProgress: (ReportArchiveProgress) -> Unit = {}
+  ): ReportArchive {
+    val files = mutableListOf<Source>()
+    for (source in sources) {
+      this.collect(source, source.name, files)
+    }
+
+    val included =
+      files.filter { file -> !file.stored || file.size <= this.maximumFileSize }
+    val omitted =
+      files.size - included.size
+    val truncated =
+      included.count { file -> file.size > this.maximumFileSize }
+    val bytesTotal =
+      included.sumOf { file -> this.sizeOf(file) }
+
+    this.logger.debug(
+      "building report archive: {} files ({} truncated, {} omitted), {} bytes",
+      included.size,
+      truncated,
+      omitted,
+      bytesTotal
+    )
+
+    val progress = ProgressTracker(included.size, bytesTotal, onProgress)
+    val directory = outputFile.absoluteFile.parentFile
+    directory.mkdirs()
+
+    val pool = Executors.newFixedThreadPool(this.threads, this.threadFactory())
+    val temporary = File(directory, outputFile.name + ".tmp")
+    try {
+      val creator = ParallelScatterZipCreator(pool, DefaultBackingStoreSupplier(directory.toPath()))
+      for (file in included) {
+        val entry = ZipArchiveEntry(file.name)
+        entry.method = if (file.stored) ZipEntry.STORED else ZipEntry.DEFLATED
+        entry.time = file.file.lastModified()
+        creator.addArchiveEntry(entry, this.supplierOf(file, progress))
+      }
+
+      ZipArchiveOutputStream(temporary).use { output ->
+        creator.writeTo(output)
+      }
+    } catch (e: IOException) {
+      temporary.delete()
+      throw e
+    } catch (e: InterruptedException) {
+      temporary.delete()
+      Thread.currentThread().interrupt()
+      throw IOException(e)
+    } catch (e: Exception) {
+      temporary.delete()
+      throw IOException(e)
+    } finally {
+      pool.shutdownNow()
+    }
+
+    if (!temporary.renameTo(outputFile)) {
+      temporary.delete()
+      throw IOException("Could not replace $outputFile")
+    }
+
+    return ReportArchive(
+      file = outputFile,
+      files = included.size,
+      filesTruncated = truncated,
+      filesOmitted = omitted
+    )
+  }
+
+  private fun collect(
+    file: File,
+    name: String,
+    results: MutableList<Source>
+  ) {
+    if (file.isFile) {
+      results.add(
+        Source(
+          file = file,
+          name = name,
+          size = file.length(),
+          stored = STORED_EXTENSIONS.contains(file.extension.lowercase())
+        )
+      )
+      return
+    }
+
+    val children = file.listFiles() ?: return
+    children.sortBy { child -> child.name }
+    for (child in children) {
+      this.collect(child, "$name/${child.name}", results)
+    }
+  }
+
+  private fun sizeOf(source: Source): Long =
+    source.size.coerceAtMost(this.maximumFileSize)
+
+  private fun supplierOf(
+    source: Source,
+    progress: ProgressTracker
+  ): InputStreamSupplier =
+    InputStreamSupplier {
+      try {
+        this.open(source, progress)
+      } catch (e: IOException) {
+        throw UncheckedIOException(e)
+      }
+    }
+
+  private fun open(
+    source: Source,
+    progress: ProgressTracker
+  ): InputStream {
+    val stream = FileInputStream(source.file)
+    val size = this.sizeOf(source)
+
+    /*
+     * Only the size observed when the archive was started is read, so that files such as
+     * the current log, which may be written to while the archive is built, are bounded.
+     */
+
+    val skipped = source.size - size
+    if (skipped == 0L) {
+      return ProgressInputStream(stream, size, progress)
+    }
+
+    stream.channel.position(skipped)
+    val marker = "[Truncated: the first $skipped bytes of this file were omitted]\n"
+    return SequenceInputStream(
+      ByteArrayInputStream(marker.toByteArray()),
+      ProgressInputStream(stream, size, progress)
+    )
+  }
+
+  private fun threadFactory(): ThreadFactory {
+    val id = AtomicInteger(0)
+    return ThreadFactory { runnable ->
+      val thread = Thread(runnable, "simplified-report-archive-${id.getAndIncrement()}")
+      thread.isDaemon = true
+      thread
+    }
+  }
+
+  /**
+   * A stream that reads at most `limit` bytes, and reports the file as completed when closed.
+   */
+
+  private class ProgressInputStream(
+    delegate: InputStream,
+    private val limit: Long,
+    private val progress: ProgressTracker
+  ) : FilterInputStream(delegate) {
+    private var remaining = this.limit
+    private var closed = false
+
+    override fun read(): Int {
+      if (this.remaining <= 0L) {
+        return -1
+      }
+      val r = super.read()
+      if (r != -1) {
+        this.remaining -= 1
+      }
+      return r
+    }
+
+    override fun read(
+      buffer: ByteArray,
+      offset: Int,
+      length: Int
+    ): Int {
+      if (this.remaining <= 0L) {
+        return -1
+      }
+      val r = super.read(buffer, offset, length.toLong().coerceAtMost(this.remaining).toInt())
+      if (r > 0) {
+        this.remaining -= r
+      }
+      return r
+    }
+
+    override fun skip(n: Long): Long {
+      val r = super.skip(n.coerceAtMost(this.remaining))
+      this.remaining -= r
+      return r
+    }
+
+    override fun available(): Int =
+      super.available().toLong().coerceAtMost(this.remaining).toInt()
+
+    override fun markSupported(): Boolean =
+      false
+
+    override fun close() {
+      if (!this.closed) {
+        this.closed = true
+        super.close()
+        this.progress.onFileCompleted(this.limit)
+      }
+    }
+  }
+
+  private class ProgressTracker(
+    private val filesTotal: Int,
+    private val bytesTotal: Long,
+    private val onProgress: (ReportArchiveProgress) -> Unit
+  ) {
+    private var filesCompleted = 0
+    private var bytesCompleted = 0L
+
+    @Synchronized
+    fun onFileCompleted(bytes: Long) {
+      this.filesCompleted += 1
+      this.bytesCompleted += bytes
+      this.onProgress.invoke(
+        ReportArchiveProgress(
+          filesCompleted = this.filesCompleted,
+          filesTotal = this.filesTotal,
+          bytesCompleted = this.bytesCompleted,
+          bytesTotal = this.bytesTotal
+        )
+      )
+    }
+  }
+}
@@ -0,0 +1,32 @@
+package org.librarysimplified.reports
+
+/**
+ * The progress of building a report archive.
+ */
+
+data class ReportArchiveProgress(
+
+  /**
+   * The number of files that have been compressed.
+   */
+
+  val filesCompleted: Int,
+
+  /**
+   * The number of files to be compressed.
+   */
+
+  val filesTotal: Int,
+
+  /**
+   * The number of bytes that have been compressed.
+   */
+
+  val bytesCompleted: Long,
+
+  /**
+   * The number of bytes to be compressed.
+   */
+
+  val bytesTotal: Long
+)
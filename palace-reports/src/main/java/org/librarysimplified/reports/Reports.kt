@@ -4,16 +4,16 @@ import android.content.Context
 import android.content.Intent
 import android.os.Build
 import androidx.core.content.FileProvider
-import org.apache.commons.io.IOUtils
+import org.librarysimplified.reports.Reports.Result.NoFiles
 import org.librarysimplified.reports.Reports.Result.RaisedException
 import org.librarysimplified.reports.Reports.Result.Sent
+import org.nypl.simplified.taskrecorder.api.TaskTraceExport
+import org.nypl.simplified.taskrecorder.api.TaskTraceHistory
 import org.slf4j.LoggerFactory
 import java.io.File
-import java.io.FileInputStream
-import java.io.FileOutputStream
-import java.io.IOException
-import java.util.zip.ZipEntry
-import java.util.zip.ZipOutputStream
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
 
 /**
  * Functions to send reports.
@@ -43,6 +43,21 @@ object Reports {
   private val logger =
     LoggerFactory.getLogger(Reports::class.java)
 
+  private val archives =
+    ReportArchiveBuilder.create()
+
+  /*
+   * Archives are built on a single thread, so that sends never write the same archive
+   * concurrently.
+   */
+
+  private val executor: ExecutorService =
+    Executors.newSingleThreadExecutor { runnable ->
+      val thread = Thread(runnable, "simplified-reports")
+      thread.isDaemon = true
+      thread
+    }
+
   /**
    * The result of trying to send.
    */
@@ -78,7 +93,7 @@ object Reports {
     context: Context,
     address: String,
     body: String
-  ): Result =
+  ): Future<Result> =
     this.sendReport(
       context = context,
       address = address,
@@ -86,49 +101,86 @@ object Reports {
     )
 
   /**
-   * Try to send a report.
+   * Try to send a report. The report archive is built in the background, and the share intent
+   * is started once the archive is ready. `onProgress` is called from background threads as
+   * files are added to the archive.
+   *
+   * The archive is deliberately built only when the report is sent, rather than ahead of time
+   * when the error page opens. An archive built ahead of time would be missing whatever was
+   * logged between the page opening and the report being sent, which is often the part of
+   * the log that matters, so the share intent waits for a fresh build instead.
    */
 
   @JvmStatic
   fun sendReport(
     context: Context,
     address: String,
-    body: String
-  ): Result {
+    body: String,
+    onProgress: (ReportArchiveProgress) -> Unit = {}
+  ): Future<Result> {
     this.logger.debug("preparing report")
 
-    try {
-      val files =
-        listOf(
-          File(File(context.filesDir, "v4.0"), "time_tracking"),
-          File(context.cacheDir, "logs")
-        )
-
-      val reportZip = File(context.cacheDir, "report.zip")
-      reportZip.delete()
-      compressZipfile(files, reportZip)
-
-      val zipContentURI =
-        this.mapFileToContentURI(context, reportZip)
-
-      val intent =
-        Intent(Intent.ACTION_SEND).apply {
-          this.type = "message/rfc822"
-          this.putExtra(Intent.EXTRA_EMAIL, arrayOf(address))
-          this.putExtra(Intent.EXTRA_SUBJECT, "Issue Report from The Palace Project App")
-          this.putExtra(Intent.EXTRA_TEXT, this@Reports.decorateBodyText(body))
-          this.putExtra(Intent.EXTRA_STREAM, zipContentURI)
-          this.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION)
-          this.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK)
+    val applicationContext = context.applicationContext
+    val reportZip = File(context.cacheDir, "report.zip")
+    val sources = this.reportSources(context)
+
+    return this.executor.submit<Result> {
+      try {
+        this.writeTraces(applicationContext.cacheDir)
+        val archive =
+          this.archives.build(sources, reportZip, onProgress)
+
+        if (archive.files == 0) {
+          this.logger.debug("no files to send")
+          return@submit NoFiles
         }
-      context.startActivity(intent)
-      return Sent
+
+        val zipContentURI =
+          this.mapFileToContentURI(applicationContext, archive.file)
+
+        val intent =
+          Intent(Intent.ACTION_SEND).apply {
+            this.type = "message/rfc822"
+            this.putExtra(Intent.EXTRA_EMAIL, arrayOf(address))
+            this.putExtra(Intent.EXTRA_SUBJECT, "Issue Report from The Palace Project App")
+            this.putExtra(Intent.EXTRA_TEXT, this@Reports.decorateBodyText(body))
+            this.putExtra(Intent.EXTRA_STREAM, zipContentURI)
+            this.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION)
+            this.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK)
+          }
+        applicationContext.startActivity(intent)
+        Sent
+      } catch (e: Exception) {
+        this.logger.debug("failed to send report: ", e)
+        RaisedException(e)
+      }
+    }
+  }
+
+  /**
+   * Write the traces of recently finished tasks so that they are included in the report.
+   * A report is still sent if the traces cannot be written.
+   */
+
+  private fun writeTraces(cacheDirectory: File) {
+    try {
+      val directory = File(cacheDirectory, "traces")
+      directory.mkdirs()
+      File(directory, "task-trace.json").outputStream().use { stream ->
+        TaskTraceExport.write(TaskTraceHistory.snapshot(), stream)
+      }
     } catch (e: Exception) {
-      this.logger.debug("failed to send report: ", e)
-      return RaisedException(e)
+      this.logger.debug("failed to write task traces: ", e)
     }
   }
 
+  private fun reportSources(context: Context): List<File> =
+    listOf(
+      File(File(context.filesDir, "v4.0"), "time_tracking"),
+      File(context.cacheDir, "logs"),
+      File(context.cacheDir, "traces")
+    )
+
   fun decorateBodyText(body: String): String {
     val bodyLines = ArrayList<String>()
     bodyLines.add("Please describe your issue:")
@@ -155,39 +207,4 @@ object Reports {
     context: Context,
     file: File
   ) = FileProvider.getUriForFile(context, context.packageName + ".fileProvider", file)
-
-  @JvmStatic
-  @Throws(IOException::class)
-  private fun compressZipfile(
-    sources: List<File>,
-    outputFile: File
-  ) {
-    ZipOutputStream(FileOutputStream(outputFile)).use { zipFile ->
-      for (file in sources) {
-        compressToZipFile(file, zipFile)
-      }
-    }
-  }
-
-  @JvmStatic
-  @Throws(IOException::class)
-  private fun compressToZipFile(
-    source: File,
-    zipFile: ZipOutputStream
-  ) {
-    if (source.isFile) {
-      this.logger.debug("Compress {}", source)
-
-      val entry = ZipEntry(source.name)
-      zipFile.putNextEntry(entry)
-      FileInputStream(source).use { input ->
-        IOUtils.copy(input, zipFile)
-      }
-      return
-    }
-
-    for (file in source.listFiles() ?: arrayOf()) {
-      compressToZipFile(file, zipFile)
-    }
-  }
 }
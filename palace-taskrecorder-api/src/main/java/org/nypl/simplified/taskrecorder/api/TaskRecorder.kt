@@ -22,6 +22,7 @@ class TaskRecorder private constructor() : TaskRecorderType {
 
   private val steps = mutableListOf<TaskStep>()
   private val attributes = mutableMapOf<String, String>()
+  private val spansOpen = ArrayList<TaskSpan>()
 
   override fun addAttribute(
     name: String,
@@ -39,7 +40,10 @@ class TaskRecorder private constructor() : TaskRecorderType {
   override fun beginNewStep(message: String): TaskStep {
     this.logger.debug("step started: {}", message)
 
+    val time = System.nanoTime()
+    this.endCurrentStep(time)
     val step = TaskStep(description = message)
+    step.timeStarted = time
     this.steps.add(step)
     return step
   }
@@ -50,6 +54,7 @@ class TaskRecorder private constructor() : TaskRecorderType {
     this.logger.debug("step succeeded: {}", message)
     val step = this.steps.last()
     step.resolution = TaskStepResolution.TaskStepSucceeded(message)
+    step.timeEnded = System.nanoTime()
     return step
   }
 
@@ -70,6 +75,7 @@ class TaskRecorder private constructor() : TaskRecorderType {
         exception = exception,
         extraMessages = extraMessages
       )
+    step.timeEnded = System.nanoTime()
     return step
   }
 
@@ -114,12 +120,67 @@ class TaskRecorder private constructor() : TaskRecorderType {
   }
 
   override fun addAll(steps: List<TaskStep>) {
+    this.endCurrentStep(System.nanoTime())
     this.steps.addAll(steps)
   }
 
   override fun currentStep(): TaskStep? = this.steps.lastOrNull()
 
-  override fun <A> finishSuccess(result: A): TaskResult.Success<A> = TaskResult.Success(result, this.steps, this.attributes.toMap())
+  override fun <T> span(
+    name: String,
+    body: () -> T
+  ): T {
+    Preconditions.checkState(this.steps.isNotEmpty(), "A step must be active")
+
+    val span = TaskSpan(name)
+    val parent = this.spansOpen.lastOrNull()
+    if (parent != null) {
+      parent.childrenMutable.add(span)
+    } else {
+      this.steps.last().spansMutable.add(span)
+    }
+
+    this.spansOpen.add(span)
+    try {
+      return body.invoke()
+    } finally {
+      span.timeEnded = System.nanoTime()
+      this.spansOpen.removeAt(this.spansOpen.size - 1)
+    }
+  }
+
+  override fun addCount(
+    name: String,
+    amount: Long
+  ) {
+    val counters =
+      this.spansOpen.lastOrNull()?.countersMutable
+        ?: this.steps.lastOrNull()?.countersMutable
+        ?: return
+    counters[name] = (counters[name] ?: 0L) + amount
+  }
+
+  /*
+   * A step that was never explicitly resolved is considered to have ended when the next
+   * step begins, or when the task finishes.
+   */
 
-  override fun <A> finishFailure(): TaskResult.Failure<A> = TaskResult.Failure(this.steps, this.attributes.toMap())
+  private fun endCurrentStep(time: Long) {
+    val step = this.steps.lastOrNull()
+    if (step != null && step.timeEnded == -1L) {
+      step.timeEnded = time
+    }
+  }
+
+  override fun <A> finishSuccess(result: A): TaskResult.Success<A> {
+    this.endCurrentStep(System.nanoTime())
+    TaskTraceHistory.record(this.steps)
+    return TaskResult.Success(result, this.steps, this.attributes.toMap())
+  }
+
+  override fun <A> finishFailure(): TaskResult.Failure<A> {
+    this.endCurrentStep(System.nanoTime())
+    TaskTraceHistory.record(this.steps)
+    return TaskResult.Failure(this.steps, this.attributes.toMap())
+  }
 }
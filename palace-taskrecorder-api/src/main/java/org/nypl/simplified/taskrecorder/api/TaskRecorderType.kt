@@ -66,6 +66,26 @@ interface TaskRecorderType {
     extraMessages: List<String>
   ): TaskStep
 
+  /**
+   * Run `body` within a named span of the current step, or of the innermost span that is
+   * currently open. The span is ended when `body` returns or raises an exception.
+   */
+
+  fun <T> span(
+    name: String,
+    body: () -> T
+  ): T
+
+  /**
+   * Add `amount` to the named counter of the innermost open span, or of the current step if
+   * no span is open.
+   */
+
+  fun addCount(
+    name: String,
+    amount: Long
+  )
+
   /**
    * Complete recording of all steps.
    */
@@ -0,0 +1,47 @@
+package org.nypl.simplified.taskrecorder.api
+
+import java.io.Serializable
+
+/**
+ * A timed span of work within a task step. Spans may be nested.
+ */
+
+class TaskSpan(
+  /**
+   * The name of the span.
+   */
+
+  val name: String
+) : Serializable {
+
+  /**
+   * The monotonic time, in nanoseconds, at which the span started.
+   */
+
+  val timeStarted: Long =
+    System.nanoTime()
+
+  /**
+   * The monotonic time, in nanoseconds, at which the span ended, or -1 if it has not ended.
+   */
+
+  var timeEnded: Long = -1L
+    internal set
+
+  /**
+   * The counters recorded within the span.
+   */
+
+  val counters: Map<String, Long>
+    get() = this.countersMutable
+
+  /**
+   * The spans nested within this span.
+   */
+
+  val children: List<TaskSpan>
+    get() = this.childrenMutable
+
+  internal val countersMutable = LinkedHashMap<String, Long>()
+  internal val childrenMutable = ArrayList<TaskSpan>()
+}
@@ -24,4 +24,37 @@ data class TaskStep(
   PresentableType {
   override val message: String
     get() = this.resolution.message
+
+  /**
+   * The monotonic time, in nanoseconds, at which the step started.
+   */
+
+  var timeStarted: Long =
+    System.nanoTime()
+    internal set
+
+  /**
+   * The monotonic time, in nanoseconds, at which the step was resolved, or -1 if it has not
+   * been resolved.
+   */
+
+  var timeEnded: Long = -1L
+    internal set
+
+  /**
+   * The counters recorded during the step, such as the number of bytes or items processed.
+   */
+
+  val counters: Map<String, Long>
+    get() = this.countersMutable
+
+  /**
+   * The top-level spans recorded during the step.
+   */
+
+  val spans: List<TaskSpan>
+    get() = this.spansMutable
+
+  internal val countersMutable = LinkedHashMap<String, Long>()
+  internal val spansMutable = ArrayList<TaskSpan>()
 }
@@ -0,0 +1,191 @@
+package org.nypl.simplified.taskrecorder.api
+
+import java.io.OutputStream
+import java.io.OutputStreamWriter
+import java.io.Writer
+
+/**
+ * Functions to export recorded task steps in the Chrome trace event format, suitable for
+ * viewing in `chrome://tracing` or Perfetto.
+ *
+ * Each task is exported as a separate thread, each step as a complete event, and each span as
+ * a complete event nested within the event of its step. Counters and step resolutions are
+ * exported as event arguments.
+ */
+
+object TaskTraceExport {
+
+  /**
+   * Write the steps of the given tasks, keyed by task name, to `output`.
+   */
+
+  fun write(
+    tasks: Map<String, List<TaskStep>>,
+    output: OutputStream
+  ) {
+    val writer = OutputStreamWriter(output, Charsets.UTF_8)
+    this.write(tasks, writer)
+    writer.flush()
+  }
+
+  /**
+   * Return the steps of the given tasks, keyed by task name, as a trace document.
+   */
+
+  fun toJSON(tasks: Map<String, List<TaskStep>>): String {
+    val builder = StringBuilder(1024)
+    this.write(tasks, builder)
+    return builder.toString()
+  }
+
+  /**
+   * Write the steps of the given tasks, keyed by task name, to `output`.
+   */
+
+  fun write(
+    tasks: Map<String, List<TaskStep>>,
+    output: Appendable
+  ) {
+    val origin =
+      tasks.values
+        .flatten()
+        .minOfOrNull { step -> step.timeStarted }
+        ?: 0L
+
+    output.append("{\"traceEvents\":[")
+    var first = true
+    var threadId = 0
+    for ((taskName, steps) in tasks) {
+      threadId += 1
+
+      if (!first) {
+        output.append(',')
+      }
+      first = false
+      output.append("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":")
+      output.append(threadId.toString())
+      output.append(",\"args\":{\"name\":")
+      this.writeString(output, taskName)
+      output.append("}}")
+
+      for (step in steps) {
+        val args = LinkedHashMap<String, Any>(step.counters)
+        when (val resolution = step.resolution) {
+          is TaskStepResolution.TaskStepSucceeded -> {
+            args["resolution"] = resolution.message
+          }
+
+          is TaskStepResolution.TaskStepFailed -> {
+            args["resolution"] = resolution.message
+            args["errorCode"] = resolution.errorCode
+          }
+        }
+
+        output.append(',')
+        this.writeEvent(
+          output = output,
+          name = step.description,
+          threadId = threadId,
+          origin = origin,
+          timeStarted = step.timeStarted,
+          timeEnded = step.timeEnded,
+          args = args
+        )
+        for (span in step.spans) {
+          this.writeSpan(output, span, threadId, origin)
+        }
+      }
+    }
+    output.append("],\"displayTimeUnit\":\"ms\"}")
+  }
+
+  private fun writeSpan(
+    output: Appendable,
+    span: TaskSpan,
+    threadId: Int,
+    origin: Long
+  ) {
+    output.append(',')
+    this.writeEvent(
+      output = output,
+      name = span.name,
+      threadId = threadId,
+      origin = origin,
+      timeStarted = span.timeStarted,
+      timeEnded = span.timeEnded,
+      args = span.counters
+    )
+    for (child in span.children) {
+      this.writeSpan(output, child, threadId, origin)
+    }
+  }
+
+  private fun writeEvent(
+    output: Appendable,
+    name: String,
+    threadId: Int,
+    origin: Long,
+    timeStarted: Long,
+    timeEnded: Long,
+    args: Map<String, Any>
+  ) {
+    /*
+     * Events that never ended are exported with a zero duration.
+     */
+
+    val duration =
+      if (timeEnded == -1L) 0L else timeEnded - timeStarted
+
+    output.append("{\"name\":")
+    this.writeString(output, name)
+    output.append(",\"ph\":\"X\",\"pid\":1,\"tid\":")
+    output.append(threadId.toString())
+    output.append(",\"ts\":")
+    output.append(((timeStarted - origin) / 1000L).toString())
+    output.append(",\"dur\":")
+    output.append((duration / 1000L).toString())
+
+    if (args.isNotEmpty()) {
+      output.append(",\"args\":{")
+      var first = true
+      for ((key, value) in args) {
+        if (!first) {
+          output.append(',')
+        }
+        first = false
+        this.writeString(output, key)
+        output.append(':')
+        if (value is Number) {
+          output.append(value.toString())
+        } else {
+          this.writeString(output, value.toString())
+        }
+      }
+      output.append('}')
+    }
+    output.append('}')
+  }
+
+  private fun writeString(
+    output: Appendable,
+    text: String
+  ) {
+    output.append('"')
+    for (c in text) {
+      when (c) {
+        '"' -> output.append("\\\"")
+        '\\' -> output.append("\\\\")
+        '\n' -> output.append("\\n")
+        '\r' -> output.append("\\r")
+        '\t' -> output.append("\\t")
+        else ->
+          if (c < ' ') {
+            output.append(String.format("\\u%04x", c.code))
+          } else {
+            output.append(c)
+          }
+      }
+    }
+    output.append('"')
+  }
+}
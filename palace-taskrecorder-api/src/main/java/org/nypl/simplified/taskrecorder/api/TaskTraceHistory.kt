@@ -0,0 +1,59 @@
+package org.nypl.simplified.taskrecorder.api
+
+/**
+ * A bounded history of recently finished tasks that recorded at least one span. Task
+ * recorders add their steps here when they finish, so that recent traces can be exported
+ * with [TaskTraceExport] (in error reports, for example).
+ */
+
+object TaskTraceHistory {
+
+  /**
+   * The maximum number of tasks retained. The oldest tasks are discarded first.
+   */
+
+  const val TASKS_MAXIMUM = 32
+
+  private val lock = Any()
+
+  private val tasks = LinkedHashMap<String, List<TaskStep>>()
+
+  private var sequence = 0L
+
+  /**
+   * Record the steps of a finished task. Tasks that recorded no spans are ignored.
+   */
+
+  fun record(steps: List<TaskStep>) {
+    if (steps.isEmpty() || steps.none { step -> step.spans.isNotEmpty() }) {
+      return
+    }
+
+    synchronized(this.lock) {
+      this.sequence += 1
+      this.tasks["${this.sequence}: ${steps.first().description}"] = steps.toList()
+      while (this.tasks.size > TASKS_MAXIMUM) {
+        this.tasks.remove(this.tasks.keys.first())
+      }
+    }
+  }
+
+  /**
+   * @return The retained tasks, oldest first, keyed by a unique task name
+   */
+
+  fun snapshot(): Map<String, List<TaskStep>> =
+    synchronized(this.lock) {
+      LinkedHashMap(this.tasks)
+    }
+
+  /**
+   * Discard all retained tasks.
+   */
+
+  fun clear() {
+    synchronized(this.lock) {
+      this.tasks.clear()
+    }
+  }
+}
@@ -0,0 +1,26 @@
+package org.nypl.simplified.tenprint;
+
+import android.graphics.Bitmap;
+
+/**
+ * A source of bitmaps into which covers are rendered. Implementations may return recycled
+ * bitmaps with arbitrary contents; the generator overwrites every pixel.
+ */
+
+public interface TenPrintBitmapAllocatorType
+{
+  /**
+   * Obtain a mutable bitmap.
+   *
+   * @param width  The bitmap width
+   * @param height The bitmap height
+   * @param config The bitmap configuration
+   *
+   * @return A mutable bitmap of exactly the given size and configuration
+   */
+
+  Bitmap allocate(
+    int width,
+    int height,
+    Bitmap.Config config);
+}
@@ -32,6 +32,7 @@ public final class TenPrintGenerator implements TenPrintGeneratorType
   private static final Set<Character>  C64_CHARACTER_SET;
   private static final int             TITLE_LENGTH_MAX;
   private static final int             TITLE_LENGTH_MIN;
+  private static final ThreadLocal<RenderState> RENDER_STATE;
 
   static {
     TITLE_LENGTH_MIN = 2;
@@ -39,6 +40,12 @@ public final class TenPrintGenerator implements TenPrintGeneratorType
     C64_CHARACTER_LIST = TenPrintGenerator.getC64Characters();
     C64_CHARACTER_SET =
       new HashSet<Character>(TenPrintGenerator.C64_CHARACTER_LIST);
+    RENDER_STATE = new ThreadLocal<RenderState>() {
+      @Override protected RenderState initialValue()
+      {
+        return new RenderState();
+      }
+    };
   }
 
   private TenPrintGenerator()
@@ -172,6 +179,7 @@ public final class TenPrintGenerator implements TenPrintGeneratorType
   }
 
   private static void renderEllipse(
+    final RenderState s,
     final Canvas canvas,
     final int x,
     final int y,
@@ -181,11 +189,13 @@ public final class TenPrintGenerator implements TenPrintGeneratorType
   {
     final float right = (float) (x + w);
     final float bottom = (float) (y + h);
-    final RectF oval = new RectF((float) x, (float) y, right, bottom);
+    final RectF oval = s.rect;
+    oval.set((float) x, (float) y, right, bottom);
     canvas.drawOval(oval, p);
   }
 
   private static void renderEllipseCenter(
+    final RenderState s,
     final Canvas canvas,
     final int x,
     final int y,
@@ -197,11 +207,13 @@ public final class TenPrintGenerator implements TenPrintGeneratorType
     final float top = (float) (y - (h / 2));
     final float right = (float) (x + (w / 2));
     final float bottom = (float) (y + (h / 2));
-    final RectF oval = new RectF(left, top, right, bottom);
+    final RectF oval = s.rect;
+    oval.set(left, top, right, bottom);
     canvas.drawOval(oval, p);
   }
 
   private static void renderGridCharacter(
+    final RenderState s,
     final Canvas canvas,
     final TenPrintInput i,
     final Paint paint_base,
@@ -234,47 +246,47 @@ public final class TenPrintGenerator implements TenPrintGeneratorType
         case 'q':
         case 'Q': {
           TenPrintGenerator.renderEllipse(
-            canvas, x, y, grid_size, grid_size, paint_shape);
+            s, canvas, x, y, grid_size, grid_size, paint_shape);
           break;
         }
         case 'W':
         case 'w': {
           TenPrintGenerator.renderEllipse(
-            canvas, x, y, grid_size, grid_size, paint_shape);
+            s, canvas, x, y, grid_size, grid_size, paint_shape);
 
           final int size_smaller = grid_size - thick2;
           TenPrintGenerator.renderEllipse(
-            canvas, x + thick, y + thick, size_smaller, size_smaller, paint_base);
+            s, canvas, x + thick, y + thick, size_smaller, size_smaller, paint_base);
           break;
         }
         case 'E':
         case 'e': {
           TenPrintGenerator.renderRectangle(
-            canvas, x, y + thick, grid_size, thick, paint_shape);
+            s, canvas, x, y + thick, grid_size, thick, paint_shape);
           break;
         }
         case 'R':
         case 'r': {
           TenPrintGenerator.renderRectangle(
-            canvas, x, y + (grid_size - thick2), grid_size, thick, paint_shape);
+            s, canvas, x, y + (grid_size - thick2), grid_size, thick, paint_shape);
           break;
         }
         case 'T':
         case 't': {
           TenPrintGenerator.renderRectangle(
-            canvas, x + thick, y, thick, grid_size, paint_shape);
+            s, canvas, x + thick, y, thick, grid_size, paint_shape);
           break;
         }
         case 'Y':
         case 'y': {
           TenPrintGenerator.renderRectangle(
-            canvas, x + (grid_size - thick2), y, thick, grid_size, paint_shape);
+            s, canvas, x + (grid_size - thick2), y, thick, grid_size, paint_shape);
           break;
         }
         case 'U':
         case 'u': {
           TenPrintGenerator.renderRing(
-            canvas,
+            s, canvas,
             x,
             y,
             grid_size_double,
@@ -287,7 +299,7 @@ public final class TenPrintGenerator implements TenPrintGeneratorType
         case 'I':
         case 'i': {
           TenPrintGenerator.renderRing(
-            canvas,
+            s, canvas,
             x - grid_size,
             y,
             grid_size_double,
@@ -300,22 +312,23 @@ public final class TenPrintGenerator implements TenPrintGeneratorType
         case 'O':
         case 'o': {
           TenPrintGenerator.renderRectangle(
-            canvas, x, y, grid_size, grid_size, paint_shape);
+            s, canvas, x, y, grid_size, grid_size, paint_shape);
           TenPrintGenerator.renderRectangle(
-            canvas, x + thick, y + thick, grid_size, grid_size, paint_base);
+            s, canvas, x + thick, y + thick, grid_size, grid_size, paint_base);
           break;
         }
         case 'P':
         case 'p': {
           TenPrintGenerator.renderRectangle(
-            canvas, x, y, grid_size, grid_size, paint_shape);
+            s, canvas, x, y, grid_size, grid_size, paint_shape);
           TenPrintGenerator.renderRectangle(
-            canvas, x - thick, y + thick, grid_size, grid_size, paint_base);
+            s, canvas, x - thick, y + thick, grid_size, grid_size, paint_base);
           break;
         }
         case 'A':
         case 'a': {
-          final Path p = new Path();
+          final Path p = s.path;
+          p.rewind();
           p.moveTo((float) x, (float) y_max);
           p.lineTo((float) x_center, (float) y);
           p.lineTo((float) x_max, (float) y_max);
@@ -326,7 +339,8 @@ public final class TenPrintGenerator implements TenPrintGeneratorType
         }
         case 'S':
         case 's': {
-          final Path p = new Path();
+          final Path p = s.path;
+          p.rewind();
           p.moveTo((float) x, (float) y);
           p.lineTo((float) x_center, (float) y_max);
           p.lineTo((float) x_max, (float) y);
@@ -338,31 +352,31 @@ public final class TenPrintGenerator implements TenPrintGeneratorType
         case 'D':
         case 'd': {
           TenPrintGenerator.renderRectangle(
-            canvas, x, y + thick2, grid_size, thick, paint_shape);
+            s, canvas, x, y + thick2, grid_size, thick, paint_shape);
           break;
         }
         case 'F':
         case 'f': {
           TenPrintGenerator.renderRectangle(
-            canvas, x, y + thick3, grid_size, thick, paint_shape);
+            s, canvas, x, y + thick3, grid_size, thick, paint_shape);
           break;
         }
         case 'G':
         case 'g': {
           TenPrintGenerator.renderRectangle(
-            canvas, x + thick2, y, thick, grid_size, paint_shape);
+            s, canvas, x + thick2, y, thick, grid_size, paint_shape);
           break;
         }
         case 'H':
         case 'h': {
           TenPrintGenerator.renderRectangle(
-            canvas, x + (grid_size - thick3), y, thick, grid_size, paint_shape);
+            s, canvas, x + (grid_size - thick3), y, thick, grid_size, paint_shape);
           break;
         }
         case 'J':
         case 'j': {
           TenPrintGenerator.renderRing(
-            canvas,
+            s, canvas,
             x,
             y - grid_size,
             grid_size_double,
@@ -375,7 +389,7 @@ public final class TenPrintGenerator implements TenPrintGeneratorType
         case 'K':
         case 'k': {
           TenPrintGenerator.renderRing(
-            canvas,
+            s, canvas,
             x - grid_size,
             y - grid_size,
             grid_size_double,
@@ -388,23 +402,24 @@ public final class TenPrintGenerator implements TenPrintGeneratorType
         case 'L':
         case 'l': {
           TenPrintGenerator.renderRectangle(
-            canvas, x, y, grid_size, grid_size, paint_shape);
+            s, canvas, x, y, grid_size, grid_size, paint_shape);
           TenPrintGenerator.renderRectangle(
-            canvas, x + thick, y - thick, grid_size, grid_size, paint_base);
+            s, canvas, x + thick, y - thick, grid_size, grid_size, paint_base);
           break;
         }
         case ':': {
           TenPrintGenerator.renderRectangle(
-            canvas, x, y, grid_size, grid_size, paint_shape);
+            s, canvas, x, y, grid_size, grid_size, paint_shape);
           TenPrintGenerator.renderRectangle(
-            canvas, x - thick, y - thick, grid_size, grid_size, paint_base);
+            s, canvas, x - thick, y - thick, grid_size, grid_size, paint_base);
           break;
         }
 
         case 'Z':
         case 'z': {
           {
-            final Path p = new Path();
+            final Path p = s.path;
+            p.rewind();
             p.moveTo((float) x, (float) y_center);
             p.lineTo((float) x_center, (float) y);
             p.lineTo((float) x_max, (float) y_center);
@@ -414,7 +429,8 @@ public final class TenPrintGenerator implements TenPrintGeneratorType
           }
 
           {
-            final Path p = new Path();
+            final Path p = s.path;
+            p.rewind();
             p.moveTo((float) x, (float) y_center);
             p.lineTo((float) x_center, (float) y_max);
             p.lineTo((float) x_max, (float) y_center);
@@ -429,28 +445,29 @@ public final class TenPrintGenerator implements TenPrintGeneratorType
         case 'x': {
           final int gs_3 = grid_size / 3;
           TenPrintGenerator.renderEllipseCenter(
-            canvas, x_center, y + gs_3, thick2, thick2, paint_shape);
+            s, canvas, x_center, y + gs_3, thick2, thick2, paint_shape);
           TenPrintGenerator.renderEllipseCenter(
-            canvas, x + gs_3, y_max - gs_3, thick2, thick2, paint_shape);
+            s, canvas, x + gs_3, y_max - gs_3, thick2, thick2, paint_shape);
           TenPrintGenerator.renderEllipseCenter(
-            canvas, x_max - gs_3, y_max - gs_3, thick2, thick2, paint_shape);
+            s, canvas, x_max - gs_3, y_max - gs_3, thick2, thick2, paint_shape);
           break;
         }
 
         case 'C':
         case 'c': {
           TenPrintGenerator.renderRectangle(
-            canvas, x, y + thick3, grid_size, thick, paint_shape);
+            s, canvas, x, y + thick3, grid_size, thick, paint_shape);
           break;
         }
 
         case 'V':
         case 'v': {
           TenPrintGenerator.renderRectangle(
-            canvas, x, y, grid_size, grid_size, paint_shape);
+            s, canvas, x, y, grid_size, grid_size, paint_shape);
 
           {
-            final Path p = new Path();
+            final Path p = s.path;
+            p.rewind();
             p.moveTo((float) x, (float) (y + thick));
             p.lineTo((float) (x_center - thick), (float) y_center);
             p.lineTo((float) x, (float) (y_max - thick));
@@ -460,7 +477,8 @@ public final class TenPrintGenerator implements TenPrintGeneratorType
           }
 
           {
-            final Path p = new Path();
+            final Path p = s.path;
+            p.rewind();
             p.moveTo((float) x_max, (float) (y + thick));
             p.lineTo((float) (x_center + thick), (float) y_center);
             p.lineTo((float) x_max, (float) (y_max - thick));
@@ -470,7 +488,8 @@ public final class TenPrintGenerator implements TenPrintGeneratorType
           }
 
           {
-            final Path p = new Path();
+            final Path p = s.path;
+            p.rewind();
             p.moveTo((float) x_max, (float) (y + thick));
             p.lineTo((float) (x_center + thick), (float) y_center);
             p.lineTo((float) x_max, (float) (y_max - thick));
@@ -480,7 +499,8 @@ public final class TenPrintGenerator implements TenPrintGeneratorType
           }
 
           {
-            final Path p = new Path();
+            final Path p = s.path;
+            p.rewind();
             p.moveTo((float) (x + thick), (float) y_max);
             p.lineTo((float) x_center, (float) (y_center + thick));
             p.lineTo((float) (x_max - thick), (float) y_max);
@@ -490,7 +510,8 @@ public final class TenPrintGenerator implements TenPrintGeneratorType
           }
 
           {
-            final Path p = new Path();
+            final Path p = s.path;
+            p.rewind();
             p.moveTo((float) (x + thick), (float) y);
             p.lineTo((float) x_center, (float) (y_center - thick));
             p.lineTo((float) (x_max - thick), (float) y);
@@ -505,17 +526,18 @@ public final class TenPrintGenerator implements TenPrintGeneratorType
         case 'B':
         case 'b': {
           TenPrintGenerator.renderRectangle(
-            canvas, x + thick3, y, thick, grid_size, paint_shape);
+            s, canvas, x + thick3, y, thick, grid_size, paint_shape);
           break;
         }
 
         case 'N':
         case 'n': {
           TenPrintGenerator.renderRectangle(
-            canvas, x, y, grid_size, grid_size, paint_shape);
+            s, canvas, x, y, grid_size, grid_size, paint_shape);
 
           {
-            final Path p = new Path();
+            final Path p = s.path;
+            p.rewind();
             p.moveTo((float) x, (float) y);
             p.lineTo((float) (x_max - thick), (float) y);
             p.lineTo((float) x, (float) (y_max - thick));
@@ -525,7 +547,8 @@ public final class TenPrintGenerator implements TenPrintGeneratorType
           }
 
           {
-            final Path p = new Path();
+            final Path p = s.path;
+            p.rewind();
             p.moveTo((float) (x + thick), (float) y_max);
             p.lineTo((float) (x_max + thick), (float) y_max);
             p.lineTo((float) (x_max + thick), (float) y);
@@ -540,10 +563,11 @@ public final class TenPrintGenerator implements TenPrintGeneratorType
         case 'M':
         case 'm': {
           TenPrintGenerator.renderRectangle(
-            canvas, x, y, grid_size, grid_size, paint_shape);
+            s, canvas, x, y, grid_size, grid_size, paint_shape);
 
           {
-            final Path p = new Path();
+            final Path p = s.path;
+            p.rewind();
             p.moveTo((float) x, (float) (y + thick));
             p.lineTo((float) x, (float) (y_max + thick));
             p.lineTo((float) x_max, (float) (y_max + thick));
@@ -553,7 +577,8 @@ public final class TenPrintGenerator implements TenPrintGeneratorType
           }
 
           {
-            final Path p = new Path();
+            final Path p = s.path;
+            p.rewind();
             p.moveTo((float) x, (float) (y - thick));
             p.lineTo((float) x_max, (float) (y_max - thick));
             p.lineTo((float) x_max, (float) (y - thick));
@@ -567,14 +592,14 @@ public final class TenPrintGenerator implements TenPrintGeneratorType
 
         case '0': {
           TenPrintGenerator.renderRectangle(
-            canvas,
+            s, canvas,
             x_center - (thick / 2),
             y_center - (thick / 2),
             thick,
             (grid_size / 2) + (thick / 2),
             paint_shape);
           TenPrintGenerator.renderRectangle(
-            canvas,
+            s, canvas,
             x_center - (thick / 2),
             y_center - (thick / 2),
             (grid_size / 2) + thick,
@@ -586,9 +611,9 @@ public final class TenPrintGenerator implements TenPrintGeneratorType
 
         case '1': {
           TenPrintGenerator.renderRectangle(
-            canvas, x, y_center - (thick / 2), grid_size, thick, paint_shape);
+            s, canvas, x, y_center - (thick / 2), grid_size, thick, paint_shape);
           TenPrintGenerator.renderRectangle(
-            canvas,
+            s, canvas,
             x_center - (thick / 2),
             y,
             thick,
@@ -600,10 +625,10 @@ public final class TenPrintGenerator implements TenPrintGeneratorType
 
         case '2': {
           TenPrintGenerator.renderRectangle(
-            canvas, x, y_center - (thick / 2), grid_size, thick, paint_shape);
+            s, canvas, x, y_center - (thick / 2), grid_size, thick, paint_shape);
 
           TenPrintGenerator.renderRectangle(
-            canvas,
+            s, canvas,
             x_center - (thick / 2),
             y_center - (thick / 2),
             thick,
@@ -615,55 +640,55 @@ public final class TenPrintGenerator implements TenPrintGeneratorType
 
         case '3': {
           TenPrintGenerator.renderRectangle(
-            canvas, x, y_center - (thick / 2), grid_size / 2, thick, paint_shape);
+            s, canvas, x, y_center - (thick / 2), grid_size / 2, thick, paint_shape);
 
           TenPrintGenerator.renderRectangle(
-            canvas, x_center - (thick / 2), y, thick, grid_size, paint_shape);
+            s, canvas, x_center - (thick / 2), y, thick, grid_size, paint_shape);
 
           break;
         }
 
         case '4': {
           TenPrintGenerator.renderRectangle(
-            canvas, x, y, thick2, grid_size, paint_shape);
+            s, canvas, x, y, thick2, grid_size, paint_shape);
           break;
         }
 
         case '5': {
           TenPrintGenerator.renderRectangle(
-            canvas, x, y, thick3, grid_size, paint_shape);
+            s, canvas, x, y, thick3, grid_size, paint_shape);
           break;
         }
 
         case '6': {
           TenPrintGenerator.renderRectangle(
-            canvas, x_max - thick3, y, thick3, grid_size, paint_shape);
+            s, canvas, x_max - thick3, y, thick3, grid_size, paint_shape);
           break;
         }
 
         case '7': {
           TenPrintGenerator.renderRectangle(
-            canvas, x, y, grid_size, thick2, paint_shape);
+            s, canvas, x, y, grid_size, thick2, paint_shape);
           break;
         }
 
         case '8': {
           TenPrintGenerator.renderRectangle(
-            canvas, x, y, grid_size, thick3, paint_shape);
+            s, canvas, x, y, grid_size, thick3, paint_shape);
           break;
         }
 
         case '9': {
           TenPrintGenerator.renderRectangle(
-            canvas, x, y, thick, grid_size, paint_shape);
+            s, canvas, x, y, thick, grid_size, paint_shape);
           TenPrintGenerator.renderRectangle(
-            canvas, x, y_max - thick3, grid_size, thick3, paint_shape);
+            s, canvas, x, y_max - thick3, grid_size, thick3, paint_shape);
           break;
         }
 
         case '.': {
           TenPrintGenerator.renderRectangle(
-            canvas,
+            s, canvas,
             x_center - (thick / 2),
             y_center - (thick / 2),
             thick,
@@ -671,7 +696,7 @@ public final class TenPrintGenerator implements TenPrintGeneratorType
             paint_shape);
 
           TenPrintGenerator.renderRectangle(
-            canvas,
+            s, canvas,
             x,
             y_center - (thick / 2),
             (grid_size / 2) + (thick / 2),
@@ -708,6 +733,7 @@ public final class TenPrintGenerator implements TenPrintGeneratorType
   }
 
   private static void renderLabel(
+    final RenderState s,
     final Canvas canvas,
     final TenPrintInput i,
     final int cw,
@@ -722,10 +748,7 @@ public final class TenPrintGenerator implements TenPrintGeneratorType
      */
 
     {
-      final Paint paint_label = new Paint();
-      paint_label.setColor(Color.WHITE);
-      paint_label.setAntiAlias(true);
-      paint_label.setFilterBitmap(true);
+      final Paint paint_label = s.paint_label;
       canvas.clipRect(
         (float) margin_half,
         (float) margin_half,
@@ -739,24 +762,12 @@ public final class TenPrintGenerator implements TenPrintGeneratorType
      */
 
     final float title_size = (float) i.getCoverWidth() * 0.08f;
-    final TextPaint title_paint = new TextPaint();
-    title_paint.setColor(Color.BLACK);
+    final TextPaint title_paint = s.paint_title;
     title_paint.setTextSize(title_size);
-    title_paint.setTextAlign(Align.LEFT);
-    title_paint.setTypeface(
-      Typeface.create(
-        Typeface.SANS_SERIF, Typeface.BOLD));
-    title_paint.setAntiAlias(true);
 
     final float author_size = (float) i.getCoverWidth() * 0.07f;
-    final TextPaint author_paint = new TextPaint();
-    author_paint.setColor(Color.BLACK);
+    final TextPaint author_paint = s.paint_author;
     author_paint.setTextSize(author_size);
-    author_paint.setTextAlign(Align.LEFT);
-    author_paint.setTypeface(
-      Typeface.create(
-        Typeface.SANS_SERIF, Typeface.NORMAL));
-    author_paint.setAntiAlias(true);
 
     final int text_width = canvas.getWidth() - (margin * 2);
     final StaticLayout title_layout = new StaticLayout(
@@ -792,6 +803,7 @@ public final class TenPrintGenerator implements TenPrintGeneratorType
   }
 
   private static void renderRectangle(
+    final RenderState s,
     final Canvas canvas,
     final int x,
     final int y,
@@ -801,11 +813,13 @@ public final class TenPrintGenerator implements TenPrintGeneratorType
   {
     final float right = (float) (x + w);
     final float bottom = (float) (y + h);
-    final RectF r = new RectF((float) x, (float) y, right, bottom);
+    final RectF r = s.rect;
+    r.set((float) x, (float) y, right, bottom);
     canvas.drawRect(r, p);
   }
 
   private static void renderRing(
+    final RenderState s,
     final Canvas c,
     final int x,
     final int y,
@@ -818,7 +832,8 @@ public final class TenPrintGenerator implements TenPrintGeneratorType
     {
       final float right = (float) (x + w);
       final float bottom = (float) (y + h);
-      final RectF oval = new RectF((float) x, (float) y, right, bottom);
+      final RectF oval = s.rect;
+      oval.set((float) x, (float) y, right, bottom);
       c.drawOval(oval, p);
     }
 
@@ -827,55 +842,129 @@ public final class TenPrintGenerator implements TenPrintGeneratorType
       final float top = (float) (y + thick);
       final float right = (float) (x + (w - thick));
       final float bottom = (float) (y + (h - thick));
-      final RectF oval = new RectF(left, top, right, bottom);
+      final RectF oval = s.rect;
+      oval.set(left, top, right, bottom);
       c.drawOval(oval, q);
     }
   }
 
   @Override public Bitmap generate(
     final TenPrintInput i)
+  {
+    return this.generate(i, Bitmap::createBitmap);
+  }
+
+  @Override public Bitmap generate(
+    final TenPrintInput i,
+    final TenPrintBitmapAllocatorType allocator)
   {
     NullCheck.notNull(i);
+    NullCheck.notNull(allocator);
 
     final int cw = i.getCoverWidth();
     final int ch = i.getCoverHeight();
     final Bitmap b =
-      NullCheck.notNull(Bitmap.createBitmap(cw, ch, Config.RGB_565));
+      NullCheck.notNull(allocator.allocate(cw, ch, Config.RGB_565));
 
     final int start_y = ch - cw;
     final int text_length = TenPrintGenerator.getTextLength(i);
     final int color_base = TenPrintGenerator.getColorBase(i, text_length);
     final int color_shape = TenPrintGenerator.getColorShape(i, text_length);
 
-    final Paint paint_base = new Paint();
+    final RenderState s = NullCheck.notNull(RENDER_STATE.get());
+
+    final Paint paint_base = s.paint_base;
     paint_base.setColor(color_base);
-    paint_base.setAntiAlias(true);
-    paint_base.setFilterBitmap(true);
 
-    final Paint paint_shape = new Paint();
+    final Paint paint_shape = s.paint_shape;
     paint_shape.setColor(color_shape);
-    paint_shape.setAntiAlias(true);
-    paint_shape.setFilterBitmap(true);
-
-    final Canvas canvas = new Canvas(b);
-    canvas.drawRect(0.0F, 0.0F, (float) cw, (float) ch, paint_base);
-
-    final String c64_text = TenPrintGenerator.getC64String(i.getTitle());
-    final int grid_count = TenPrintGenerator.getGridCount(i);
-    final int grid_size = cw / grid_count;
-    int grid_cell = 0;
-    for (int y = 0; y < grid_count; ++y) {
-      for (int x = 0; x < grid_count; ++x) {
-        final char c = c64_text.charAt(grid_cell % c64_text.length());
-        final int x_offset = x * grid_size;
-        final int y_offset = start_y + (y * grid_size);
-        TenPrintGenerator.renderGridCharacter(
-          canvas, i, paint_base, paint_shape, c, x_offset, y_offset, grid_size);
-        grid_cell = grid_cell + 1;
+
+    /*
+     * The bitmap may have come from a pool and so may contain anything; the background
+     * rectangle below covers every pixel.
+     */
+
+    final Canvas canvas = s.canvas;
+    canvas.setBitmap(b);
+
+    try {
+      canvas.drawRect(0.0F, 0.0F, (float) cw, (float) ch, paint_base);
+
+      final String c64_text = TenPrintGenerator.getC64String(i.getTitle());
+      final int grid_count = TenPrintGenerator.getGridCount(i);
+      final int grid_size = cw / grid_count;
+      int grid_cell = 0;
+      for (int y = 0; y < grid_count; ++y) {
+        for (int x = 0; x < grid_count; ++x) {
+          final char c = c64_text.charAt(grid_cell % c64_text.length());
+          final int x_offset = x * grid_size;
+          final int y_offset = start_y + (y * grid_size);
+          TenPrintGenerator.renderGridCharacter(
+            s, canvas, i, paint_base, paint_shape, c, x_offset, y_offset, grid_size);
+          grid_cell = grid_cell + 1;
+        }
       }
-    }
 
-    TenPrintGenerator.renderLabel(canvas, i, cw, ch, start_y);
+      final int save = canvas.save();
+      try {
+        TenPrintGenerator.renderLabel(s, canvas, i, cw, ch, start_y);
+      } finally {
+        canvas.restoreToCount(save);
+      }
+    } finally {
+      canvas.setBitmap(null);
+    }
     return b;
   }
+
+  /**
+   * Reusable rendering objects. The generator may be called from several threads at once, and
+   * so each thread has its own set.
+   */
+
+  private static final class RenderState
+  {
+    private final Canvas    canvas;
+    private final Paint     paint_base;
+    private final Paint     paint_label;
+    private final Paint     paint_shape;
+    private final TextPaint paint_author;
+    private final TextPaint paint_title;
+    private final Path      path;
+    private final RectF     rect;
+
+    RenderState()
+    {
+      this.canvas = new Canvas();
+      this.path = new Path();
+      this.rect = new RectF();
+
+      this.paint_base = new Paint();
+      this.paint_base.setAntiAlias(true);
+      this.paint_base.setFilterBitmap(true);
+
+      this.paint_shape = new Paint();
+      this.paint_shape.setAntiAlias(true);
+      this.paint_shape.setFilterBitmap(true);
+
+      this.paint_label = new Paint();
+      this.paint_label.setColor(Color.WHITE);
+      this.paint_label.setAntiAlias(true);
+      this.paint_label.setFilterBitmap(true);
+
+      this.paint_title = new TextPaint();
+      this.paint_title.setColor(Color.BLACK);
+      this.paint_title.setTextAlign(Align.LEFT);
+      this.paint_title.setTypeface(
+        Typeface.create(Typeface.SANS_SERIF, Typeface.BOLD));
+      this.paint_title.setAntiAlias(true);
+
+      this.paint_author = new TextPaint();
+      this.paint_author.setColor(Color.BLACK);
+      this.paint_author.setTextAlign(Align.LEFT);
+      this.paint_author.setTypeface(
+        Typeface.create(Typeface.SANS_SERIF, Typeface.NORMAL));
+      this.paint_author.setAntiAlias(true);
+    }
+  }
 }
@@ -18,4 +18,19 @@ public interface TenPrintGeneratorType
 
   Bitmap generate(
     TenPrintInput i);
+
+  /**
+   * Generate an image based on the given input parameters, rendering into a bitmap obtained
+   * from the given allocator.
+   *
+   * @param i
+   *          The input parameters
+   * @param allocator
+   *          The bitmap allocator
+   * @return A generated bitmap
+   */
+
+  Bitmap generate(
+    TenPrintInput i,
+    TenPrintBitmapAllocatorType allocator);
 }
@@ -0,0 +1,282 @@
+package org.nypl.simplified.tests.analytics
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.Timeout
+import org.junit.jupiter.api.io.TempDir
+import org.nypl.simplified.analytics.api.AnalyticsDeliveryResult
+import org.nypl.simplified.analytics.api.AnalyticsQueue
+import org.nypl.simplified.analytics.api.AnalyticsQueueEntry
+import org.nypl.simplified.analytics.api.AnalyticsQueueStatistics
+import java.io.File
+import java.time.Duration
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class AnalyticsQueueTest {
+
+  private fun awaitStatistics(
+    queue: AnalyticsQueue,
+    condition: (AnalyticsQueueStatistics) -> Boolean
+  ): AnalyticsQueueStatistics {
+    while (true) {
+      val statistics = queue.statistics()
+      if (condition(statistics)) {
+        return statistics
+      }
+      Thread.sleep(10L)
+    }
+  }
+
+  @Test
+  @Timeout(value = 10L, unit = TimeUnit.SECONDS)
+  fun testDeliveredInOrder(@TempDir directory: File) {
+    val delivered = CopyOnWriteArrayList<AnalyticsQueueEntry>()
+
+    AnalyticsQueue.create(
+      directory = directory,
+      name = "test",
+      deliver = { entry ->
+        delivered.add(entry)
+        AnalyticsDeliveryResult.DELIVERED
+      },
+      batchSize = 3
+    ).use { queue ->
+      for (index in 0 until 10) {
+        queue.enqueue("e$index", mapOf("index" to "$index"))
+      }
+
+      val statistics = this.awaitStatistics(queue) { s -> s.delivered == 10L }
+      assertEquals(0, statistics.pending)
+      assertEquals(10L, statistics.enqueued)
+    }
+
+    assertEquals((0 until 10).map { i -> "e$i" }, delivered.map { e -> e.id })
+    assertEquals("3", delivered[3].properties["index"])
+    assertEquals(0, directory.listFiles()!!.size)
+  }
+
+  @Test
+  @Timeout(value = 10L, unit = TimeUnit.SECONDS)
+  fun testDuplicatesIgnored(@TempDir directory: File) {
+    AnalyticsQueue.create(
+      directory = directory,
+      name = "test",
+      deliver = { AnalyticsDeliveryResult.FAILED_TEMPORARILY },
+      retryDelayInitial = Duration.ofHours(1L)
+    ).use { queue ->
+      queue.enqueue("a", mapOf())
+      queue.enqueue("a", mapOf())
+      queue.enqueue("b", mapOf())
+      queue.enqueue("a", mapOf())
+
+      val statistics = this.awaitStatistics(queue) { s -> s.enqueued + s.duplicates == 4L }
+      assertEquals(2L, statistics.enqueued)
+      assertEquals(2L, statistics.duplicates)
+      assertEquals(2, statistics.pending)
+    }
+  }
+
+  @Test
+  @Timeout(value = 10L, unit = TimeUnit.SECONDS)
+  fun testDuplicatesOfDeliveredIgnored(@TempDir directory: File) {
+    val delivered = CopyOnWriteArrayList<String>()
+
+    AnalyticsQueue.create(
+      directory = directory,
+      name = "test",
+      deliver = { entry ->
+        delivered.add(entry.id)
+        AnalyticsDeliveryResult.DELIVERED
+      }
+    ).use { queue ->
+      queue.enqueue("a", mapOf())
+      this.awaitStatistics(queue) { s -> s.delivered == 1L }
+      queue.enqueue("a", mapOf())
+
+      val statistics = this.awaitStatistics(queue) { s -> s.duplicates == 1L }
+      assertEquals(1L, statistics.delivered)
+    }
+
+    assertEquals(listOf("a"), delivered)
+  }
+
+  @Test
+  @Timeout(value = 10L, unit = TimeUnit.SECONDS)
+  fun testEnqueueAfterCloseIgnored(@TempDir directory: File) {
+    val queue =
+      AnalyticsQueue.create(
+        directory = directory,
+        name = "test",
+        deliver = { AnalyticsDeliveryResult.DELIVERED }
+      )
+
+    queue.close()
+    queue.enqueue("a", mapOf())
+    assertEquals(0L, queue.statistics().enqueued)
+  }
+
+  @Test
+  @Timeout(value = 10L, unit = TimeUnit.SECONDS)
+  fun testDeferredDoesNotBlock(@TempDir directory: File) {
+    val delivered = CopyOnWriteArrayList<String>()
+
+    AnalyticsQueue.create(
+      directory = directory,
+      name = "test",
+      deliver = { entry ->
+        if (entry.id.startsWith("d")) {
+          AnalyticsDeliveryResult.DEFERRED
+        } else {
+          delivered.add(entry.id)
+          AnalyticsDeliveryResult.DELIVERED
+        }
+      },
+      batchSize = 2,
+      retryDelayInitial = Duration.ofHours(1L)
+    ).use { queue ->
+      queue.enqueue("d0", mapOf())
+      queue.enqueue("d1", mapOf())
+      queue.enqueue("a", mapOf())
+      queue.enqueue("b", mapOf())
+
+      val statistics = this.awaitStatistics(queue) { s -> s.delivered == 2L }
+      assertEquals(2, statistics.pending)
+      assertEquals(0L, statistics.droppedFailed)
+    }
+
+    assertEquals(listOf("a", "b"), delivered)
+  }
+
+  @Test
+  @Timeout(value = 10L, unit = TimeUnit.SECONDS)
+  fun testRetriedWithBackoff(@TempDir directory: File) {
+    val attempts = CopyOnWriteArrayList<Int>()
+
+    AnalyticsQueue.create(
+      directory = directory,
+      name = "test",
+      deliver = { entry ->
+        attempts.add(entry.attempts)
+        if (entry.attempts < 3) {
+          AnalyticsDeliveryResult.FAILED_TEMPORARILY
+        } else {
+          AnalyticsDeliveryResult.DELIVERED
+        }
+      },
+      retryDelayInitial = Duration.ofMillis(10L),
+      retryDelayMaximum = Duration.ofMillis(40L)
+    ).use { queue ->
+      queue.enqueue("a", mapOf())
+      this.awaitStatistics(queue) { s -> s.delivered == 1L }
+    }
+
+    assertEquals(listOf(0, 1, 2, 3), attempts)
+  }
+
+  @Test
+  @Timeout(value = 10L, unit = TimeUnit.SECONDS)
+  fun testDroppedAfterAttempts(@TempDir directory: File) {
+    AnalyticsQueue.create(
+      directory = directory,
+      name = "test",
+      deliver = { AnalyticsDeliveryResult.FAILED_TEMPORARILY },
+      attemptsMaximum = 3,
+      retryDelayInitial = Duration.ofMillis(1L),
+      retryDelayMaximum = Duration.ofMillis(1L)
+    ).use { queue ->
+      queue.enqueue("a", mapOf())
+      queue.enqueue("b", mapOf())
+
+      val statistics = this.awaitStatistics(queue) { s -> s.droppedFailed == 2L }
+      assertEquals(0, statistics.pending)
+      assertEquals(0L, statistics.delivered)
+    }
+  }
+
+  @Test
+  @Timeout(value = 10L, unit = TimeUnit.SECONDS)
+  fun testDroppedPermanently(@TempDir directory: File) {
+    AnalyticsQueue.create(
+      directory = directory,
+      name = "test",
+      deliver = { AnalyticsDeliveryResult.FAILED_PERMANENTLY }
+    ).use { queue ->
+      queue.enqueue("a", mapOf())
+      this.awaitStatistics(queue) { s -> s.droppedFailed == 1L }
+    }
+    assertEquals(0, directory.listFiles()!!.size)
+  }
+
+  @Test
+  @Timeout(value = 10L, unit = TimeUnit.SECONDS)
+  fun testCapacityDropsOldest(@TempDir directory: File) {
+    AnalyticsQueue.create(
+      directory = directory,
+      name = "test",
+      deliver = { AnalyticsDeliveryResult.FAILED_TEMPORARILY },
+      capacity = 3,
+      retryDelayInitial = Duration.ofHours(1L)
+    ).use { queue ->
+      for (index in 0 until 6) {
+        queue.enqueue("e$index", mapOf())
+      }
+
+      val statistics = this.awaitStatistics(queue) { s -> s.enqueued == 6L }
+      assertEquals(3, statistics.pending)
+      assertEquals(3L, statistics.droppedOverflow)
+    }
+
+    val delivered = CopyOnWriteArrayList<String>()
+    AnalyticsQueue.create(
+      directory = directory,
+      name = "test",
+      deliver = { entry ->
+        delivered.add(entry.id)
+        AnalyticsDeliveryResult.DELIVERED
+      }
+    ).use { queue ->
+      this.awaitStatistics(queue) { s -> s.delivered == 3L }
+    }
+
+    assertEquals(listOf("e3", "e4", "e5"), delivered)
+  }
+
+  @Test
+  @Timeout(value = 10L, unit = TimeUnit.SECONDS)
+  fun testSurvivesRestart(@TempDir directory: File) {
+    val attempted = CountDownLatch(1)
+
+    AnalyticsQueue.create(
+      directory = directory,
+      name = "test",
+      deliver = {
+        attempted.countDown()
+        AnalyticsDeliveryResult.FAILED_TEMPORARILY
+      },
+      retryDelayInitial = Duration.ofHours(1L)
+    ).use { queue ->
+      queue.enqueue("a", mapOf("x" to "y"))
+      queue.enqueue("b", mapOf())
+      attempted.await()
+    }
+
+    val delivered = CopyOnWriteArrayList<AnalyticsQueueEntry>()
+    AnalyticsQueue.create(
+      directory = directory,
+      name = "test",
+      deliver = { entry ->
+        delivered.add(entry)
+        AnalyticsDeliveryResult.DELIVERED
+      }
+    ).use { queue ->
+      this.awaitStatistics(queue) { s -> s.delivered == 2L }
+    }
+
+    assertEquals(listOf("a", "b"), delivered.map { e -> e.id })
+    assertEquals(1, delivered[0].attempts)
+    assertEquals(mapOf("x" to "y"), delivered[0].properties)
+  }
+}
@@ -12,6 +12,7 @@ import org.nypl.simplified.accounts.api.AccountPassword
 import org.nypl.simplified.accounts.api.AccountUsername
 import org.nypl.simplified.accounts.database.AccountAuthenticationCredentialsStore
 import org.nypl.simplified.accounts.json.AccountAuthenticationCredentialsJSON
+import org.nypl.simplified.accounts.json.AccountAuthenticationCredentialsStoreJSON
 import org.nypl.simplified.json.core.JSONParseException
 import org.nypl.simplified.patron.api.PatronAuthorization
 import org.slf4j.Logger
@@ -19,6 +20,7 @@ import org.slf4j.LoggerFactory
 import java.io.File
 import java.io.FileOutputStream
 import java.net.URI
+import java.time.Duration
 import java.util.UUID
 
 class AccountAuthenticationCredentialsStoreTest {
@@ -245,4 +247,153 @@ class AccountAuthenticationCredentialsStoreTest {
     Assertions.assertEquals(null, store.get(accountID))
     Assertions.assertEquals(0, store.size())
   }
+
+  @Test
+  fun testOpenUnchangedDoesNotRewrite() {
+    val store0 =
+      AccountAuthenticationCredentialsStore.open(this.file, this.fileTemp)
+
+    store0.put(AccountID.generate(), this.basicCredentials())
+    Assertions.assertTrue(this.file.setLastModified(1_000L))
+
+    val store1 =
+      AccountAuthenticationCredentialsStore.open(this.file, this.fileTemp)
+
+    Assertions.assertEquals(1, store1.size())
+    Assertions.assertEquals(1_000L, this.file.lastModified())
+  }
+
+  @Test
+  fun testPutUnchangedDoesNotRewrite() {
+    val store =
+      AccountAuthenticationCredentialsStore.open(this.file, this.fileTemp)
+
+    val accountID = AccountID.generate()
+    store.put(accountID, this.basicCredentials())
+    Assertions.assertTrue(this.file.setLastModified(1_000L))
+
+    store.put(accountID, this.basicCredentials())
+    store.flush()
+    Assertions.assertEquals(1_000L, this.file.lastModified())
+  }
+
+  @Test
+  fun testWriteBehindFlush() {
+    val store0 =
+      AccountAuthenticationCredentialsStore.open(
+        file = this.file,
+        fileTemp = this.fileTemp,
+        writeDelay = Duration.ofHours(1L)
+      )
+
+    val accountID = AccountID.generate()
+    val credentials = this.basicCredentials()
+    store0.put(accountID, credentials)
+    Assertions.assertEquals(credentials, store0.get(accountID))
+
+    val store1 =
+      AccountAuthenticationCredentialsStore.open(this.file, this.fileTemp)
+    Assertions.assertEquals(null, store1.get(accountID))
+
+    store0.flush()
+
+    val store2 =
+      AccountAuthenticationCredentialsStore.open(this.file, this.fileTemp)
+    Assertions.assertEquals(credentials, store2.get(accountID))
+  }
+
+  @Test
+  fun testWriteBehindClose() {
+    val store0 =
+      AccountAuthenticationCredentialsStore.open(
+        file = this.file,
+        fileTemp = this.fileTemp,
+        writeDelay = Duration.ofHours(1L)
+      )
+
+    val accountID0 = AccountID.generate()
+    val accountID1 = AccountID.generate()
+    store0.put(accountID0, this.basicCredentials())
+    store0.put(accountID1, this.basicCredentials())
+    store0.delete(accountID0)
+    store0.close()
+
+    val store1 =
+      AccountAuthenticationCredentialsStore.open(this.file, this.fileTemp)
+    Assertions.assertEquals(1, store1.size())
+    Assertions.assertEquals(null, store1.get(accountID0))
+    Assertions.assertNotNull(store1.get(accountID1))
+  }
+
+  @Test
+  fun testWriteBehindScheduled() {
+    val store0 =
+      AccountAuthenticationCredentialsStore.open(
+        file = this.file,
+        fileTemp = this.fileTemp,
+        writeDelay = Duration.ofMillis(10L)
+      )
+
+    val accountID = AccountID.generate()
+    store0.put(accountID, this.basicCredentials())
+
+    val timeEnd = System.currentTimeMillis() + 5_000L
+    while (System.currentTimeMillis() < timeEnd) {
+      val written =
+        AccountAuthenticationCredentialsStoreJSON.deserializeFromText(this.file.readText())
+      if (written.containsKey(accountID)) {
+        return
+      }
+      Thread.sleep(10L)
+    }
+    Assertions.fail<Unit>("Credentials were never written.")
+  }
+
+  @Test
+  fun testWriteBehindRetriedAfterFailure() {
+    val store0 =
+      AccountAuthenticationCredentialsStore.open(
+        file = this.file,
+        fileTemp = this.fileTemp,
+        writeDelay = Duration.ofMillis(10L)
+      )
+
+    /*
+     * A directory in place of the temporary file causes writes to fail.
+     */
+
+    Assertions.assertTrue(this.fileTemp.mkdir())
+
+    val accountID = AccountID.generate()
+    store0.put(accountID, this.basicCredentials())
+    Thread.sleep(100L)
+
+    Assertions.assertFalse(
+      AccountAuthenticationCredentialsStoreJSON.deserializeFromText(this.file.readText())
+        .containsKey(accountID)
+    )
+    Assertions.assertTrue(this.fileTemp.delete())
+
+    val timeEnd = System.currentTimeMillis() + 10_000L
+    while (System.currentTimeMillis() < timeEnd) {
+      val written =
+        AccountAuthenticationCredentialsStoreJSON.deserializeFromText(this.file.readText())
+      if (written.containsKey(accountID)) {
+        return
+      }
+      Thread.sleep(10L)
+    }
+    Assertions.fail<Unit>("Credentials were never written.")
+  }
+
+  private fun basicCredentials(): AccountAuthenticationCredentials =
+    AccountAuthenticationCredentials.Basic(
+      userName = AccountUsername("abcd"),
+      password = AccountPassword("1234"),
+      adobeCredentials = null,
+      authenticationDescription = null,
+      annotationsURI = URI("https://www.example.com"),
+      deviceRegistrationURI = URI("https://www.example.com"),
+      patronAuthorization = PatronAuthorization("identifier", null)
+    )
 }
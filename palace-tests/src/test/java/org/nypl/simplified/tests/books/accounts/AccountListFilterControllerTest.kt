@@ -0,0 +1,70 @@
+package org.nypl.simplified.tests.books.accounts
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.nypl.simplified.accounts.api.AccountProviderDescription
+import org.nypl.simplified.ui.accounts.AccountListFilterController
+import java.net.URI
+import java.time.OffsetDateTime
+import java.time.ZoneOffset
+
+class AccountListFilterControllerTest {
+
+  private lateinit var published: List<AccountProviderDescription>
+  private lateinit var controller: AccountListFilterController
+
+  private val alameda = this.description("Alameda County Library")
+  private val berkeley = this.description("Berkeley Public Library")
+  private val newYork = this.description("The New York Public Library")
+  private val yolo = this.description("Yolo County Library")
+
+  @BeforeEach
+  fun testSetup() {
+    this.published = listOf()
+    this.controller = AccountListFilterController { items -> this.published = items }
+    this.controller.submit(listOf(this.alameda, this.berkeley, this.newYork, this.yolo))
+  }
+
+  private fun description(title: String): AccountProviderDescription =
+    AccountProviderDescription(
+      id = URI.create("urn:${title.replace(' ', '-')}"),
+      title = title,
+      description = "",
+      updated = OffsetDateTime.now(ZoneOffset.UTC),
+      links = listOf(),
+      images = listOf(),
+    )
+
+  private fun titles(): List<String> =
+    this.published.map { description -> description.title }
+
+  /**
+   * Search results are shown ahead of the items matched by the filter, and items matched only
+   * by the filter are not hidden.
+   */
+
+  @Test
+  fun testResultsRankedAheadOfFilter() {
+    this.controller.filterSet { account -> account.title.contains("ty", ignoreCase = true) }
+    assertEquals(listOf(this.alameda.title, this.yolo.title), this.titles())
+
+    this.controller.filterSetResults(listOf(this.yolo, this.newYork))
+    assertEquals(
+      listOf(this.yolo.title, this.newYork.title, this.alameda.title),
+      this.titles()
+    )
+  }
+
+  /**
+   * Setting a new filter discards the results of an earlier search.
+   */
+
+  @Test
+  fun testFilterDiscardsResults() {
+    this.controller.filterSet { account -> account.title.contains("ty", ignoreCase = true) }
+    this.controller.filterSetResults(listOf(this.newYork))
+    this.controller.filterSet { account -> account.title.contains("berk", ignoreCase = true) }
+    assertEquals(listOf(this.berkeley.title), this.titles())
+  }
+}
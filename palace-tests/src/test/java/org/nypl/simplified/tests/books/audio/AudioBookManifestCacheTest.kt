@@ -0,0 +1,123 @@
+package org.nypl.simplified.tests.books.audio
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertNotEquals
+import org.junit.jupiter.api.Assertions.assertNull
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.librarysimplified.audiobook.manifest.api.PlayerPalaceID
+import org.nypl.simplified.accounts.api.AccountID
+import org.nypl.simplified.books.audio.AudioBookManifestCache
+import java.net.URI
+import java.time.Duration
+import java.time.Instant
+
+class AudioBookManifestCacheTest {
+
+  private val palaceID =
+    PlayerPalaceID("c925eb26-ab0c-44e2-9bec-ca4c38c0b6c8")
+
+  private lateinit var now: Instant
+  private lateinit var cache: AudioBookManifestCache
+
+  @BeforeEach
+  fun testSetup() {
+    this.now = Instant.parse("2024-01-01T00:00:00Z")
+    this.cache =
+      AudioBookManifestCache.create(
+        clock = { this.now },
+        manifestExpiry = Duration.ofHours(1L),
+        licenseCheckExpiry = Duration.ofMinutes(15L),
+        capacity = 2
+      )
+  }
+
+  private fun keyOf(index: Int): AudioBookManifestCache.Key =
+    AudioBookManifestCache.keyOf(this.palaceID, null, byteArrayOf(index.toByte()))
+
+  /**
+   * Keys depend on the identifier, the source, the content of the manifest and license, and
+   * the account.
+   */
+
+  @Test
+  fun testKeys() {
+    val bytes = ByteArray(23)
+    val source = URI.create("http://www.example.com")
+    val key = AudioBookManifestCache.keyOf(this.palaceID, source, bytes)
+
+    assertEquals(key, AudioBookManifestCache.keyOf(this.palaceID, source, bytes.copyOf()))
+    assertNotEquals(key, AudioBookManifestCache.keyOf(this.palaceID, null, bytes))
+    assertNotEquals(key, AudioBookManifestCache.keyOf(this.palaceID, source, ByteArray(24)))
+    assertNotEquals(key, AudioBookManifestCache.keyOf(this.palaceID, source, bytes, ByteArray(1)))
+    assertNotEquals(
+      key,
+      AudioBookManifestCache.keyOf(this.palaceID, source, bytes, null, AccountID.generate())
+    )
+    assertNotEquals(
+      key,
+      AudioBookManifestCache.keyOf(PlayerPalaceID("6c15709a-b9cd-4eb8-815a-309f5d738a11"), source, bytes)
+    )
+  }
+
+  /**
+   * Parsed manifests expire.
+   */
+
+  @Test
+  fun testManifestExpiry() {
+    val key = this.keyOf(0)
+    assertNull(this.cache.manifest(key))
+
+    this.cache.putManifest(key, AudioBookSucceedingParsers.playerManifest)
+    this.now = this.now.plus(Duration.ofMinutes(59L))
+    assertEquals(AudioBookSucceedingParsers.playerManifest, this.cache.manifest(key))
+
+    this.now = this.now.plus(Duration.ofMinutes(1L))
+    assertNull(this.cache.manifest(key))
+  }
+
+  /**
+   * License checks expire sooner than parsed manifests.
+   */
+
+  @Test
+  fun testLicenseCheckExpiry() {
+    val key = this.keyOf(0)
+    assertFalse(this.cache.isLicenseChecked(key))
+
+    this.cache.putManifest(key, AudioBookSucceedingParsers.playerManifest)
+    this.cache.putLicenseChecked(key)
+    this.now = this.now.plus(Duration.ofMinutes(14L))
+    assertTrue(this.cache.isLicenseChecked(key))
+
+    this.now = this.now.plus(Duration.ofMinutes(1L))
+    assertFalse(this.cache.isLicenseChecked(key))
+    assertEquals(AudioBookSucceedingParsers.playerManifest, this.cache.manifest(key))
+  }
+
+  /**
+   * The least recently used entries are discarded once the cache is full.
+   */
+
+  @Test
+  fun testCapacity() {
+    val key0 = this.keyOf(0)
+    val key1 = this.keyOf(1)
+    val key2 = this.keyOf(2)
+
+    this.cache.putManifest(key0, AudioBookSucceedingParsers.playerManifest)
+    this.cache.putManifest(key1, AudioBookSucceedingParsers.playerManifest)
+    this.cache.manifest(key0)
+    this.cache.putManifest(key2, AudioBookSucceedingParsers.playerManifest)
+
+    assertEquals(AudioBookSucceedingParsers.playerManifest, this.cache.manifest(key0))
+    assertNull(this.cache.manifest(key1))
+    assertEquals(AudioBookSucceedingParsers.playerManifest, this.cache.manifest(key2))
+
+    this.cache.clear()
+    assertNull(this.cache.manifest(key0))
+  }
+}
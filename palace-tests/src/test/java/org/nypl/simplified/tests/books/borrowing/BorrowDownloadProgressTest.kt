@@ -0,0 +1,148 @@
+package org.nypl.simplified.tests.books.borrowing
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.mockito.Mockito
+import org.mockito.stubbing.Answer
+import org.nypl.simplified.accounts.database.api.AccountType
+import org.nypl.simplified.books.borrowing.BorrowContextType
+import org.nypl.simplified.books.borrowing.internal.BorrowDownloadProgress
+
+class BorrowDownloadProgressTest {
+
+  private lateinit var account: AccountType
+  private lateinit var context: BorrowContextType
+  private lateinit var published: MutableList<Pair<String, Long?>>
+  private lateinit var tokens: MutableList<String?>
+  private var timeNow = 0L
+
+  @BeforeEach
+  fun testSetup() {
+    this.published = mutableListOf()
+    this.tokens = mutableListOf()
+    this.timeNow = 0L
+
+    this.account =
+      Mockito.mock(
+        AccountType::class.java,
+        Answer { invocation ->
+          if (invocation.method.name == "updateBasicTokenCredentials") {
+            this.tokens.add(invocation.arguments[0] as String?)
+          }
+          null
+        }
+      )
+
+    this.context =
+      Mockito.mock(
+        BorrowContextType::class.java,
+        Answer { invocation ->
+          when (invocation.method.name) {
+            "getAccount" -> this.account
+            "bookDownloadIsRunning" -> {
+              this.published.add(
+                Pair(invocation.arguments[0] as String, invocation.arguments[1] as Long?)
+              )
+              null
+            }
+            else -> null
+          }
+        }
+      )
+  }
+
+  private fun progress(): BorrowDownloadProgress =
+    BorrowDownloadProgress(
+      context = this.context,
+      intervalMinimumMillis = 250L,
+      intervalMaximumMillis = 1_000L,
+      percentStep = 1,
+      nanoTime = { this.timeNow }
+    )
+
+  /**
+   * A large download publishes a bounded number of statuses, including the first and last.
+   */
+
+  @Test
+  fun testLargeDownloadThrottled() {
+    val progress = this.progress()
+    val expected = 500L * 1024L * 1024L
+    val buffer = 16L * 1024L
+
+    var received = 0L
+    while (received < expected) {
+      received = minOf(expected, received + buffer)
+      this.timeNow += 100_000L
+      progress.onReceiving("token", received, expected, 1_000L)
+    }
+
+    assertEquals(expected / buffer, progress.receivedCount)
+    assertEquals(progress.publishedCount, this.published.size.toLong())
+    assertTrue(
+      this.published.size <= 20,
+      "Published ${this.published.size} statuses"
+    )
+    assertEquals(buffer, this.published.first().second)
+    assertEquals(expected, this.published.last().second)
+    assertEquals(
+      "Downloading $expected / $expected (1000)...",
+      this.published.last().first
+    )
+  }
+
+  /**
+   * Statuses are never published more often than the minimum interval, except for the last.
+   */
+
+  @Test
+  fun testMinimumInterval() {
+    val progress = this.progress()
+    for (index in 1..99) {
+      this.timeNow += 10_000_000L
+      progress.onReceiving(null, index.toLong(), 100L, 0L)
+    }
+
+    /*
+     * One status for the first event, and one for every 250ms afterwards: 10ms, 260ms, 510ms,
+     * and 760ms.
+     */
+
+    assertEquals(4, this.published.size)
+    progress.onReceiving(null, 100L, 100L, 0L)
+    assertEquals(5, this.published.size)
+  }
+
+  /**
+   * Downloads of unknown size publish statuses at the maximum interval.
+   */
+
+  @Test
+  fun testUnknownSize() {
+    val progress = this.progress()
+    for (index in 1..100) {
+      this.timeNow += 100_000_000L
+      progress.onReceiving(null, index * 1000L, null, 0L)
+    }
+    assertEquals(10, this.published.size)
+    assertEquals("Downloading...", this.published.last().first)
+  }
+
+  /**
+   * Credentials are only updated when the access token changes.
+   */
+
+  @Test
+  fun testAccessTokenChanges() {
+    val progress = this.progress()
+    progress.onReceiving(null, 1L, 100L, 0L)
+    progress.onReceiving("a", 2L, 100L, 0L)
+    progress.onReceiving("a", 3L, 100L, 0L)
+    progress.onReceiving("", 4L, 100L, 0L)
+    progress.onReceiving("b", 5L, 100L, 0L)
+    progress.onReceiving("b", 6L, 100L, 0L)
+    assertEquals(listOf<String?>("a", "b"), this.tokens)
+  }
+}
@@ -0,0 +1,176 @@
+package org.nypl.simplified.tests.books.controller
+
+import org.joda.time.DateTime
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.nypl.simplified.accounts.api.AccountID
+import org.nypl.simplified.books.api.Book
+import org.nypl.simplified.books.api.BookIDs
+import org.nypl.simplified.books.book_registry.BookRegistry
+import org.nypl.simplified.books.book_registry.BookRegistryType
+import org.nypl.simplified.books.book_registry.BookStatus
+import org.nypl.simplified.books.book_registry.BookWithStatus
+import org.nypl.simplified.books.controller.ProfileFeedIndex
+import org.nypl.simplified.feeds.api.FeedFacet.FeedFacetPseudo.Sorting.SortBy
+import org.nypl.simplified.opds.core.OPDSAcquisitionFeedEntry
+import org.nypl.simplified.opds.core.OPDSAvailabilityLoanable
+import java.util.Locale
+import java.util.UUID
+
+class ProfileFeedIndexTest {
+
+  private lateinit var accountID: AccountID
+  private lateinit var bookRegistry: BookRegistryType
+
+  @BeforeEach
+  fun testSetup() {
+    this.accountID = AccountID(UUID.randomUUID())
+    this.bookRegistry = BookRegistry.create()
+  }
+
+  private fun bookOf(
+    id: String,
+    title: String,
+    vararg authors: String
+  ): BookWithStatus {
+    val builder =
+      OPDSAcquisitionFeedEntry.newBuilder(
+        id, title, DateTime.now(), OPDSAvailabilityLoanable.get()
+      )
+    for (author in authors) {
+      builder.addAuthor(author)
+    }
+    val book =
+      Book(
+        BookIDs.newFromText(id),
+        this.accountID,
+        null,
+        null,
+        builder.build(),
+        listOf()
+      )
+    return BookWithStatus(book, BookStatus.fromBook(book))
+  }
+
+  private fun titlesOf(books: List<BookWithStatus>): List<String> =
+    books.map { book -> book.book.entry.title }
+
+  /**
+   * Searching matches substrings of titles and authors, for any term.
+   */
+
+  @Test
+  fun testSearch() {
+    val books =
+      listOf(
+        this.bookOf("a", "Harry Potter", "J. K. Rowling"),
+        this.bookOf("b", "The Hobbit", "J. R. R. Tolkien"),
+        this.bookOf("c", "Dune", "Frank Herbert"),
+        this.bookOf("d", "Emma")
+      )
+    books.forEach(this.bookRegistry::update)
+
+    val index = ProfileFeedIndex.create(this.bookRegistry, Locale.ENGLISH)
+
+    val results0 = ArrayList(books)
+    index.search(listOf("ARR"), results0)
+    assertEquals(listOf("Harry Potter"), this.titlesOf(results0))
+
+    val results1 = ArrayList(books)
+    index.search(listOf("TOLK", "UNE"), results1)
+    assertEquals(listOf("The Hobbit", "Dune"), this.titlesOf(results1))
+
+    val results2 = ArrayList(books)
+    index.search(listOf("EM"), results2)
+    assertEquals(listOf("Emma"), this.titlesOf(results2))
+
+    val results3 = ArrayList(books)
+    index.search(listOf("NOTHING"), results3)
+    assertEquals(listOf<String>(), this.titlesOf(results3))
+
+    val results4 = ArrayList(books)
+    index.search(listOf(), results4)
+    assertEquals(4, results4.size)
+  }
+
+  /**
+   * Books are reindexed when the registry changes, including when their entries change without
+   * their status changing.
+   */
+
+  @Test
+  fun testSearchUpdated() {
+    val book0 = this.bookOf("a", "Harry Potter", "J. K. Rowling")
+    this.bookRegistry.update(book0)
+
+    val index = ProfileFeedIndex.create(this.bookRegistry, Locale.ENGLISH)
+
+    val book1 = this.bookOf("b", "The Hobbit", "J. R. R. Tolkien")
+    this.bookRegistry.update(book1)
+
+    val results0 = ArrayList(listOf(book0, book1))
+    index.search(listOf("HOBBIT"), results0)
+    assertEquals(listOf("The Hobbit"), this.titlesOf(results0))
+
+    /*
+     * Replace the entry of the first book without changing its status.
+     */
+
+    val book0Renamed = this.bookOf("a", "Middlemarch", "George Eliot")
+    this.bookRegistry.update(book0Renamed)
+
+    val results1 = ArrayList(listOf(book0Renamed, book1))
+    index.search(listOf("MIDDLE"), results1)
+    assertEquals(listOf("Middlemarch"), this.titlesOf(results1))
+
+    val results2 = ArrayList(listOf(book0Renamed, book1))
+    index.search(listOf("POTTER"), results2)
+    assertEquals(listOf<String>(), this.titlesOf(results2))
+
+    index.close()
+  }
+
+  /**
+   * Sorting uses locale-sensitive collation.
+   */
+
+  @Test
+  fun testSortByTitle() {
+    val books =
+      arrayListOf(
+        this.bookOf("a", "zebra"),
+        this.bookOf("b", "Émile"),
+        this.bookOf("c", "apple"),
+        this.bookOf("d", "Banana")
+      )
+    books.forEach(this.bookRegistry::update)
+
+    val index = ProfileFeedIndex.create(this.bookRegistry, Locale.ENGLISH)
+    index.sort(SortBy.SORT_BY_TITLE, books)
+    assertEquals(listOf("apple", "Banana", "Émile", "zebra"), this.titlesOf(books))
+  }
+
+  /**
+   * Sorting by author places books without authors last.
+   */
+
+  @Test
+  fun testSortByAuthor() {
+    val books =
+      arrayListOf(
+        this.bookOf("a", "No Author 0"),
+        this.bookOf("b", "Tolkien", "tolkien"),
+        this.bookOf("c", "Austen", "Austen"),
+        this.bookOf("d", "No Author 1")
+      )
+    books.forEach(this.bookRegistry::update)
+
+    val index = ProfileFeedIndex.create(this.bookRegistry, Locale.ENGLISH)
+    index.sort(SortBy.SORT_BY_AUTHOR, books)
+    assertEquals(
+      listOf("Austen", "Tolkien", "No Author 0", "No Author 1"),
+      this.titlesOf(books)
+    )
+  }
+}
@@ -0,0 +1,123 @@
+package org.nypl.simplified.tests.books.preview
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertNotNull
+import org.junit.jupiter.api.Assertions.assertNull
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.nypl.simplified.books.book_database.api.BookFormats
+import org.nypl.simplified.books.formats.api.StandardFormatNames
+import org.nypl.simplified.books.preview.BookPreviewStorage
+import org.nypl.simplified.tests.TestDirectories
+import java.io.File
+import java.net.URI
+
+class BookPreviewStorageTest {
+
+  private lateinit var directory: File
+  private lateinit var storage: BookPreviewStorage
+
+  @BeforeEach
+  fun testSetup() {
+    this.directory = TestDirectories.temporaryDirectory()
+    this.storage = BookPreviewStorage.create(File(this.directory, "previews"), 3700L)
+  }
+
+  private fun download(text: String): File {
+    val file = File(this.directory, "download.tmp")
+    file.writeText(text)
+    return file
+  }
+
+  private fun save(
+    bookID: String,
+    text: String,
+    eTag: String? = null
+  ): File =
+    this.storage.save(
+      bookID = bookID,
+      uri = URI.create("http://www.example.com/$bookID"),
+      format = BookFormats.BookFormatDefinition.BOOK_FORMAT_EPUB,
+      mimeType = StandardFormatNames.genericEPUBFiles,
+      file = this.download(text),
+      eTag = eTag,
+      lastModified = null
+    )
+
+  private fun find(bookID: String): BookPreviewStorage.Entry? =
+    this.storage.find(bookID, URI.create("http://www.example.com/$bookID"))
+
+  /**
+   * Saved previews can be found along with their validators.
+   */
+
+  @Test
+  fun testSaveFind() {
+    assertNull(this.find("a"))
+
+    val file = this.save("a", "Preview A", eTag = "\"v1\"")
+    val entry = this.find("a")!!
+    assertEquals(file, entry.file)
+    assertEquals("\"v1\"", entry.eTag)
+    assertNull(entry.lastModified)
+    assertEquals("Preview A", entry.file.readText())
+    assertNull(this.storage.find("a", URI.create("http://www.example.com/b")))
+
+    assertEquals(file, this.storage.reuse(entry))
+    assertEquals(1L, this.storage.hitCount)
+    assertEquals(1L, this.storage.missCount)
+  }
+
+  /**
+   * Saving a preview replaces the existing preview, and leaves no temporary files behind.
+   */
+
+  @Test
+  fun testReplace() {
+    val file0 = this.save("a", "Preview A", eTag = "\"v1\"")
+    val file1 = this.save("a", "Preview A, revised", eTag = "\"v2\"")
+
+    assertEquals(file0, file1)
+    assertEquals("Preview A, revised", file1.readText())
+    assertEquals("\"v2\"", this.find("a")?.eTag)
+    assertEquals(
+      listOf<String>(),
+      File(this.directory, "previews").list()!!.filter { name -> name.endsWith(".tmp") }
+    )
+  }
+
+  /**
+   * The least recently used previews are discarded once the cache is full, and the most
+   * recently saved preview is always kept.
+   */
+
+  @Test
+  fun testEviction() {
+    val padding = "x".repeat(1000)
+    val fileA = this.save("a", padding)
+    val fileB = this.save("b", padding)
+    fileA.setLastModified(System.currentTimeMillis() - 20_000L)
+    fileB.setLastModified(System.currentTimeMillis() - 10_000L)
+    this.storage.reuse(this.find("a")!!)
+
+    val fileC = this.save("c", padding)
+    fileC.setLastModified(System.currentTimeMillis() - 5_000L)
+    assertEquals(0L, this.storage.evictionCount)
+
+    this.save("d", padding)
+    assertEquals(1L, this.storage.evictionCount)
+    assertNull(this.find("b"))
+    assertFalse(fileB.exists())
+    assertNotNull(this.find("a"))
+    assertNotNull(this.find("c"))
+    assertNotNull(this.find("d"))
+
+    val fileE = this.save("e", "x".repeat(5000))
+    assertEquals(4L, this.storage.evictionCount)
+    assertTrue(fileE.isFile)
+    assertNotNull(this.find("e"))
+    assertNull(this.find("a"))
+  }
+}
@@ -21,6 +21,7 @@ import org.nypl.simplified.books.book_registry.BookPreviewStatus
 import org.nypl.simplified.books.formats.api.StandardFormatNames
 import org.nypl.simplified.books.preview.BookPreviewErrorCodes
 import org.nypl.simplified.books.preview.BookPreviewRequirements
+import org.nypl.simplified.books.preview.BookPreviewStorage
 import org.nypl.simplified.books.preview.BookPreviewTask
 import org.nypl.simplified.opds.core.OPDSAcquisitionFeedEntry
 import org.nypl.simplified.taskrecorder.api.TaskResult
@@ -201,6 +202,55 @@ class BookPreviewTaskTest {
     Assertions.assertEquals(0, this.bookPreviewStatus.size)
   }
 
+  /**
+   * A cached preview is revalidated with a conditional request, and is served from the cache
+   * if the server reports that it has not changed.
+   */
+
+  @Test
+  fun testCachedPreviewRevalidated() {
+    val storage =
+      BookPreviewStorage.createInPreviewDirectory(this.temporaryDirectory)
+
+    this.webServer.enqueue(
+      MockResponse()
+        .setResponseCode(200)
+        .setHeader("ETag", "\"v1\"")
+        .setBody("Success")
+    )
+    this.webServer.enqueue(
+      MockResponse()
+        .setResponseCode(304)
+        .setHeader("ETag", "\"v1\"")
+    )
+
+    executeAssumingSuccess(
+      createTask(
+        entry = this.opdsFeedEntryPreviewEPUB,
+        format = BookFormats.BookFormatDefinition.BOOK_FORMAT_EPUB,
+        storage = storage
+      )
+    )
+    executeAssumingSuccess(
+      createTask(
+        entry = this.opdsFeedEntryPreviewEPUB,
+        format = BookFormats.BookFormatDefinition.BOOK_FORMAT_EPUB,
+        storage = storage
+      )
+    )
+
+    Assertions.assertNull(this.webServer.takeRequest().getHeader("If-None-Match"))
+    Assertions.assertEquals("\"v1\"", this.webServer.takeRequest().getHeader("If-None-Match"))
+    Assertions.assertEquals(1L, storage.missCount)
+    Assertions.assertEquals(1L, storage.hitCount)
+
+    val ready =
+      this.bookPreviewStatus.filterIsInstance<BookPreviewStatus.HasPreview.Ready.BookPreview>()
+    Assertions.assertEquals(2, ready.size)
+    Assertions.assertEquals(ready[0].file, ready[1].file)
+    Assertions.assertEquals("Success", ready[1].file.readText())
+  }
+
   @Test
   fun testErrorDownloading() {
     val task = createTask(
@@ -261,14 +311,17 @@ class BookPreviewTaskTest {
 
   private fun createTask(
     entry: OPDSAcquisitionFeedEntry,
-    format: BookFormats.BookFormatDefinition
+    format: BookFormats.BookFormatDefinition,
+    storage: BookPreviewStorage =
+      BookPreviewStorage.createInPreviewDirectory(this.temporaryDirectory)
   ): BookPreviewTask {
     return BookPreviewTask(
       bookPreviewRegistry = bookPreviewRegistry,
       bookPreviewRequirements = BookPreviewRequirements(
         clock = { Instant.now() },
         httpClient = this.httpClient,
-        temporaryDirectory = this.temporaryDirectory
+        temporaryDirectory = this.temporaryDirectory,
+        storage = storage
       ),
       feedEntry = entry,
       format = format
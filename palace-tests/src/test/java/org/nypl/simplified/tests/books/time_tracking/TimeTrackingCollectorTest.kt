@@ -18,7 +18,7 @@ import org.mockito.Mockito
 import org.nypl.simplified.accounts.api.AccountProviderType
 import org.nypl.simplified.books.time.tracking.TimeTrackingCollector
 import org.nypl.simplified.books.time.tracking.TimeTrackingCollectorServiceType
-import org.nypl.simplified.books.time.tracking.TimeTrackingReceivedSpan
+import org.nypl.simplified.books.time.tracking.TimeTrackingSpanJournal
 import org.nypl.simplified.books.time.tracking.TimeTrackingStatus
 import org.nypl.simplified.tests.mocking.MockAccount
 import org.nypl.simplified.tests.mocking.MockProfile
@@ -120,16 +120,16 @@ class TimeTrackingCollectorTest {
 
     this.collector.awaitWrite(1L, TimeUnit.SECONDS)
 
-    val fileExpected =
-      this.inboxDirectory.resolve("0af973ee-9a2a-4ac3-a330-d8baee101df7.ttspan")
-
     val filesNow = Files.list(this.inboxDirectory).collect(Collectors.toUnmodifiableList())
     this.logger.debug("Files now: {}", filesNow)
-    if (!filesNow.contains(fileExpected)) {
+    if (filesNow.size != 1 || !TimeTrackingSpanJournal.isSegment(filesNow[0])) {
       throw IllegalStateException("Files not written!")
     }
 
-    val o = TimeTrackingReceivedSpan.ofFile(fileExpected)
+    val spans = TimeTrackingSpanJournal.readSegment(filesNow[0])
+    assertEquals(1, spans.size)
+
+    val o = spans[0]
     assertEquals(
       OffsetDateTime.parse("2024-10-10T00:00:00Z"),
       o.timeStarted
@@ -156,6 +156,38 @@ class TimeTrackingCollectorTest {
     )
   }
 
+  @Test
+  @Timeout(value = 5L, unit = TimeUnit.SECONDS)
+  fun testCollectorAppendsSpansToSegment() {
+    this.status.set(TimeTrackingStatus.Active(
+      accountID = this.accountRef.id,
+      bookId = this.palaceID,
+      libraryId = "1014c482-0629-4a57-87ae-f9cc6e933397",
+      timeTrackingUri = URI.create("http://www.example.com")
+    ))
+
+    val ids = (0 until 10).map { UUID.randomUUID() }
+    for ((index, id) in ids.withIndex()) {
+      this.timeSegments.onNext(
+        PlayerTimeTracked.create(
+          id = id,
+          bookTrackingId = this.palaceID,
+          timeStarted = OffsetDateTime.parse("2024-10-10T00:00:00Z").plusSeconds(index * 5L),
+          timeEnded = OffsetDateTime.parse("2024-10-10T00:00:05Z").plusSeconds(index * 5L),
+          rate = 1.0
+        )
+      )
+      this.collector.awaitWrite(1L, TimeUnit.SECONDS)
+    }
+
+    val filesNow = Files.list(this.inboxDirectory).collect(Collectors.toUnmodifiableList())
+    this.logger.debug("Files now: {}", filesNow)
+    assertEquals(1, filesNow.size)
+
+    val spans = TimeTrackingSpanJournal.readSegment(filesNow[0])
+    assertEquals(ids, spans.map { s -> s.id })
+  }
+
   @Test
   @Timeout(value = 5L, unit = TimeUnit.SECONDS)
   fun testCollectorIgnoresInactiveSpans() {
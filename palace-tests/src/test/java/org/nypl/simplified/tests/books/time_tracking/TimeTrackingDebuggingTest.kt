@@ -0,0 +1,88 @@
+package org.nypl.simplified.tests.books.time_tracking
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import org.nypl.simplified.books.time.tracking.TimeTrackingDebugging
+import org.nypl.simplified.books.time.tracking.TimeTrackingEntry
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardOpenOption.APPEND
+
+class TimeTrackingDebuggingTest {
+
+  @Test
+  fun testRecordsRoundTrip(@TempDir directory: Path) {
+    TimeTrackingDebugging.onTimeTrackingStarted(directory.toFile(), "L", "B")
+    TimeTrackingDebugging.onTimeTrackingSendAttempts(
+      directory.toFile(),
+      "L",
+      "B",
+      listOf(
+        TimeTrackingEntry(id = "E0", duringMinute = "2024-10-17T00:00:00", secondsPlayed = 10),
+        TimeTrackingEntry(id = "E1", duringMinute = "2024-10-17T00:01:00", secondsPlayed = 20)
+      )
+    )
+    TimeTrackingDebugging.onTimeTrackingStopped(directory.toFile(), "L", "B")
+
+    val records =
+      TimeTrackingDebugging.readRecords(
+        directory.resolve(TimeTrackingDebugging.LOG_FILE_NAME).toFile()
+      )
+
+    assertEquals(
+      listOf(
+        "TimeTrackingStarted",
+        "TimeTrackingSendAttempt",
+        "TimeTrackingSendAttempt",
+        "TimeTrackingStopped"
+      ),
+      records.map { r -> r.operation }
+    )
+    assertEquals(
+      mapOf("LibraryID" to "L", "BookID" to "B", "EntryID" to "E1", "Seconds" to "20"),
+      records[2].fields
+    )
+  }
+
+  @Test
+  fun testTruncatedRecordIgnored(@TempDir directory: Path) {
+    TimeTrackingDebugging.onTimeTrackingStarted(directory.toFile(), "L", "B")
+
+    val file = directory.resolve(TimeTrackingDebugging.LOG_FILE_NAME)
+    Files.write(file, "2024-10-17T00:00:00Z\tTimeTrackingStop".toByteArray(), APPEND)
+
+    val records = TimeTrackingDebugging.readRecords(file.toFile())
+    assertEquals(1, records.size)
+    assertEquals("TimeTrackingStarted", records[0].operation)
+  }
+
+  @Test
+  fun testRecordsAreSingleLines(@TempDir directory: Path) {
+    TimeTrackingDebugging.onTimeTrackingSendAttemptFailedExceptionally(
+      directory.toFile(),
+      "L",
+      "B",
+      "E0",
+      IllegalStateException("Line 0\n\tLine 1 \\ = x")
+    )
+
+    val file = directory.resolve(TimeTrackingDebugging.LOG_FILE_NAME)
+    assertEquals(1, Files.readAllLines(file).size)
+
+    val records = TimeTrackingDebugging.readRecords(file.toFile())
+    assertEquals(1, records.size)
+    assertTrue(records[0].fields["Exception"]!!.contains("Line 0\n\tLine 1 \\ = x"))
+  }
+
+  @Test
+  fun testLegacyLogDeleted(@TempDir directory: Path) {
+    val legacy = directory.resolve("time_tracking_debug.dat")
+    Files.write(legacy, byteArrayOf(0x3c))
+
+    TimeTrackingDebugging.onTimeTrackingStarted(directory.toFile(), "L", "B")
+    assertFalse(Files.exists(legacy))
+  }
+}
@@ -5,6 +5,7 @@ import okhttp3.mockwebserver.MockResponse
 import okhttp3.mockwebserver.MockWebServer
 import org.junit.jupiter.api.AfterEach
 import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertNull
 import org.junit.jupiter.api.BeforeEach
 import org.junit.jupiter.api.Test
 import org.librarysimplified.http.api.LSHTTPClientConfiguration
@@ -28,6 +29,7 @@ import org.nypl.simplified.tests.mocking.MockProfilesController
 import java.net.InetAddress
 import java.net.URI
 import java.util.concurrent.TimeUnit
+import java.util.zip.GZIPInputStream
 
 class TimeTrackingHttpCallsTest {
   private lateinit var account: MockAccount
@@ -349,4 +351,117 @@ class TimeTrackingHttpCallsTest {
       response.responses.filter(TimeTrackingServerResponseEntry::isStatusFailedPermanently).size
     )
   }
+
+  private fun largeRequest(): TimeTrackingRequest =
+    TimeTrackingRequest(
+      bookId = "book-id",
+      libraryId = URI.create("urn:uuid:f8f6b138-02ba-4624-802b-0556278228d5"),
+      timeTrackingUri = this.webServer.url("/timeTracking").toUri(),
+      timeEntries = (0 until 100).map { index ->
+        TimeTrackingEntry(
+          id = "id$index",
+          duringMinute = "2024-10-16T00:00:00",
+          secondsPlayed = 60
+        )
+      }
+    )
+
+  private fun emptyResponse(): MockResponse =
+    MockResponse()
+      .setResponseCode(200)
+      .setBody(
+        ObjectMapper().writeValueAsString(
+          TimeTrackingServerResponse(
+            responses = listOf(),
+            summary = TimeTrackingServerResponseSummary(successes = 0, failures = 0, total = 0)
+          )
+        )
+      )
+
+  private fun compressingCalls() =
+    TimeTrackingHTTPCalls(
+      http = httpClient,
+      compressionThreshold = TimeTrackingHTTPCalls.COMPRESSION_THRESHOLD_RECOMMENDED
+    )
+
+  @Test
+  fun testLargeRequestUncompressedByDefault() {
+    val httpCalls =
+      TimeTrackingHTTPCalls(http = httpClient)
+
+    this.webServer.enqueue(this.emptyResponse())
+
+    httpCalls.registerTimeTrackingInfo(
+      request = this.largeRequest(),
+      account = account
+    )
+
+    val received = this.webServer.takeRequest()
+    assertNull(received.getHeader("Content-Encoding"))
+    assertEquals(100, ObjectMapper().readTree(received.body.readUtf8())["timeEntries"].size())
+  }
+
+  @Test
+  fun testLargeRequestCompressed() {
+    val httpCalls =
+      this.compressingCalls()
+
+    this.webServer.enqueue(this.emptyResponse())
+
+    httpCalls.registerTimeTrackingInfo(
+      request = this.largeRequest(),
+      account = account
+    )
+
+    val received = this.webServer.takeRequest()
+    assertEquals("gzip", received.getHeader("Content-Encoding"))
+
+    val text =
+      GZIPInputStream(received.body.inputStream()).use { s -> String(s.readBytes()) }
+    val json =
+      ObjectMapper().readTree(text)
+
+    assertEquals(100, json["timeEntries"].size())
+    assertEquals("id99", json["timeEntries"][99]["id"].asText())
+  }
+
+  @Test
+  fun testSmallRequestUncompressed() {
+    val httpCalls =
+      this.compressingCalls()
+
+    this.webServer.enqueue(this.emptyResponse())
+
+    httpCalls.registerTimeTrackingInfo(
+      request = this.largeRequest().copy(timeEntries = this.largeRequest().timeEntries.take(1)),
+      account = account
+    )
+
+    val received = this.webServer.takeRequest()
+    assertNull(received.getHeader("Content-Encoding"))
+  }
+
+  @Test
+  fun testCompressionRejectedFallsBack() {
+    val httpCalls =
+      this.compressingCalls()
+
+    this.webServer.enqueue(MockResponse().setResponseCode(415))
+    this.webServer.enqueue(this.emptyResponse())
+    this.webServer.enqueue(this.emptyResponse())
+
+    httpCalls.registerTimeTrackingInfo(
+      request = this.largeRequest(),
+      account = account
+    )
+    httpCalls.registerTimeTrackingInfo(
+      request = this.largeRequest(),
+      account = account
+    )
+
+    assertEquals(3, this.webServer.requestCount)
+    assertEquals("gzip", this.webServer.takeRequest().getHeader("Content-Encoding"))
+    assertNull(this.webServer.takeRequest().getHeader("Content-Encoding"))
+    assertNull(this.webServer.takeRequest().getHeader("Content-Encoding"))
+  }
 }
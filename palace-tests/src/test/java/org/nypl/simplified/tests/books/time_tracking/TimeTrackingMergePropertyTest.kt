@@ -0,0 +1,217 @@
+package org.nypl.simplified.tests.books.time_tracking
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Test
+import org.librarysimplified.audiobook.manifest.api.PlayerPalaceID
+import org.nypl.simplified.accounts.api.AccountID
+import org.nypl.simplified.books.time.tracking.TimeTrackingEntry
+import org.nypl.simplified.books.time.tracking.TimeTrackingEntryOutgoing
+import org.nypl.simplified.books.time.tracking.TimeTrackingMerge
+import org.nypl.simplified.books.time.tracking.TimeTrackingReceivedSpan
+import org.slf4j.LoggerFactory
+import java.net.URI
+import java.time.Duration
+import java.time.OffsetDateTime
+import java.util.Random
+import java.util.UUID
+
+/**
+ * Check that the incremental merge produces exactly the same entries as the original
+ * list-based merge algorithm, for many randomly generated sets of spans.
+ */
+
+class TimeTrackingMergePropertyTest {
+
+  private val logger =
+    LoggerFactory.getLogger(TimeTrackingMergePropertyTest::class.java)
+
+  private val accounts =
+    listOf(AccountID(UUID.randomUUID()), AccountID(UUID.randomUUID()))
+  private val books =
+    listOf(
+      PlayerPalaceID("cbd92367-f3e1-4310-a767-a07058271c2b"),
+      PlayerPalaceID("e1cc010f-e88d-4c16-a12e-ab7b9f5c2065")
+    )
+  private val libraries =
+    listOf(
+      URI.create("urn:uuid:f19fc9b0-6259-4e0a-a76b-2246543e8b6b"),
+      URI.create("urn:uuid:1014c482-0629-4a57-87ae-f9cc6e933397")
+    )
+  private val targetURI =
+    URI.create("https://www.example.com")
+
+  private data class Observed(
+    val accountID: AccountID,
+    val bookID: PlayerPalaceID,
+    val libraryID: URI,
+    val targetURI: URI,
+    val minute: String,
+    val seconds: Int
+  )
+
+  /*
+   * The seeds are fixed so that any failure can be reproduced exactly.
+   */
+
+  private val seeds =
+    listOf(0L, 1L, 0x5eed_cafeL, 20241015L, 8_675_309L)
+
+  @Test
+  fun testMergeMatchesReference() {
+    for (seed in this.seeds) {
+      this.logger.debug("Seed: {}", seed)
+      val random = Random(seed)
+
+      repeat(100) { iteration ->
+        val spans = this.generateSpans(random)
+        val expected = this.observe(referenceMerge(spans))
+        val received = this.observe(TimeTrackingMerge.mergeEntries(spans.shuffled(random)))
+        assertEquals(expected, received, "Seed $seed, iteration $iteration")
+      }
+    }
+  }
+
+  private fun observe(entries: List<TimeTrackingEntryOutgoing>): Map<Observed, Int> {
+    val results = mutableMapOf<Observed, Int>()
+    for (e in entries) {
+      val key =
+        Observed(
+          accountID = e.accountID,
+          bookID = e.bookID,
+          libraryID = e.libraryID,
+          targetURI = e.targetURI,
+          minute = e.timeEntry.duringMinute,
+          seconds = e.timeEntry.secondsPlayed
+        )
+      results[key] = (results[key] ?: 0) + 1
+    }
+    return results
+  }
+
+  private fun generateSpans(random: Random): List<TimeTrackingReceivedSpan> {
+    val base = OffsetDateTime.parse("2024-10-15T00:00:00Z")
+    val count = random.nextInt(200)
+    val spans = mutableListOf<TimeTrackingReceivedSpan>()
+
+    for (i in 0 until count) {
+      var start = base.plusSeconds(random.nextInt(4 * 60 * 60).toLong())
+      if (random.nextInt(10) == 0) {
+        start = start.plusNanos(random.nextInt(1000) * 1_000_000L)
+      }
+
+      val length =
+        when (random.nextInt(20)) {
+          0 -> 3600L + random.nextInt(120)
+          1 -> 0L
+          else -> random.nextInt(90).toLong()
+        }
+
+      spans.add(
+        TimeTrackingReceivedSpan(
+          id = UUID.randomUUID(),
+          accountID = this.accounts[random.nextInt(this.accounts.size)],
+          bookID = this.books[random.nextInt(this.books.size)],
+          libraryID = this.libraries[random.nextInt(this.libraries.size)],
+          timeStarted = start,
+          timeEnded = start.plusSeconds(length),
+          targetURI = this.targetURI
+        )
+      )
+    }
+    return spans
+  }
+
+  /*
+   * The original merge algorithm, retained verbatim as a reference.
+   */
+
+  private data class MergeKey(
+    val accountID: AccountID,
+    val bookID: PlayerPalaceID,
+    val libraryID: URI,
+    val targetURI: URI
+  )
+
+  private fun referenceMerge(spans: List<TimeTrackingReceivedSpan>): List<TimeTrackingEntryOutgoing> {
+    val spansByKey =
+      mutableMapOf<MergeKey, MutableList<TimeTrackingReceivedSpan>>()
+
+    for (span in spans) {
+      val key =
+        MergeKey(
+          accountID = span.accountID,
+          bookID = span.bookID,
+          libraryID = span.libraryID,
+          targetURI = span.targetURI
+        )
+      var existing = spansByKey.get(key)
+      if (existing == null) {
+        existing = mutableListOf()
+      }
+      existing.add(span)
+      spansByKey.put(key, existing)
+    }
+
+    val results = mutableListOf<TimeTrackingEntryOutgoing>()
+    for ((key, keySpans) in spansByKey) {
+      results.addAll(referenceMergeSpansForKey(key, keySpans))
+    }
+    return results.toList()
+  }
+
+  private fun referenceMergeSpansForKey(
+    key: MergeKey,
+    keySpans: MutableList<TimeTrackingReceivedSpan>
+  ): Collection<TimeTrackingEntryOutgoing> {
+    keySpans.sortBy { e -> e.timeStarted }
+
+    val secondsForMinute =
+      mutableMapOf<OffsetDateTime, Long>()
+
+    for (span in keySpans) {
+      val spanSeconds =
+        Duration
+          .between(span.timeStarted, span.timeEnded)
+          .toMillis() / 1_000L
+
+      val crossesMinuteBoundary =
+        span.timeStarted.minute != span.timeEnded.minute
+
+      val minuteCurr =
+        span.timeStarted.withSecond(0)
+      val minuteNext =
+        minuteCurr.plusMinutes(1L)
+
+      if (crossesMinuteBoundary) {
+        val addNext = span.timeEnded.second
+        val addCurr = 60 - span.timeStarted.second
+        secondsForMinute[minuteCurr] =
+          Math.min(60, (secondsForMinute[minuteCurr] ?: 0) + addCurr)
+        secondsForMinute[minuteNext] =
+          Math.min(60, (secondsForMinute[minuteNext] ?: 0) + addNext)
+      } else {
+        secondsForMinute[minuteCurr] =
+          Math.min(60, (secondsForMinute[minuteCurr] ?: 0) + spanSeconds)
+      }
+    }
+
+    val results = mutableListOf<TimeTrackingEntryOutgoing>()
+    for ((minute, seconds) in secondsForMinute) {
+      results.add(
+        TimeTrackingEntryOutgoing(
+          accountID = key.accountID,
+          bookID = key.bookID,
+          targetURI = key.targetURI,
+          libraryID = key.libraryID,
+          timeEntry =
+            TimeTrackingEntry(
+              id = UUID.randomUUID().toString(),
+              duringMinute = minute.toString(),
+              secondsPlayed = seconds.toInt()
+            ),
+        )
+      )
+    }
+    return results.toList()
+  }
+}
@@ -15,6 +15,7 @@ import org.nypl.simplified.books.time.tracking.TimeTrackingEntryOutgoing
 import org.nypl.simplified.books.time.tracking.TimeTrackingMerge
 import org.nypl.simplified.books.time.tracking.TimeTrackingMergeServiceType
 import org.nypl.simplified.books.time.tracking.TimeTrackingReceivedSpan
+import org.nypl.simplified.books.time.tracking.TimeTrackingSpanJournalWriter
 import org.slf4j.LoggerFactory
 import java.net.URI
 import java.nio.file.Files
@@ -285,4 +286,79 @@ class TimeTrackingMergeTest {
     )
     assertEquals(2, outboxNow.size)
   }
+
+  @Test
+  fun testMergeJournalSegments() {
+    val spans = listOf(
+      TimeTrackingReceivedSpan(
+        id = UUID.randomUUID(),
+        accountID = this.accountID,
+        bookID = this.palaceID,
+        libraryID = URI.create("urn:uuid:f19fc9b0-6259-4e0a-a76b-2246543e8b6b"),
+        timeStarted = OffsetDateTime.parse("2024-10-15T00:00:20Z"),
+        timeEnded = OffsetDateTime.parse("2024-10-15T00:00:30Z"),
+        targetURI = this.targetURI
+      ),
+      TimeTrackingReceivedSpan(
+        id = UUID.randomUUID(),
+        accountID = this.accountID,
+        bookID = this.palaceID,
+        libraryID = URI.create("urn:uuid:f19fc9b0-6259-4e0a-a76b-2246543e8b6b"),
+        timeStarted = OffsetDateTime.parse("2024-10-15T00:00:31Z"),
+        timeEnded = OffsetDateTime.parse("2024-10-15T00:00:50Z"),
+        targetURI = this.targetURI
+      ),
+      TimeTrackingReceivedSpan(
+        id = UUID.randomUUID(),
+        accountID = this.accountID,
+        bookID = this.palaceID,
+        libraryID = URI.create("urn:uuid:f19fc9b0-6259-4e0a-a76b-2246543e8b6b"),
+        timeStarted = OffsetDateTime.parse("2024-10-15T00:00:51Z"),
+        timeEnded = OffsetDateTime.parse("2024-10-15T00:01:40Z"),
+        targetURI = this.targetURI
+      )
+    )
+
+    val totalExpected = spans.sumOf { span ->
+      Duration.between(span.timeStarted, span.timeEnded).toMillis() / 1000
+    }.toInt()
+
+    /*
+     * Write the spans across two segments, and leave a legacy span file in the inbox too.
+     */
+
+    TimeTrackingSpanJournalWriter.create(this.inboxDirectory).use { writer ->
+      writer.append(spans[0])
+    }
+    TimeTrackingSpanJournalWriter.create(this.inboxDirectory).use { writer ->
+      writer.append(spans[1])
+    }
+
+    val legacy = this.inboxDirectory.resolve("${spans[2].id}.ttspan")
+    Files.write(legacy, spans[2].toBytes())
+
+    Files.list(this.inboxDirectory).use { stream ->
+      stream.forEach { file ->
+        Files.setLastModifiedTime(file, FileTime.from(this.timeNow.toInstant()))
+      }
+    }
+
+    this.timeNow = this.timeNow.plusMinutes(2L)
+    this.merge.awaitTick(1L, TimeUnit.SECONDS)
+    this.merge.awaitTick(1L, TimeUnit.SECONDS)
+
+    val inboxNow = Files.list(this.inboxDirectory).collect(Collectors.toUnmodifiableList())
+    this.logger.debug("Inbox now: {}", inboxNow)
+    if (inboxNow.isNotEmpty()) {
+      throw IllegalStateException("Files not processed!")
+    }
+
+    val outboxNow =
+      Files.list(this.outboxDirectory).collect(Collectors.toUnmodifiableList())
+    val entries =
+      outboxNow.map(TimeTrackingEntryOutgoing::ofFile)
+
+    assertEquals(2, entries.size)
+    assertEquals(totalExpected, entries.sumOf { e -> e.timeEntry.secondsPlayed })
+  }
 }
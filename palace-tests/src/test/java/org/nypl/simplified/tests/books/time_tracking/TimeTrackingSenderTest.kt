@@ -594,4 +594,76 @@ class TimeTrackingSenderTest {
     )
     assertFalse(Files.exists(file), "File must have been deleted.")
   }
+
+  /**
+   * A large backlog of entries is sent in bounded batches, with a bounded number of batches
+   * on each attempt.
+   */
+
+  @Test
+  @Timeout(value = 10L, unit = TimeUnit.SECONDS)
+  fun testSenderBatchesLargeBacklog(
+    @TempDir debugDirectory: Path,
+    @TempDir inboxDirectory: Path
+  ) {
+    val entries =
+      (0 until 250).map { index ->
+        TimeTrackingEntryOutgoing(
+          accountID = this.accountID,
+          libraryID = this.accountProviderRef.id,
+          bookID = this.palaceID,
+          targetURI = URI.create("https://www.example.com"),
+          timeEntry = TimeTrackingEntry(
+            id = String.format("01JAD2H8Y8DY3K0WZV%08d", index),
+            duringMinute = "2024-10-17T00:00:00",
+            secondsPlayed = 60
+          )
+        )
+      }
+
+    for (entry in entries) {
+      Files.newOutputStream(
+        inboxDirectory.resolve("${entry.timeEntry.id}.tteo"),
+        WRITE,
+        CREATE,
+        TRUNCATE_EXISTING
+      ).use { s ->
+        entry.toProperties().store(s, "")
+      }
+    }
+
+    val calls = FakeTimeTrackingHTTPCalls()
+    for (size in listOf(100, 100, 50)) {
+      calls.responses.add(
+        TimeTrackingServerResponse(
+          responses = listOf(),
+          summary = TimeTrackingServerResponseSummary(
+            failures = 0,
+            successes = size,
+            total = size
+          )
+        )
+      )
+    }
+
+    TimeTrackingSender.create(
+      profiles = this.profiles,
+      httpCalls = calls,
+      frequency = Duration.ofMillis(100L),
+      debugDirectory = debugDirectory,
+      inputDirectory = inboxDirectory,
+      batchSizeMaximum = 100,
+      batchesPerTickMaximum = 2
+    ).use { batchSender ->
+      while (Files.list(inboxDirectory).use { s -> s.count() } > 0L) {
+        batchSender.awaitWrite(1L, TimeUnit.SECONDS)
+      }
+    }
+
+    assertEquals(listOf(100, 100, 50), calls.requests.map { r -> r.timeEntries.size })
+    assertEquals(
+      entries.map { e -> e.timeEntry },
+      calls.requests.flatMap { r -> r.timeEntries }
+    )
+  }
 }
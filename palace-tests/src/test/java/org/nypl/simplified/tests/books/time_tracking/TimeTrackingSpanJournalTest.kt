@@ -0,0 +1,121 @@
+package org.nypl.simplified.tests.books.time_tracking
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import org.librarysimplified.audiobook.manifest.api.PlayerPalaceID
+import org.nypl.simplified.accounts.api.AccountID
+import org.nypl.simplified.books.time.tracking.TimeTrackingReceivedSpan
+import org.nypl.simplified.books.time.tracking.TimeTrackingSpanJournal
+import org.nypl.simplified.books.time.tracking.TimeTrackingSpanJournalWriter
+import java.net.URI
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardOpenOption.APPEND
+import java.time.Duration
+import java.time.OffsetDateTime
+import java.util.UUID
+import java.util.stream.Collectors
+
+class TimeTrackingSpanJournalTest {
+
+  private val accountID =
+    AccountID(UUID.randomUUID())
+  private val palaceID =
+    PlayerPalaceID("cbd92367-f3e1-4310-a767-a07058271c2b")
+
+  private fun span(index: Int): TimeTrackingReceivedSpan =
+    TimeTrackingReceivedSpan(
+      id = UUID.randomUUID(),
+      accountID = this.accountID,
+      bookID = this.palaceID,
+      libraryID = URI.create("urn:uuid:f19fc9b0-6259-4e0a-a76b-2246543e8b6b"),
+      timeStarted = OffsetDateTime.parse("2024-10-15T00:00:00.250Z").plusSeconds(index * 10L),
+      timeEnded = OffsetDateTime.parse("2024-10-15T00:00:09.750Z").plusSeconds(index * 10L),
+      targetURI = URI.create("https://www.example.com")
+    )
+
+  private fun segments(directory: Path): List<Path> =
+    Files.list(directory).use { stream ->
+      stream.filter(TimeTrackingSpanJournal::isSegment)
+        .sorted()
+        .collect(Collectors.toList())
+    }
+
+  @Test
+  fun testRoundTrip(@TempDir directory: Path) {
+    val spans = (0 until 100).map(this::span)
+
+    TimeTrackingSpanJournalWriter.create(directory).use { writer ->
+      spans.forEach(writer::append)
+    }
+
+    val segments = this.segments(directory)
+    assertEquals(1, segments.size)
+    assertEquals(spans, TimeTrackingSpanJournal.readSegment(segments[0]))
+  }
+
+  @Test
+  fun testSegmentRollover(@TempDir directory: Path) {
+    val spans = (0 until 100).map(this::span)
+
+    TimeTrackingSpanJournalWriter.create(
+      directory = directory,
+      segmentSizeMaximum = 1024L,
+      segmentAgeMaximum = Duration.ofHours(1L)
+    ).use { writer ->
+      spans.forEach(writer::append)
+    }
+
+    val segments = this.segments(directory)
+    assertEquals(true, segments.size > 1)
+    segments.forEach { s -> assertEquals(true, Files.size(s) <= 1024L) }
+    assertEquals(spans, segments.flatMap(TimeTrackingSpanJournal::readSegment))
+  }
+
+  @Test
+  fun testTruncatedTail(@TempDir directory: Path) {
+    val spans = (0 until 3).map(this::span)
+
+    TimeTrackingSpanJournalWriter.create(directory).use { writer ->
+      spans.forEach(writer::append)
+    }
+
+    /*
+     * Simulate a crash partway through writing a fourth record.
+     */
+
+    val segment = this.segments(directory)[0]
+    val partial = TimeTrackingSpanJournal.encodeRecord(this.span(3))
+    Files.write(segment, partial.copyOf(partial.size / 2), APPEND)
+
+    assertEquals(spans, TimeTrackingSpanJournal.readSegment(segment))
+  }
+
+  @Test
+  fun testCorruptedRecord(@TempDir directory: Path) {
+    val spans = (0 until 3).map(this::span)
+
+    TimeTrackingSpanJournalWriter.create(directory).use { writer ->
+      spans.forEach(writer::append)
+    }
+
+    /*
+     * Corrupt a byte in the payload of the last record; the checksum must catch it.
+     */
+
+    val segment = this.segments(directory)[0]
+    val data = Files.readAllBytes(segment)
+    data[data.size - 20] = (data[data.size - 20].toInt() xor 0xff).toByte()
+    Files.write(segment, data)
+
+    assertEquals(spans.take(2), TimeTrackingSpanJournal.readSegment(segment))
+  }
+
+  @Test
+  fun testEmptySegment(@TempDir directory: Path) {
+    val segment = directory.resolve("x.ttjournal")
+    Files.write(segment, byteArrayOf())
+    assertEquals(listOf<TimeTrackingReceivedSpan>(), TimeTrackingSpanJournal.readSegment(segment))
+  }
+}
@@ -0,0 +1,219 @@
+package org.nypl.simplified.tests.catalog
+
+import io.reactivex.disposables.Disposable
+import io.reactivex.subjects.PublishSubject
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.nypl.simplified.books.api.BookID
+import org.nypl.simplified.books.api.BookIDs
+import org.nypl.simplified.books.book_registry.BookStatus
+import org.nypl.simplified.books.book_registry.BookStatusEvent
+import org.nypl.simplified.books.book_registry.BookStatusEvent.BookStatusEventChanged
+import org.nypl.simplified.ui.catalog.CatalogBookStatusDispatcher
+import org.slf4j.LoggerFactory
+
+class CatalogBookStatusDispatcherTest {
+
+  private val logger =
+    LoggerFactory.getLogger(CatalogBookStatusDispatcherTest::class.java)
+
+  private lateinit var events: PublishSubject<BookStatusEvent>
+  private lateinit var frames: MutableList<() -> Unit>
+  private lateinit var dispatcher: CatalogBookStatusDispatcher
+
+  @BeforeEach
+  fun testSetup() {
+    this.events = PublishSubject.create()
+    this.frames = mutableListOf()
+    this.dispatcher = CatalogBookStatusDispatcher(this.events) { task -> this.frames.add(task) }
+    this.dispatcher.start()
+  }
+
+  private fun runFrames() {
+    val tasks = this.frames.toList()
+    this.frames.clear()
+    tasks.forEach { task -> task() }
+  }
+
+  private fun changed(id: BookID): BookStatusEvent =
+    BookStatusEventChanged(id, null, BookStatus.Holdable(id))
+
+  /**
+   * Events are delivered only to the listener for the affected book.
+   */
+
+  @Test
+  fun testDeliveredToAffectedBook() {
+    val id0 = BookIDs.newFromText("0")
+    val id1 = BookIDs.newFromText("1")
+    val received = mutableListOf<BookID>()
+
+    this.dispatcher.register(id0) { id -> received.add(id) }
+    this.dispatcher.register(id1) { id -> received.add(id) }
+
+    this.events.onNext(this.changed(id1))
+    assertEquals(listOf<BookID>(), received)
+    this.runFrames()
+    assertEquals(listOf(id1), received)
+  }
+
+  /**
+   * Several events for the same book within a frame are delivered once.
+   */
+
+  @Test
+  fun testCoalesced() {
+    val id0 = BookIDs.newFromText("0")
+    val id1 = BookIDs.newFromText("1")
+    val received = mutableListOf<BookID>()
+
+    this.dispatcher.register(id0) { id -> received.add(id) }
+    this.dispatcher.register(id1) { id -> received.add(id) }
+
+    this.events.onNext(this.changed(id0))
+    this.events.onNext(this.changed(id1))
+    this.events.onNext(this.changed(id0))
+    this.events.onNext(this.changed(id0))
+    assertEquals(1, this.frames.size)
+
+    this.runFrames()
+    assertEquals(listOf(id0, id1), received)
+  }
+
+  /**
+   * Two rows bound to the same book both receive its changes, and unbinding one row does not
+   * affect the other.
+   */
+
+  @Test
+  fun testSameBookTwoRows() {
+    val id0 = BookIDs.newFromText("0")
+    val received = mutableListOf<String>()
+    val row0: (BookID) -> Unit = { received.add("0") }
+    val row1: (BookID) -> Unit = { received.add("1") }
+
+    this.dispatcher.register(id0, row0)
+    this.dispatcher.register(id0, row1)
+
+    this.events.onNext(this.changed(id0))
+    this.runFrames()
+    assertEquals(listOf("0", "1"), received)
+
+    received.clear()
+    this.dispatcher.unregister(id0, row0)
+    this.events.onNext(this.changed(id0))
+    this.runFrames()
+    assertEquals(listOf("1"), received)
+
+    this.dispatcher.unregister(id0, row1)
+    assertEquals(0, this.dispatcher.listenerCount)
+  }
+
+  /**
+   * Registering the same listener twice delivers each change to it once.
+   */
+
+  @Test
+  fun testRegisterTwice() {
+    val id0 = BookIDs.newFromText("0")
+    val received = mutableListOf<BookID>()
+    val listener: (BookID) -> Unit = { id -> received.add(id) }
+
+    this.dispatcher.register(id0, listener)
+    this.dispatcher.register(id0, listener)
+
+    this.events.onNext(this.changed(id0))
+    this.runFrames()
+    assertEquals(listOf(id0), received)
+  }
+
+  /**
+   * Stopping the dispatcher discards undelivered changes.
+   */
+
+  @Test
+  fun testStopDiscards() {
+    val id0 = BookIDs.newFromText("0")
+    val received = mutableListOf<BookID>()
+    this.dispatcher.register(id0) { id -> received.add(id) }
+
+    this.events.onNext(this.changed(id0))
+    this.dispatcher.stop()
+    this.runFrames()
+    this.events.onNext(this.changed(id0))
+    this.runFrames()
+    assertEquals(listOf<BookID>(), received)
+  }
+
+  /**
+   * Compare the cost of fanning events out to rows using one filtered subscription per row
+   * against the cost of using the dispatcher.
+   */
+
+  @Test
+  fun testFanOutCost() {
+    for (rows in listOf(50, 500, 5_000)) {
+      val ids = (0 until rows).map { index -> BookIDs.newFromText("$index") }
+      val eventsToSend = ids.shuffled().take(50).map(this::changed)
+
+      /*
+       * One subscription per row.
+       */
+
+      val subject = PublishSubject.create<BookStatusEvent>()
+      var filterCalls = 0L
+      var perRowDeliveries = 0L
+      val subscriptions = ArrayList<Disposable>(rows)
+      val perRowStart = System.nanoTime()
+      for (id in ids) {
+        subscriptions.add(
+          subject
+            .ofType(BookStatusEventChanged::class.java)
+            .filter { event ->
+              filterCalls += 1
+              event.bookId == id
+            }
+            .subscribe { perRowDeliveries += 1 }
+        )
+      }
+      eventsToSend.forEach(subject::onNext)
+      subscriptions.forEach(Disposable::dispose)
+      val perRowTime = System.nanoTime() - perRowStart
+
+      /*
+       * The dispatcher.
+       */
+
+      val dispatcherEvents = PublishSubject.create<BookStatusEvent>()
+      val dispatcherFrames = mutableListOf<() -> Unit>()
+      val dispatcher = CatalogBookStatusDispatcher(dispatcherEvents) { dispatcherFrames.add(it) }
+      var dispatcherDeliveries = 0L
+      val dispatcherStart = System.nanoTime()
+      dispatcher.start()
+      val listener: (BookID) -> Unit = { dispatcherDeliveries += 1 }
+      for (id in ids) {
+        dispatcher.register(id, listener)
+      }
+      eventsToSend.forEach(dispatcherEvents::onNext)
+      dispatcherFrames.forEach { task -> task() }
+      for (id in ids) {
+        dispatcher.unregister(id, listener)
+      }
+      dispatcher.stop()
+      val dispatcherTime = System.nanoTime() - dispatcherStart
+
+      this.logger.debug(
+        "{} rows: per-row subscriptions {} filter calls {}us, dispatcher {}us",
+        rows,
+        filterCalls,
+        perRowTime / 1000L,
+        dispatcherTime / 1000L
+      )
+
+      assertEquals(rows.toLong() * eventsToSend.size, filterCalls)
+      assertEquals(eventsToSend.size.toLong(), perRowDeliveries)
+      assertEquals(eventsToSend.size.toLong(), dispatcherDeliveries)
+    }
+  }
+}
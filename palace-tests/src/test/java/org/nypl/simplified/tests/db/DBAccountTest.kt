@@ -19,6 +19,8 @@ import org.thepalaceproject.db.api.queries.DBQAccountProviderDescriptionGetType
 import org.thepalaceproject.db.api.queries.DBQAccountProviderDescriptionIDSetType
 import org.thepalaceproject.db.api.queries.DBQAccountProviderDescriptionListType
 import org.thepalaceproject.db.api.queries.DBQAccountProviderDescriptionPutType
+import org.thepalaceproject.db.api.queries.DBQAccountProviderDescriptionSearchType
+import org.thepalaceproject.db.api.queries.DBQAccountProviderDescriptionSummaryListType
 import org.thepalaceproject.db.api.queries.DBQAccountProviderGetType
 import org.thepalaceproject.db.api.queries.DBQAccountProviderListType
 import org.thepalaceproject.db.api.queries.DBQAccountProviderPutType
@@ -250,6 +252,160 @@ class DBAccountTest {
     }
   }
 
+  /**
+   * Summaries can be listed without decoding the stored descriptions.
+   */
+
+  @Test
+  fun testAccountProviderDescriptionSummaryList() {
+    this.database.openTransaction().use { t ->
+
+      val inputs = mutableListOf<AccountProviderDescription>()
+      for (i in 0 until 100) {
+        inputs.add(
+          AccountProviderDescription(
+            id = URI.create("urn:uuid:${UUID.randomUUID()}"),
+            title = "Example Library $i",
+            description = "Description $i",
+            updated = OffsetDateTime.now(ZoneOffset.UTC).minusDays(i.toLong()),
+            links = listOf(),
+            images = listOf(),
+          )
+        )
+      }
+      inputs.sortBy { description -> description.id }
+
+      t.execute(DBQAccountProviderDescriptionPutType::class.java, inputs)
+      t.commit()
+
+      val missesBefore = this.database.statistics.descriptionCacheMisses
+      val r =
+        t.execute(
+          DBQAccountProviderDescriptionSummaryListType::class.java,
+          DBQAccountProviderDescriptionSummaryListType.Parameters(
+            startingId = inputs[20].id,
+            limit = 10
+          )
+        )
+
+      assertEquals(10, r.size)
+      for (i in 21 until 21 + 10) {
+        val input = inputs[i]
+        val summary = r[i - 21]
+        assertEquals(input.id, summary.id)
+        assertEquals(input.title, summary.title)
+        assertEquals(input.description, summary.description)
+        Assertions.assertTrue(input.updated.isEqual(summary.updated))
+      }
+      assertEquals(missesBefore, this.database.statistics.descriptionCacheMisses)
+    }
+  }
+
+  /**
+   * Decoded descriptions are cached, and the cache does not return descriptions that have
+   * since been replaced or deleted.
+   */
+
+  @Test
+  fun testAccountProviderDescriptionCache() {
+    val w0 =
+      AccountProviderDescription(
+        id = URI.create("urn:uuid:c7b2959b-8986-49d6-90d6-d4057a3b2900"),
+        title = "Example Library",
+        description = "",
+        updated = OffsetDateTime.now(ZoneOffset.UTC),
+        links = listOf(),
+        images = listOf(),
+      )
+    val w1 =
+      w0.copy(title = "Example Library (Renamed)")
+
+    this.database.openTransaction().use { t ->
+      t.execute(DBQAccountProviderDescriptionPutType::class.java, listOf(w0))
+      t.commit()
+    }
+
+    for (i in 0 until 3) {
+      this.database.openTransaction().use { t ->
+        assertEquals(w0, t.execute(DBQAccountProviderDescriptionGetType::class.java, w0.id))
+      }
+    }
+
+    assertEquals(1L, this.database.statistics.descriptionCacheMisses)
+    assertEquals(2L, this.database.statistics.descriptionCacheHits)
+
+    this.database.openTransaction().use { t ->
+      t.execute(DBQAccountProviderDescriptionPutType::class.java, listOf(w1))
+      t.commit()
+      assertEquals(w1, t.execute(DBQAccountProviderDescriptionGetType::class.java, w0.id))
+    }
+
+    assertEquals(2L, this.database.statistics.descriptionCacheMisses)
+
+    this.database.openTransaction().use { t ->
+      t.execute(DBQAccountProviderDescriptionDeleteType::class.java, setOf(w0.id))
+      t.commit()
+      assertEquals(null, t.execute(DBQAccountProviderDescriptionGetType::class.java, w0.id))
+    }
+  }
+
+  /**
+   * Descriptions are searchable by the prefixes of words in their titles and descriptions,
+   * titles rank above descriptions, and the index follows updates and deletions.
+   */
+
+  @Test
+  fun testAccountProviderDescriptionSearch() {
+    fun description(
+      id: String,
+      title: String,
+      description: String
+    ): AccountProviderDescription =
+      AccountProviderDescription(
+        id = URI.create(id),
+        title = title,
+        description = description,
+        updated = OffsetDateTime.now(ZoneOffset.UTC),
+        links = listOf(),
+        images = listOf(),
+      )
+
+    val oakPark =
+      description("urn:0", "Oak Park Public Library", "serving Oak Park, IL")
+    val acorn =
+      description("urn:1", "Acorn Public Library District", "serving Oak Forest, IL")
+    val montreal =
+      description("urn:2", "Bibliothèque de Montréal", "serving Montréal, QC")
+
+    this.database.openTransaction().use { t ->
+      t.execute(DBQAccountProviderDescriptionPutType::class.java, listOf(oakPark, acorn, montreal))
+      t.commit()
+
+      fun search(query: String): List<URI> =
+        t.execute(
+          DBQAccountProviderDescriptionSearchType::class.java,
+          DBQAccountProviderDescriptionSearchType.Parameters(query, 10)
+        )
+
+      assertEquals(listOf(oakPark.id, acorn.id), search("oak"))
+      assertEquals(listOf(acorn.id), search("Oak Fo"))
+      assertEquals(listOf(montreal.id), search("montreal"))
+      assertEquals(setOf(oakPark.id, acorn.id), search("public \"lib*").toSet())
+      assertEquals(listOf<URI>(), search("nothing"))
+      assertEquals(listOf<URI>(), search(" ,. "))
+
+      t.execute(
+        DBQAccountProviderDescriptionPutType::class.java,
+        listOf(oakPark.copy(title = "Forest Park Public Library"))
+      )
+      t.execute(DBQAccountProviderDescriptionDeleteType::class.java, setOf(acorn.id))
+      t.commit()
+
+      assertEquals(listOf(oakPark.id), search("oak"))
+      assertEquals(listOf(oakPark.id), search("forest"))
+    }
+  }
+
   @Test
   fun testAccountProviderPutGet() {
     this.database.openTransaction().use { t ->
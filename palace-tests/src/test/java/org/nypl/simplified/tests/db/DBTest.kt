@@ -12,7 +12,9 @@ import org.thepalaceproject.db.DBFactory
 import org.thepalaceproject.db.api.DBParameters
 import org.thepalaceproject.db.api.DBType
 import org.thepalaceproject.db.api.queries.DBQAccountProviderDescriptionListType
+import org.thepalaceproject.db.api.queries.DBQAccountProviderDescriptionSearchType
 import org.thepalaceproject.db.api.queries.DBQSchemaVersionType
+import java.net.URI
 import java.nio.file.Files
 import java.nio.file.Path
 
@@ -82,6 +84,18 @@ class DBTest {
           1134,
           t.execute(DBQAccountProviderDescriptionListType::class.java,
           DBQAccountProviderDescriptionListType.Parameters(null, 10000)).size)
+
+        /*
+         * Copied descriptions are searchable.
+         */
+
+        assertEquals(
+          listOf(URI.create("urn:uuid:c20a29f6-4dd5-415b-af7f-c67764dcbb65")),
+          t.execute(
+            DBQAccountProviderDescriptionSearchType::class.java,
+            DBQAccountProviderDescriptionSearchType.Parameters("acorn oak fo", 10)
+          )
+        )
       }
     }
   }
@@ -91,9 +105,49 @@ class DBTest {
     this.database.openConnection().use { c ->
       c.openTransaction().use { t ->
         val q = t.query(DBQSchemaVersionType::class.java)
-        Assertions.assertEquals(2L, q.execute(t, Unit))
+        Assertions.assertEquals(3L, q.execute(t, Unit))
       }
     }
   }
-}
 
+  @Test
+  fun testConnectionsReused() {
+    repeat(10) {
+      this.database.openTransaction().use { t ->
+        assertEquals(3L, t.execute(DBQSchemaVersionType::class.java, Unit))
+      }
+    }
+
+    val statistics = this.database.statistics
+    assertEquals(1L, statistics.connectionsOpened)
+    assertEquals(10L, statistics.connectionsAcquired)
+    assertEquals(1L, statistics.statementCacheMisses)
+    assertEquals(9L, statistics.statementCacheHits)
+  }
+
+  @Test
+  fun testConnectionsConcurrent() {
+    this.database.openConnection().use { c0 ->
+      this.database.openConnection().use { c1 ->
+        Assertions.assertNotSame(c0.connection, c1.connection)
+      }
+    }
+    this.database.openConnection().use { c0 ->
+      this.database.openConnection().use { c1 ->
+        Assertions.assertNotSame(c0.connection, c1.connection)
+      }
+    }
+    assertEquals(2L, this.database.statistics.connectionsOpened)
+  }
+
+  @Test
+  fun testStatementsCachedPerConnection() {
+    this.database.openConnection().use { c ->
+      val s0 = c.prepareStatement("SELECT 1")
+      val s1 = c.prepareStatement("SELECT 1")
+      val s2 = c.prepareStatement("SELECT 2")
+      Assertions.assertSame(s0, s1)
+      Assertions.assertNotSame(s0, s2)
+    }
+  }
+}
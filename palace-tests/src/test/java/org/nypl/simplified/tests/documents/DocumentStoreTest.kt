@@ -1,7 +1,10 @@
 package org.nypl.simplified.tests.documents
 
+import android.content.Context
 import android.content.res.AssetManager
 import com.google.common.util.concurrent.MoreExecutors
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
 import one.irradia.mime.api.MIMEType
 import org.junit.jupiter.api.Assertions
 import org.junit.jupiter.api.BeforeEach
@@ -10,12 +13,15 @@ import org.librarysimplified.documents.DocumentConfiguration
 import org.librarysimplified.documents.DocumentConfigurationServiceType
 import org.librarysimplified.documents.DocumentStores
 import org.librarysimplified.documents.DocumentType
+import org.librarysimplified.http.api.LSHTTPClientConfiguration
 import org.librarysimplified.http.api.LSHTTPClientType
+import org.librarysimplified.http.api.LSHTTPNetworkAccess
 import org.librarysimplified.http.api.LSHTTPRequestBuilderType
 import org.librarysimplified.http.api.LSHTTPRequestType
 import org.librarysimplified.http.api.LSHTTPResponseProperties
 import org.librarysimplified.http.api.LSHTTPResponseStatus
 import org.librarysimplified.http.api.LSHTTPResponseType
+import org.librarysimplified.http.vanilla.LSHTTPClients
 import org.mockito.Mockito
 import org.nypl.simplified.tests.TestDirectories
 import java.io.File
@@ -168,4 +174,71 @@ class DocumentStoreTest {
     // the faq document is not updated
     Mockito.verify(http, Mockito.times(5)).newRequest(documentWithName.remoteURI)
   }
+
+  /**
+   * Documents are revalidated with conditional requests, and are not rewritten if the server
+   * reports that they have not changed.
+   */
+
+  @Test
+  fun testConditionalUpdate() {
+    MockWebServer().use { webServer ->
+      webServer.start()
+      webServer.enqueue(
+        MockResponse()
+          .setResponseCode(200)
+          .setHeader("ETag", "\"v1\"")
+          .setHeader("Last-Modified", "Mon, 01 Jan 2024 00:00:00 GMT")
+          .setBody("Version 1")
+      )
+      webServer.enqueue(
+        MockResponse()
+          .setResponseCode(304)
+          .setHeader("ETag", "\"v1\"")
+      )
+
+      val document =
+        DocumentConfiguration(
+          name = "document.html",
+          remoteURI = webServer.url("/document.html").toUri()
+        )
+
+      Mockito.`when`(configuration.about).thenReturn(document)
+
+      val realHttp =
+        LSHTTPClients()
+          .create(
+            context = Mockito.mock(Context::class.java),
+            configuration = LSHTTPClientConfiguration(
+              applicationName = "simplified-tests",
+              applicationVersion = "999.999.0",
+              tlsOverrides = null,
+              timeout = Pair(3L, TimeUnit.SECONDS),
+              networkAccess = LSHTTPNetworkAccess,
+            )
+          )
+
+      val store = DocumentStores.create(
+        assetManager = assetManager,
+        http = realHttp,
+        baseDirectory = baseDirectory,
+        configuration = configuration
+      )
+
+      val file = File(baseDirectory, "document.html")
+      store.update(executor).get(5L, TimeUnit.SECONDS)
+      Assertions.assertEquals("Version 1", file.readText())
+
+      file.setLastModified(0L)
+      store.update(executor).get(5L, TimeUnit.SECONDS)
+      Assertions.assertEquals("Version 1", file.readText())
+      Assertions.assertEquals(0L, file.lastModified())
+
+      val request0 = webServer.takeRequest()
+      Assertions.assertNull(request0.getHeader("If-None-Match"))
+      val request1 = webServer.takeRequest()
+      Assertions.assertEquals("\"v1\"", request1.getHeader("If-None-Match"))
+      Assertions.assertEquals("Mon, 01 Jan 2024 00:00:00 GMT", request1.getHeader("If-Modified-Since"))
+    }
+  }
 }
@@ -6,11 +6,14 @@ import com.io7m.jfunctional.Unit;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.nypl.simplified.files.DirectoryUtilities;
+import org.nypl.simplified.files.FileLockStatistics;
 import org.nypl.simplified.files.FileLocking;
 import org.slf4j.Logger;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -152,4 +155,149 @@ public abstract class FileLockingContract {
 
     Assertions.assertEquals(Integer.valueOf(1), Integer.valueOf(count.get()));
   }
+
+  /**
+   * Test that different names for the same file share a lock.
+   */
+
+  @Test
+  public void testLockingCanonical()
+    throws Exception {
+    final File tmp = DirectoryUtilities.directoryCreateTemporary();
+    final File lock0 = new File(tmp, "lock.txt");
+    final File lock1 = new File(new File(tmp, "."), "lock.txt");
+
+    final AtomicBoolean failed = new AtomicBoolean(false);
+
+    FileLocking.withFileThreadLocked(
+      lock0, 1000L, (PartialFunctionType<Unit, Unit, IOException>) u0 -> {
+        try {
+          FileLocking.withFileThreadLocked(
+            lock1, 1000L, (PartialFunctionType<Unit, Unit, IOException>) u1 -> Unit.unit());
+        } catch (final IOException e) {
+          failed.set(true);
+        }
+        return Unit.unit();
+      });
+
+    Assertions.assertTrue(failed.get());
+  }
+
+  /**
+   * Test that contended acquisitions and timeouts are recorded.
+   */
+
+  @Test
+  public void testLockingStatistics()
+    throws Exception {
+    final File tmp = DirectoryUtilities.directoryCreateTemporary();
+    final File lock = new File(tmp, "lock.txt");
+    final CountDownLatch locked = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+
+    final Thread holder = new Thread(() -> {
+      try {
+        FileLocking.withFileThreadLocked(
+          lock, 1000L, (PartialFunctionType<Unit, Unit, IOException>) x -> {
+            locked.countDown();
+            try {
+              release.await(5L, TimeUnit.SECONDS);
+            } catch (final InterruptedException e) {
+              throw new IOException(e);
+            }
+            return Unit.unit();
+          });
+      } catch (final IOException e) {
+        this.logger().error("error: ", e);
+      }
+    });
+
+    holder.start();
+    locked.await(5L, TimeUnit.SECONDS);
+
+    Assertions.assertThrows(IOException.class, () -> {
+      FileLocking.withFileThreadLocked(
+        lock, 50L, (PartialFunctionType<Unit, Unit, IOException>) x -> Unit.unit());
+    });
+
+    release.countDown();
+    holder.join();
+
+    final String path = lock.getCanonicalPath();
+    FileLockStatistics statistics = null;
+    for (final FileLockStatistics s : FileLocking.statistics()) {
+      if (s.path().equals(path)) {
+        statistics = s;
+      }
+    }
+
+    Assertions.assertNotNull(statistics);
+    this.logger().debug("{}", statistics);
+    Assertions.assertEquals(1L, statistics.acquisitions());
+    Assertions.assertEquals(1L, statistics.contended());
+    Assertions.assertEquals(1L, statistics.timeouts());
+    Assertions.assertTrue(statistics.waitNanosTotal() >= TimeUnit.MILLISECONDS.toNanos(50L));
+    Assertions.assertEquals(statistics.waitNanosTotal(), statistics.waitNanosMaximum());
+  }
+
+  /**
+   * Test that a lock excludes other threads under contention, and log the
+   * throughput at increasing numbers of threads.
+   */
+
+  @Test
+  public void testLockingContention()
+    throws Exception {
+    final File tmp = DirectoryUtilities.directoryCreateTemporary();
+    final int iterations = 20_000;
+
+    for (final int threadCount : new int[]{1, 2, 4, 8, 16}) {
+      final File lock = new File(tmp, "lock-" + threadCount + ".txt");
+      final AtomicInteger holders = new AtomicInteger(0);
+      final AtomicBoolean overlapped = new AtomicBoolean(false);
+      final AtomicInteger failures = new AtomicInteger(0);
+      final long[] counter = new long[1];
+      final CountDownLatch start = new CountDownLatch(1);
+      final List<Thread> threads = new ArrayList<>(threadCount);
+
+      for (int index = 0; index < threadCount; ++index) {
+        final Thread thread = new Thread(() -> {
+          try {
+            start.await();
+            for (int i = 0; i < iterations / threadCount; ++i) {
+              FileLocking.withFileThreadLocked(
+                lock, 10_000L, (PartialFunctionType<Unit, Unit, IOException>) x -> {
+                  if (holders.incrementAndGet() != 1) {
+                    overlapped.set(true);
+                  }
+                  counter[0] += 1;
+                  holders.decrementAndGet();
+                  return Unit.unit();
+                });
+            }
+          } catch (final Exception e) {
+            failures.incrementAndGet();
+          }
+        });
+        threads.add(thread);
+        thread.start();
+      }
+
+      final long timeStart = System.nanoTime();
+      start.countDown();
+      for (final Thread thread : threads) {
+        thread.join();
+      }
+      final long timeElapsed = System.nanoTime() - timeStart;
+
+      this.logger().debug(
+        "{} threads: {} acquisitions/s",
+        Integer.valueOf(threadCount),
+        Long.valueOf((counter[0] * 1_000_000_000L) / Math.max(1L, timeElapsed)));
+
+      Assertions.assertFalse(overlapped.get());
+      Assertions.assertEquals(0, failures.get());
+      Assertions.assertEquals((long) (iterations / threadCount) * threadCount, counter[0]);
+    }
+  }
 }
@@ -0,0 +1,122 @@
+package org.nypl.simplified.tests.images
+
+import android.graphics.Bitmap
+import android.graphics.Color
+import com.bumptech.glide.load.engine.Resource
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPoolAdapter
+import com.bumptech.glide.load.resource.bitmap.BitmapResource
+import org.junit.Test
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertNotEquals
+import org.junit.jupiter.api.Assertions.assertNotSame
+import org.junit.jupiter.api.Assertions.assertSame
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.RuntimeEnvironment
+import org.robolectric.annotation.Config
+import org.robolectric.annotation.GraphicsMode
+import org.thepalaceproject.palace.images.BookCoverBadge
+import org.thepalaceproject.palace.images.BookCoverBadgeTransform
+import java.security.MessageDigest
+
+@RunWith(RobolectricTestRunner::class)
+@Config(sdk = [28])
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+class BookCoverBadgeTransformTest {
+
+  private val badgeBitmap =
+    this.filled(16, 16, Color.WHITE)
+
+  private fun filled(
+    width: Int,
+    height: Int,
+    color: Int
+  ): Bitmap {
+    val bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888)
+    bitmap.eraseColor(color)
+    bitmap.setHasAlpha(false)
+    return bitmap
+  }
+
+  private fun badge(id: String): BookCoverBadge =
+    BookCoverBadge(id = id, bitmap = this.badgeBitmap, width = 16, height = 16)
+
+  private fun transform(
+    transform: BookCoverBadgeTransform,
+    source: Bitmap
+  ): Resource<Bitmap> =
+    transform.transform(
+      RuntimeEnvironment.getApplication(),
+      BitmapResource.obtain(source, BitmapPoolAdapter())!!,
+      source.width,
+      source.height
+    )
+
+  private fun digestOf(transform: BookCoverBadgeTransform): List<Byte> {
+    val digest = MessageDigest.getInstance("SHA-256")
+    transform.updateDiskCacheKey(digest)
+    return digest.digest().toList()
+  }
+
+  /**
+   * The badge is drawn over the bottom-right corner of a new bitmap, and the source is left
+   * untouched.
+   */
+
+  @Test
+  fun testBadgeDrawn() {
+    val source = this.filled(100, 100, Color.RED)
+    val result = this.transform(BookCoverBadgeTransform(this.badge("a")), source).get()
+
+    assertNotSame(source, result)
+    assertEquals(100, result.width)
+    assertEquals(100, result.height)
+    assertEquals(Color.RED, result.getPixel(10, 10))
+    assertEquals(Color.WHITE, result.getPixel(84, 84))
+    assertEquals(Color.RED, result.getPixel(95, 95))
+    assertEquals(Color.RED, source.getPixel(84, 84))
+    assertFalse(source.isRecycled)
+  }
+
+  /**
+   * Without a badge, the source is passed through unchanged.
+   */
+
+  @Test
+  fun testNoBadgePassesThrough() {
+    val source = this.filled(100, 100, Color.RED)
+    val result = this.transform(BookCoverBadgeTransform(null), source).get()
+
+    assertSame(source, result)
+    assertEquals(Color.RED, result.getPixel(84, 84))
+  }
+
+  /**
+   * Transforms with equal badges are equal and have the same cache key, and transforms with
+   * different badges do not.
+   */
+
+  @Test
+  fun testIdentityStable() {
+    val transformA0 = BookCoverBadgeTransform(this.badge("a"))
+    val transformA1 = BookCoverBadgeTransform(this.badge("a"))
+    val transformB = BookCoverBadgeTransform(this.badge("b"))
+    val transformNone0 = BookCoverBadgeTransform(null)
+    val transformNone1 = BookCoverBadgeTransform(null)
+
+    assertEquals(transformA0, transformA1)
+    assertEquals(transformA0.hashCode(), transformA1.hashCode())
+    assertEquals(this.digestOf(transformA0), this.digestOf(transformA1))
+    assertEquals(this.digestOf(transformA0), this.digestOf(transformA0))
+
+    assertNotEquals(transformA0, transformB)
+    assertNotEquals(this.digestOf(transformA0), this.digestOf(transformB))
+
+    assertEquals(transformNone0, transformNone1)
+    assertEquals(transformNone0.hashCode(), transformNone1.hashCode())
+    assertEquals(this.digestOf(transformNone0), this.digestOf(transformNone1))
+    assertNotEquals(transformA0, transformNone0)
+    assertNotEquals(this.digestOf(transformA0), this.digestOf(transformNone0))
+  }
+}
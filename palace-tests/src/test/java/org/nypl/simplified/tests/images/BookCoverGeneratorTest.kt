@@ -0,0 +1,101 @@
+package org.nypl.simplified.tests.images
+
+import android.graphics.Bitmap
+import org.junit.Test
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.runner.RunWith
+import org.nypl.simplified.tenprint.TenPrintBitmapAllocatorType
+import org.nypl.simplified.tenprint.TenPrintGeneratorType
+import org.nypl.simplified.tenprint.TenPrintInput
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import org.thepalaceproject.palace.images.BookCoverGenerator
+import org.thepalaceproject.palace.images.BookCoverGeneratorCache
+
+@RunWith(RobolectricTestRunner::class)
+@Config(sdk = [28])
+class BookCoverGeneratorTest {
+
+  private class CountingGenerator : TenPrintGeneratorType {
+    var generated = 0
+
+    override fun generate(i: TenPrintInput): Bitmap =
+      this.generate(i) { w, h, c -> Bitmap.createBitmap(w, h, c) }
+
+    override fun generate(
+      i: TenPrintInput,
+      allocator: TenPrintBitmapAllocatorType
+    ): Bitmap {
+      ++this.generated
+      return allocator.allocate(i.coverWidth, i.coverHeight, Bitmap.Config.RGB_565)
+    }
+  }
+
+  private class CountingAllocator : TenPrintBitmapAllocatorType {
+    var allocated = 0
+
+    override fun allocate(
+      width: Int,
+      height: Int,
+      config: Bitmap.Config
+    ): Bitmap {
+      ++this.allocated
+      return Bitmap.createBitmap(width, height, config)
+    }
+  }
+
+  @Test
+  fun testGeneratedOncePerKey() {
+    val tenPrint = CountingGenerator()
+    val allocator = CountingAllocator()
+    val generator =
+      BookCoverGenerator(tenPrint, BookCoverGeneratorCache.create())
+    val uri =
+      generator.generateURIForTitleAuthor("Moby Dick", "Herman Melville")
+
+    repeat(5) {
+      generator.generateImage(uri, 0, 400, allocator)
+    }
+    assertEquals(1, tenPrint.generated)
+    assertEquals(5, allocator.allocated)
+
+    generator.generateImage(uri, 0, 200, allocator)
+    assertEquals(2, tenPrint.generated)
+
+    generator.generateImage(
+      generator.generateURIForTitleAuthor("Moby Dick", "Someone Else"),
+      0,
+      400,
+      allocator
+    )
+    assertEquals(3, tenPrint.generated)
+  }
+
+  @Test
+  fun testCallerOwnsReturnedBitmap() {
+    val generator =
+      BookCoverGenerator(CountingGenerator(), BookCoverGeneratorCache.create())
+    val uri =
+      generator.generateURIForTitleAuthor("Moby Dick", "Herman Melville")
+
+    generator.generateImage(uri, 0, 400).recycle()
+
+    val cover = generator.generateImage(uri, 0, 400)
+    assertFalse(cover.isRecycled)
+    cover.recycle()
+    assertFalse(generator.generateImage(uri, 0, 400).isRecycled)
+  }
+
+  @Test
+  fun testKeysDistinguishFields() {
+    val keys =
+      setOf(
+        BookCoverGeneratorCache.keyOf("ab", "c", 300, 400),
+        BookCoverGeneratorCache.keyOf("a", "bc", 300, 400),
+        BookCoverGeneratorCache.keyOf("ab", "c", 30, 400),
+        BookCoverGeneratorCache.keyOf("ab", "c", 300, 40)
+      )
+    assertEquals(4, keys.size)
+  }
+}
@@ -0,0 +1,208 @@
+package org.nypl.simplified.tests.images
+
+import android.content.Context
+import android.graphics.Bitmap
+import android.widget.ImageView
+import org.joda.time.DateTime
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+import org.nypl.simplified.accounts.api.AccountID
+import org.nypl.simplified.accounts.api.AccountProviderDescription
+import org.nypl.simplified.books.api.BookID
+import org.nypl.simplified.feeds.api.FeedEntry
+import org.nypl.simplified.opds.core.OPDSAcquisitionFeedEntry
+import org.nypl.simplified.opds.core.OPDSAvailabilityLoanable
+import org.nypl.simplified.ui.catalog.CatalogCoverPrefetcher
+import org.nypl.simplified.ui.images.ImageLoader2Type
+import org.slf4j.LoggerFactory
+import org.thepalaceproject.palace.images.HttpCoverFetchStatistics
+import java.net.URI
+import java.util.UUID
+import java.util.concurrent.CompletableFuture
+
+class CatalogCoverPrefetcherTest {
+
+  private val logger =
+    LoggerFactory.getLogger(CatalogCoverPrefetcherTest::class.java)
+
+  /**
+   * An image loader that takes a fixed number of ticks to load each thumbnail.
+   */
+
+  private class SlowImageLoader(
+    private val latency: Int
+  ) : ImageLoader2Type {
+    override val coverFetchStatistics = HttpCoverFetchStatistics()
+
+    private val loading = mutableMapOf<BookID, Int>()
+    val loaded = mutableSetOf<BookID>()
+    val prefetched = mutableListOf<BookID>()
+    val cancelled = mutableListOf<BookID>()
+
+    fun tick() {
+      val iterator = this.loading.entries.iterator()
+      while (iterator.hasNext()) {
+        val entry = iterator.next()
+        entry.setValue(entry.value - 1)
+        if (entry.value <= 0) {
+          this.loaded.add(entry.key)
+          iterator.remove()
+        }
+      }
+    }
+
+    fun bind(entry: FeedEntry.FeedEntryOPDS): Boolean {
+      if (this.loaded.contains(entry.bookID)) {
+        return false
+      }
+      this.loading.putIfAbsent(entry.bookID, this.latency)
+      return true
+    }
+
+    override fun prefetchThumbnail(
+      entry: FeedEntry.FeedEntryOPDS,
+      width: Int,
+      height: Int
+    ): AutoCloseable {
+      this.prefetched.add(entry.bookID)
+      if (!this.loaded.contains(entry.bookID)) {
+        this.loading.putIfAbsent(entry.bookID, this.latency)
+      }
+      return AutoCloseable {
+        if (this.loading.remove(entry.bookID) != null) {
+          this.cancelled.add(entry.bookID)
+        }
+      }
+    }
+
+    override fun loadAccountLogoIntoView(
+      context: Context,
+      account: AccountProviderDescription,
+      defaultIcon: Int,
+      iconView: ImageView
+    ): CompletableFuture<Unit> = throw UnsupportedOperationException()
+
+    override fun loadThumbnailInto(
+      entry: FeedEntry.FeedEntryOPDS,
+      imageView: ImageView,
+      width: Int,
+      height: Int
+    ): CompletableFuture<Unit> = throw UnsupportedOperationException()
+
+    override fun loadCoverInto(
+      entry: FeedEntry.FeedEntryOPDS,
+      imageView: ImageView,
+      hasBadge: Boolean,
+      width: Int,
+      height: Int
+    ): CompletableFuture<Unit> = throw UnsupportedOperationException()
+
+    override fun loadCoverAsBitmap(
+      entry: FeedEntry.FeedEntryOPDS,
+      onBitmapLoaded: (Bitmap) -> Unit,
+      defaultResource: Int
+    ): CompletableFuture<Unit> = throw UnsupportedOperationException()
+
+    override fun loadCoverAsBitmap(
+      source: URI,
+      onBitmapLoaded: (Bitmap) -> Unit,
+      defaultResource: Int
+    ): CompletableFuture<Unit> = throw UnsupportedOperationException()
+  }
+
+  private fun entries(count: Int): List<FeedEntry> {
+    val accountID = AccountID(UUID.randomUUID())
+    return (0 until count).map { index ->
+      FeedEntry.FeedEntryOPDS(
+        accountID,
+        OPDSAcquisitionFeedEntry.newBuilder(
+          "urn:book:$index", "Book $index", DateTime.now(), OPDSAvailabilityLoanable.get()
+        ).build()
+      )
+    }
+  }
+
+  /**
+   * Simulate scrolling through a feed at one entry per tick, returning the placeholder ratio.
+   */
+
+  private fun scroll(
+    loader: SlowImageLoader,
+    prefetcher: CatalogCoverPrefetcher,
+    entries: List<FeedEntry>
+  ): Double {
+    for (position in entries.indices) {
+      val placeholder = loader.bind(entries[position] as FeedEntry.FeedEntryOPDS)
+      prefetcher.onBound(
+        position = position,
+        count = entries.size,
+        peek = { index -> entries[index] },
+        placeholder = placeholder,
+        width = 80,
+        height = 108
+      )
+      loader.tick()
+    }
+    return prefetcher.placeholderRatio
+  }
+
+  /**
+   * Prefetching reduces the proportion of entries that show placeholders while scrolling.
+   */
+
+  @Test
+  fun testScrollPlaceholderRatio() {
+    val entries = this.entries(500)
+
+    val ratioWithout =
+      this.scroll(SlowImageLoader(4), CatalogCoverPrefetcher(SlowImageLoader(4), 0), entries)
+
+    val loader = SlowImageLoader(4)
+    val ratioWith =
+      this.scroll(loader, CatalogCoverPrefetcher(loader, 8), entries)
+
+    this.logger.debug("Placeholder ratio without prefetching: {}", ratioWithout)
+    this.logger.debug("Placeholder ratio with prefetching:    {}", ratioWith)
+
+    assertEquals(1.0, ratioWithout)
+    assertTrue(ratioWith < 0.05, "Placeholder ratio $ratioWith must be below 0.05")
+  }
+
+  /**
+   * Entries are prefetched once, and entries that are not yet loaded are skipped.
+   */
+
+  @Test
+  fun testPrefetchOnceLoadedOnly() {
+    val entries = this.entries(20)
+    val loader = SlowImageLoader(1)
+    val prefetcher = CatalogCoverPrefetcher(loader, 4)
+
+    val peek = { index: Int -> if (index == 3) null else entries[index] }
+    prefetcher.onBound(0, entries.size, peek, true, 80, 108)
+    prefetcher.onBound(1, entries.size, peek, true, 80, 108)
+
+    assertEquals(
+      listOf(1, 2, 4, 5).map { i -> entries[i].bookID },
+      loader.prefetched
+    )
+  }
+
+  /**
+   * Cancelling the prefetcher cancels prefetches that have not completed.
+   */
+
+  @Test
+  fun testCancel() {
+    val entries = this.entries(20)
+    val loader = SlowImageLoader(100)
+    val prefetcher = CatalogCoverPrefetcher(loader, 4)
+
+    prefetcher.onBound(0, entries.size, { index -> entries[index] }, true, 80, 108)
+    assertEquals(4, loader.prefetched.size)
+
+    prefetcher.cancel()
+    assertEquals(loader.prefetched, loader.cancelled)
+  }
+}
@@ -0,0 +1,260 @@
+package org.nypl.simplified.tests.images
+
+import android.content.Context
+import com.bumptech.glide.Priority
+import com.bumptech.glide.load.data.DataFetcher
+import okhttp3.mockwebserver.Dispatcher
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
+import okio.Buffer
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertNotNull
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.Timeout
+import org.librarysimplified.http.api.LSHTTPClientConfiguration
+import org.librarysimplified.http.api.LSHTTPClientType
+import org.librarysimplified.http.api.LSHTTPNetworkAccess
+import org.librarysimplified.http.vanilla.LSHTTPClients
+import org.mockito.Mockito
+import org.thepalaceproject.palace.images.HttpCoverFetchStatistics
+import org.thepalaceproject.palace.images.HttpHostLimiter
+import org.thepalaceproject.palace.images.HttpURIDataFetcher
+import java.io.InputStream
+import java.net.URI
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class HttpURIDataFetcherTest {
+
+  private lateinit var http: LSHTTPClientType
+  private lateinit var statistics: HttpCoverFetchStatistics
+  private lateinit var webServer: MockWebServer
+
+  @BeforeEach
+  fun testSetup() {
+    this.webServer = MockWebServer()
+    this.webServer.start(20000)
+    this.statistics = HttpCoverFetchStatistics()
+    this.http =
+      LSHTTPClients()
+        .create(
+          context = Mockito.mock(Context::class.java),
+          configuration = LSHTTPClientConfiguration(
+            applicationName = "simplified-tests",
+            applicationVersion = "999.999.0",
+            tlsOverrides = null,
+            timeout = Pair(5L, TimeUnit.SECONDS),
+            networkAccess = LSHTTPNetworkAccess,
+          )
+        )
+  }
+
+  @AfterEach
+  fun tearDown() {
+    this.webServer.close()
+  }
+
+  private class Callback : DataFetcher.DataCallback<InputStream> {
+    val result = CompletableFuture<ByteArray>()
+
+    override fun onDataReady(data: InputStream?) {
+      this.result.complete(data!!.readBytes())
+    }
+
+    override fun onLoadFailed(e: Exception) {
+      this.result.completeExceptionally(e)
+    }
+  }
+
+  private fun fetcher(
+    limiter: HttpHostLimiter,
+    path: String
+  ): HttpURIDataFetcher =
+    HttpURIDataFetcher(
+      http = this.http,
+      limiter = limiter,
+      statistics = this.statistics,
+      uri = URI.create(this.webServer.url(path).toString())
+    )
+
+  /**
+   * A successful fetch delivers the body and counts the bytes read.
+   */
+
+  @Test
+  @Timeout(value = 10L, unit = TimeUnit.SECONDS)
+  fun testFetchOK() {
+    val body = ByteArray(4096) { i -> i.toByte() }
+    this.webServer.enqueue(MockResponse().setResponseCode(200).setBody(Buffer().write(body)))
+
+    val fetcher = this.fetcher(HttpHostLimiter(2), "/cover.png")
+    val callback = Callback()
+    fetcher.loadData(Priority.NORMAL, callback)
+    val received = callback.result.get()
+    fetcher.cleanup()
+
+    assertTrue(body.contentEquals(received))
+    assertEquals(1L, this.statistics.requestCount)
+    assertEquals(0L, this.statistics.failureCount)
+    assertEquals(4096L, this.statistics.byteCount)
+  }
+
+  private fun tryAcquire(
+    limiter: HttpHostLimiter,
+    uri: URI
+  ): Boolean {
+    var checked = false
+    return limiter.acquire(uri) {
+      val cancelled = checked
+      checked = true
+      cancelled
+    }
+  }
+
+  /**
+   * A delivered fetch holds its host slot until it is cleaned up, and releases it exactly once.
+   */
+
+  @Test
+  @Timeout(value = 10L, unit = TimeUnit.SECONDS)
+  fun testSlotHeldUntilCleanup() {
+    this.webServer.enqueue(MockResponse().setResponseCode(200).setBody("cover"))
+
+    val limiter = HttpHostLimiter(1)
+    val uri = URI.create(this.webServer.url("/cover.png").toString())
+    val fetcher = this.fetcher(limiter, "/cover.png")
+    val callback = Callback()
+    fetcher.loadData(Priority.NORMAL, callback)
+    callback.result.get()
+
+    assertFalse(this.tryAcquire(limiter, uri))
+    fetcher.cleanup()
+    fetcher.cleanup()
+    fetcher.cancel()
+    assertTrue(this.tryAcquire(limiter, uri))
+    assertFalse(this.tryAcquire(limiter, uri))
+    limiter.release(uri)
+  }
+
+  /**
+   * A failed fetch releases its host slot immediately.
+   */
+
+  @Test
+  @Timeout(value = 10L, unit = TimeUnit.SECONDS)
+  fun testSlotReleasedOnFailure() {
+    this.webServer.enqueue(MockResponse().setResponseCode(404))
+
+    val limiter = HttpHostLimiter(1)
+    val uri = URI.create(this.webServer.url("/missing.png").toString())
+    val fetcher = this.fetcher(limiter, "/missing.png")
+    val callback = Callback()
+    fetcher.loadData(Priority.NORMAL, callback)
+    assertNotNull(runCatching { callback.result.get() }.exceptionOrNull())
+
+    assertTrue(this.tryAcquire(limiter, uri))
+    fetcher.cleanup()
+    assertFalse(this.tryAcquire(limiter, uri))
+    limiter.release(uri)
+  }
+
+  /**
+   * An error response fails the fetch.
+   */
+
+  @Test
+  @Timeout(value = 10L, unit = TimeUnit.SECONDS)
+  fun testFetchError() {
+    this.webServer.enqueue(MockResponse().setResponseCode(404))
+
+    val fetcher = this.fetcher(HttpHostLimiter(2), "/missing.png")
+    val callback = Callback()
+    fetcher.loadData(Priority.NORMAL, callback)
+    val failure = runCatching { callback.result.get() }.exceptionOrNull()
+    fetcher.cleanup()
+
+    assertNotNull(failure)
+    assertEquals(1L, this.statistics.failureCount)
+    assertEquals(0L, this.statistics.byteCount)
+  }
+
+  /**
+   * No more than the per-host maximum number of requests are in flight at once.
+   */
+
+  @Test
+  @Timeout(value = 20L, unit = TimeUnit.SECONDS)
+  fun testPerHostLimit() {
+    val inFlight = AtomicInteger()
+    val inFlightMaximum = AtomicInteger()
+
+    this.webServer.dispatcher = object : Dispatcher() {
+      override fun dispatch(request: RecordedRequest): MockResponse {
+        val now = inFlight.incrementAndGet()
+        inFlightMaximum.accumulateAndGet(now, Math::max)
+        Thread.sleep(100L)
+        inFlight.decrementAndGet()
+        return MockResponse().setResponseCode(200).setBody("cover")
+      }
+    }
+
+    val limiter = HttpHostLimiter(2)
+    val executor = Executors.newFixedThreadPool(8)
+    try {
+      val callbacks =
+        (0 until 8).map { index ->
+          val callback = Callback()
+          executor.execute {
+            val fetcher = this.fetcher(limiter, "/cover-$index.png")
+            fetcher.loadData(Priority.NORMAL, callback)
+            callback.result.handle { _, _ -> fetcher.cleanup() }
+          }
+          callback
+        }
+      callbacks.forEach { c -> c.result.get() }
+    } finally {
+      executor.shutdown()
+    }
+
+    assertTrue(inFlightMaximum.get() <= 2, "At most 2 requests in flight")
+    assertEquals(8L, this.statistics.requestCount)
+  }
+
+  /**
+   * Cancelling a fetch that is waiting for a slot abandons the wait without sending a request.
+   */
+
+  @Test
+  @Timeout(value = 10L, unit = TimeUnit.SECONDS)
+  fun testCancelWhileWaiting() {
+    val limiter = HttpHostLimiter(1)
+    val uri = URI.create(this.webServer.url("/cover.png").toString())
+    assertTrue(limiter.acquire(uri) { false })
+
+    val fetcher = this.fetcher(limiter, "/cover.png")
+    val callback = Callback()
+    val started = CountDownLatch(1)
+    val thread = Thread {
+      started.countDown()
+      fetcher.loadData(Priority.NORMAL, callback)
+    }
+    thread.start()
+    started.await()
+    Thread.sleep(200L)
+    fetcher.cancel()
+    thread.join()
+
+    assertNotNull(runCatching { callback.result.get() }.exceptionOrNull())
+    assertEquals(1L, this.statistics.cancellationCount)
+    assertEquals(0, this.webServer.requestCount)
+    limiter.release(uri)
+  }
+}
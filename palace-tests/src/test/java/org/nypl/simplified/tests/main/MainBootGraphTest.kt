@@ -0,0 +1,113 @@
+package org.nypl.simplified.tests.main
+
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertThrows
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.Timeout
+import org.nypl.simplified.ui.main.MainBootGraph
+import java.io.IOException
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class MainBootGraphTest {
+
+  private lateinit var executor: ExecutorService
+
+  @BeforeEach
+  fun testSetup() {
+    this.executor = Executors.newFixedThreadPool(4)
+  }
+
+  @AfterEach
+  fun tearDown() {
+    this.executor.shutdown()
+  }
+
+  /**
+   * Tasks run only after their dependencies have completed.
+   */
+
+  @Test
+  @Timeout(value = 10L, unit = TimeUnit.SECONDS)
+  fun testDependencyOrder() {
+    val graph = MainBootGraph(this.executor)
+    val order = AtomicInteger()
+
+    val a = graph.add("a") { Thread.sleep(50L); order.incrementAndGet() }
+    val b = graph.add("b", listOf(a)) { a.get() * 10 + order.incrementAndGet() }
+    val c = graph.add("c", listOf(a, b)) { b.get() + 100 }
+
+    graph.awaitAll()
+    assertEquals(1, a.get())
+    assertEquals(12, b.get())
+    assertEquals(112, c.get())
+  }
+
+  /**
+   * Independent tasks run concurrently.
+   */
+
+  @Test
+  @Timeout(value = 10L, unit = TimeUnit.SECONDS)
+  fun testIndependentConcurrent() {
+    val graph = MainBootGraph(this.executor)
+    val latch = CountDownLatch(2)
+
+    /*
+     * Each task waits for the other to start, so this can only complete if both run at once.
+     */
+
+    graph.add("a") { latch.countDown(); latch.await() }
+    graph.add("b") { latch.countDown(); latch.await() }
+    graph.awaitAll()
+
+    val trace = graph.trace()
+    assertEquals(setOf("a", "b"), trace.entries.map { e -> e.name }.toSet())
+  }
+
+  /**
+   * A failure is propagated to dependent tasks, and independent tasks still run.
+   */
+
+  @Test
+  @Timeout(value = 10L, unit = TimeUnit.SECONDS)
+  fun testFailurePropagates() {
+    val graph = MainBootGraph(this.executor)
+    val ran = AtomicInteger()
+
+    val a = graph.add<Int>("a") { throw IOException("Broken") }
+    val b = graph.add("b", listOf(a)) { ran.incrementAndGet() }
+    val c = graph.add("c") { ran.incrementAndGet() }
+
+    assertThrows(IOException::class.java) { b.get() }
+    assertThrows(IOException::class.java) { graph.awaitAll() }
+    assertEquals(1, c.get())
+    assertEquals(1, ran.get())
+  }
+
+  /**
+   * The trace records every task that ran, with its duration.
+   */
+
+  @Test
+  @Timeout(value = 10L, unit = TimeUnit.SECONDS)
+  fun testTrace() {
+    val graph = MainBootGraph(this.executor)
+    val a = graph.add("a") { Thread.sleep(100L) }
+    graph.add("b", listOf(a)) { }
+    graph.awaitAll()
+
+    val trace = graph.trace()
+    assertEquals(listOf("a", "b"), trace.entries.map { e -> e.name })
+    assertEquals("a", trace.slowest()[0].name)
+    assertTrue(trace.entries[0].duration.toMillis() >= 100L)
+    assertTrue(trace.entries[1].started >= trace.entries[0].finished)
+    assertTrue(trace.total >= trace.entries[1].finished)
+  }
+}
@@ -0,0 +1,130 @@
+package org.nypl.simplified.tests.opds
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Disabled
+import org.junit.jupiter.api.Test
+import org.nypl.simplified.opds.auth_document.AuthenticationDocumentParsers
+import org.nypl.simplified.opds.auth_document.api.AuthenticationDocument
+import org.nypl.simplified.opds.auth_document.api.AuthenticationDocumentParsersType
+import org.nypl.simplified.parser.api.ParseResult
+import org.slf4j.LoggerFactory
+import java.lang.management.ManagementFactory
+import java.net.URI
+
+/**
+ * Check that the streaming parser produces exactly the same results as the tree parser.
+ */
+
+class AuthenticationDocumentEquivalenceTest {
+
+  private val logger =
+    LoggerFactory.getLogger(AuthenticationDocumentEquivalenceTest::class.java)
+
+  private val files =
+    listOf(
+      "empty.json",
+      "example.json",
+      "example_bad_authentication.json",
+      "example_bad_authentications.json",
+      "example_bad_labels.json",
+      "example_bad_link.json",
+      "example_bad_links.json",
+      "example_missing_id.json",
+      "minimal.json",
+      "nypl-20190603.json",
+      "nypl_qa_20201203.json",
+      "openebooks_20200514.json"
+    )
+
+  private val documents =
+    listOf(
+      "[]",
+      "null",
+      "{",
+      "{\"id\":\"http://x\",\"title\":\"t\",\"authentication\":[],\"links\":{}}",
+      "{\"id\":\"http://x\",\"title\":\"t\",\"authentication\":{},\"authentication\":[{\"type\":\"a\"}]}",
+      "{\"links\":[{\"href\":\"a\"},3],\"id\":\"http://x\",\"title\":\"t\",\"authentication\":[5,{\"type\":\"b\"}]}",
+      "{\"links\":[{\"href\":\"a\"},3],\"title\":\"t\",\"authentication\":[5]}",
+      "{\"id\":\"http://x\",\"title\":\"t\",\"authentication\":[],\"unknown\":{\"a\":[1,{}]},\"features\":3}",
+      "{\"id\":\"http://x\",\"title\":\"t\",\"links\":[{\"x\":{\"href\":3},\"href\":\"a\",\"rel\":null,\"href\":\"b\"},[1]],\"authentication\":[{\"x\":[{}],\"type\":\"a\",\"links\":[{\"href\":\"c\",\"y\":[]},\"d\"],\"labels\":{\"login\":\"L\"}},{\"type\":\"b\",\"links\":{}}]}"
+    )
+
+  private fun resourceBytes(file: String): ByteArray {
+    val path = "/org/nypl/simplified/tests/opds/auth_document/$file"
+    return AuthenticationDocumentEquivalenceTest::class.java.getResourceAsStream(path)!!
+      .use { stream -> stream.readBytes() }
+  }
+
+  private fun parse(
+    parsers: AuthenticationDocumentParsersType,
+    data: ByteArray,
+    warningsAsErrors: Boolean
+  ): ParseResult<AuthenticationDocument> {
+    return parsers.createParser(URI.create("urn:x"), data.inputStream(), warningsAsErrors).parse()
+  }
+
+  /**
+   * Parse errors contain exceptions, which do not compare equal, so results are compared by
+   * their documents and messages.
+   */
+
+  private fun describe(result: ParseResult<AuthenticationDocument>): List<Any?> {
+    return when (result) {
+      is ParseResult.Success ->
+        listOf(result.result, result.warnings.map { warning -> warning.message })
+      is ParseResult.Failure ->
+        listOf(
+          result.errors.map { error -> error.message },
+          result.warnings.map { warning -> warning.message }
+        )
+    }
+  }
+
+  @Test
+  fun testEquivalent() {
+    val inputs =
+      this.files.map(this::resourceBytes) + this.documents.map(String::toByteArray)
+
+    for (input in inputs) {
+      for (warningsAsErrors in listOf(false, true)) {
+        assertEquals(
+          this.describe(this.parse(AuthenticationDocumentTreeParsers(), input, warningsAsErrors)),
+          this.describe(this.parse(AuthenticationDocumentParsers(), input, warningsAsErrors)),
+          String(input)
+        )
+      }
+    }
+  }
+
+  /**
+   * Compare the time taken, and the memory allocated, by the tree parser and the streaming
+   * parser. The results depend on the machine, so this is run by hand rather than as part
+   * of the build.
+   */
+
+  @Test
+  @Disabled("A manual benchmark; run it explicitly to compare the parsers.")
+  fun testParseCost() {
+    val data = this.resourceBytes("nypl-20190603.json")
+    val iterations = 500
+    val threads = ManagementFactory.getThreadMXBean() as com.sun.management.ThreadMXBean
+    val threadId = Thread.currentThread().id
+
+    for (parsers in listOf(AuthenticationDocumentTreeParsers(), AuthenticationDocumentParsers())) {
+      repeat(iterations) { this.parse(parsers, data, false) }
+
+      val allocatedStart = threads.getThreadAllocatedBytes(threadId)
+      val timeStart = System.nanoTime()
+      repeat(iterations) { this.parse(parsers, data, false) }
+      val timeEach = (System.nanoTime() - timeStart) / iterations
+      val allocatedEach = (threads.getThreadAllocatedBytes(threadId) - allocatedStart) / iterations
+
+      this.logger.debug(
+        "{}: {}us {} bytes per document",
+        parsers.javaClass.simpleName,
+        timeEach / 1000L,
+        allocatedEach
+      )
+    }
+  }
+}
@@ -0,0 +1,21 @@
+package org.nypl.simplified.tests.opds
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import org.nypl.simplified.opds.auth_document.api.AuthenticationDocumentParserType
+import org.nypl.simplified.opds.auth_document.api.AuthenticationDocumentParsersType
+import java.io.InputStream
+import java.net.URI
+
+/**
+ * A provider of [AuthenticationDocumentTreeParser] parsers.
+ */
+
+class AuthenticationDocumentTreeParsers : AuthenticationDocumentParsersType {
+  private val mapper = ObjectMapper()
+
+  override fun createParser(
+    uri: URI,
+    stream: InputStream,
+    warningsAsErrors: Boolean
+  ): AuthenticationDocumentParserType = AuthenticationDocumentTreeParser(this.mapper, uri, stream, warningsAsErrors)
+}
@@ -0,0 +1,14 @@
+package org.nypl.simplified.tests.opds
+
+import org.nypl.simplified.opds.auth_document.api.AuthenticationDocumentParsersType
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+
+class AuthenticationDocumentTreeTest : AuthenticationDocumentContract() {
+
+  override val logger: Logger
+    get() = LoggerFactory.getLogger(AuthenticationDocumentTreeTest::class.java)
+
+  override val parsers: AuthenticationDocumentParsersType
+    get() = AuthenticationDocumentTreeParsers()
+}
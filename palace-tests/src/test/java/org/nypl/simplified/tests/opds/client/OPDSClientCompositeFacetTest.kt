@@ -395,6 +395,102 @@ class OPDSClientCompositeFacetTest {
     )
   }
 
+  /**
+   * Facets that are already active in the feed resolved so far do not require requests.
+   */
+
+  @Test
+  fun testFeedCompositeFacetAlreadyActive() {
+    this.webServer.enqueue(
+      MockResponse()
+        .setResponseCode(200)
+        .setBody(this.textOf("/org/nypl/simplified/tests/opds/client/facets-ok-1.xml"))
+    )
+
+    val f =
+      this.client.goTo(
+        OPDSClientRequest.ResolvedCompositeOPDS12Facet(
+          historyBehavior = OPDSClientRequest.HistoryBehavior.ADD_TO_HISTORY,
+          credentials = null,
+          method = "GET",
+          facet = this.compositeGXHY()
+        )
+      )
+
+    f.get(5L, TimeUnit.SECONDS)
+    assertInstanceOf(OPDSState.LoadedFeedWithoutGroups::class.java, this.client.state.get())
+    assertEquals(1, this.webServer.requestCount)
+  }
+
+  /**
+   * Navigating away from a composite facet that is still loading cancels the resolution, and
+   * the abandoned request does not publish an error.
+   */
+
+  @Test
+  fun testFeedCompositeFacetCancelled() {
+    this.webServer.enqueue(
+      MockResponse()
+        .setResponseCode(200)
+        .setHeadersDelay(10L, TimeUnit.SECONDS)
+        .setBody(this.textOf("/org/nypl/simplified/tests/opds/client/facets-ok-0.xml"))
+    )
+
+    val f0 =
+      this.client.goTo(
+        OPDSClientRequest.ResolvedCompositeOPDS12Facet(
+          historyBehavior = OPDSClientRequest.HistoryBehavior.ADD_TO_HISTORY,
+          credentials = null,
+          method = "GET",
+          facet = this.compositeGXHY()
+        )
+      )
+
+    this.webServer.takeRequest(5L, TimeUnit.SECONDS)
+
+    val f1 =
+      this.client.goTo(
+        OPDSClientRequest.ExistingEntry(
+          historyBehavior = OPDSClientRequest.HistoryBehavior.REPLACE_TIP,
+          FeedEntry.FeedEntryCorrupt(this.account0, this.book0, IllegalStateException())
+        )
+      )
+
+    f1.get(5L, TimeUnit.SECONDS)
+    f0.get(5L, TimeUnit.SECONDS)
+    assertInstanceOf(OPDSState.LoadedFeedEntry::class.java, this.client.state.get())
+    assertEquals(1, this.webServer.requestCount)
+    assertFalse(this.stateChanges.contains("Error"))
+  }
+
+  private fun compositeGXHY(): FeedFacet.FeedFacetOPDS12Composite =
+    FeedFacet.FeedFacetOPDS12Composite(
+      facets = listOf(
+        FeedFacet.FeedFacetOPDS12Single(
+          accountID = this.account0,
+          opdsFacet = OPDSFacet(
+            isActive = true,
+            uri = URI.create("http://127.0.0.1:${this.webServer.port}/facet-G-X.xml"),
+            group = "G",
+            title = "X",
+            groupType = null
+          )
+        ),
+        FeedFacet.FeedFacetOPDS12Single(
+          accountID = this.account0,
+          opdsFacet = OPDSFacet(
+            isActive = true,
+            uri = URI.create("http://127.0.0.1:${this.webServer.port}/facet-H-Y.xml"),
+            group = "H",
+            title = "Y",
+            groupType = null
+          )
+        )
+      ),
+      title = "Results",
+      isActive = true
+    )
+
   private fun textOf(
     name: String
   ): String {
@@ -0,0 +1,196 @@
+package org.nypl.simplified.tests.patron
+
+import com.fasterxml.jackson.core.JsonToken
+import com.fasterxml.jackson.databind.ObjectMapper
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Disabled
+import org.junit.jupiter.api.Test
+import org.nypl.simplified.links.Link
+import org.nypl.simplified.links.json.LinkParsing
+import org.nypl.simplified.links.json.LinkStreamParser
+import org.nypl.simplified.parser.api.ParseResult
+import org.nypl.simplified.patron.PatronUserProfileParsers
+import org.nypl.simplified.patron.api.PatronUserProfile
+import org.nypl.simplified.patron.api.PatronUserProfileParsersType
+import org.slf4j.LoggerFactory
+import java.lang.management.ManagementFactory
+import java.net.URI
+
+/**
+ * Check that the streaming patron profile and link parsers produce exactly the same results
+ * as the tree parsers.
+ */
+
+class PatronUserProfileEquivalenceTest {
+
+  private val logger =
+    LoggerFactory.getLogger(PatronUserProfileEquivalenceTest::class.java)
+
+  private val files =
+    listOf(
+      "empty.json",
+      "empty2.json",
+      "example-drm-malformed.json",
+      "example-drm-unknown.json",
+      "example-with-device-20210512.json",
+      "example-with-device.json",
+      "example.json",
+      "simply-2126.json"
+    )
+
+  private val fields =
+    "\"simplified:authorization_identifier\":\"x\",\"settings\":{\"simplified:synchronize_annotations\":true}"
+
+  private val documents =
+    listOf(
+      "[]",
+      "null",
+      "{",
+      "{}",
+      "{${this.fields},\"links\":{}}",
+      "{${this.fields},\"links\":null}",
+      "{${this.fields},\"simplified:authorization_expires\":\"2019-08-02T00:00:00Z\"}",
+      "{${this.fields},\"settings\":{\"simplified:synchronize_annotations\":\"yes\"}}",
+      "{\"links\":[5],\"settings\":3,\"simplified:authorization_identifier\":4,\"drm\":{}}",
+      "{\"links\":[5],\"settings\":{\"simplified:synchronize_annotations\":null},\"simplified:authorization_identifier\":\"i\",\"drm\":[3]}",
+      "{${this.fields},\"links\":[{\"href\":\"a\",\"href\":3}],\"links\":[{\"href\":3,\"href\":\"b\",\"templated\":false}]}",
+      "{${this.fields},\"links\":[{\"href\":\"a\",\"x\":[1,{\"a\":[]}]},{\"href\":\"a b\"},{\"rel\":\"q\"},{\"href\":\"h\",\"title\":[]}]}",
+      "{${this.fields},\"links\":[{\"templated\":true,\"href\":\"{x}\",\"width\":3.7,\"height\":99999999999,\"duration\":\"2\"}]}"
+    )
+
+  private val linkArrays =
+    listOf(
+      "[]",
+      "[{\"href\":\"http://example.com\",\"rel\":\"start\",\"type\":\"text/html\",\"title\":\"T\"}]",
+      "[{\"href\":\"a\",\"templated\":\"yes\"},{\"templated\":true,\"href\":\"{x}\"},null,[1,2]]",
+      "[{\"href\":\"a\",\"duration\":\"x\"},{\"href\":\"a\",\"bitrate\":\"128.5\",\"width\":null}]"
+    )
+
+  private fun resourceBytes(file: String): ByteArray {
+    val path = "/org/nypl/simplified/tests/patron/$file"
+    return PatronUserProfileEquivalenceTest::class.java.getResourceAsStream(path)!!
+      .use { stream -> stream.readBytes() }
+  }
+
+  private fun parse(
+    parsers: PatronUserProfileParsersType,
+    data: ByteArray,
+    warningsAsErrors: Boolean
+  ): ParseResult<PatronUserProfile> {
+    return parsers.createParser(URI.create("urn:x"), data.inputStream(), warningsAsErrors)
+      .use { parser -> parser.parse() }
+  }
+
+  /**
+   * Parse errors contain exceptions, which do not compare equal, so results are compared by
+   * their values and messages.
+   */
+
+  private fun describe(result: ParseResult<*>): List<Any?> {
+    return when (result) {
+      is ParseResult.Success ->
+        listOf(result.result, result.warnings.map { warning -> warning.message })
+      is ParseResult.Failure ->
+        listOf(
+          result.errors.map { error -> error.message },
+          result.warnings.map { warning -> warning.message }
+        )
+    }
+  }
+
+  @Test
+  fun testEquivalent() {
+    val inputs =
+      this.files.map(this::resourceBytes) + this.documents.map(String::toByteArray)
+
+    for (input in inputs) {
+      for (warningsAsErrors in listOf(false, true)) {
+        assertEquals(
+          this.describe(this.parse(PatronUserProfileTreeParsers(), input, warningsAsErrors)),
+          this.describe(this.parse(PatronUserProfileParsers(), input, warningsAsErrors)),
+          String(input)
+        )
+      }
+    }
+  }
+
+  @Test
+  fun testLinksEquivalent() {
+    val mapper = ObjectMapper()
+    val source = URI.create("urn:x")
+
+    for (text in this.linkArrays) {
+      val expected =
+        mapper.readTree(text).map { node -> LinkParsing.parseLink(source, node) }
+
+      val received =
+        mapper.factory.createParser(text).use { parser ->
+          assertEquals(JsonToken.START_ARRAY, parser.nextToken())
+          LinkStreamParser(source).parseLinks(parser)
+        }
+
+      assertEquals(expected.map(this::describe), received.map(this::describe), text)
+    }
+  }
+
+  /**
+   * Compare the time taken, and the memory allocated, by the tree parsers and the streaming
+   * parsers. The results depend on the machine, so this is run by hand rather than as part
+   * of the build.
+   */
+
+  @Test
+  @Disabled("A manual benchmark; run it explicitly to compare the parsers.")
+  fun testParseCost() {
+    val data = this.resourceBytes("example-with-device.json")
+    val iterations = 2_000
+    val threads = ManagementFactory.getThreadMXBean() as com.sun.management.ThreadMXBean
+    val threadId = Thread.currentThread().id
+
+    for (parsers in listOf(PatronUserProfileTreeParsers(), PatronUserProfileParsers())) {
+      repeat(iterations) { this.parse(parsers, data, false) }
+
+      val allocatedStart = threads.getThreadAllocatedBytes(threadId)
+      val timeStart = System.nanoTime()
+      repeat(iterations) { this.parse(parsers, data, false) }
+      val timeEach = (System.nanoTime() - timeStart) / iterations
+      val allocatedEach = (threads.getThreadAllocatedBytes(threadId) - allocatedStart) / iterations
+
+      this.logger.debug(
+        "{}: {}ns {} bytes per document",
+        parsers.javaClass.simpleName,
+        timeEach,
+        allocatedEach
+      )
+    }
+
+    val links =
+      (0 until 100).joinToString(",", "[", "]") { index ->
+        "{\"href\":\"http://example.com/$index\",\"rel\":\"related\",\"title\":\"Link $index\"}"
+      }
+    val mapper = ObjectMapper()
+    val source = URI.create("urn:x")
+
+    val treeParse: () -> List<ParseResult<Link>> = {
+      mapper.readTree(links).map { node -> LinkParsing.parseLink(source, node) }
+    }
+    val streamParse: () -> List<ParseResult<Link>> = {
+      mapper.factory.createParser(links).use { parser ->
+        parser.nextToken()
+        LinkStreamParser(source).parseLinks(parser)
+      }
+    }
+
+    for ((name, parse) in listOf(Pair("tree", treeParse), Pair("stream", streamParse))) {
+      repeat(iterations) { parse() }
+
+      val allocatedStart = threads.getThreadAllocatedBytes(threadId)
+      val timeStart = System.nanoTime()
+      repeat(iterations) { parse() }
+      val timeEach = (System.nanoTime() - timeStart) / iterations
+      val allocatedEach = (threads.getThreadAllocatedBytes(threadId) - allocatedStart) / iterations
+
+      this.logger.debug("{} links: {}ns {} bytes per 100 links", name, timeEach, allocatedEach)
+    }
+  }
+}
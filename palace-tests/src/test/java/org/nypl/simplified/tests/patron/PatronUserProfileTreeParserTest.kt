@@ -0,0 +1,14 @@
+package org.nypl.simplified.tests.patron
+
+import org.nypl.simplified.patron.api.PatronUserProfileParsersType
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+
+class PatronUserProfileTreeParserTest : PatronUserProfileParserContract() {
+
+  override val logger: Logger
+    get() = LoggerFactory.getLogger(PatronUserProfileTreeParserTest::class.java)
+
+  override val parsers: PatronUserProfileParsersType
+    get() = PatronUserProfileTreeParsers()
+}
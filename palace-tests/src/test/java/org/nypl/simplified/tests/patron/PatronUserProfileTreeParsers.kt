@@ -0,0 +1,21 @@
+package org.nypl.simplified.tests.patron
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import org.nypl.simplified.patron.api.PatronUserProfileParserType
+import org.nypl.simplified.patron.api.PatronUserProfileParsersType
+import java.io.InputStream
+import java.net.URI
+
+/**
+ * A provider of [PatronUserProfileTreeParser] parsers.
+ */
+
+class PatronUserProfileTreeParsers : PatronUserProfileParsersType {
+  private val mapper = ObjectMapper()
+
+  override fun createParser(
+    uri: URI,
+    stream: InputStream,
+    warningsAsErrors: Boolean
+  ): PatronUserProfileParserType = PatronUserProfileTreeParser(this.mapper, uri, stream, warningsAsErrors)
+}
@@ -0,0 +1,134 @@
+package org.nypl.simplified.tests.reports
+
+import org.junit.jupiter.api.Assertions.assertArrayEquals
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertNull
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.librarysimplified.reports.ReportArchiveBuilder
+import org.librarysimplified.reports.ReportArchiveProgress
+import org.nypl.simplified.tests.TestDirectories
+import java.io.File
+import java.util.Collections
+import java.util.zip.ZipEntry
+import java.util.zip.ZipFile
+
+class ReportArchiveBuilderTest {
+
+  private lateinit var directory: File
+
+  @BeforeEach
+  fun testSetup() {
+    this.directory = TestDirectories.temporaryDirectory()
+  }
+
+  private fun fileOf(
+    path: String,
+    data: ByteArray
+  ): File {
+    val file = File(this.directory, path)
+    file.parentFile.mkdirs()
+    file.writeBytes(data)
+    return file
+  }
+
+  private fun entriesOf(file: File): Map<String, Pair<Int, ByteArray>> =
+    ZipFile(file).use { zip ->
+      zip.entries().toList().associate { entry ->
+        Pair(entry.name, Pair(entry.method, zip.getInputStream(entry).use { it.readBytes() }))
+      }
+    }
+
+  /**
+   * Directories are archived recursively, and compressed files are stored.
+   */
+
+  @Test
+  fun testArchive() {
+    val log = "line\n".repeat(1000).toByteArray()
+    val rolled = ByteArray(100) { index -> index.toByte() }
+    val tracking = "{}".toByteArray()
+
+    this.fileOf("logs/log.txt", log)
+    this.fileOf("logs/log.txt.1.gz", rolled)
+    this.fileOf("time_tracking/a/b.json", tracking)
+
+    val output = File(this.directory, "report.zip")
+    val archive =
+      ReportArchiveBuilder.create(threads = 2)
+        .build(
+          listOf(
+            File(this.directory, "time_tracking"),
+            File(this.directory, "logs"),
+            File(this.directory, "nonexistent")
+          ),
+          output
+        )
+
+    assertEquals(output, archive.file)
+    assertEquals(3, archive.files)
+    assertEquals(0, archive.filesTruncated)
+    assertEquals(0, archive.filesOmitted)
+    assertFalse(File(this.directory, "report.zip.tmp").exists())
+
+    val entries = this.entriesOf(output)
+    assertEquals(setOf("logs/log.txt", "logs/log.txt.1.gz", "time_tracking/a/b.json"), entries.keys)
+    assertEquals(ZipEntry.DEFLATED, entries["logs/log.txt"]!!.first)
+    assertArrayEquals(log, entries["logs/log.txt"]!!.second)
+    assertEquals(ZipEntry.STORED, entries["logs/log.txt.1.gz"]!!.first)
+    assertArrayEquals(rolled, entries["logs/log.txt.1.gz"]!!.second)
+    assertArrayEquals(tracking, entries["time_tracking/a/b.json"]!!.second)
+  }
+
+  /**
+   * Large uncompressed files are truncated to their ends, and large compressed files are
+   * omitted.
+   */
+
+  @Test
+  fun testArchiveLimits() {
+    val log = (0 until 1000).joinToString("") { index -> "$index\n" }.toByteArray()
+    this.fileOf("logs/log.txt", log)
+    this.fileOf("logs/log.txt.1.gz", ByteArray(200))
+    this.fileOf("logs/log.txt.2.gz", ByteArray(50))
+
+    val progress = Collections.synchronizedList(mutableListOf<ReportArchiveProgress>())
+    val output = File(this.directory, "report.zip")
+    val archive =
+      ReportArchiveBuilder.create(threads = 2, maximumFileSize = 100L)
+        .build(listOf(File(this.directory, "logs")), output, progress::add)
+
+    assertEquals(2, archive.files)
+    assertEquals(1, archive.filesTruncated)
+    assertEquals(1, archive.filesOmitted)
+
+    val entries = this.entriesOf(output)
+    assertNull(entries["logs/log.txt.1.gz"])
+    assertEquals(50, entries["logs/log.txt.2.gz"]!!.second.size)
+
+    val text = String(entries["logs/log.txt"]!!.second)
+    val expectedTail = String(log.copyOfRange(log.size - 100, log.size))
+    assertTrue(text.startsWith("[Truncated: the first ${log.size - 100} bytes"), text)
+    assertTrue(text.endsWith(expectedTail), text)
+
+    assertEquals(2, progress.size)
+    assertEquals(ReportArchiveProgress(2, 2, 150L, 150L), progress.last())
+  }
+
+  /**
+   * An existing archive is replaced.
+   */
+
+  @Test
+  fun testArchiveReplaces() {
+    val output = this.fileOf("report.zip", "not a zip".toByteArray())
+    this.fileOf("logs/log.txt", "x".toByteArray())
+
+    ReportArchiveBuilder.create()
+      .build(listOf(File(this.directory, "logs")), output)
+
+    assertEquals(setOf("logs/log.txt"), this.entriesOf(output).keys)
+  }
+}
@@ -0,0 +1,185 @@
+package org.nypl.simplified.tests.taskrecorder
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertThrows
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+import org.nypl.simplified.taskrecorder.api.TaskRecorder
+import org.nypl.simplified.taskrecorder.api.TaskTraceExport
+import org.nypl.simplified.taskrecorder.api.TaskTraceHistory
+import java.io.IOException
+
+class TaskRecorderTraceTest {
+
+  /**
+   * Steps are timed, and unresolved steps end when the next step begins.
+   */
+
+  @Test
+  fun testStepTiming() {
+    val recorder = TaskRecorder.create()
+    val step0 = recorder.beginNewStep("Step 0")
+    assertEquals(-1L, step0.timeEnded)
+    val step1 = recorder.beginNewStep("Step 1")
+    assertEquals(step1.timeStarted, step0.timeEnded)
+    recorder.currentStepSucceeded("OK")
+    assertTrue(step1.timeEnded >= step1.timeStarted)
+
+    val step2 = recorder.beginNewStep("Step 2")
+    recorder.finishSuccess(Unit)
+    assertTrue(step2.timeEnded >= step2.timeStarted)
+  }
+
+  /**
+   * Spans nest, and counters are added to the innermost open span.
+   */
+
+  @Test
+  fun testSpansCounters() {
+    val recorder = TaskRecorder.create()
+    val step = recorder.beginNewStep("Step")
+    recorder.addCount("items", 1L)
+
+    val result =
+      recorder.span("outer") {
+        recorder.addCount("bytes", 100L)
+        recorder.span("inner") {
+          recorder.addCount("bytes", 20L)
+          recorder.addCount("bytes", 3L)
+        }
+        recorder.addCount("bytes", 100L)
+        23
+      }
+
+    assertEquals(23, result)
+    assertEquals(mapOf("items" to 1L), step.counters)
+    assertEquals(1, step.spans.size)
+
+    val outer = step.spans[0]
+    assertEquals("outer", outer.name)
+    assertEquals(mapOf("bytes" to 200L), outer.counters)
+    assertTrue(outer.timeEnded >= outer.timeStarted)
+    assertEquals(1, outer.children.size)
+
+    val inner = outer.children[0]
+    assertEquals("inner", inner.name)
+    assertEquals(mapOf("bytes" to 23L), inner.counters)
+    assertTrue(inner.timeStarted >= outer.timeStarted)
+    assertTrue(inner.timeEnded <= outer.timeEnded)
+  }
+
+  /**
+   * Spans end when their bodies raise exceptions.
+   */
+
+  @Test
+  fun testSpanException() {
+    val recorder = TaskRecorder.create()
+    val step = recorder.beginNewStep("Step")
+
+    assertThrows(IOException::class.java) {
+      recorder.span("failing") {
+        throw IOException("Failed!")
+      }
+    }
+
+    recorder.span("next") { }
+    assertEquals(listOf("failing", "next"), step.spans.map { span -> span.name })
+    assertTrue(step.spans[0].timeEnded != -1L)
+    assertEquals(0, step.spans[0].children.size)
+  }
+
+  /**
+   * Spans require an active step.
+   */
+
+  @Test
+  fun testSpanNoStep() {
+    val recorder = TaskRecorder.create()
+    assertThrows(IllegalStateException::class.java) {
+      recorder.span("span") { }
+    }
+  }
+
+  /**
+   * Recorded tasks are exported as well-formed trace events.
+   */
+
+  @Test
+  fun testExport() {
+    val recorder0 = TaskRecorder.create()
+    recorder0.beginNewStep("Syncing \"loans\"\n")
+    recorder0.span("parseFeed") {
+      recorder0.addCount("entries", 12L)
+    }
+    recorder0.currentStepFailed("Failed", "syncFailed", null, listOf())
+    val result0 = recorder0.finishFailure<Unit>()
+
+    val recorder1 = TaskRecorder.create()
+    recorder1.beginNewStep("Borrowing")
+    val result1 = recorder1.finishSuccess(Unit)
+
+    val text =
+      TaskTraceExport.toJSON(
+        linkedMapOf(
+          "sync" to result0.steps,
+          "borrow" to result1.steps
+        )
+      )
+
+    val tree = ObjectMapper().readTree(text)
+    assertEquals("ms", tree["displayTimeUnit"].asText())
+
+    val events = tree["traceEvents"].toList()
+    assertEquals(5, events.size)
+
+    val names = events.map { event -> event["name"].asText() }
+    assertEquals(
+      listOf("thread_name", "Syncing \"loans\"\n", "parseFeed", "thread_name", "Borrowing"),
+      names
+    )
+
+    val sync = events[1]
+    assertEquals("X", sync["ph"].asText())
+    assertEquals(1, sync["tid"].asInt())
+    assertEquals("syncFailed", sync["args"]["errorCode"].asText())
+
+    val parse = events[2]
+    assertEquals(12L, parse["args"]["entries"].asLong())
+    assertTrue(parse["ts"].asLong() >= sync["ts"].asLong())
+
+    assertEquals("borrow", events[3]["args"]["name"].asText())
+    assertEquals(2, events[4]["tid"].asInt())
+  }
+
+  /**
+   * Finished tasks that recorded spans are retained in the trace history, up to a limit.
+   */
+
+  @Test
+  fun testHistory() {
+    TaskTraceHistory.clear()
+
+    val recorder0 = TaskRecorder.create()
+    recorder0.beginNewStep("Untraced")
+    recorder0.finishSuccess(Unit)
+    assertEquals(0, TaskTraceHistory.snapshot().size)
+
+    for (index in 0 until TaskTraceHistory.TASKS_MAXIMUM + 2) {
+      val recorder = TaskRecorder.create()
+      recorder.beginNewStep("Traced $index")
+      recorder.span("work") { }
+      recorder.finishFailure<Unit>()
+    }
+
+    val tasks = TaskTraceHistory.snapshot()
+    assertEquals(TaskTraceHistory.TASKS_MAXIMUM, tasks.size)
+    assertEquals("Traced 2", tasks.values.first()[0].description)
+    assertEquals(
+      "Traced ${TaskTraceHistory.TASKS_MAXIMUM + 1}",
+      tasks.values.last()[0].description
+    )
+    TaskTraceHistory.clear()
+  }
+}
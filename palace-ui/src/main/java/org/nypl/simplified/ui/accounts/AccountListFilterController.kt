@@ -1,6 +1,7 @@
 package org.nypl.simplified.ui.accounts
 
 import org.nypl.simplified.accounts.api.AccountProviderDescription
+import java.net.URI
 import java.util.concurrent.atomic.AtomicReference
 
 class AccountListFilterController(
@@ -12,6 +13,9 @@ class AccountListFilterController(
   private val filter: AtomicReference<(AccountProviderDescription) -> Boolean> =
     AtomicReference()
 
+  private val results: AtomicReference<List<URI>> =
+    AtomicReference()
+
   fun submit(list: List<AccountProviderDescription>) {
     this.fullList = list.toList()
     this.publish()
@@ -19,11 +23,25 @@ class AccountListFilterController(
 
   fun filterUnset() {
     this.filter.set(null)
+    this.results.set(null)
     this.publish()
   }
 
   fun filterSet(predicate: ((AccountProviderDescription) -> Boolean)) {
     this.filter.set(predicate)
+    this.results.set(null)
+    this.publish()
+  }
+
+  /**
+   * Show the given search results, in the given order, ahead of the remaining items matched by
+   * the current filter. Results are matched against the submitted list by ID, so results that
+   * have since been removed from the list are not shown. Items matched by the filter are never
+   * hidden by the results.
+   */
+
+  fun filterSetResults(results: List<AccountProviderDescription>) {
+    this.results.set(results.map { description -> description.id })
     this.publish()
   }
 
@@ -36,6 +54,20 @@ class AccountListFilterController(
         this.fullList
       }
 
+    val resultsNow = this.results.get()
+    if (resultsNow != null) {
+      val byId = this.fullList.associateBy { description -> description.id }
+      val ranked = LinkedHashMap<URI, AccountProviderDescription>()
+      for (id in resultsNow) {
+        byId[id]?.let { description -> ranked[id] = description }
+      }
+      for (description in filtered) {
+        ranked.putIfAbsent(description.id, description)
+      }
+      this.onPublish(ranked.values.toList())
+      return
+    }
+
     this.onPublish(filtered)
   }
 }
@@ -92,6 +92,13 @@ class AccountListRegistryFragment :
               includeTestingLibraries = profiles.profileCurrent().preferences().showTestingLibraries
             )
           )
+        },
+        onSearch = { query ->
+          /*
+           * Every match is ranked ahead of the title matches, so every match is returned.
+           */
+
+          registry.searchAsync(query, Int.MAX_VALUE)
         }
       )
 
@@ -26,6 +26,7 @@ import org.nypl.simplified.ui.errorpage.ErrorPageParameters
 import org.nypl.simplified.ui.main.MainNavigation
 import org.nypl.simplified.ui.settings.SettingsDebugModel
 import org.nypl.simplified.ui.views.Views
+import java.util.concurrent.CompletableFuture
 
 class AccountListRegistryViews(
   private val accountList: RecyclerView,
@@ -43,16 +44,29 @@ class AccountListRegistryViews(
   private val swipe: SwipeRefreshLayout,
   private val title: TextView,
   private val toolbarTitle: TextView,
+  private val onSearch: (String) -> CompletableFuture<List<AccountProviderDescription>>,
 ) {
   private val accountListFilterController =
     AccountListFilterController { items -> this.accountListAdapter.submitList(items) }
 
+  private var searchQuery: String =
+    ""
+  private var searchPending: Runnable? =
+    null
+
   companion object {
+    /**
+     * The time to wait after the last change to the search text before starting a full search.
+     */
+
+    private const val SEARCH_DELAY_MILLISECONDS = 300L
+
     fun create(
       context: Activity,
       rootView: View,
       accountListAdapter: AccountProviderDescriptionListAdapter,
       onSwipeTouched: () -> Unit,
+      onSearch: (String) -> CompletableFuture<List<AccountProviderDescription>>,
     ): AccountListRegistryViews {
       val views =
         AccountListRegistryViews(
@@ -70,7 +84,8 @@ class AccountListRegistryViews(
           searchText = rootView.findViewById(R.id.accountRegistryToolbarSearchText),
           backButton = rootView.findViewById(R.id.accountRegistryToolbarBackIconTouch),
           error = rootView.findViewById(R.id.accountRegistryError),
-          errorTouch = rootView.findViewById(R.id.accountRegistryErrorTouch)
+          errorTouch = rootView.findViewById(R.id.accountRegistryErrorTouch),
+          onSearch = onSearch
         )
 
       views.accountList.setHasFixedSize(true)
@@ -125,16 +140,54 @@ class AccountListRegistryViews(
   }
 
   private fun updateAdapterFilter(text: String) {
+    if (text == this.searchQuery) {
+      return
+    }
+    this.searchQuery = text
+
+    this.searchPending?.let(this.searchText::removeCallbacks)
+    this.searchPending = null
+
     if (text.isBlank()) {
       this.accountListFilterController.filterUnset()
     } else {
       this.accountListFilterController.filterSet { account ->
         account.title.contains(text, ignoreCase = true)
       }
+
+      /*
+       * Start a full search once the text has stopped changing, so that typing does not queue
+       * a search per keystroke.
+       */
+
+      val search = Runnable { this.runSearch(text) }
+      this.searchPending = search
+      this.searchText.postDelayed(search, SEARCH_DELAY_MILLISECONDS)
     }
     this.accountList.scrollToPosition(0)
   }
 
+  private fun runSearch(text: String) {
+    this.searchPending = null
+    if (text != this.searchQuery) {
+      return
+    }
+
+    /*
+     * Rank the results of the full search ahead of the title matches when they arrive, unless
+     * the query has changed in the meantime or the search found nothing.
+     */
+
+    this.onSearch.invoke(text).thenAccept { results ->
+      UIThread.runOnUIThread {
+        if (text == this.searchQuery && results.isNotEmpty()) {
+          this.accountListFilterController.filterSetResults(results)
+          this.accountList.scrollToPosition(0)
+        }
+      }
+    }
+  }
+
   private fun showSwipeIndicator() {
     this.swipe.isRefreshing = true
     this.swipe.postDelayed({
@@ -0,0 +1,118 @@
+package org.nypl.simplified.ui.catalog
+
+import android.view.Choreographer
+import io.reactivex.Observable
+import io.reactivex.disposables.Disposable
+import org.nypl.simplified.books.api.BookID
+import org.nypl.simplified.books.book_registry.BookStatusEvent
+import org.nypl.simplified.books.book_registry.BookStatusEvent.BookStatusEventChanged
+
+/**
+ * A dispatcher that delivers book status changes to the rows that display the affected books.
+ *
+ * The dispatcher makes a single subscription to the book status events, rather than each row
+ * subscribing and filtering events for itself. Changes are collected and delivered once per
+ * frame, so a book that changes several times within a frame is only redrawn once.
+ *
+ * Must only be used from the UI thread.
+ */
+
+class CatalogBookStatusDispatcher(
+  private val events: Observable<BookStatusEvent>,
+  private val scheduleFrame: (() -> Unit) -> Unit = { task ->
+    Choreographer.getInstance().postFrameCallback { task() }
+  }
+) {
+  private val listeners =
+    HashMap<BookID, LinkedHashSet<(BookID) -> Unit>>()
+  private val pending =
+    LinkedHashSet<BookID>()
+
+  private var subscription: Disposable? = null
+  private var flushScheduled = false
+
+  /**
+   * Start receiving book status events.
+   */
+
+  fun start() {
+    if (this.subscription == null) {
+      this.subscription =
+        this.events
+          .ofType(BookStatusEventChanged::class.java)
+          .subscribe { event -> this.onEvent(event.bookId) }
+    }
+  }
+
+  /**
+   * Stop receiving book status events. Any changes not yet delivered are discarded.
+   */
+
+  fun stop() {
+    this.subscription?.dispose()
+    this.subscription = null
+    this.pending.clear()
+  }
+
+  /**
+   * Deliver changes to the book `id` to `listener`. A book may have several listeners, such
+   * as when the same book appears in more than one row.
+   */
+
+  fun register(
+    id: BookID,
+    listener: (BookID) -> Unit
+  ) {
+    this.listeners.getOrPut(id) { LinkedHashSet() }.add(listener)
+  }
+
+  /**
+   * Stop delivering changes to the book `id` to `listener`. Other listeners for the same book
+   * are unaffected.
+   */
+
+  fun unregister(
+    id: BookID,
+    listener: (BookID) -> Unit
+  ) {
+    val existing = this.listeners[id] ?: return
+    existing.remove(listener)
+    if (existing.isEmpty()) {
+      this.listeners.remove(id)
+    }
+  }
+
+  /**
+   * The number of books that currently have listeners.
+   */
+
+  val listenerCount: Int
+    get() = this.listeners.size
+
+  private fun onEvent(id: BookID) {
+    if (!this.listeners.containsKey(id)) {
+      return
+    }
+    this.pending.add(id)
+    if (!this.flushScheduled) {
+      this.flushScheduled = true
+      this.scheduleFrame(this::flush)
+    }
+  }
+
+  private fun flush() {
+    this.flushScheduled = false
+    if (this.pending.isEmpty()) {
+      return
+    }
+
+    val ids = this.pending.toList()
+    this.pending.clear()
+    for (id in ids) {
+      val listeners = this.listeners[id] ?: continue
+      for (listener in listeners.toList()) {
+        listener.invoke(id)
+      }
+    }
+  }
+}
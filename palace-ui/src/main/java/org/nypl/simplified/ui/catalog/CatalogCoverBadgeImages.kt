@@ -20,6 +20,20 @@ class CatalogCoverBadgeImages private constructor(
   private val screenSize: ScreenSizeInformationType,
   private val audioBookIcon: Bitmap
 ) : BookCoverBadgeLookupType {
+
+  /*
+   * A single badge instance is shared by every audiobook so that Glide sees equal
+   * transformations, and can reuse cached results, for all of them.
+   */
+
+  private val audioBookBadge =
+    BookCoverBadge(
+      id = "audiobook",
+      bitmap = this.audioBookIcon,
+      width = this.screenSize.dpToPixels(24).toInt(),
+      height = this.screenSize.dpToPixels(24).toInt(),
+    )
+
   override fun badgeForEntry(entry: FeedEntryOPDS): BookCoverBadge? =
     when (entry.probableFormat) {
       BOOK_FORMAT_EPUB -> {
@@ -27,11 +41,7 @@ class CatalogCoverBadgeImages private constructor(
       }
 
       BOOK_FORMAT_AUDIO -> {
-        BookCoverBadge(
-          bitmap = this.audioBookIcon,
-          width = this.screenSize.dpToPixels(24).toInt(),
-          height = this.screenSize.dpToPixels(24).toInt(),
-        )
+        this.audioBookBadge
       }
 
       BOOK_FORMAT_PDF -> {
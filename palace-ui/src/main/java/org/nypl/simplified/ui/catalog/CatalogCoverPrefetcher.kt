@@ -0,0 +1,129 @@
+package org.nypl.simplified.ui.catalog
+
+import org.nypl.simplified.books.api.BookID
+import org.nypl.simplified.feeds.api.FeedEntry
+import org.nypl.simplified.ui.images.ImageLoader2Type
+
+/**
+ * A prefetcher that loads the thumbnails of the entries that follow the most recently bound
+ * entry, so that scrolling finds covers already in memory rather than showing placeholders.
+ *
+ * Only entries that have already been loaded are prefetched; the prefetcher never causes
+ * further pages to be loaded. Must only be used from the UI thread.
+ */
+
+class CatalogCoverPrefetcher(
+  private val imageLoader: ImageLoader2Type,
+  private val distance: Int = DISTANCE_DEFAULT
+) {
+  init {
+    require(this.distance >= 0) { "Distance must be non-negative" }
+  }
+
+  companion object {
+    /**
+     * The default number of entries to prefetch beyond the most recently bound entry.
+     */
+
+    const val DISTANCE_DEFAULT = 8
+  }
+
+  /*
+   * The prefetches that have been started, in the order they were started. The oldest are
+   * released once there are more than twice the prefetch distance, which cancels them if they
+   * were scrolled past before they completed.
+   */
+
+  private val prefetches =
+    LinkedHashMap<BookID, AutoCloseable>()
+
+  private var binds = 0L
+  private var placeholders = 0L
+
+  /**
+   * The number of bound entries that had to show a placeholder while their thumbnail loaded.
+   */
+
+  val placeholderCount: Long
+    get() = this.placeholders
+
+  /**
+   * The number of bound entries.
+   */
+
+  val bindCount: Long
+    get() = this.binds
+
+  /**
+   * The proportion of bound entries that had to show a placeholder.
+   */
+
+  val placeholderRatio: Double
+    get() =
+      if (this.binds == 0L) {
+        0.0
+      } else {
+        this.placeholders.toDouble() / this.binds.toDouble()
+      }
+
+  /**
+   * The entry at `position` was bound, and its thumbnail was either displayed immediately or
+   * a placeholder was shown. Prefetch the thumbnails of the entries that follow it.
+   *
+   * @param position The position of the bound entry
+   * @param count The number of entries in the feed
+   * @param peek A function that returns the entry at a position, or `null` if it isn't loaded
+   * @param placeholder `true` if a placeholder was shown for the bound entry
+   * @param width The width at which thumbnails are displayed
+   * @param height The height at which thumbnails are displayed
+   */
+
+  fun onBound(
+    position: Int,
+    count: Int,
+    peek: (Int) -> FeedEntry?,
+    placeholder: Boolean,
+    width: Int,
+    height: Int
+  ) {
+    this.binds += 1
+    if (placeholder) {
+      this.placeholders += 1
+    }
+
+    val end = Math.min(count, position + 1 + this.distance)
+    for (index in position + 1 until end) {
+      val entry = peek(index) as? FeedEntry.FeedEntryOPDS ?: continue
+      if (this.prefetches.containsKey(entry.bookID)) {
+        continue
+      }
+      this.prefetches[entry.bookID] =
+        this.imageLoader.prefetchThumbnail(entry, width, height)
+    }
+
+    val iterator = this.prefetches.values.iterator()
+    while (this.prefetches.size > this.distance * 2 && iterator.hasNext()) {
+      this.closeQuietly(iterator.next())
+      iterator.remove()
+    }
+  }
+
+  /**
+   * Cancel all prefetches. This should be called whenever the feed changes.
+   */
+
+  fun cancel() {
+    for (prefetch in this.prefetches.values) {
+      this.closeQuietly(prefetch)
+    }
+    this.prefetches.clear()
+  }
+
+  private fun closeQuietly(prefetch: AutoCloseable) {
+    try {
+      prefetch.close()
+    } catch (_: Exception) {
+      // Nothing we can do about this.
+    }
+  }
+}
@@ -12,13 +12,13 @@ import androidx.paging.PagingDataAdapter
 import androidx.recyclerview.widget.DiffUtil
 import androidx.recyclerview.widget.RecyclerView
 import com.google.android.material.dialog.MaterialAlertDialogBuilder
-import io.reactivex.disposables.Disposable
 import org.joda.time.DateTime
 import org.joda.time.Days
 import org.joda.time.format.DateTimeFormat
 import org.librarysimplified.ui.R
 import org.nypl.simplified.books.api.Book
 import org.nypl.simplified.books.api.BookFormat
+import org.nypl.simplified.books.api.BookID
 import org.nypl.simplified.books.book_registry.BookStatus
 import org.nypl.simplified.books.book_registry.BookStatus.DownloadExternalAuthenticationInProgress
 import org.nypl.simplified.books.book_registry.BookStatus.DownloadWaitingForExternalAuthentication
@@ -38,7 +38,6 @@ import org.nypl.simplified.books.book_registry.BookStatus.RequestingDownload
 import org.nypl.simplified.books.book_registry.BookStatus.RequestingLoan
 import org.nypl.simplified.books.book_registry.BookStatus.RequestingRevoke
 import org.nypl.simplified.books.book_registry.BookStatus.Revoked
-import org.nypl.simplified.books.book_registry.BookStatusEvent.BookStatusEventChanged
 import org.nypl.simplified.books.book_registry.BookWithStatus
 import org.nypl.simplified.feeds.api.FeedEntry
 import org.nypl.simplified.threads.UIThread
@@ -51,6 +50,21 @@ class CatalogFeedPagingDataAdapter(
   private val registryEvents: CatalogBookRegistryEvents,
   private val callbacks: CatalogViewCallbacksType,
 ) : PagingDataAdapter<FeedEntry, CatalogFeedPagingDataAdapter.ViewHolder>(this.diffCallback) {
+
+  private val coverPrefetcher =
+    CatalogCoverPrefetcher(this.imageLoader)
+
+  private val statusDispatcher =
+    CatalogBookStatusDispatcher(this.registryEvents.events)
+
+  /**
+   * Cancel any cover prefetches. This must be called when the feed changes.
+   */
+
+  fun cancelPrefetches() {
+    this.coverPrefetcher.cancel()
+  }
+
   companion object {
     private val loanEndFormatter =
       DateTimeFormat.forPattern("MMM d, yyyy")
@@ -73,9 +87,13 @@ class CatalogFeedPagingDataAdapter(
     private val view: View,
     private val callbacks: CatalogViewCallbacksType,
   ) : RecyclerView.ViewHolder(view) {
-    private var subscription: Disposable? = null
     private var feedEntry: FeedEntry? = null
 
+    private val statusDispatcher =
+      this@CatalogFeedPagingDataAdapter.statusDispatcher
+    private val statusListener: (BookID) -> Unit =
+      this::onStatusChangedForBook
+
     private val buttonCreator =
       this@CatalogFeedPagingDataAdapter.buttonCreator
 
@@ -122,7 +140,10 @@ class CatalogFeedPagingDataAdapter(
       this.error.findViewById<Button>(R.id.bookCellErrorButtonRetry)
 
     fun unbind() {
-      this.subscription?.dispose()
+      val previous = this.feedEntry
+      if (previous != null) {
+        this.statusDispatcher.unregister(previous.bookID, this.statusListener)
+      }
       this.feedEntry = null
 
       Views.setVisible(this.corrupt, false)
@@ -145,31 +166,38 @@ class CatalogFeedPagingDataAdapter(
       this.progressText.setOnClickListener(null)
     }
 
-    fun bind(item: FeedEntry) {
+    /**
+     * Bind the given entry.
+     *
+     * @return `true` if a placeholder is being shown while the entry's thumbnail loads
+     */
+
+    fun bind(item: FeedEntry): Boolean {
+      val previous = this.feedEntry
+      if (previous != null) {
+        this.statusDispatcher.unregister(previous.bookID, this.statusListener)
+      }
       this.feedEntry = item
       Views.setVisible(this.progress, false)
       Views.setVisible(this.idle, true)
       Views.setVisible(this.error, false)
       Views.setVisible(this.corrupt, false)
 
+      val targetWidth =
+        this.view.resources.getDimensionPixelSize(R.dimen.catalogFeedCellImageWidth)
       val targetHeight =
-        this.view.resources.getDimensionPixelSize(R.dimen.catalogBookThumbnailHeight)
-      val targetWidth = 0
+        this.view.resources.getDimensionPixelSize(R.dimen.catalogFeedCellImageHeight)
 
-      when (item) {
+      return when (item) {
         is FeedEntry.FeedEntryCorrupt -> {
           this.view.setOnClickListener {
             // Nothing!
           }
+          false
         }
 
         is FeedEntry.FeedEntryOPDS -> {
-          this.subscription =
-            this@CatalogFeedPagingDataAdapter
-              .registryEvents.events
-              .ofType(BookStatusEventChanged::class.java)
-              .filter { event -> event.bookId == item.bookID }
-              .subscribe { event -> this.onStatusChangedForFeedEntry(item) }
+          this.statusDispatcher.register(item.bookID, this.statusListener)
 
           for (v in listOf(this.view, this.idle, this.error, this.corrupt, this.progress)) {
             v.setOnClickListener { this.callbacks.onBookSelected(item) }
@@ -204,10 +232,23 @@ class CatalogFeedPagingDataAdapter(
           }
 
           this.onStatusChangedForFeedEntry(item)
+
+          /*
+           * Glide completes loads that are satisfied from memory before returning.
+           */
+
+          !f.isDone
         }
       }
     }
 
+    private fun onStatusChangedForBook(id: BookID) {
+      val item = this.feedEntry
+      if (item is FeedEntry.FeedEntryOPDS && item.bookID == id) {
+        this.onStatusChangedForFeedEntry(item)
+      }
+    }
+
     private fun onStatusChangedForFeedEntry(item: FeedEntry.FeedEntryOPDS) {
       val status =
         CatalogBookStatus.create(
@@ -825,8 +866,13 @@ class CatalogFeedPagingDataAdapter(
     holder.unbind()
   }
 
+  override fun onAttachedToRecyclerView(recyclerView: RecyclerView) {
+    this.statusDispatcher.start()
+  }
+
   override fun onDetachedFromRecyclerView(recyclerView: RecyclerView) {
-    // Nothing yet.
+    this.statusDispatcher.stop()
+    this.coverPrefetcher.cancel()
   }
 
   override fun onBindViewHolder(
@@ -835,7 +881,16 @@ class CatalogFeedPagingDataAdapter(
   ) {
     val item = this.getItem(position)
     if (item != null) {
-      holder.bind(item)
+      val placeholder = holder.bind(item)
+      val resources = holder.itemView.resources
+      this.coverPrefetcher.onBound(
+        position = position,
+        count = this.itemCount,
+        peek = this::peek,
+        placeholder = placeholder,
+        width = resources.getDimensionPixelSize(R.dimen.catalogFeedCellImageWidth),
+        height = resources.getDimensionPixelSize(R.dimen.catalogFeedCellImageHeight)
+      )
     }
   }
 }
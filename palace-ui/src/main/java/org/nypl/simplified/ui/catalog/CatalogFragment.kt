@@ -890,10 +890,14 @@ sealed class CatalogFragment :
             config = PagingConfig(pageSize = 50),
             pagingSourceFactory = { feedSource }
           )
-        pager.flow.collect { data -> feedAdapter.submitData(data) }
+        pager.flow.collect { data ->
+          feedAdapter.cancelPrefetches()
+          feedAdapter.submitData(data)
+        }
       }
 
     this.perViewSubscriptions.add(AutoCloseable { job.cancel() })
+    this.perViewSubscriptions.add(AutoCloseable { feedAdapter.cancelPrefetches() })
 
     try {
       /*
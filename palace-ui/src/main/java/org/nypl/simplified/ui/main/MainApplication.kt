@@ -1,6 +1,7 @@
 package org.nypl.simplified.ui.main
 
 import android.app.Application
+import android.content.ComponentCallbacks2
 import android.content.Context
 import android.os.Build
 import android.os.Process
@@ -15,7 +16,9 @@ import com.io7m.jattribute.core.AttributeType
 import com.io7m.jattribute.core.Attributes
 import org.librarysimplified.audiobook.views.PlayerModel
 import org.librarysimplified.services.api.ServiceDirectoryType
+import org.librarysimplified.services.api.Services
 import org.librarysimplified.ui.BuildConfig
+import org.nypl.simplified.accounts.api.AccountAuthenticationCredentialsStoreType
 import org.nypl.simplified.boot.api.BootEvent
 import org.nypl.simplified.boot.api.BootLoader
 import org.nypl.simplified.boot.api.BootProcessType
@@ -80,6 +83,33 @@ class MainApplication : Application() {
     this.boot.start(this)
   }
 
+  override fun onTrimMemory(level: Int) {
+    super.onTrimMemory(level)
+
+    /*
+     * The UI is no longer visible, and the process may be killed at any point from
+     * here onwards. Write out any state that might otherwise be held in memory.
+     */
+
+    if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+      this.flushPendingState()
+    }
+  }
+
+  private fun flushPendingState() {
+    if (!Services.isInitialized()) {
+      return
+    }
+
+    try {
+      Services.serviceDirectory()
+        .optionalService(AccountAuthenticationCredentialsStoreType::class.java)
+        ?.flushAsync()
+    } catch (e: Throwable) {
+      this.logger.error("Failed to flush credentials store: ", e)
+    }
+  }
+
   private fun logStartup() {
     try {
       this.logger.debug("Starting app: pid {}", Process.myPid())
@@ -0,0 +1,114 @@
+package org.nypl.simplified.ui.main
+
+import org.slf4j.LoggerFactory
+import java.time.Duration
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CompletionException
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.Executor
+
+/**
+ * A graph of boot tasks. Each task declares the tasks on which it depends, and is executed on
+ * the given executor as soon as all of those tasks have completed. Because a task can only
+ * depend on tasks that were added before it, the graph cannot contain cycles.
+ *
+ * If a task fails, every task that depends on it fails with the same exception.
+ */
+
+class MainBootGraph(
+  private val executor: Executor
+) {
+  private val logger =
+    LoggerFactory.getLogger(MainBootGraph::class.java)
+
+  private val timeStart =
+    System.nanoTime()
+  private val nodes =
+    ConcurrentLinkedQueue<Node<*>>()
+  private val entries =
+    ConcurrentLinkedQueue<MainBootTrace.Entry>()
+
+  /**
+   * A task in the graph.
+   */
+
+  class Node<T> internal constructor(
+    val name: String,
+    internal val future: CompletableFuture<T>
+  ) {
+
+    /**
+     * Wait for the task to complete.
+     *
+     * @return The value produced by the task
+     * @throws Exception The exception raised by the task, or by one of its dependencies
+     */
+
+    fun get(): T =
+      try {
+        this.future.join()
+      } catch (e: CompletionException) {
+        throw e.cause ?: e
+      }
+  }
+
+  /**
+   * Add a task that will run once all of `dependencies` have completed.
+   */
+
+  fun <T> add(
+    name: String,
+    dependencies: List<Node<*>> = listOf(),
+    task: () -> T
+  ): Node<T> {
+    val ready =
+      CompletableFuture.allOf(*dependencies.map { d -> d.future }.toTypedArray())
+
+    val future =
+      ready.thenApplyAsync({ this.run(name, task) }, this.executor)
+
+    val node = Node(name, future)
+    this.nodes.add(node)
+    return node
+  }
+
+  private fun <T> run(
+    name: String,
+    task: () -> T
+  ): T {
+    val timeThen = System.nanoTime()
+    try {
+      return task.invoke()
+    } finally {
+      val timeNow = System.nanoTime()
+      val entry =
+        MainBootTrace.Entry(
+          name = name,
+          thread = Thread.currentThread().name,
+          started = Duration.ofNanos(timeThen - this.timeStart),
+          duration = Duration.ofNanos(timeNow - timeThen)
+        )
+      this.entries.add(entry)
+      this.logger.debug("[{}]: Service startup duration: {}", name, entry.duration)
+    }
+  }
+
+  /**
+   * Wait for every task added so far to complete.
+   *
+   * @throws Exception The exception raised by the first failed task, in the order tasks were added
+   */
+
+  fun awaitAll() {
+    for (node in this.nodes) {
+      node.get()
+    }
+  }
+
+  /**
+   * @return The trace of the tasks that have completed so far, in the order they started
+   */
+
+  fun trace(): MainBootTrace =
+    MainBootTrace(this.entries.sortedBy { e -> e.started })
+}
@@ -0,0 +1,59 @@
+package org.nypl.simplified.ui.main
+
+import java.time.Duration
+
+/**
+ * A record of the time taken to start each service during application boot.
+ */
+
+data class MainBootTrace(
+  val entries: List<Entry>
+) {
+
+  /**
+   * The startup of a single service.
+   */
+
+  data class Entry(
+    /**
+     * The name of the service.
+     */
+
+    val name: String,
+
+    /**
+     * The name of the thread that started the service.
+     */
+
+    val thread: String,
+
+    /**
+     * The time the service started, relative to the start of the boot.
+     */
+
+    val started: Duration,
+
+    /**
+     * The time taken to start the service.
+     */
+
+    val duration: Duration
+  ) {
+    val finished: Duration
+      get() = this.started.plus(this.duration)
+  }
+
+  /**
+   * The time between the start of the boot and the last service finishing.
+   */
+
+  val total: Duration
+    get() = this.entries.maxOfOrNull { e -> e.finished } ?: Duration.ZERO
+
+  /**
+   * @return The entries ordered by the time taken, slowest first
+   */
+
+  fun slowest(): List<Entry> =
+    this.entries.sortedByDescending { e -> e.duration }
+}
@@ -124,6 +124,7 @@ import org.thepalaceproject.opds.client.OPDSClientParameters
 import org.thepalaceproject.palace.battery.BatteryModel
 import org.thepalaceproject.palace.images.BookCoverBadgeLookupType
 import org.thepalaceproject.palace.images.BookCoverGenerator
+import org.thepalaceproject.palace.images.BookCoverGeneratorCache
 import org.thepalaceproject.palace.images.BookCoverGeneratorType
 import org.thepalaceproject.palace.images.ImageLoader2
 import java.io.File
@@ -133,6 +134,7 @@ import java.time.Duration
 import java.time.OffsetDateTime
 import java.time.ZoneOffset.UTC
 import java.util.ServiceLoader
+import java.util.concurrent.Executor
 
 internal object MainServices {
   private val logger = LoggerFactory.getLogger(MainServices::class.java)
@@ -309,7 +311,11 @@ internal object MainServices {
           File(directories.directoryStorageBaseVersioned, "credentials.json.tmp")
 
         logger.debug("credentials store path: {}", credentials)
-        AccountAuthenticationCredentialsStore.open(credentials, credentialsTemp)
+        AccountAuthenticationCredentialsStore.open(
+          file = credentials,
+          fileTemp = credentialsTemp,
+          writeDelay = Duration.ofSeconds(2L)
+        )
       } catch (e: Exception) {
         logger.debug("could not initialize credentials store: ", e)
         throw IllegalStateException("could not initialize credentials store", e)
@@ -457,12 +463,37 @@ internal object MainServices {
   fun setup(
     context: Application,
     onProgress: (BootEvent) -> Unit
+  ): ServiceDirectoryType {
+    val bootExecutor =
+      NamedThreadPools.namedThreadPool(
+        Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors())),
+        "boot",
+        0
+      )
+
+    /*
+     * The boot executor is shut down however the boot sequence ends.
+     */
+
+    try {
+      return setupWithExecutor(context, onProgress, bootExecutor)
+    } finally {
+      bootExecutor.shutdown()
+    }
+  }
+
+  private fun setupWithExecutor(
+    context: Application,
+    onProgress: (BootEvent) -> Unit,
+    bootExecutor: Executor
   ): ServiceDirectoryType {
     val bootTimeStart = OffsetDateTime.now()
 
     fun publishEvent(message: String) {
       logger.debug("boot: {}", message)
-      onProgress.invoke(BootEvent.BootInProgress(message))
+      synchronized(onProgress) {
+        onProgress.invoke(BootEvent.BootInProgress(message))
+      }
     }
 
     BootFailureTesting.failBootProcessForTestingPurposesIfRequested(context)
@@ -474,47 +505,64 @@ internal object MainServices {
     Reports.reportAppVersion = BuildConfig.SIMPLIFIED_VERSION
     Reports.reportAppCommit = BuildConfig.SIMPLIFIED_GIT_COMMIT
 
+    /*
+     * Services are started on a bounded pool of threads. Each service declares the services on
+     * which it depends, and is started as soon as those services are available.
+     */
+
+    val graph = MainBootGraph(bootExecutor)
+
+    fun <T : Any> register(
+      interfaceType: Class<T>,
+      service: T
+    ) {
+      synchronized(services) {
+        services.addService(interfaceType, service)
+      }
+    }
+
     fun <T : Any> addService(
       message: String,
       interfaceType: Class<T>,
+      dependencies: List<MainBootGraph.Node<*>> = listOf(),
       serviceConstructor: () -> T
-    ): T {
-      publishEvent(message)
-      val timeThen = OffsetDateTime.now()
-      val service = serviceConstructor.invoke()
-      services.addService(interfaceType, service)
-      val timeNow = OffsetDateTime.now()
-      val duration = Duration.between(timeThen, timeNow)
-      logger.debug("[{}]: Service startup duration: {}", message, duration)
-      return service
-    }
+    ): MainBootGraph.Node<T> =
+      graph.add(message, dependencies) {
+        publishEvent(message)
+        val service = serviceConstructor.invoke()
+        register(interfaceType, service)
+        service
+      }
 
     fun <T : Any> addServiceOptionally(
       message: String,
       interfaceType: Class<T>,
+      dependencies: List<MainBootGraph.Node<*>> = listOf(),
       serviceConstructor: () -> T?
-    ): T? {
-      publishEvent(message)
-      val service = serviceConstructor.invoke()
-      if (service != null) {
-        services.addService(interfaceType, service)
+    ): MainBootGraph.Node<T?> =
+      graph.add(message, dependencies) {
+        publishEvent(message)
+        val service = serviceConstructor.invoke()
+        if (service != null) {
+          register(interfaceType, service)
+        }
+        service
       }
-      return service
-    }
 
     fun <T : Any> addServiceFromServiceLoaderOptionally(
       message: String,
       interfaceType: Class<T>
-    ): T? {
-      publishEvent(message)
-      val service = ServiceLoader.load(interfaceType).firstOrNull()
-      if (service != null) {
-        services.addService(interfaceType, service)
-      } else {
-        logger.debug("no services of type {} available in ServiceLoader", interfaceType)
+    ): MainBootGraph.Node<T?> =
+      graph.add(message) {
+        publishEvent(message)
+        val service = ServiceLoader.load(interfaceType).firstOrNull()
+        if (service != null) {
+          register(interfaceType, service)
+        } else {
+          logger.debug("no services of type {} available in ServiceLoader", interfaceType)
+        }
+        service
       }
-      return service
-    }
 
     BatteryModel.initialize(application = context)
 
@@ -573,13 +621,16 @@ internal object MainServices {
       addService(
         message = strings.bootingGeneral("LSHTTP"),
         interfaceType = LSHTTPClientType::class.java,
-        serviceConstructor = { MainHTTP.create(context, networkAccess) }
+        dependencies = listOf(networkAccess),
+        serviceConstructor = { MainHTTP.create(context, networkAccess.get()) }
       )
 
-    publishEvent(strings.bootingGeneral("Directories"))
-    val directories = initializeDirectories(context)
+    val directories =
+      graph.add(strings.bootingGeneral("Directories")) {
+        publishEvent(strings.bootingGeneral("Directories"))
+        initializeDirectories(context)
+      }
 
-    val adobeConfiguration = findAdobeConfiguration()
     val adobeDRM =
       addServiceOptionally(
         message = strings.bootingGeneral("Adobe DRM"),
@@ -587,7 +638,7 @@ internal object MainServices {
         serviceConstructor = {
           createAdobeExecutor(
             context = context,
-            adobeConfiguration = adobeConfiguration
+            adobeConfiguration = findAdobeConfiguration()
           )
         }
       )
@@ -596,8 +647,9 @@ internal object MainServices {
       addServiceOptionally(
         message = strings.bootingGeneral("Boundless DRM"),
         interfaceType = BoundlessServiceType::class.java,
+        dependencies = listOf(directories),
         serviceConstructor = {
-          MainBoundless.createBoundless(directories.directoryStorageBoundless)
+          MainBoundless.createBoundless(directories.get().directoryStorageBoundless)
         }
       )
 
@@ -617,24 +669,28 @@ internal object MainServices {
     addService(
       message = strings.bootingGeneral("catalog book registry"),
       interfaceType = CatalogBookRegistryEvents::class.java,
-      serviceConstructor = { CatalogBookRegistryEvents.create(bookRegistry) }
+      dependencies = listOf(bookRegistry),
+      serviceConstructor = { CatalogBookRegistryEvents.create(bookRegistry.get()) }
     )
     addService(
       message = strings.bootingGeneral("book registry"),
       interfaceType = BookRegistryReadableType::class.java,
-      serviceConstructor = { bookRegistry }
+      dependencies = listOf(bookRegistry),
+      serviceConstructor = { bookRegistry.get() }
     )
 
     addService(
       message = strings.bootingGeneral("book preview registry"),
       interfaceType = BookPreviewRegistryType::class.java,
-      serviceConstructor = { BookPreviewRegistry(directories.directoryStorageDownloads) }
+      dependencies = listOf(directories),
+      serviceConstructor = { BookPreviewRegistry(directories.get().directoryStorageDownloads) }
     )
 
     addService(
       message = strings.bootingGeneral("accessibility service"),
       interfaceType = AccessibilityServiceType::class.java,
-      serviceConstructor = { AccessibilityService.create(context, bookRegistry) }
+      dependencies = listOf(bookRegistry),
+      serviceConstructor = { AccessibilityService.create(context, bookRegistry.get()) }
     )
 
     val tenPrint =
@@ -648,18 +704,26 @@ internal object MainServices {
       addService(
         message = strings.bootingGeneral("cover generator"),
         interfaceType = BookCoverGeneratorType::class.java,
-        serviceConstructor = { BookCoverGenerator(tenPrint) }
+        dependencies = listOf(tenPrint),
+        serviceConstructor = {
+          BookCoverGenerator(
+            generator = tenPrint.get(),
+            cache = BookCoverGeneratorCache.create()
+          )
+        }
       )
 
     addService(
       message = strings.bootingGeneral("image loader"),
       interfaceType = ImageLoader2Type::class.java,
+      dependencies = listOf(bookRegistry, coverGenerator, screenSize, lsHTTP),
       serviceConstructor = {
         createImageLoader(
           context = context,
-          bookRegistry = bookRegistry,
-          coverGenerator = coverGenerator,
-          badgeLookup = createBookCoverBadgeLookup(context, screenSize)
+          bookRegistry = bookRegistry.get(),
+          coverGenerator = coverGenerator.get(),
+          badgeLookup = createBookCoverBadgeLookup(context, screenSize.get()),
+          http = lsHTTP.get()
         )
       }
     )
@@ -695,12 +759,13 @@ internal object MainServices {
     addService(
       message = strings.bootingGeneral("document store"),
       interfaceType = DocumentStoreType::class.java,
+      dependencies = listOf(lsHTTP, directories, documentConfiguration),
       serviceConstructor = {
         createDocumentStore(
           assets = assets,
-          http = lsHTTP,
-          directory = directories.directoryStorageDocuments,
-          configuration = documentConfiguration
+          http = lsHTTP.get(),
+          directory = directories.get().directoryStorageDocuments,
+          configuration = documentConfiguration.get()
         )
       }
     )
@@ -723,11 +788,12 @@ internal object MainServices {
       addService(
         message = strings.bootingGeneral("database"),
         interfaceType = DBType::class.java,
+        dependencies = listOf(accountProviderParsers, accountProviderSerializers),
         serviceConstructor = {
           createDatabase(
             context = context,
-            accountProviderParsers = accountProviderParsers,
-            accountProviderSerializers = accountProviderSerializers
+            accountProviderParsers = accountProviderParsers.get(),
+            accountProviderSerializers = accountProviderSerializers.get()
           )
         }
       )
@@ -743,12 +809,18 @@ internal object MainServices {
       addService(
         message = strings.bootingGeneral("account providers"),
         interfaceType = AccountProviderRegistryType::class.java,
+        dependencies = listOf(
+          database,
+          lsHTTP,
+          accountProviderResolutionStrings,
+          authenticationDocumentParsers
+        ),
         serviceConstructor = {
           createAccountProviderRegistry(
-            database = database,
-            http = lsHTTP,
-            accountProviderResolutionStrings = accountProviderResolutionStrings,
-            authenticationDocumentParsers = authenticationDocumentParsers
+            database = database.get(),
+            http = lsHTTP.get(),
+            accountProviderResolutionStrings = accountProviderResolutionStrings.get(),
+            authenticationDocumentParsers = authenticationDocumentParsers.get()
           )
         }
       )
@@ -764,18 +836,20 @@ internal object MainServices {
       addService(
         message = strings.bootingGeneral("credentials store"),
         interfaceType = AccountAuthenticationCredentialsStoreType::class.java,
-        serviceConstructor = { createAccountAuthenticationCredentialsStore(directories) }
+        dependencies = listOf(directories),
+        serviceConstructor = { createAccountAuthenticationCredentialsStore(directories.get()) }
       )
 
     val analytics =
       addService(
         message = strings.bootingGeneral("analytics"),
         interfaceType = AnalyticsType::class.java,
+        dependencies = listOf(lsHTTP),
         serviceConstructor = {
           Analytics.create(
             AnalyticsConfiguration(
               context = context,
-              http = lsHTTP
+              http = lsHTTP.get()
             )
           )
         }
@@ -809,13 +883,20 @@ internal object MainServices {
       addService(
         message = strings.bootingGeneral("book format support"),
         interfaceType = BookFormatSupportType::class.java,
+        dependencies = listOf(
+          adobeDRM,
+          boundlessDRM,
+          feedbooksSecretService,
+          lcpService,
+          overdriveSecretService
+        ),
         serviceConstructor = {
           MainBookFormatSupport.createBookFormatSupport(
-            adobeDRM = adobeDRM,
-            boundless = boundlessDRM,
-            feedbooksSecretService = feedbooksSecretService,
-            lcpService = lcpService,
-            overdriveSecretService = overdriveSecretService
+            adobeDRM = adobeDRM.get(),
+            boundless = boundlessDRM.get(),
+            feedbooksSecretService = feedbooksSecretService.get(),
+            lcpService = lcpService.get(),
+            overdriveSecretService = overdriveSecretService.get()
           )
         }
       )
@@ -823,17 +904,26 @@ internal object MainServices {
     addService(
       message = strings.bootingGeneral("profiles database"),
       interfaceType = ProfilesDatabaseType::class.java,
+      dependencies = listOf(
+        accountBundledCredentials,
+        accountCredentials,
+        accountProviderRegistry,
+        analytics,
+        bookFormatService,
+        directories,
+        lsHTTP
+      ),
       serviceConstructor = {
         createProfileDatabase(
-          accountBundledCredentials = accountBundledCredentials,
-          accountCredentialsStore = accountCredentials,
+          accountBundledCredentials = accountBundledCredentials.get(),
+          accountCredentialsStore = accountCredentials.get(),
           accountEvents = accountEvents,
-          accountProviders = accountProviderRegistry,
-          analytics = analytics,
-          bookFormatSupport = bookFormatService,
+          accountProviders = accountProviderRegistry.get(),
+          analytics = analytics.get(),
+          bookFormatSupport = bookFormatService.get(),
           context = context,
-          directory = directories.directoryStorageProfiles,
-          httpClient = lsHTTP,
+          directory = directories.get().directoryStorageProfiles,
+          httpClient = lsHTTP.get(),
         )
       }
     )
@@ -851,12 +941,13 @@ internal object MainServices {
       addService(
         message = strings.bootingGeneral("feed loader"),
         interfaceType = FeedLoaderType::class.java,
+        dependencies = listOf(lsHTTP, opdsFeedParser, bookFormatService, contentResolver),
         serviceConstructor = {
           createFeedLoader(
-            http = lsHTTP,
-            opdsFeedParser = opdsFeedParser,
-            bookFormatSupport = bookFormatService,
-            contentResolver = contentResolver
+            http = lsHTTP.get(),
+            opdsFeedParser = opdsFeedParser.get(),
+            bookFormatSupport = bookFormatService.get(),
+            contentResolver = contentResolver.get()
           )
         }
       )
@@ -871,9 +962,10 @@ internal object MainServices {
       addService(
         message = strings.bootingGeneral("Notification token http calls"),
         interfaceType = NotificationTokenHTTPCallsType::class.java,
+        dependencies = listOf(lsHTTP),
         serviceConstructor = {
           NotificationTokenHTTPCalls(
-            http = lsHTTP,
+            http = lsHTTP.get(),
             executor = NamedThreadPools.namedThreadPool(1, "http-notifications", 19)
           )
         }
@@ -887,54 +979,50 @@ internal object MainServices {
       serviceConstructor = { return@addService AudioBookManifests }
     )
 
-    var profilesControllerTypeService: ProfilesControllerType
+    /*
+     * The books controller reads its services from the directory, and so can only be
+     * created once every service above has started.
+     */
+
+    graph.awaitAll()
 
     val bookController =
-      this.run {
+      graph.add(strings.bootingGeneral("books controller")) {
         publishEvent(strings.bootingGeneral("books controller"))
         val execBooks =
           NamedThreadPools.namedThreadPool(1, "books", 19)
         val controller =
-          Controller.createFromServiceDirectory(
-            application = context,
-            services = services.build(),
-            executorService = execBooks,
-            accountEvents = accountEvents,
-            profileEvents = profileEvents,
-            cacheDirectory = context.cacheDir
-          )
-        profilesControllerTypeService =
-          addService(
-            message = strings.bootingGeneral("profiles controller"),
-            interfaceType = ProfilesControllerType::class.java,
-            serviceConstructor = { controller }
-          )
-
-        addService(
-          message = strings.bootingGeneral("notifications service"),
-          interfaceType = NotificationsServiceType::class.java,
-          serviceConstructor = {
-            NotificationsService(
-              context = context,
-              httpCalls = notificationTokenHTTPCalls,
-              notificationResources = MainNotificationResources(context),
-              profilesController = profilesControllerTypeService
+          synchronized(services) {
+            Controller.createFromServiceDirectory(
+              application = context,
+              services = services.build(),
+              executorService = execBooks,
+              accountEvents = accountEvents,
+              profileEvents = profileEvents,
+              cacheDirectory = context.cacheDir
             )
           }
-        )
+        register(ProfilesControllerType::class.java, controller)
+        register(BooksControllerType::class.java, controller)
+        register(BooksPreviewControllerType::class.java, controller)
+        controller
+      }.get()
 
-        addService(
-          message = strings.bootingGeneral("books controller"),
-          interfaceType = BooksControllerType::class.java,
-          serviceConstructor = { controller }
-        )
-        addService(
-          message = strings.bootingGeneral("books preview controller"),
-          interfaceType = BooksPreviewControllerType::class.java,
-          serviceConstructor = { controller }
+    val profilesControllerTypeService: ProfilesControllerType = bookController
+
+    addService(
+      message = strings.bootingGeneral("notifications service"),
+      interfaceType = NotificationsServiceType::class.java,
+      dependencies = listOf(notificationTokenHTTPCalls),
+      serviceConstructor = {
+        NotificationsService(
+          context = context,
+          httpCalls = notificationTokenHTTPCalls.get(),
+          notificationResources = MainNotificationResources(context),
+          profilesController = profilesControllerTypeService
         )
-        controller
       }
+    )
 
     addService(
       message = strings.bootingGeneral("account events"),
@@ -950,52 +1038,65 @@ internal object MainServices {
     addService(
       message = strings.bootingGeneral("audiobook time tracker registry"),
       interfaceType = TimeTrackingServiceType::class.java,
+      dependencies = listOf(lsHTTP, directories),
       serviceConstructor = {
         TimeTrackingService.create(
           profiles = profilesControllerTypeService,
-          httpCalls = TimeTrackingHTTPCalls(lsHTTP),
+          httpCalls = TimeTrackingHTTPCalls(lsHTTP.get()),
           clock = { OffsetDateTime.now(UTC) },
           timeSegments = PlayerModel.timeTracker.timeSegments,
-          debugDirectory = directories.directoryStorageTimeTrackingDebug.toPath(),
-          collectorDirectory = directories.directoryStorageTimeTrackingCollector.toPath(),
-          senderDirectory = directories.directoryStorageTimeTrackingSender.toPath()
+          debugDirectory = directories.get().directoryStorageTimeTrackingDebug.toPath(),
+          collectorDirectory = directories.get().directoryStorageTimeTrackingCollector.toPath(),
+          senderDirectory = directories.get().directoryStorageTimeTrackingSender.toPath()
         )
       }
     )
 
-    publishEvent(strings.bootingGeneral("bookmark service"))
-    val bookmarksService =
-      createBookmarksService(lsHTTP, bookController)
-
     addService(
       message = strings.bootingGeneral("bookmarks service"),
       interfaceType = BookmarkServiceType::class.java,
-      serviceConstructor = { bookmarksService }
+      dependencies = listOf(lsHTTP),
+      serviceConstructor = { createBookmarksService(lsHTTP.get(), bookController) }
     )
 
-    val badgeLookup =
-      addService(
-        message = strings.bootingGeneral("book cover badge lookup"),
-        interfaceType = BookCoverBadgeLookupType::class.java,
-        serviceConstructor = {
-          createBookCoverBadgeLookup(
-            context = context,
-            screenSize = screenSize
-          )
-        }
-      )
+    addService(
+      message = strings.bootingGeneral("book cover badge lookup"),
+      interfaceType = BookCoverBadgeLookupType::class.java,
+      dependencies = listOf(screenSize),
+      serviceConstructor = {
+        createBookCoverBadgeLookup(
+          context = context,
+          screenSize = screenSize.get()
+        )
+      }
+    )
 
     addService(
       message = strings.bootingGeneral("book cover provider"),
       interfaceType = CatalogOPDSClients::class.java,
+      dependencies = listOf(feedLoader),
       serviceConstructor = {
         createCatalogOPDSClients(
           profiles = profilesControllerTypeService,
-          feedLoader = feedLoader
+          feedLoader = feedLoader.get()
         )
       }
     )
 
+    graph.awaitAll()
+
+    val bootTrace = graph.trace()
+    register(MainBootTrace::class.java, bootTrace)
+    for (entry in bootTrace.slowest().take(10)) {
+      logger.debug(
+        "boot trace: {} started +{}ms took {}ms on {}",
+        entry.name,
+        entry.started.toMillis(),
+        entry.duration.toMillis(),
+        entry.thread
+      )
+    }
+
     val subscription =
       profilesControllerTypeService
         .profileEvents()
@@ -1006,7 +1107,7 @@ internal object MainServices {
 
     showThreads()
 
-    publishApplicationStartupEvent(context, analytics)
+    publishApplicationStartupEvent(context, analytics.get())
     val finalServices = services.build()
     Services.initialize(finalServices)
     logger.debug("boot completed")
@@ -1030,13 +1131,15 @@ internal object MainServices {
     context: Application,
     bookRegistry: BookRegistryReadableType,
     coverGenerator: BookCoverGeneratorType,
-    badgeLookup: BookCoverBadgeLookupType
+    badgeLookup: BookCoverBadgeLookupType,
+    http: LSHTTPClientType
   ): ImageLoader2Type =
     ImageLoader2.create(
       context,
       bookRegistry,
       coverGenerator,
-      badgeLookup
+      badgeLookup,
+      http
     )
 
   fun createNetworkAccessService(context: Application): LSHTTPNetworkAccessType {
@@ -1143,8 +1246,12 @@ internal object MainServices {
     directory: File
   ): DocumentStoreType =
     if (configuration != null) {
+      /*
+       * Documents are refreshed concurrently, as each refresh is a network round trip.
+       */
+
       val exec =
-        NamedThreadPools.namedThreadPool(1, "documents", 19)
+        NamedThreadPools.namedThreadPool(3, "documents", 19)
 
       val store =
         DocumentStores.create(
@@ -10,6 +10,7 @@ import org.librarysimplified.http.api.LSHTTPNetworkAccessType
 import org.librarysimplified.services.api.Services
 import org.librarysimplified.ui.R
 import org.nypl.simplified.threads.UIThread
+import org.nypl.simplified.ui.images.ImageLoader2Type
 import org.nypl.simplified.ui.main.MainBackButtonConsumerType
 import org.nypl.simplified.ui.main.MainBackButtonConsumerType.Result.BACK_BUTTON_CONSUMED
 import org.nypl.simplified.ui.main.MainNavigation
@@ -41,6 +42,7 @@ class SettingsDebugMenuNetworkFragment :
   private var subscriptions: CloseableCollectionType<*> = CloseableCollection.create()
   private lateinit var debugNetworkCellularAvailable: TextView
   private lateinit var debugNetworkCellularPermitted: TextView
+  private lateinit var debugNetworkCoverFetches: TextView
   private lateinit var debugNetworkWIFIAvailable: TextView
   private lateinit var debugNetworkWIFIPermitted: TextView
 
@@ -60,6 +62,8 @@ class SettingsDebugMenuNetworkFragment :
       view.findViewById(R.id.debugNetworkCellularPermitted)
     this.debugNetworkCellularAvailable =
       view.findViewById(R.id.debugNetworkCellularAvailable)
+    this.debugNetworkCoverFetches =
+      view.findViewById(R.id.debugNetworkCoverFetches)
 
     this.toolbarBack = view.findViewById(R.id.debugToolbarBackIconTouch)
     this.toolbarBack.setOnClickListener {
@@ -70,10 +74,22 @@ class SettingsDebugMenuNetworkFragment :
   override fun onStart() {
     super.onStart()
 
+    val services =
+      Services.serviceDirectory()
     val networkAccess =
-      Services
-        .serviceDirectory()
-        .requireService(LSHTTPNetworkAccessType::class.java)
+      services.requireService(LSHTTPNetworkAccessType::class.java)
+
+    val covers =
+      services.requireService(ImageLoader2Type::class.java).coverFetchStatistics
+    this.debugNetworkCoverFetches.text =
+      buildString {
+        append("Cover fetches: ${covers.requestCount}\n")
+        append("Failed: ${covers.failureCount}, cancelled: ${covers.cancellationCount}\n")
+        append("Received: ${covers.byteCount} bytes\n")
+        append("Response time: mean ${covers.responseTimeMean.toMillis()}ms, ")
+        append("maximum ${covers.responseTimeMaximum.toMillis()}ms\n")
+        append("Waited for connections: ${covers.waitTimeTotal.toMillis()}ms")
+      }
 
     this.subscriptions = CloseableCollection.create()
     this.subscriptions.add(
@@ -0,0 +1,63 @@
+package org.librarysimplified.viewer.audiobook
+
+import org.librarysimplified.audiobook.license_check.spi.SingleLicenseCheckParameters
+import org.librarysimplified.audiobook.license_check.spi.SingleLicenseCheckProviderType
+import org.librarysimplified.audiobook.license_check.spi.SingleLicenseCheckResult
+import org.librarysimplified.audiobook.license_check.spi.SingleLicenseCheckType
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Wraps a list of license check providers, and records the results of the checks that they
+ * create, so that the outcome of one particular set of checks can be known without
+ * consulting any shared player state. `onAllSucceeded` is called once, on the thread that
+ * executed the last check, if every check is executed and none of them fail.
+ */
+
+internal class AudioBookLicenseCheckRecorder(
+  private val providers: List<SingleLicenseCheckProviderType>,
+  private val onAllSucceeded: () -> Unit = {}
+) {
+  private val executed = AtomicInteger(0)
+  private val failed = AtomicBoolean(false)
+
+  /**
+   * The wrapped providers, to be passed to the player in place of the original providers.
+   */
+
+  val checks: List<SingleLicenseCheckProviderType> =
+    this.providers.map(this::wrap)
+
+  private fun onExecuted() {
+    if (this.executed.incrementAndGet() == this.providers.size && !this.failed.get()) {
+      this.onAllSucceeded.invoke()
+    }
+  }
+
+  private fun wrap(provider: SingleLicenseCheckProviderType): SingleLicenseCheckProviderType =
+    object : SingleLicenseCheckProviderType {
+      override val name: String =
+        provider.name
+
+      override fun createLicenseCheck(parameters: SingleLicenseCheckParameters): SingleLicenseCheckType {
+        val check = provider.createLicenseCheck(parameters)
+        return object : SingleLicenseCheckType {
+          override fun execute(): SingleLicenseCheckResult {
+            val result =
+              try {
+                check.execute()
+              } catch (e: Exception) {
+                this@AudioBookLicenseCheckRecorder.failed.set(true)
+                throw e
+              }
+
+            if (result is SingleLicenseCheckResult.Failed) {
+              this@AudioBookLicenseCheckRecorder.failed.set(true)
+            }
+            this@AudioBookLicenseCheckRecorder.onExecuted()
+            return result
+          }
+        }
+      }
+    }
+}
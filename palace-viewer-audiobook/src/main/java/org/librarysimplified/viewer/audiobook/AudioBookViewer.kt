@@ -4,6 +4,7 @@ import android.app.Activity
 import android.content.Intent
 import one.irradia.mime.api.MIMEType
 import org.librarysimplified.audiobook.api.PlayerBookCredentialsNone
+import org.librarysimplified.audiobook.api.PlayerBookCredentialsType
 import org.librarysimplified.audiobook.feedbooks.FeedbooksPlayerExtension
 import org.librarysimplified.audiobook.license_check.spi.SingleLicenseCheckProviderType
 import org.librarysimplified.audiobook.manifest.api.PlayerPalaceID
@@ -15,12 +16,15 @@ import org.librarysimplified.audiobook.views.PlayerModelState
 import org.librarysimplified.http.api.LSHTTPClientType
 import org.librarysimplified.services.api.ServiceDirectoryType
 import org.librarysimplified.services.api.Services
+import org.nypl.simplified.accounts.api.AccountID
 import org.nypl.simplified.books.api.Book
 import org.nypl.simplified.books.api.BookDRMInformation
 import org.nypl.simplified.books.api.BookFormat
 import org.nypl.simplified.books.audio.AudioBookFeedbooksSecretServiceType
 import org.nypl.simplified.books.audio.AudioBookLink
+import org.nypl.simplified.books.audio.AudioBookManifestCache
 import org.nypl.simplified.books.audio.AudioBookManifestRequest
+import org.nypl.simplified.books.audio.AudioBookProviders
 import org.nypl.simplified.books.audio.AudioBookManifestStrategiesType
 import org.nypl.simplified.books.book_database.api.BookFormats
 import org.nypl.simplified.books.formats.api.StandardFormatNames
@@ -30,7 +34,6 @@ import org.nypl.simplified.viewer.spi.ViewerParameters
 import org.nypl.simplified.viewer.spi.ViewerProviderType
 import org.slf4j.LoggerFactory
 import java.net.URI
-import java.util.ServiceLoader
 import java.util.concurrent.CompletableFuture
 import java.util.concurrent.atomic.AtomicBoolean
 
@@ -99,9 +102,9 @@ class AudioBookViewer : ViewerProviderType {
     val profiles =
       services.requireService(ProfilesControllerType::class.java)
     val parserExtensions =
-      ServiceLoader.load(ManifestParserExtensionType::class.java).toList()
+      AudioBookProviders.parserExtensions
     val licenseChecks =
-      ServiceLoader.load(SingleLicenseCheckProviderType::class.java).toList()
+      AudioBookProviders.licenseChecks
 
     val profileCurrent =
       profiles.profileCurrent()
@@ -206,13 +209,21 @@ class AudioBookViewer : ViewerProviderType {
     if (drmInformation is BookDRMInformation.LCP) {
       val licenseBytes = drmInformation.licenseBytes
       if (licenseBytes != null && manifest != null) {
+        val manifestBytes = manifest.manifestFile.readBytes()
         PlayerModel.parseAndCheckLCPLicense(
           bookCredentials = bookCredentials,
           cacheDir = activity.cacheDir,
           httpClient = httpClient,
           licenseBytes = licenseBytes,
-          licenseChecks = licenseChecks,
-          manifestUnparsed = ManifestUnparsed(palaceID, manifest.manifestFile.readBytes()),
+          licenseChecks =
+            this.licenseChecksFor(
+              palaceID = palaceID,
+              manifestBytes = manifestBytes,
+              licenseBytes = licenseBytes,
+              accountID = book.account,
+              licenseChecks = licenseChecks
+            ),
+          manifestUnparsed = ManifestUnparsed(palaceID, manifestBytes),
           parserExtensions = parserExtensions,
         )
         this.openActivity(activity)
@@ -246,6 +257,9 @@ class AudioBookViewer : ViewerProviderType {
        * The following series of future compositions is slightly unpleasant because Android
        * doesn't expose all of the CompletableFuture methods until you get up to about API 34.
        * Thanks.
+       *
+       * The player parses the downloaded manifest itself, and the manifest bytes are not known
+       * until the download completes, so the full license checks always run on this path.
        */
 
       val downloadFuture =
@@ -297,18 +311,15 @@ class AudioBookViewer : ViewerProviderType {
          */
 
         val parseFuture =
-          PlayerModel.parseAndCheckManifest(
+          this.parseAndCheckStoredManifest(
+            activity = activity,
             bookCredentials = bookCredentials,
-            cacheDir = activity.cacheDir,
-            licenseChecks = licenseChecks,
+            contentType = format.contentType,
             httpClient = httpClient,
-            manifest =
-              ManifestFulfilled(
-                source = null,
-                contentType = format.contentType,
-                authorization = null,
-                data = manifest.manifestFile.readBytes()
-              ),
+            licenseChecks = licenseChecks,
+            manifestBytes = manifest.manifestFile.readBytes(),
+            licenseBytes = (drmInformation as? BookDRMInformation.LCP)?.licenseBytes,
+            accountID = book.account,
             palaceID = palaceID,
             parserExtensions = parserExtensions,
           )
@@ -322,22 +333,96 @@ class AudioBookViewer : ViewerProviderType {
     }
 
     this.logger.debug("Parsing existing manifest.")
-    PlayerModel.parseAndCheckManifest(
+    this.parseAndCheckStoredManifest(
+      activity = activity,
       bookCredentials = bookCredentials,
-      cacheDir = activity.cacheDir,
+      contentType = format.contentType,
+      httpClient = httpClient,
       licenseChecks = licenseChecks,
+      manifestBytes = manifest.manifestFile.readBytes(),
+      licenseBytes = (drmInformation as? BookDRMInformation.LCP)?.licenseBytes,
+      accountID = book.account,
+      palaceID = palaceID,
+      parserExtensions = parserExtensions,
+    )
+    this.openActivity(activity)
+  }
+
+  /**
+   * Parse and check a manifest stored on the device. The license checks are skipped if they
+   * recently succeeded for exactly the same manifest, license, and account.
+   */
+
+  private fun parseAndCheckStoredManifest(
+    activity: Activity,
+    bookCredentials: PlayerBookCredentialsType,
+    contentType: MIMEType,
+    httpClient: LSHTTPClientType,
+    licenseChecks: List<SingleLicenseCheckProviderType>,
+    manifestBytes: ByteArray,
+    licenseBytes: ByteArray?,
+    accountID: AccountID,
+    palaceID: PlayerPalaceID,
+    parserExtensions: List<ManifestParserExtensionType>
+  ): CompletableFuture<*> {
+    return PlayerModel.parseAndCheckManifest(
+      bookCredentials = bookCredentials,
+      cacheDir = activity.cacheDir,
+      licenseChecks =
+        this.licenseChecksFor(
+          palaceID = palaceID,
+          manifestBytes = manifestBytes,
+          licenseBytes = licenseBytes,
+          accountID = accountID,
+          licenseChecks = licenseChecks
+        ),
       httpClient = httpClient,
       manifest =
         ManifestFulfilled(
           source = null,
-          contentType = format.contentType,
+          contentType = contentType,
           authorization = null,
-          data = manifest.manifestFile.readBytes()
+          data = manifestBytes
         ),
       palaceID = palaceID,
       parserExtensions = parserExtensions,
     )
-    this.openActivity(activity)
+  }
+
+  /**
+   * Return the license checks to run for a manifest and license stored on the device. No
+   * checks are returned if the checks recently succeeded for exactly the same manifest,
+   * license, and account. Otherwise, the given checks are returned wrapped so that a success
+   * is recorded if this particular set of checks runs to completion without failing, and
+   * reopening the book shortly afterwards does not repeat them.
+   */
+
+  private fun licenseChecksFor(
+    palaceID: PlayerPalaceID,
+    manifestBytes: ByteArray,
+    licenseBytes: ByteArray?,
+    accountID: AccountID,
+    licenseChecks: List<SingleLicenseCheckProviderType>
+  ): List<SingleLicenseCheckProviderType> {
+    val cache =
+      AudioBookManifestCache.shared
+    val cacheKey =
+      AudioBookManifestCache.keyOf(
+        palaceID = palaceID,
+        source = null,
+        manifestBytes = manifestBytes,
+        licenseBytes = licenseBytes,
+        accountID = accountID
+      )
+
+    if (cache.isLicenseChecked(cacheKey)) {
+      this.logger.debug("License checks recently succeeded for this manifest; skipping them.")
+      return listOf()
+    }
+
+    return AudioBookLicenseCheckRecorder(licenseChecks) {
+      cache.putLicenseChecked(cacheKey)
+    }.checks
   }
 
   private fun triggerFailure(